@@ -26,12 +26,18 @@ public final class StandardArgumentDefinitions {
     public static final String ENABLE_ALL_ANNOTATIONS = "enable-all-annotations";
     public static final String CREATE_OUTPUT_BAM_INDEX_LONG_NAME = "create-output-bam-index";
     public static final String CREATE_OUTPUT_BAM_MD5_LONG_NAME = "create-output-bam-md5";
+    public static final String OUTPUT_BAM_COMPRESSION_THREADS_LONG_NAME = "output-bam-compression-threads";
     public static final String CREATE_OUTPUT_VARIANT_INDEX_LONG_NAME = "create-output-variant-index";
     public static final String CREATE_OUTPUT_VARIANT_MD5_LONG_NAME = "create-output-variant-md5";
     public static final String METRIC_ACCUMULATION_LEVEL_LONG_NAME = "metric-accumulation-level";
     public static final String CLOUD_PREFETCH_BUFFER_LONG_NAME = "cloud-prefetch-buffer";
     public static final String CLOUD_INDEX_PREFETCH_BUFFER_LONG_NAME = "cloud-index-prefetch-buffer";
     public static final String DISABLE_BAM_INDEX_CACHING_LONG_NAME = "disable-bam-index-caching";
+    public static final String READS_DECOMPRESSION_THREADS_LONG_NAME = "reads-decompression-threads";
+    public static final String READS_DECOMPRESSION_BUFFER_LONG_NAME = "reads-decompression-buffer";
+    public static final String MEMORY_MAPPED_REFERENCE_LONG_NAME = "memory-mapped-reference";
+    public static final String MAX_FEATURES_IN_MEMORY_LONG_NAME = "max-features-in-memory";
+    public static final String PREFETCH_SHARDS_LONG_NAME = "prefetch-shards";
     public static final String DISABLE_SEQUENCE_DICT_VALIDATION_NAME = "disable-sequence-dictionary-validation";
     public static final String ADD_OUTPUT_SAM_PROGRAM_RECORD = "add-output-sam-program-record";
     public static final String ADD_OUTPUT_VCF_COMMANDLINE = "add-output-vcf-command-line";
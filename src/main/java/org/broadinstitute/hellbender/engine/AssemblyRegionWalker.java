@@ -1,26 +1,35 @@
 package org.broadinstitute.hellbender.engine;
 
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.vcf.VCFHeader;
 import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLineException;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.engine.spark.AssemblyRegionArgumentCollection;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.IGVUtils;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
 import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.variant.writers.ShardOrderedVariantContextWriter;
 
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 
 /**
  * An AssemblyRegionWalker is a tool that processes an entire region of reads at a time, each marked as either "active"
@@ -39,6 +48,18 @@ import java.util.List;
  *
  * Internally, the reads are loaded in chunks called read shards, which are then subdivided into active/inactive regions
  * for processing by the tool implementation. One read shard is created per contig.
+ *
+ * Tools that override {@link #supportsParallelTraversal} to return true may be run with more than one
+ * {@link #traversalThreads traversal thread}. In that mode the traversal intervals are instead divided into shards of
+ * roughly {@link #traversalShardSize} bases, and each shard is processed by a worker thread with its own reads, reference
+ * and feature data sources. {@link #assemblyRegionEvaluator} and {@link #apply} are then invoked concurrently, and any
+ * output passed to {@link #emitInTraversalOrder} is replayed on the traversal thread in genomic order. Records written to
+ * a writer wrapped by {@link #makeTraversalOrderedWriter} are likewise written in genomic order, but are buffered
+ * per shard under a memory cap rather than held until the shard is replayed.
+ *
+ * Alternatively, single-threaded traversal may {@link #prefetchShards prefetch} the reads, reference bases and Features
+ * for upcoming shards (of the same size as in parallel traversal) on a background thread while the current shard is
+ * processed.
  */
 public abstract class AssemblyRegionWalker extends WalkerBase {
 
@@ -56,6 +77,51 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
     @Argument(fullName = AssemblyRegionArgumentCollection.ASSEMBLY_REGION_OUT_LONG_NAME, doc="Output the assembly region to this IGV formatted file", optional = true)
     protected String assemblyRegionOut = null;
 
+    public static final String TRAVERSAL_THREADS_LONG_NAME = "traversal-threads";
+    public static final String TRAVERSAL_SHARD_SIZE_LONG_NAME = "traversal-shard-size";
+    public static final int DEFAULT_TRAVERSAL_SHARD_SIZE = 1_000_000;
+    public static final String TRAVERSAL_OUTPUT_BUFFER_BYTES_LONG_NAME = "traversal-output-buffer-bytes";
+
+    /**
+     * Number of threads used to process assembly regions. Values greater than 1 are only accepted by tools that
+     * support parallel traversal. Note that with more than one thread the traversal intervals are divided into
+     * shards of {@link #traversalShardSize} bases, so region boundaries (and therefore output) may differ slightly
+     * from a single-threaded run near shard boundaries. The reads of each shard are also downsampled with a random
+     * number generator seeded from the start of the shard, rather than the global one a single-threaded run uses, so
+     * when reads are downsampled the reads kept, and therefore output, differ from a single-threaded run, though not
+     * between runs with different numbers of threads.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_THREADS_LONG_NAME, doc = "Number of threads to use for processing assembly regions", optional = true, minValue = 1)
+    public int traversalThreads = 1;
+
+    /**
+     * Size in bases of the units of work handed to each traversal thread when {@link #traversalThreads} is greater than 1.
+     * Nearby intervals on the same contig are grouped into the same shard as long as the shard does not exceed this size.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_SHARD_SIZE_LONG_NAME, doc = "Size of the shards processed by each traversal thread when running with more than one traversal thread", optional = true, minValue = 1)
+    public int traversalShardSize = DEFAULT_TRAVERSAL_SHARD_SIZE;
+
+    /**
+     * Maximum estimated size in bytes of the records written through {@link #makeTraversalOrderedWriter traversal-ordered
+     * writers} that are held in memory while waiting for the shards before them to complete, when {@link #traversalThreads}
+     * is greater than 1. Beyond this, the output of the shards furthest from being written is spilled to temporary files.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_OUTPUT_BUFFER_BYTES_LONG_NAME, doc = "Maximum size in bytes of out-of-order output to buffer in memory when running with more than one traversal thread", optional = true, minValue = 0)
+    public long traversalOutputBufferBytes = ShardOrderedVariantContextWriter.DEFAULT_MAX_BYTES_IN_RAM;
+
+    /**
+     * Number of shards of {@link #traversalShardSize} bases whose reads, reference bases and Features are loaded on a
+     * background thread ahead of the shard being processed. As with parallel traversal, region boundaries may differ
+     * slightly from a run without prefetching near shard boundaries. Cannot be combined with more than one
+     * {@link #traversalThreads traversal thread}, since each traversal thread already overlaps its I/O with the others.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.PREFETCH_SHARDS_LONG_NAME, doc = "Number of shards to load ahead of time on a background thread (0 to disable)", optional = true, minValue = 0)
+    public int prefetchShards = 0;
+
     private PrintStream assemblyRegionOutStream;
 
     @Override
@@ -69,6 +135,20 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
 
     private List<MultiIntervalLocalReadShard> readShards;
 
+    private List<List<SimpleInterval>> parallelShardIntervals;
+
+    /**
+     * Index of the shard being processed by the current worker thread during parallel traversal; unset on other threads
+     */
+    private final ThreadLocal<Integer> currentShardIndex = new ThreadLocal<>();
+
+    /**
+     * Reorder buffers of the writers returned by {@link #makeTraversalOrderedWriter}, which are told when each shard completes
+     */
+    private final List<ShardOrderedVariantContextWriter> traversalOrderedSinks = new ArrayList<>();
+
+    private boolean parallelTraversalCompleted = false;
+
     /**
      * Initialize data sources for traversal.
      *
@@ -80,8 +160,21 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
 
         assemblyRegionArgs.validate();
 
+        if ( traversalThreads > 1 && ! supportsParallelTraversal() ) {
+            throw new CommandLineException.BadArgumentValue(TRAVERSAL_THREADS_LONG_NAME, Integer.toString(traversalThreads),
+                    "this tool does not support parallel traversal with the arguments provided");
+        }
+        if ( traversalThreads > 1 && prefetchShards > 0 ) {
+            throw new CommandLineException.BadArgumentValue(StandardArgumentDefinitions.PREFETCH_SHARDS_LONG_NAME, Integer.toString(prefetchShards),
+                    "shard prefetching cannot be combined with more than one traversal thread");
+        }
+
         final List<SimpleInterval> intervals = hasUserSuppliedIntervals() ? userIntervals : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
-        readShards = makeReadShards(intervals);
+        if ( traversalThreads > 1 || prefetchShards > 0 ) {
+            parallelShardIntervals = makeParallelShardIntervals(intervals, traversalShardSize);
+        } else {
+            readShards = makeReadShards(intervals);
+        }
 
         initializeAssemblyRegionOutputStreams();
     }
@@ -107,6 +200,41 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
         return shards;
     }
 
+    /**
+     * Divide our intervals for traversal into the units of work processed by each thread during parallel traversal.
+     *
+     * Intervals larger than {@code shardSize} are cut into pieces of up to {@code shardSize} bases, and then
+     * consecutive pieces on the same contig are grouped together for as long as the group spans no more than
+     * {@code shardSize} bases. The resulting groups are returned in traversal order.
+     *
+     * @param intervals unmodified intervals for traversal
+     * @param shardSize maximum number of bases spanned by each group of intervals
+     * @return intervals for each parallel shard, in traversal order
+     */
+    static List<List<SimpleInterval>> makeParallelShardIntervals(final List<SimpleInterval> intervals, final int shardSize) {
+        Utils.validateArg(shardSize >= 1, "shardSize must be >= 1");
+        final List<List<SimpleInterval>> shards = new ArrayList<>();
+
+        for ( final List<SimpleInterval> allIntervalsOnContig : IntervalUtils.groupIntervalsByContig(intervals) ) {
+            List<SimpleInterval> currentShard = new ArrayList<>();
+            for ( final SimpleInterval interval : allIntervalsOnContig ) {
+                for ( int start = interval.getStart(); start <= interval.getEnd(); start += shardSize ) {
+                    final SimpleInterval piece = new SimpleInterval(interval.getContig(), start, Math.min(start + shardSize - 1, interval.getEnd()));
+                    if ( ! currentShard.isEmpty() && piece.getEnd() - currentShard.get(0).getStart() + 1 > shardSize ) {
+                        shards.add(currentShard);
+                        currentShard = new ArrayList<>();
+                    }
+                    currentShard.add(piece);
+                }
+            }
+            if ( ! currentShard.isEmpty() ) {
+                shards.add(currentShard);
+            }
+        }
+
+        return shards;
+    }
+
     private void initializeAssemblyRegionOutputStreams() {
         if ( assemblyRegionOut != null ) {
             try {
@@ -140,8 +268,25 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
         return defaultFilters;
     }
 
-    protected ReadsDownsampler createDownsampler() {
-        return assemblyRegionArgs.maxReadsPerAlignmentStart > 0 ? new PositionalDownsampler(assemblyRegionArgs.maxReadsPerAlignmentStart, getHeaderForReads()) : null;
+    /**
+     * Create the downsampler applied to the reads of a shard, or null to disable downsampling.
+     *
+     * @param random source of any random choices made by the downsampler
+     */
+    protected ReadsDownsampler createDownsampler(final Random random) {
+        return assemblyRegionArgs.maxReadsPerAlignmentStart > 0 ? new PositionalDownsampler(assemblyRegionArgs.maxReadsPerAlignmentStart, getHeaderForReads(), random) : null;
+    }
+
+    /**
+     * Create the downsampler for one of the shards produced by {@link #makeParallelShardIntervals}, with its own random
+     * number generator seeded from the start of the shard, so that the reads kept in a shard depend neither on
+     * the thread that processes it nor on the shards processed before it.
+     *
+     * @param shardIntervals intervals spanned by the shard
+     */
+    private ReadsDownsampler createShardDownsampler(final List<SimpleInterval> shardIntervals) {
+        final SimpleInterval shardStart = shardIntervals.get(0);
+        return createDownsampler(new Random(31L * shardStart.getContig().hashCode() + shardStart.getStart()));
     }
 
     /**
@@ -155,6 +300,14 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
      */
     @Override
     public void traverse() {
+        if ( traversalThreads > 1 ) {
+            traverseInParallel();
+            return;
+        }
+        if ( prefetchShards > 0 ) {
+            traverseWithPrefetching();
+            return;
+        }
 
         CountingReadFilter countedFilter = makeReadFilter();
 
@@ -167,7 +320,7 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
             // instead of filtering the reads directly here
             readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
             readShard.setReadFilter(countedFilter);
-            readShard.setDownsampler(createDownsampler());
+            readShard.setDownsampler(createDownsampler(Utils.getRandomGenerator()));
             readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
 
             processReadShard(readShard, reference, features);
@@ -180,11 +333,11 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
      * Divide the given Shard up into active/inactive AssemblyRegions using the {@link #assemblyRegionEvaluator},
      * and send each region to the tool implementation for processing.
      *
-     * @param shard MultiIntervalLocalReadShard to process
+     * @param shard MultiIntervalShard to process
      * @param reference Reference data source
      * @param features FeatureManager
      */
-    private void processReadShard(MultiIntervalLocalReadShard shard, ReferenceDataSource reference, FeatureManager features ) {
+    private void processReadShard(MultiIntervalShard<GATKRead> shard, ReferenceDataSource reference, FeatureManager features ) {
         final Iterator<AssemblyRegion> assemblyRegionIter = new AssemblyRegionIterator(shard, getHeaderForReads(), reference, features, assemblyRegionEvaluator(), assemblyRegionArgs);
 
         // Call into the tool implementation to process each assembly region from this shard.
@@ -206,6 +359,242 @@ public abstract class AssemblyRegionWalker extends WalkerBase {
         }
     }
 
+    /**
+     * Implementation of assembly region traversal in which the reads, reference bases and Features for upcoming shards
+     * are loaded on a background thread, with its own data sources, while the current shard is processed.
+     *
+     * Reads are filtered, transformed and downsampled on the background thread as they are loaded.
+     */
+    private void traverseWithPrefetching() {
+        // Since we're processing regions rather than individual reads, tell the progress
+        // meter to check the time more frequently (every 10 regions instead of every 1000 regions).
+        progressMeter.setRecordsBetweenTimeChecks(10L);
+
+        final CountingReadFilter countedFilter = makeReadFilter();
+        try ( final PrefetchedShard.Loader loader = new PrefetchedShard.Loader(makeReadsDataSource(), makeReferenceDataSource(), hasFeatures() ? makeFeatureManager() : null);
+              final ShardPrefetcher<List<SimpleInterval>, PrefetchedShard> prefetcher = new ShardPrefetcher<>(parallelShardIntervals.iterator(), prefetchShards,
+                      shardIntervals -> {
+                          final MultiIntervalLocalReadShard readShard = new MultiIntervalLocalReadShard(shardIntervals, assemblyRegionArgs.assemblyRegionPadding, loader.getReads());
+                          readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
+                          readShard.setReadFilter(countedFilter);
+                          readShard.setDownsampler(createShardDownsampler(shardIntervals));
+                          readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
+                          return loader.load(readShard.getIntervals(), readShard.getPaddedIntervals(), readShard.iterator());
+                      }) ) {
+            while ( prefetcher.hasNext() ) {
+                final PrefetchedShard shard = prefetcher.next();
+                shard.fillFeatureCaches(features);
+                processReadShard(shard, shard.getReference(reference), features);
+            }
+        }
+
+        logger.info(countedFilter.getSummaryLine());
+    }
+
+    /**
+     * Parallel implementation of assembly region traversal.
+     *
+     * Each shard produced by {@link #makeParallelShardIntervals} is processed on a worker thread using that thread's own
+     * data sources, with output deferred via {@link #emitInTraversalOrder}. The deferred output of each shard is replayed
+     * on this thread once it and all preceding shards have completed.
+     */
+    private void traverseInParallel() {
+        // Since we're processing regions rather than individual reads, tell the progress
+        // meter to check the time more frequently (every 10 regions instead of every 1000 regions).
+        progressMeter.setRecordsBetweenTimeChecks(10L);
+
+        logger.info("Processing " + parallelShardIntervals.size() + " shards using " + traversalThreads + " traversal threads");
+
+        try ( final ParallelTraversalExecutor<ParallelTraversalWorker> executor =
+                      new ParallelTraversalExecutor<>(traversalThreads, "traversal-thread", true, ParallelTraversalWorker::new) ) {
+            for ( int i = 0; i < parallelShardIntervals.size(); i++ ) {
+                final int shardIndex = i;
+                executor.submit(worker -> worker.processShard(shardIndex, parallelShardIntervals.get(shardIndex)));
+            }
+            executor.awaitCompletion();
+            parallelTraversalCompleted = true;
+
+            // each worker counts the reads it filtered by filter, so combine the counts into a single summary
+            final CountingReadFilter countedFilter = makeReadFilter();
+            executor.getWorkerStates().forEach(worker -> countedFilter.addFilteredCounts(worker.readFilter));
+            logger.info(countedFilter.getSummaryLine());
+        }
+    }
+
+    /**
+     * Per-thread state for parallel traversal. Each worker owns independent data sources, read filters/transformers
+     * and assembly region evaluator, since none of these are thread-safe.
+     */
+    private final class ParallelTraversalWorker implements AutoCloseable {
+        private final ReadsDataSource workerReads = makeReadsDataSource();
+        private final ReferenceDataSource workerReference = makeReferenceDataSource();
+        private final FeatureManager workerFeatures = hasFeatures() ? makeFeatureManager() : null;
+        private final CountingReadFilter readFilter = makeReadFilter();
+        private final AssemblyRegionEvaluator evaluator = assemblyRegionEvaluator();
+
+        /**
+         * Process all assembly regions in a shard on the calling (worker) thread.
+         *
+         * @param shardIndex index of the shard in traversal order
+         * @param shardIntervals intervals spanned by the shard
+         */
+        void processShard(final int shardIndex, final List<SimpleInterval> shardIntervals) {
+            currentShardIndex.set(shardIndex);
+            try {
+                processAssemblyRegions(shardIntervals);
+            } finally {
+                currentShardIndex.remove();
+            }
+            traversalOrderedSinks.forEach(sink -> sink.completeShard(shardIndex));
+        }
+
+        private void processAssemblyRegions(final List<SimpleInterval> shardIntervals) {
+            final MultiIntervalLocalReadShard shard = new MultiIntervalLocalReadShard(shardIntervals, assemblyRegionArgs.assemblyRegionPadding, workerReads);
+            shard.setPreReadFilterTransformer(makePreReadFilterTransformer());
+            shard.setReadFilter(readFilter);
+            shard.setDownsampler(createShardDownsampler(shardIntervals));
+            shard.setPostReadFilterTransformer(makePostReadFilterTransformer());
+
+            final Iterator<AssemblyRegion> assemblyRegionIter = new AssemblyRegionIterator(shard, getHeaderForReads(), workerReference, workerFeatures, evaluator, assemblyRegionArgs);
+            while ( assemblyRegionIter.hasNext() ) {
+                final AssemblyRegion assemblyRegion = assemblyRegionIter.next();
+                if ( assemblyRegionArgs.forceActive ) {
+                    assemblyRegion.setIsActive(true);
+                }
+
+                emitInTraversalOrder(() -> writeAssemblyRegion(assemblyRegion));
+
+                apply(assemblyRegion,
+                        new ReferenceContext(workerReference, assemblyRegion.getPaddedSpan()),
+                        new FeatureContext(workerFeatures, assemblyRegion.getPaddedSpan()));
+
+                final SimpleInterval span = assemblyRegion.getSpan();
+                emitInTraversalOrder(() -> progressMeter.update(span));
+            }
+        }
+
+        @Override
+        public void close() {
+            workerReads.close();
+            workerReference.close();
+            if ( workerFeatures != null ) {
+                workerFeatures.close();
+            }
+        }
+    }
+
+    /**
+     * Run an output action (such as writing records produced by {@link #apply} to an output file) in genomic order.
+     *
+     * During single-threaded traversal the action is run immediately. During parallel traversal the action is
+     * deferred until all shards preceding the one currently being processed have been emitted, and is then run on the
+     * traversal thread, so the action itself need not be thread-safe. Tools that support parallel traversal must send
+     * all of their output through this method rather than writing it directly from {@link #apply}.
+     *
+     * @param outputAction action to run in genomic order; must not depend on state that may change after this call
+     */
+    protected final void emitInTraversalOrder(final Runnable outputAction) {
+        ParallelTraversalExecutor.emit(outputAction);
+    }
+
+    /**
+     * Wrap a writer so that records added to it from {@link #apply} during parallel traversal are written in genomic
+     * order, as they would be by a single-threaded traversal. Unlike {@link #emitInTraversalOrder}, which holds the output
+     * of a shard in memory until the shard is replayed, records are passed on as soon as every preceding shard has
+     * completed, and those that must wait are buffered up to {@link #traversalOutputBufferBytes} and then spilled to disk.
+     * This bounds memory use for tools with voluminous output, such as GVCF records for every base.
+     *
+     * Must be called before traversal, and the header must be written to the returned writer before traversal starts. The
+     * header must describe every INFO and FORMAT field of the records, since spilled records are stored as VCF text.
+     * Closing the returned writer closes the wrapped one.
+     *
+     * @param writer writer to wrap, which need not be thread-safe
+     * @return {@code writer} itself during single-threaded traversal, otherwise a writer that may be used from {@link #apply}
+     */
+    protected final VariantContextWriter makeTraversalOrderedWriter(final VariantContextWriter writer) {
+        Utils.nonNull(writer);
+        return traversalThreads > 1 ? new TraversalOrderedWriter(writer) : writer;
+    }
+
+    /**
+     * Routes records added on worker threads to a {@link ShardOrderedVariantContextWriter} under the index of the
+     * current shard. Records added on any other thread, before or after traversal, are written directly.
+     */
+    private final class TraversalOrderedWriter implements VariantContextWriter {
+        private final VariantContextWriter writer;
+        private ShardOrderedVariantContextWriter sink;
+
+        TraversalOrderedWriter(final VariantContextWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void writeHeader(final VCFHeader header) {
+            writer.writeHeader(header);
+            makeSink(header);
+        }
+
+        @Override
+        public void setHeader(final VCFHeader header) {
+            writer.setHeader(header);
+            makeSink(header);
+        }
+
+        private void makeSink(final VCFHeader header) {
+            Utils.validate(sink == null, "The header has already been set");
+            sink = new ShardOrderedVariantContextWriter(writer, header, traversalOutputBufferBytes);
+            traversalOrderedSinks.add(sink);
+        }
+
+        @Override
+        public void add(final VariantContext vc) {
+            final Integer shardIndex = currentShardIndex.get();
+            if ( shardIndex == null ) {
+                writer.add(vc);
+            } else {
+                Utils.validate(sink != null, "The header must be written before traversal");
+                sink.add(shardIndex, vc);
+            }
+        }
+
+        @Override
+        public boolean checkError() {
+            return writer.checkError();
+        }
+
+        @Override
+        public void close() {
+            try {
+                if ( sink != null ) {
+                    sink.close();
+                }
+            } catch ( final GATKException e ) {
+                // if traversal failed, the output of the shards after the failure is expected to be missing,
+                // and the failure itself is being reported
+                if ( parallelTraversalCompleted ) {
+                    throw e;
+                }
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Tools that can process assembly regions on multiple threads at once should override this method to return true.
+     *
+     * Such tools must ensure that {@link #assemblyRegionEvaluator} returns an evaluator that may be used exclusively
+     * by the calling thread (it is called once per traversal thread), that {@link #apply} is safe to call concurrently
+     * from multiple threads, and that all output is sent through {@link #emitInTraversalOrder} or a writer returned by
+     * {@link #makeTraversalOrderedWriter}.
+     *
+     * @return true if this tool (with its current arguments) supports more than one {@link #traversalThreads traversal thread}.
+     *         The default implementation returns false.
+     */
+    protected boolean supportsParallelTraversal() {
+        return false;
+    }
+
     private void writeAssemblyRegion(final AssemblyRegion region) {
         if ( assemblyRegionOutStream != null ) {
             IGVUtils.printIGVFormatRow(assemblyRegionOutStream, new SimpleInterval(region.getContig(), region.getStart(), region.getStart()),
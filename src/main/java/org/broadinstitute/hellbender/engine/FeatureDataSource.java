@@ -25,6 +25,7 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.variant.PackedVariantCache;
 import org.genomicsdb.model.GenomicsDBExportConfiguration;
 import org.genomicsdb.reader.GenomicsDBFeatureReader;
 
@@ -37,6 +38,7 @@ import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 
 import static org.broadinstitute.hellbender.tools.genomicsdb.GenomicsDBUtils.createExportConfiguration;
@@ -64,6 +66,13 @@ import static org.broadinstitute.hellbender.tools.genomicsdb.GenomicsDBUtils.cre
  * random, involves queries over intervals with DECREASING start positions instead of INCREASING start positions,
  * or involves lots of very large jumps forward on the genome or lots of contig switches. Query caching
  * can be disabled, if desired.
+ * <p>
+ * For random access patterns, queries can instead be answered from an in-memory index of the Features on each
+ * queried contig: see {@link #setInMemoryQueryIndex(List, long)}.
+ * <p>
+ * VCF files that have an up-to-date {@link PackedVariantCache} (created by IndexFeatureFile) are read from the
+ * memory-mapped cache rather than through the VCF and its index. Decoding of their records can be restricted to the
+ * sites and the INFO fields that are needed: see {@link #setVariantFieldsToDecode}.
  *
  * @param <T> The type of Feature returned by this data source
  */
@@ -108,6 +117,12 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     private final int queryLookaheadBases;
 
+    /**
+     * If not null, answers queries from Features held in memory in preference to {@link #queryCache}.
+     * Set via {@link #setInMemoryQueryIndex(List, long)}.
+     */
+    private InMemoryFeatureIndex<T> inMemoryQueryIndex = null;
+
     /**
      * Holds information about the path this datasource reads from.
      */
@@ -291,12 +306,16 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         } else if (featureReader instanceof AbstractFeatureReader) {
             this.hasIndex = ((AbstractFeatureReader<T, ?>) featureReader).hasIndex();
             this.supportsRandomAccess = hasIndex;
+        } else if (featureReader instanceof PackedVariantCache) {
+            // packed variant caches have a built-in index rather than a separate index file
+            this.hasIndex = false;
+            this.supportsRandomAccess = true;
         } else {
             throw new GATKException("Found a feature input that was neither GenomicsDB or a Tribble AbstractFeatureReader.  Input was " + featureInput.toString() + ".");
         }
         // Due to a bug in HTSJDK, unindexed block compressed input files may fail to parse completely. For safety,
         // these files have been disabled. See https://github.com/broadinstitute/gatk/issues/4224 for discussion
-        if (!hasIndex && IOUtil.hasBlockCompressedExtension(featureInput.getFeaturePath())) {
+        if (!supportsRandomAccess && IOUtil.hasBlockCompressedExtension(featureInput.getFeaturePath())) {
             throw new UserException.MissingIndex(featureInput.toString(), "Support for unindexed block-compressed files has been temporarily disabled. Try running IndexFeatureFile on the input.");
         }
 
@@ -330,6 +349,11 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
             } catch (final ClassCastException e) {
                 throw new UserException("GenomicsDB inputs can only be used to provide VariantContexts.", e);
             }
+        } else if ((targetFeatureType == null || targetFeatureType.isAssignableFrom(VariantContext.class))
+                && PackedVariantCache.hasUpToDateCache(featureInput.toPath())) {
+            final Path cachePath = PackedVariantCache.getCachePath(featureInput.toPath());
+            logger.info("Reading " + featureInput.getName() + " from packed variant cache " + cachePath);
+            return (FeatureReader<T>)new PackedVariantCache(cachePath);
         } else {
             final FeatureCodec<T, ?> codec = getCodecForFeatureInput(featureInput, targetFeatureType);
             return getTribbleFeatureReader(featureInput, codec, cloudWrapper, cloudIndexWrapper);
@@ -456,6 +480,43 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
     }
 
 
+    /**
+     * Answer future queries via {@link #query(SimpleInterval)} and/or {@link #queryAndPrefetch(Locatable)} from an
+     * in-memory index, loading the Features on each contig the first time it's queried. This makes the cost of a query
+     * independent of the access pattern, unlike the default cache.
+     * <p>
+     * Only Features overlapping the provided intervals, padded by the query lookahead, are loaded. Queries that aren't
+     * contained in these padded intervals, or that are on contigs with more Features than we may hold in memory, are
+     * answered using the default cache. Does not affect traversals via {@link #iterator}.
+     *
+     * @param intervals load only Features overlapping these intervals, or all Features on each contig if null
+     * @param maxFeaturesInMemory maximum number of Features to hold in memory, across all contigs, before evicting
+     *                            the least recently queried contig. 0 disables the in-memory index.
+     */
+    public void setInMemoryQueryIndex(final List<SimpleInterval> intervals, final long maxFeaturesInMemory) {
+        Utils.validateArg(maxFeaturesInMemory >= 0, "maxFeaturesInMemory must be >= 0");
+        inMemoryQueryIndex = maxFeaturesInMemory > 0 ? new InMemoryFeatureIndex<>(intervals, queryLookaheadBases, maxFeaturesInMemory) : null;
+    }
+
+    /**
+     * Restrict decoding of the VariantContexts returned by this data source to the sites and the requested INFO fields,
+     * when they are read from a {@link PackedVariantCache}, which can skip decoding the rest of each record. Other
+     * sources of VariantContexts decode records in full, so callers must still tolerate other fields being present.
+     * Must be called before any queries or traversals.
+     *
+     * @param infoFieldsToDecode decode only these INFO fields, or all INFO fields if null
+     * @param sitesOnly if true, don't decode genotypes, and report a header without samples
+     * @return true if decoding was restricted, false if records will be decoded in full
+     */
+    public boolean setVariantFieldsToDecode(final Set<String> infoFieldsToDecode, final boolean sitesOnly) {
+        Utils.validate(currentIterator == null && queryCache.isEmpty(), "Fields to decode must be set before any queries or traversals");
+        if (!(featureReader instanceof PackedVariantCache)) {
+            return false;
+        }
+        ((PackedVariantCache)featureReader).setFieldsToDecode(infoFieldsToDecode, sitesOnly);
+        return true;
+    }
+
     /**
      * Gets an iterator over all Features in this data source, restricting traversal to Features
      * overlapping our intervals if intervals were provided via {@link #setIntervalsForTraversal(List)}
@@ -525,6 +586,13 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
                     "If it's a file, please index it using the bundled tool " + IndexFeatureFile.class.getSimpleName());
         }
 
+        if (inMemoryQueryIndex != null) {
+            final List<T> features = queryInMemoryIndex(interval);
+            if (features != null) {
+                return features;
+            }
+        }
+
         // If the query can be satisfied using existing cache contents, prepare for retrieval
         // by discarding all Features at the beginning of the cache that end before the start
         // of our query interval.
@@ -540,6 +608,36 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         return queryCache.getCachedFeaturesUpToStopPosition(interval.getEnd());
     }
 
+    /**
+     * @return all Features overlapping the interval, or null if the query can't be answered from our in-memory index
+     */
+    private List<T> queryInMemoryIndex(final Locatable interval) {
+        try {
+            return inMemoryQueryIndex.query(interval, loadInterval -> {
+                // Tribble documentation states that having multiple iterators open simultaneously over the same FeatureReader
+                // results in undefined behavior
+                closeOpenIterationIfNecessary();
+                return featureReader.query(loadInterval.getContig(), loadInterval.getStart(), loadInterval.getEnd());
+            });
+        } catch (final IOException e) {
+            throw new GATKException("Error querying file " + featureInput + " over interval " + interval, e);
+        }
+    }
+
+    /**
+     * Replace the contents of our query cache with Features that were queried elsewhere, such as by another data
+     * source for the same input on a prefetching thread. Subsequent queries contained within the interval are
+     * answered from the cache, as if the Features had been read from disk by {@link #queryAndPrefetch(Locatable)}.
+     *
+     * @param features all Features in this data source overlapping the interval, in file order
+     * @param interval interval over which the Features were queried
+     */
+    public void fillQueryCache(final List<T> features, final SimpleInterval interval) {
+        Utils.nonNull(features);
+        Utils.nonNull(interval);
+        queryCache.fill(features.iterator(), interval);
+    }
+
     /**
      * Refill our cache from disk after a cache miss. Will prefetch Features overlapping an additional
      * queryLookaheadBases bases after the end of the provided interval, in addition to those overlapping
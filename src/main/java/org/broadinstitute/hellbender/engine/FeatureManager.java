@@ -212,6 +212,46 @@ public final class FeatureManager implements AutoCloseable {
         }
     }
 
+    /**
+     * Answer queries on all of our data sources from in-memory indices.
+     * See {@link FeatureDataSource#setInMemoryQueryIndex(List, long)}.
+     *
+     * @param intervals load only Features overlapping these intervals, or all Features on each contig if null
+     * @param maxFeaturesInMemory maximum number of Features to hold in memory for each data source (0 to disable)
+     */
+    public void setInMemoryQueryIndex(final List<SimpleInterval> intervals, final long maxFeaturesInMemory) {
+        featureSources.values().forEach(source -> source.setInMemoryQueryIndex(intervals, maxFeaturesInMemory));
+    }
+
+    /**
+     * Query all of our data sources at once.
+     *
+     * @param interval interval to query over
+     * @return for each of our FeatureInputs, all Features in its data source that overlap the interval
+     */
+    public Map<FeatureInput<? extends Feature>, List<? extends Feature>> getFeaturesFromAllSources(final Locatable interval) {
+        Utils.nonNull(interval);
+        final Map<FeatureInput<? extends Feature>, List<? extends Feature>> features = new LinkedHashMap<>();
+        // copy the results, which are views of each data source's query cache
+        featureSources.forEach((featureInput, dataSource) -> features.put(featureInput, new ArrayList<>(dataSource.queryAndPrefetch(interval))));
+        return features;
+    }
+
+    /**
+     * Replace the contents of the query caches of our data sources with Features that were queried elsewhere (for
+     * example, by another FeatureManager for the same tool via {@link #getFeaturesFromAllSources}), so that
+     * subsequent queries within the interval don't go to disk. See {@link FeatureDataSource#fillQueryCache}.
+     *
+     * @param features all Features overlapping the interval, for each FeatureInput to fill
+     * @param interval interval that the Features were queried over
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void fillQueryCaches(final Map<FeatureInput<? extends Feature>, List<? extends Feature>> features, final SimpleInterval interval) {
+        Utils.nonNull(features);
+        Utils.nonNull(interval);
+        features.forEach((featureInput, inputFeatures) -> ((FeatureDataSource)lookupDataSource(featureInput)).fillQueryCache(inputFeatures, interval));
+    }
+
     @SuppressWarnings({"unchecked", "rawtypes"})
     public void dumpAllFeatureCacheStats() {
         for ( final FeatureDataSource f : featureSources.values() ) {
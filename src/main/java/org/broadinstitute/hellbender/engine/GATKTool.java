@@ -14,6 +14,7 @@ import java.nio.file.Path;
 import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.stream.Stream;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLinePluginDescriptor;
@@ -37,6 +38,7 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.config.ConfigFactory;
 import org.broadinstitute.hellbender.utils.config.GATKConfig;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedInputStream;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
@@ -85,6 +87,13 @@ public abstract class GATKTool extends CommandLineProgram {
             doc = "If true, create a MD5 digest for any BAM/SAM/CRAM file created", optional=true, common = true)
     public boolean createOutputBamMD5 = false;
 
+    @Advanced
+    @Argument(fullName=StandardArgumentDefinitions.OUTPUT_BAM_COMPRESSION_THREADS_LONG_NAME,
+            doc = "Number of threads to use for compressing BAM output (0 to compress on the writing thread using the standard htsjdk writer). " +
+                    "Only applies to BAM output that doesn't need to be sorted by the writer. The compression level is still controlled by samjdk.compression_level.",
+            optional=true, minValue = 0)
+    public int outputBamCompressionThreads = 0;
+
     @Argument(fullName=StandardArgumentDefinitions.CREATE_OUTPUT_VARIANT_INDEX_LONG_NAME,
             shortName=StandardArgumentDefinitions.CREATE_OUTPUT_VARIANT_INDEX_SHORT_NAME,
             doc = "If true, create a VCF index when writing a coordinate-sorted VCF file.", optional=true, common = true)
@@ -119,6 +128,34 @@ public abstract class GATKTool extends CommandLineProgram {
             optional = true)
     public boolean disableBamIndexCaching = false;
 
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.READS_DECOMPRESSION_THREADS_LONG_NAME,
+            doc = "Number of threads with which to inflate BAM input ahead of the traversal (0 to inflate on the traversal thread). " +
+                    "Only applies to traversals of entire BAM files, not to traversals bounded by intervals.",
+            optional = true, minValue = 0)
+    public int readsDecompressionThreads = 0;
+
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.READS_DECOMPRESSION_BUFFER_LONG_NAME,
+            doc = "Approximate cap (in MB) on the memory used per BAM input to read ahead when " + StandardArgumentDefinitions.READS_DECOMPRESSION_THREADS_LONG_NAME + " is positive.",
+            optional = true, minValue = 1)
+    public int readsDecompressionBuffer = 16;
+
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.MEMORY_MAPPED_REFERENCE_LONG_NAME,
+            doc = "If true, memory-map the reference fasta rather than reading it through a cache. " +
+                    "Only applies to uncompressed fasta files on a local file system.",
+            optional = true)
+    public boolean memoryMappedReference = false;
+
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.MAX_FEATURES_IN_MEMORY_LONG_NAME,
+            doc = "If positive, answer queries on each Feature input (such as a germline resource or panel of normals) from an in-memory index " +
+                    "of the records overlapping the intervals, holding at most this many records per input. Speeds up queries that jump around " +
+                    "the genome. 0 to read records through the default cache instead.",
+            optional = true, minValue = 0)
+    public long maxFeaturesInMemory = 0;
+
     @Argument(fullName = StandardArgumentDefinitions.SITES_ONLY_LONG_NAME,
             doc = "If true, don't emit genotype fields when writing vcf file output.", optional = true)
     public boolean outputSitesOnlyVCFs = false;
@@ -269,12 +306,18 @@ public abstract class GATKTool extends CommandLineProgram {
      *
      * Multiple filters can be composed by using {@link org.broadinstitute.hellbender.engine.filters.ReadFilter}
      * composition methods.
+     *
+     * Filters that examine only the fixed-length fields of a read (see {@link ReadFilter#usesOnlyFixedLengthFields})
+     * are moved ahead of the others, so that reads rejected on flags or mapping quality alone never have their
+     * cigar, bases, qualities or attributes decoded. The result of the composite filter is unchanged, but a read that
+     * would fail several filters is counted against the first cheap one.
      */
      public CountingReadFilter makeReadFilter(){
         final GATKReadFilterPluginDescriptor readFilterPlugin =
                 getCommandLineParser().getPluginDescriptor(GATKReadFilterPluginDescriptor.class);
         return hasReads() ?
-                readFilterPlugin.getMergedCountingReadFilter(getHeaderForReads()) :
+                readFilterPlugin.getMergedReadFilter(getHeaderForReads(),
+                        (filters, header) -> CountingReadFilter.fromList(ReadFilter.fixedLengthFieldFiltersFirst(filters), header)) :
                 new CountingReadFilter(ReadFilterLibrary.ALLOW_ALL_READS);
     }
 
@@ -432,7 +475,27 @@ public abstract class GATKTool extends CommandLineProgram {
      * May be overridden by traversals that require custom initialization of the reference data source.
      */
     void initializeReference() {
-        reference = referenceArguments.getReferencePath() != null ? ReferenceDataSource.of(referenceArguments.getReferencePath()) : null;
+        reference = referenceArguments.getReferencePath() != null ? makeReferenceDataSource() : null;
+    }
+
+    /**
+     * Create a new, independent source of reference data backed by the reference supplied to this tool.
+     * Engine traversals that process data on multiple threads use this to give each thread its own
+     * data source, since reference data sources are not thread-safe.
+     *
+     * Package-private so that engine classes can access it, but concrete tool child classes cannot.
+     *
+     * @return a new {@link ReferenceDataSource}; the caller is responsible for closing it
+     */
+    ReferenceDataSource makeReferenceDataSource() {
+        final Path referencePath = Utils.nonNull(referenceArguments.getReferencePath(), "a reference is required to create a reference data source");
+        if ( memoryMappedReference ) {
+            if ( ReferenceMappedFileSource.canMap(referencePath) ) {
+                return new ReferenceMappedFileSource(referencePath);
+            }
+            logger.warn("Reference " + referencePath.toUri() + " can't be memory-mapped, so will be read through a cache instead");
+        }
+        return ReferenceDataSource.of(referencePath);
     }
 
     /**
@@ -443,26 +506,46 @@ public abstract class GATKTool extends CommandLineProgram {
      */
     void initializeReads() {
         if (! readArguments.getReadPathSpecifiers().isEmpty()) {
-            SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
-            if (hasReference()) { // pass in reference if available, because CRAM files need it
-                factory = factory.referenceSequence(referenceArguments.getReferencePath());
-            }
-            else if (hasCramInput()) {
-                throw UserException.MISSING_REFERENCE_FOR_CRAM;
-            }
-
-            if(bamIndexCachingShouldBeEnabled()) {
-                factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
-            }
-
-            reads = new ReadsPathDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
-                (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+            reads = makeReadsDataSource();
         }
         else {
             reads = null;
         }
     }
 
+    /**
+     * Create a new, independent source of reads data backed by the read inputs supplied to this tool.
+     * Engine traversals that process data on multiple threads use this to give each thread its own
+     * data source, since reads data sources are not thread-safe.
+     *
+     * Must be called after the reference has been initialized, in case we are dealing with CRAM and a reference is required.
+     *
+     * Package-private so that engine classes can access it, but concrete tool child classes cannot.
+     *
+     * @return a new {@link ReadsDataSource}; the caller is responsible for closing it
+     */
+    ReadsDataSource makeReadsDataSource() {
+        SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
+        if (hasReference()) { // pass in reference if available, because CRAM files need it
+            factory = factory.referenceSequence(referenceArguments.getReferencePath());
+        }
+        else if (hasCramInput()) {
+            throw UserException.MISSING_REFERENCE_FOR_CRAM;
+        }
+
+        if(bamIndexCachingShouldBeEnabled()) {
+            factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
+        }
+
+        final ReadsPathDataSource readsSource = new ReadsPathDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
+            (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+        if (readsDecompressionThreads > 0) {
+            readsSource.setParallelDecompression(readsDecompressionThreads,
+                    ParallelBlockCompressedInputStream.getMaxBlocksInFlight(readsDecompressionBuffer * 1024L * 1024L, readsDecompressionThreads));
+        }
+        return readsSource;
+    }
+
 
     private boolean bamIndexCachingShouldBeEnabled() {
         return intervalArgumentCollection.intervalsSpecified() && !disableBamIndexCaching;
@@ -484,13 +567,45 @@ public abstract class GATKTool extends CommandLineProgram {
      * By default, this method initializes the FeatureManager to use the lookahead cache of {@link FeatureDataSource#DEFAULT_QUERY_LOOKAHEAD_BASES} bases.
      */
     void initializeFeatures() {
-        features = new FeatureManager(this, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, cloudPrefetchBuffer,
-                cloudIndexPrefetchBuffer, getGenomicsDBOptions());
+        features = makeFeatureManager();
         if ( features.isEmpty() ) {  // No available sources of Features discovered for this tool
             features = null;
         }
     }
 
+    /**
+     * Create a new, independent {@link FeatureManager} over the Feature inputs discovered for this tool.
+     * Engine traversals that process data on multiple threads use this to give each thread its own
+     * manager, since Feature data sources and their caches are not thread-safe.
+     *
+     * Note that Feature inputs added via {@link #addFeatureInputsAfterInitialization} are only
+     * visible to the engine's own FeatureManager.
+     *
+     * Package-private so that engine classes can access it, but concrete tool child classes cannot.
+     *
+     * By default, the FeatureManager uses the lookahead cache of {@link FeatureDataSource#DEFAULT_QUERY_LOOKAHEAD_BASES} bases.
+     * Traversals that need a different lookahead should override this method to call {@link #makeFeatureManager(int)}.
+     *
+     * @return a new {@link FeatureManager} (possibly empty); the caller is responsible for closing it
+     */
+    FeatureManager makeFeatureManager() {
+        return makeFeatureManager(FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES);
+    }
+
+    /**
+     * Create a new, independent {@link FeatureManager} over the Feature inputs discovered for this tool, with the
+     * given query lookahead and with the in-memory query index configured by {@code --max-features-in-memory}.
+     *
+     * @param featureQueryLookahead number of bases to look ahead when caching Features
+     * @return a new {@link FeatureManager} (possibly empty); the caller is responsible for closing it
+     */
+    final FeatureManager makeFeatureManager(final int featureQueryLookahead) {
+        final FeatureManager featureManager = new FeatureManager(this, featureQueryLookahead, cloudPrefetchBuffer,
+                cloudIndexPrefetchBuffer, getGenomicsDBOptions());
+        featureManager.setInMemoryQueryIndex(userIntervals, maxFeaturesInMemory);
+        return featureManager;
+    }
+
     /**
      * Initialize our intervals for traversal.
      *
@@ -710,6 +825,11 @@ public abstract class GATKTool extends CommandLineProgram {
 
         initializeIntervals(); // Must be initialized after reference, reads and features, since intervals currently require a sequence dictionary from another data source
 
+        if ( hasFeatures() ) {
+            // Our features were initialized before our intervals, so restrict their in-memory indices to the intervals now
+            features.setInMemoryQueryIndex(userIntervals, maxFeaturesInMemory);
+        }
+
         if ( seqValidationArguments.performSequenceDictionaryValidation()) {
             validateSequenceDictionaries();
         }
@@ -822,7 +942,8 @@ public abstract class GATKTool extends CommandLineProgram {
                 getHeaderForSAMWriter(),
                 preSorted,
                 createOutputBamIndex,
-                createOutputBamMD5
+                createOutputBamMD5,
+                outputBamCompressionThreads
             )
         );
     }
@@ -0,0 +1,263 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.Locatable;
+import htsjdk.tribble.Feature;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * InMemoryFeatureIndex: helper class for {@link FeatureDataSource} that answers queries initiated via
+ * {@link FeatureDataSource#queryAndPrefetch(Locatable)} from Features held in memory, as an alternative to
+ * the {@link FeatureCache}.
+ *
+ * The first query on a contig loads all Features on that contig that overlap the (padded) load intervals, or all
+ * Features on the contig if there are no load intervals. Features are kept in file order (sorted by start), along
+ * with the running maximum of their end positions, so that each query is answered with two binary searches
+ * regardless of the order in which queries arrive.
+ *
+ * Memory is bounded by a maximum number of Features held across all contigs: loading a contig evicts the least
+ * recently queried contigs as necessary. A contig whose Features don't fit within the limit on their own is not
+ * loaded, and neither are queries that aren't contained in the load intervals: {@link #query} returns null for
+ * these, and the caller must fall back to querying the file.
+ *
+ * @param <T> Type of Feature record we are indexing
+ */
+final class InMemoryFeatureIndex<T extends Feature> {
+    private static final Logger logger = LogManager.getLogger(InMemoryFeatureIndex.class);
+
+    /**
+     * Queries a source of Features over an interval. Iterators returned are closed after use.
+     */
+    @FunctionalInterface
+    interface FeatureLoader<T extends Feature> {
+        CloseableIterator<T> query(SimpleInterval interval) throws IOException;
+    }
+
+    /**
+     * The Features loaded for one contig
+     */
+    private static final class ContigFeatures<T extends Feature> {
+        /**
+         * Intervals over which all overlapping Features were loaded, sorted and non-overlapping
+         */
+        final List<SimpleInterval> loadedIntervals;
+        final List<T> features;
+        final int[] starts;
+        /**
+         * maxEnds[i] is the largest end position of features[0..i], so is non-decreasing
+         */
+        final int[] maxEnds;
+
+        ContigFeatures(final List<SimpleInterval> loadedIntervals, final List<T> features) {
+            this.loadedIntervals = loadedIntervals;
+            this.features = features;
+            this.starts = new int[features.size()];
+            this.maxEnds = new int[features.size()];
+            int maxEnd = Integer.MIN_VALUE;
+            for ( int i = 0; i < features.size(); i++ ) {
+                starts[i] = features.get(i).getStart();
+                maxEnd = Math.max(maxEnd, features.get(i).getEnd());
+                maxEnds[i] = maxEnd;
+            }
+        }
+
+        boolean isLoaded(final Locatable interval) {
+            // find the last loaded interval starting on or before the query start
+            int low = 0;
+            int high = loadedIntervals.size();
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                if ( loadedIntervals.get(mid).getStart() <= interval.getStart() ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low > 0 && loadedIntervals.get(low - 1).contains(interval);
+        }
+
+        List<T> getOverlapping(final Locatable interval) {
+            final int first = firstIndexWhere(maxEnds, interval.getStart());
+            final int last = firstIndexWhere(starts, (long)interval.getEnd() + 1);
+            final List<T> overlapping = new ArrayList<>(Math.max(last - first, 0));
+            for ( int i = first; i < last; i++ ) {
+                if ( features.get(i).getEnd() >= interval.getStart() ) {
+                    overlapping.add(features.get(i));
+                }
+            }
+            return overlapping;
+        }
+
+        /**
+         * @return the first index in a non-decreasing array at which the value is at least {@code value}
+         */
+        private static int firstIndexWhere(final int[] values, final long value) {
+            int low = 0;
+            int high = values.length;
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                if ( values[mid] < value ) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Features to load on each contig, or null to load all Features
+     */
+    private final Map<String, List<SimpleInterval>> loadIntervalsByContig;
+
+    private final long maxFeaturesInMemory;
+
+    /**
+     * Loaded contigs, in order from least to most recently queried
+     */
+    private final LinkedHashMap<String, ContigFeatures<T>> loadedContigs = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Contigs with too many Features to hold within our limit
+     */
+    private final Set<String> contigsTooLargeToLoad = new HashSet<>();
+
+    private long numFeaturesInMemory = 0;
+
+    /**
+     * @param loadIntervals intervals over which to load Features, or null to load all Features on each contig
+     * @param padding pad each load interval by this many bases on either side, so that queries near the edges of
+     *                the intervals can also be answered from memory
+     * @param maxFeaturesInMemory maximum number of Features to hold in memory at once
+     */
+    InMemoryFeatureIndex(final List<SimpleInterval> loadIntervals, final int padding, final long maxFeaturesInMemory) {
+        Utils.validateArg(padding >= 0, "padding must be >= 0");
+        Utils.validateArg(maxFeaturesInMemory > 0, "maxFeaturesInMemory must be > 0");
+        this.maxFeaturesInMemory = maxFeaturesInMemory;
+        if ( loadIntervals == null ) {
+            loadIntervalsByContig = null;
+        } else {
+            final Map<String, List<SimpleInterval>> intervalsByContig = new LinkedHashMap<>();
+            loadIntervals.stream()
+                    .collect(Collectors.groupingBy(SimpleInterval::getContig, LinkedHashMap::new, Collectors.toList()))
+                    .forEach((contig, contigIntervals) -> intervalsByContig.put(contig, padAndMerge(contigIntervals, padding)));
+            loadIntervalsByContig = intervalsByContig;
+        }
+    }
+
+    /**
+     * @return the intervals (all on the same contig) padded on both sides, sorted by start, and with overlapping or
+     *         adjacent intervals merged
+     */
+    private static List<SimpleInterval> padAndMerge(final List<SimpleInterval> intervals, final int padding) {
+        final List<SimpleInterval> padded = intervals.stream()
+                .map(interval -> new SimpleInterval(interval.getContig(), Math.max(1, interval.getStart() - padding), (int)Math.min(Integer.MAX_VALUE, (long)interval.getEnd() + padding)))
+                .sorted(Comparator.comparingInt(SimpleInterval::getStart))
+                .collect(Collectors.toList());
+        final List<SimpleInterval> merged = new ArrayList<>(padded.size());
+        for ( final SimpleInterval interval : padded ) {
+            final SimpleInterval last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if ( last != null && (long)last.getEnd() + 1 >= interval.getStart() ) {
+                merged.set(merged.size() - 1, new SimpleInterval(last.getContig(), last.getStart(), Math.max(last.getEnd(), interval.getEnd())));
+            } else {
+                merged.add(interval);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Get all Features overlapping an interval, if they can be provided from memory, loading the Features on the
+     * interval's contig if necessary.
+     *
+     * @param interval query interval
+     * @param loader used to load the Features on the contig of the query interval if they're not loaded already
+     * @return all Features overlapping the interval, in file order, or null if the query can't be answered from memory
+     * @throws IOException if the loader does
+     */
+    List<T> query(final Locatable interval, final FeatureLoader<T> loader) throws IOException {
+        final String contig = interval.getContig();
+        ContigFeatures<T> contigFeatures = loadedContigs.get(contig);
+        if ( contigFeatures == null ) {
+            if ( contigsTooLargeToLoad.contains(contig) || ! isInLoadIntervals(interval) ) {
+                return null;
+            }
+            contigFeatures = load(contig, loader);
+            if ( contigFeatures == null ) {
+                return null;
+            }
+        }
+        return contigFeatures.isLoaded(interval) ? contigFeatures.getOverlapping(interval) : null;
+    }
+
+    private boolean isInLoadIntervals(final Locatable interval) {
+        if ( loadIntervalsByContig == null ) {
+            return true;
+        }
+        final List<SimpleInterval> contigIntervals = loadIntervalsByContig.get(interval.getContig());
+        return contigIntervals != null && contigIntervals.stream().anyMatch(loadInterval -> loadInterval.contains(interval));
+    }
+
+    /**
+     * Load all Features on a contig that overlap its load intervals, evicting other contigs to make room.
+     *
+     * @return the loaded Features, or null if there are too many
+     */
+    private ContigFeatures<T> load(final String contig, final FeatureLoader<T> loader) throws IOException {
+        final List<SimpleInterval> intervals = loadIntervalsByContig == null ?
+                Collections.singletonList(new SimpleInterval(contig, 1, Integer.MAX_VALUE)) : loadIntervalsByContig.get(contig);
+        final List<T> features = new ArrayList<>();
+        SimpleInterval previousInterval = null;
+        for ( final SimpleInterval interval : intervals ) {
+            try ( final CloseableIterator<T> iterator = loader.query(interval) ) {
+                while ( iterator.hasNext() ) {
+                    final T feature = iterator.next();
+                    // skip Features we already loaded for the previous interval
+                    if ( previousInterval != null && feature.getStart() <= previousInterval.getEnd() ) {
+                        continue;
+                    }
+                    if ( features.size() == maxFeaturesInMemory ) {
+                        logger.debug(String.format("Too many Features on contig %s to hold in memory (limit is %d)", contig, maxFeaturesInMemory));
+                        contigsTooLargeToLoad.add(contig);
+                        return null;
+                    }
+                    features.add(feature);
+                }
+            }
+            previousInterval = interval;
+        }
+
+        final Iterator<ContigFeatures<T>> leastRecentlyUsed = loadedContigs.values().iterator();
+        while ( numFeaturesInMemory + features.size() > maxFeaturesInMemory ) {
+            numFeaturesInMemory -= leastRecentlyUsed.next().features.size();
+            leastRecentlyUsed.remove();
+        }
+        final ContigFeatures<T> contigFeatures = new ContigFeatures<>(intervals, features);
+        loadedContigs.put(contig, contigFeatures);
+        numFeaturesInMemory += features.size();
+        return contigFeatures;
+    }
+
+    /**
+     * @return the number of Features currently held in memory
+     */
+    long getNumFeaturesInMemory() {
+        return numFeaturesInMemory;
+    }
+}
@@ -1,8 +1,13 @@
 package org.broadinstitute.hellbender.engine;
 
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 
+import java.util.Collections;
+
 /**
  * An IntervalWalker is a tool that processes a single interval at a time, with the ability to query
  * optional overlapping sources of reads, reference data, and/or variants/features.
@@ -18,6 +23,15 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
  */
 public abstract class IntervalWalker extends WalkerBase {
 
+    /**
+     * Number of intervals whose reads, reference bases and Features are loaded ahead of time on a background thread
+     * while earlier intervals are processed. This hides the I/O latency of moving between intervals, at the cost of
+     * holding the data for that many intervals in memory.
+     */
+    @Advanced
+    @Argument(fullName = StandardArgumentDefinitions.PREFETCH_SHARDS_LONG_NAME, doc = "Number of intervals to load ahead of time on a background thread (0 to disable)", optional = true, minValue = 0)
+    public int prefetchShards = 0;
+
     @Override
     public boolean requiresIntervals() {
         return true;
@@ -64,6 +78,11 @@ public abstract class IntervalWalker extends WalkerBase {
      */
     @Override
     public void traverse() {
+        if ( prefetchShards > 0 ) {
+            traverseWithPrefetching();
+            return;
+        }
+
         final ReadFilter readFilter = makeReadFilter();
         for ( final SimpleInterval interval : userIntervals ) {
             apply(interval,
@@ -75,6 +94,32 @@ public abstract class IntervalWalker extends WalkerBase {
         }
     }
 
+    /**
+     * Implementation of interval-based traversal in which the data for upcoming intervals is loaded on a background
+     * thread, with its own data sources, while the current interval is processed.
+     */
+    private void traverseWithPrefetching() {
+        final ReadFilter readFilter = makeReadFilter();
+        try ( final PrefetchedShard.Loader loader = new PrefetchedShard.Loader(hasReads() ? makeReadsDataSource() : null,
+                      hasReference() ? makeReferenceDataSource() : null, hasFeatures() ? makeFeatureManager() : null);
+              final ShardPrefetcher<SimpleInterval, PrefetchedShard> prefetcher = new ShardPrefetcher<>(userIntervals.iterator(), prefetchShards,
+                      interval -> loader.load(Collections.singletonList(interval), Collections.singletonList(interval),
+                              loader.getReads() == null ? null : loader.getReads().query(interval))) ) {
+            while ( prefetcher.hasNext() ) {
+                final PrefetchedShard shard = prefetcher.next();
+                final SimpleInterval interval = shard.getSpan();
+                shard.fillFeatureCaches(features);
+
+                apply(interval,
+                      new ReadsContext(shard.getReadsSource(reads), interval, readFilter),
+                      new ReferenceContext(shard.getReference(reference), interval),
+                      new FeatureContext(features, interval));
+
+                progressMeter.update(interval);
+            }
+        }
+    }
+
     /**
      * Process an individual interval. Must be implemented by tool authors.
      * In general, tool authors should simply stream their output from apply(), and maintain as little internal state
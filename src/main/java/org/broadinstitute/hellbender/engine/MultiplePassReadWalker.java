@@ -5,6 +5,9 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
+import java.util.Iterator;
+import java.util.function.BooleanSupplier;
+
 /**
  * A MultiplePassReadWalker traverses input reads multiple times. To use this class, implement the
  * method {@link #traverseReads()}, calling {@link #forEachRead(GATKReadConsumer)} with a
@@ -49,20 +52,33 @@ public abstract class MultiplePassReadWalker extends ReadWalker {
      * @param readHandler handler for reads for the current reads iteration
      */
     public void forEachRead( final GATKReadConsumer readHandler) {
+        forEachRead(readHandler, () -> false);
+    }
+
+    /**
+     * Like {@link #forEachRead(GATKReadConsumer)}, but ends the traversal early, without reading the rest of the
+     * input, as soon as {@code isDone} returns true (it is checked before each read).
+     *
+     * @param readHandler handler for reads for the current reads iteration
+     * @param isDone whether the current traversal should end
+     */
+    public void forEachRead( final GATKReadConsumer readHandler, final BooleanSupplier isDone) {
         if (passCount > 1) {
             countedFilter = makeReadFilter();
             resetReadsDataSource();
             logger.info(String.format("Starting traversal pass %d", passCount));
         }
 
-        getTransformedReadStream(countedFilter).forEach( read -> {
+        final Iterator<GATKRead> reads = getTransformedReadStream(countedFilter).iterator();
+        while ( !isDone.getAsBoolean() && reads.hasNext() ) {
+            final GATKRead read = reads.next();
             final SimpleInterval readInterval = getReadInterval(read);
             readHandler.consume(
                     read,
                     new ReferenceContext(reference, readInterval), // will be empty if reference or readInterval is null
                     new FeatureContext(features, readInterval));   // will be empty if features or readInterval is null
             progressMeter.update(readInterval);
-        });
+        }
 
         logger.info(countedFilter.getSummaryLine());
         passCount++;
@@ -0,0 +1,213 @@
+package org.broadinstitute.hellbender.engine;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs the units of work of a traversal (shards, batches of reads, etc.) on a pool of worker threads, while emitting
+ * tool output on the traversal thread.
+ *
+ * Each worker thread lazily creates its own per-thread state (typically independent data sources, read filters and
+ * so on) using the provided factory, and that state is handed to every unit of work run on the thread. Output actions
+ * passed to {@link #emit} by a unit of work are captured rather than run, and are later replayed on the thread that
+ * submitted the work: in submission order if order is to be preserved, or else in order of completion.
+ *
+ * To bound the amount of captured output, at most a fixed multiple of the number of threads units of work may be
+ * outstanding at once; {@link #submit} replays completed output as necessary before accepting new work.
+ *
+ * Not thread-safe: {@link #submit}, {@link #awaitCompletion} and {@link #close} must all be called from the traversal thread.
+ *
+ * @param <W> type of the per-thread worker state
+ */
+final class ParallelTraversalExecutor<W extends AutoCloseable> implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ParallelTraversalExecutor.class);
+
+    /**
+     * Output actions captured for the unit of work currently running on this thread; only set on worker threads
+     */
+    private static final ThreadLocal<List<Runnable>> capturedOutput = new ThreadLocal<>();
+
+    private final boolean preserveOrder;
+    private final int maxOutstandingWork;
+    private final ExecutorService executorService;
+    private final CompletionService<List<Runnable>> completionService;
+    private final Deque<Future<List<Runnable>>> outstandingWork;
+    private final List<W> workerStates = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<W> workerStateForThread;
+
+    /**
+     * @param numThreads number of worker threads
+     * @param threadNamePrefix prefix for the names of worker threads
+     * @param preserveOrder if true, output is replayed in the order work was submitted; otherwise, in order of completion
+     * @param workerStateFactory creates the state for each worker thread; invoked once on each worker thread
+     */
+    ParallelTraversalExecutor(final int numThreads, final String threadNamePrefix, final boolean preserveOrder, final Supplier<W> workerStateFactory) {
+        Utils.validateArg(numThreads >= 1, "numThreads must be >= 1");
+        Utils.nonNull(threadNamePrefix);
+        Utils.nonNull(workerStateFactory);
+
+        this.preserveOrder = preserveOrder;
+        this.maxOutstandingWork = 2 * numThreads;
+        this.executorService = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat(threadNamePrefix + "-%d").setDaemon(true).build());
+        this.completionService = new ExecutorCompletionService<>(executorService);
+        this.outstandingWork = new ArrayDeque<>(maxOutstandingWork);
+        this.workerStateForThread = ThreadLocal.withInitial(() -> {
+            final W state = workerStateFactory.get();
+            workerStates.add(state);
+            return state;
+        });
+    }
+
+    /**
+     * Run an output action in traversal order.
+     *
+     * When called from within a unit of work running on a worker thread, the action is captured and later run on the
+     * traversal thread. Otherwise (for example, during a single-threaded traversal) the action is run immediately.
+     *
+     * @param outputAction action to run; must not depend on state that may change after this call
+     */
+    static void emit(final Runnable outputAction) {
+        Utils.nonNull(outputAction);
+        final List<Runnable> output = capturedOutput.get();
+        if ( output == null ) {
+            outputAction.run();
+        } else {
+            output.add(outputAction);
+        }
+    }
+
+    /**
+     * Submit a unit of work to be run on a worker thread with that thread's state. If the maximum amount of outstanding
+     * work has been reached, first blocks until enough earlier work completes, replaying its output on this thread.
+     *
+     * @param work work to run
+     */
+    void submit(final Consumer<W> work) {
+        Utils.nonNull(work);
+        while ( outstandingWork.size() >= maxOutstandingWork ) {
+            replayNext();
+        }
+
+        final Callable<List<Runnable>> task = () -> {
+            final List<Runnable> output = new ArrayList<>();
+            capturedOutput.set(output);
+            try {
+                work.accept(workerStateForThread.get());
+            } finally {
+                capturedOutput.remove();
+            }
+            return output;
+        };
+        // only route through the completion service when we need to know the order of completion, since
+        // it retains every completed future until taken
+        outstandingWork.add(preserveOrder ? executorService.submit(task) : completionService.submit(task));
+    }
+
+    /**
+     * Block until all submitted work has completed, replaying its output on this thread.
+     */
+    void awaitCompletion() {
+        while ( ! outstandingWork.isEmpty() ) {
+            replayNext();
+        }
+    }
+
+    /**
+     * @return the states created so far by worker threads. Should only be inspected after {@link #awaitCompletion}.
+     */
+    List<W> getWorkerStates() {
+        synchronized (workerStates) {
+            return new ArrayList<>(workerStates);
+        }
+    }
+
+    private void replayNext() {
+        final Future<List<Runnable>> next;
+        if ( preserveOrder ) {
+            next = outstandingWork.remove();
+        } else {
+            next = takeCompleted();
+            outstandingWork.remove(next);
+        }
+        getResult(next).forEach(Runnable::run);
+    }
+
+    private Future<List<Runnable>> takeCompleted() {
+        try {
+            return completionService.take();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted during parallel traversal", e);
+        }
+    }
+
+    private static List<Runnable> getResult(final Future<List<Runnable>> result) {
+        try {
+            return result.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted during parallel traversal", e);
+        } catch ( final ExecutionException e ) {
+            // rethrow unchecked exceptions from the tool as-is, so that user errors are reported as such
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new GATKException("Problem running work during parallel traversal", e.getCause());
+        }
+    }
+
+    /**
+     * Stop the worker threads, discarding any outstanding work, and close all worker states once the threads have
+     * stopped. Every worker state is closed even if closing some of them fails; the first failure is then rethrown,
+     * with any later ones attached as suppressed exceptions.
+     */
+    @Override
+    public void close() {
+        executorService.shutdownNow();
+        try {
+            // interrupted work may still be using the data sources of its worker state
+            while ( ! executorService.awaitTermination(1, TimeUnit.MINUTES) ) {
+                logger.warn("Waiting for traversal worker threads to stop");
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for traversal worker threads to stop", e);
+        }
+
+        GATKException closeFailure = null;
+        for ( final W state : getWorkerStates() ) {
+            try {
+                state.close();
+            } catch ( final Exception e ) {
+                if ( closeFailure == null ) {
+                    closeFailure = new GATKException("Problem closing traversal worker state", e);
+                } else {
+                    closeFailure.addSuppressed(e);
+                }
+            }
+        }
+        if ( closeFailure != null ) {
+            throw closeFailure;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import htsjdk.tribble.Feature;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A shard whose reads, reference bases and Features were all loaded into memory ahead of time by a {@link Loader},
+ * typically on a {@link ShardPrefetcher} thread.
+ *
+ * The traversal thread uses the prefetched data through its own data sources: reads and reference bases via wrappers
+ * returned by {@link #getReadsSource} and {@link #getReference}, which fall back to the traversal thread's own data
+ * sources for queries outside of the shard, and Features by pre-filling the query caches of its FeatureManager
+ * via {@link #fillFeatureCaches}.
+ */
+final class PrefetchedShard implements MultiIntervalShard<GATKRead> {
+
+    private final List<SimpleInterval> intervals;
+    private final List<SimpleInterval> paddedIntervals;
+    private final SimpleInterval span;
+    private final List<GATKRead> reads;
+    private final ReferenceBases referenceBases;
+    private final Map<FeatureInput<? extends Feature>, List<? extends Feature>> features;
+
+    private PrefetchedShard(final List<SimpleInterval> intervals, final List<SimpleInterval> paddedIntervals, final SimpleInterval span,
+                            final List<GATKRead> reads, final ReferenceBases referenceBases,
+                            final Map<FeatureInput<? extends Feature>, List<? extends Feature>> features) {
+        this.intervals = intervals;
+        this.paddedIntervals = paddedIntervals;
+        this.span = span;
+        this.reads = reads;
+        this.referenceBases = referenceBases;
+        this.features = features;
+    }
+
+    @Override
+    public List<SimpleInterval> getIntervals() {
+        return intervals;
+    }
+
+    @Override
+    public List<SimpleInterval> getPaddedIntervals() {
+        return paddedIntervals;
+    }
+
+    /**
+     * @return the interval spanning all of the padded intervals of this shard
+     */
+    public SimpleInterval getSpan() {
+        return span;
+    }
+
+    /**
+     * @return an iterator over the reads loaded for this shard
+     */
+    @Override
+    public Iterator<GATKRead> iterator() {
+        return reads.iterator();
+    }
+
+    /**
+     * @param fallback source of reads for queries that extend outside of this shard (may be null if there are no reads)
+     * @return a source of reads that answers queries within this shard from the prefetched reads
+     */
+    public GATKDataSource<GATKRead> getReadsSource(final GATKDataSource<GATKRead> fallback) {
+        return fallback == null ? null : new PrefetchedReadsSource(fallback);
+    }
+
+    /**
+     * @param fallback reference for queries that extend outside of this shard (may be null if there is no reference)
+     * @return a reference that answers queries within this shard from the prefetched reference bases
+     */
+    public ReferenceDataSource getReference(final ReferenceDataSource fallback) {
+        return fallback == null || referenceBases == null ? fallback : new PrefetchedReferenceSource(fallback);
+    }
+
+    /**
+     * Fill the query caches of a FeatureManager (which must be for the same tool as the one used to load this shard)
+     * with the Features loaded for this shard, so that queries within the shard don't go to disk.
+     *
+     * @param featureManager FeatureManager to fill (may be null if there are no Features)
+     */
+    public void fillFeatureCaches(final FeatureManager featureManager) {
+        if ( featureManager != null && features != null ) {
+            featureManager.fillQueryCaches(features, span);
+        }
+    }
+
+    /**
+     * Loads the data for shards from its own data sources, which must not be used by any other thread while
+     * shards are being loaded.
+     */
+    static final class Loader implements AutoCloseable {
+        private final ReadsDataSource reads;
+        private final ReferenceDataSource reference;
+        private final FeatureManager features;
+
+        /**
+         * @param reads source of reads (may be null)
+         * @param reference source of reference bases (may be null)
+         * @param features source of Features (may be null)
+         */
+        Loader(final ReadsDataSource reads, final ReferenceDataSource reference, final FeatureManager features) {
+            this.reads = reads;
+            this.reference = reference;
+            this.features = features;
+        }
+
+        /**
+         * @return the source of reads used by this loader, for setting up the iteration over the reads in each shard
+         */
+        ReadsDataSource getReads() {
+            return reads;
+        }
+
+        /**
+         * Load a shard, which must span only one contig.
+         *
+         * @param intervals intervals in the shard
+         * @param paddedIntervals intervals in the shard with padding added
+         * @param shardReads reads to load for the shard (may be null if there are no reads)
+         * @return the loaded shard, with reference bases and Features spanning all of the padded intervals
+         */
+        PrefetchedShard load(final List<SimpleInterval> intervals, final List<SimpleInterval> paddedIntervals, final Iterator<GATKRead> shardReads) {
+            Utils.nonEmpty(paddedIntervals);
+            final SimpleInterval first = paddedIntervals.get(0);
+            final SimpleInterval span = new SimpleInterval(first.getContig(), first.getStart(),
+                    paddedIntervals.stream().mapToInt(SimpleInterval::getEnd).max().getAsInt());
+
+            final List<GATKRead> loadedReads = new ArrayList<>();
+            if ( shardReads != null ) {
+                shardReads.forEachRemaining(loadedReads::add);
+            }
+
+            ReferenceBases referenceBases = null;
+            if ( reference != null ) {
+                final SAMSequenceRecord contig = reference.getSequenceDictionary().getSequence(span.getContig());
+                if ( contig != null && span.getStart() <= contig.getSequenceLength() ) {
+                    final SimpleInterval referenceSpan = new SimpleInterval(span.getContig(), span.getStart(), Math.min(span.getEnd(), contig.getSequenceLength()));
+                    referenceBases = new ReferenceBases(reference.queryAndPrefetch(referenceSpan).getBases(), referenceSpan);
+                }
+            }
+
+            final Map<FeatureInput<? extends Feature>, List<? extends Feature>> loadedFeatures = features == null ? null : features.getFeaturesFromAllSources(span);
+            return new PrefetchedShard(intervals, paddedIntervals, span, Collections.unmodifiableList(loadedReads), referenceBases, loadedFeatures);
+        }
+
+        @Override
+        public void close() {
+            if ( reads != null ) {
+                reads.close();
+            }
+            if ( reference != null ) {
+                reference.close();
+            }
+            if ( features != null ) {
+                features.close();
+            }
+        }
+    }
+
+    /**
+     * Answers queries contained in this shard from the prefetched reads, in the order in which they were loaded
+     */
+    private final class PrefetchedReadsSource implements GATKDataSource<GATKRead> {
+        private final GATKDataSource<GATKRead> fallback;
+
+        PrefetchedReadsSource(final GATKDataSource<GATKRead> fallback) {
+            this.fallback = fallback;
+        }
+
+        @Override
+        public Iterator<GATKRead> iterator() {
+            return fallback.iterator();
+        }
+
+        @Override
+        public Iterator<GATKRead> query(final SimpleInterval interval) {
+            if ( ! span.contains(interval) ) {
+                return fallback.query(interval);
+            }
+            if ( interval.equals(span) ) {
+                return reads.iterator();
+            }
+            return reads.stream().filter(read -> overlaps(read, interval)).collect(Collectors.toList()).iterator();
+        }
+
+        private boolean overlaps(final GATKRead read, final SimpleInterval interval) {
+            if ( read.isUnmapped() ) {
+                return interval.getContig().equals(read.getAssignedContig()) && interval.getStart() <= read.getAssignedStart() && read.getAssignedStart() <= interval.getEnd();
+            }
+            return interval.overlaps(read);
+        }
+    }
+
+    /**
+     * Answers queries contained in this shard from the prefetched reference bases
+     */
+    private final class PrefetchedReferenceSource implements ReferenceDataSource {
+        private final ReferenceDataSource fallback;
+
+        PrefetchedReferenceSource(final ReferenceDataSource fallback) {
+            this.fallback = fallback;
+        }
+
+        @Override
+        public ReferenceSequence queryAndPrefetch(final String contig, final long start, final long stop) {
+            final SimpleInterval basesInterval = referenceBases.getInterval();
+            if ( ! basesInterval.getContig().equals(contig) || start < basesInterval.getStart() || stop > basesInterval.getEnd() || stop < start ) {
+                return fallback.queryAndPrefetch(contig, start, stop);
+            }
+            final int startIndex = (int)(start - basesInterval.getStart());
+            final SAMSequenceDictionary dictionary = getSequenceDictionary();
+            return new ReferenceSequence(contig, dictionary.getSequenceIndex(contig),
+                    Arrays.copyOfRange(referenceBases.getBases(), startIndex, startIndex + (int)(stop - start + 1)));
+        }
+
+        @Override
+        public SAMSequenceDictionary getSequenceDictionary() {
+            return fallback.getSequenceDictionary();
+        }
+
+        @Override
+        public Iterator<Byte> iterator() {
+            return fallback.iterator();
+        }
+
+        /**
+         * The fallback data source is owned by the caller, so this does nothing
+         */
+        @Override
+        public void close() {}
+    }
+}
@@ -1,13 +1,25 @@
 package org.broadinstitute.hellbender.engine;
 
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
 
 /**
  * A ReadWalker is a tool that processes a single read at a time from one or multiple sources of reads, with
@@ -23,9 +35,31 @@ import java.util.List;
  *
  * ReadWalker authors must implement the apply() method to process each read, and may optionally implement
  * onTraversalStart() and/or onTraversalSuccess(). See the PrintReadsWithReference walker for an example.
+ *
+ * Tools that override {@link #supportsParallelTraversal} to return true may be run with more than one
+ * {@link #traversalThreads traversal thread}. In that mode the traversal thread decodes reads and hands them out in
+ * batches to worker threads, each of which has its own read filter, read transformers, reference and feature data
+ * sources, and which run the transform/filter/transform chain and {@link #apply} concurrently. Output passed to
+ * {@link #emitInTraversalOrder} is replayed on the traversal thread, in input order unless the tool declares via
+ * {@link #requiresOrderedOutput} that it does not care about the order of its output.
  */
 public abstract class ReadWalker extends WalkerBase {
 
+    public static final String TRAVERSAL_THREADS_LONG_NAME = "traversal-threads";
+
+    /**
+     * Number of reads handed to a worker thread at a time during parallel traversal
+     */
+    public static final int PARALLEL_TRAVERSAL_BATCH_SIZE = 10_000;
+
+    /**
+     * Number of threads used to filter, transform and process reads. Values greater than 1 are only accepted by
+     * tools that support parallel traversal.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_THREADS_LONG_NAME, doc = "Number of threads to use for processing reads", optional = true, minValue = 1)
+    public int traversalThreads = 1;
+
     @Override
     public boolean requiresReads() {
         return true;
@@ -49,6 +83,11 @@ public abstract class ReadWalker extends WalkerBase {
     protected final void onStartup() {
         super.onStartup();
 
+        if ( traversalThreads > 1 && ! supportsParallelTraversal() ) {
+            throw new CommandLineException.BadArgumentValue(TRAVERSAL_THREADS_LONG_NAME, Integer.toString(traversalThreads),
+                    "this tool does not support parallel traversal with the arguments provided");
+        }
+
         setReadTraversalBounds();
     }
 
@@ -62,13 +101,9 @@ public abstract class ReadWalker extends WalkerBase {
     }
 
     @Override
-    void initializeFeatures() {
+    FeatureManager makeFeatureManager() {
         //We override this method to change lookahead of the cache
-        features = new FeatureManager(this, FEATURE_CACHE_LOOKAHEAD, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                                      getGenomicsDBOptions());
-        if ( features.isEmpty() ) {  // No available sources of Features discovered for this tool
-            features = null;
-        }
+        return makeFeatureManager(FEATURE_CACHE_LOOKAHEAD);
     }
 
     /**
@@ -82,11 +117,16 @@ public abstract class ReadWalker extends WalkerBase {
      * function of the walker (along with additional contextual information, if present, such as reference bases).
      *
      * NOTE: You should only override {@link #traverse()} if you are writing a new walker base class in the
-     * engine package that extends this class. It is not meant to be overridden by tools outside of the engine
-     * package.
+     * engine package that extends this class, or to traverse only some of the reads with {@link #traverseIntervals}.
+     * It is not otherwise meant to be overridden by tools outside of the engine package.
      */
     @Override
     public void traverse() {
+        if ( traversalThreads > 1 ) {
+            traverseInParallel();
+            return;
+        }
+
         // Process each read in the input stream.
         // Supply reference bases spanning each read, if a reference is available.
         final CountingReadFilter countedFilter = makeReadFilter();
@@ -103,6 +143,193 @@ public abstract class ReadWalker extends WalkerBase {
         logger.info(countedFilter.getSummaryLine());
     }
 
+    /**
+     * Alternative read-based traversal, for tools that only need to process a sample of the reads.
+     *
+     * Hands the reads overlapping each of the given intervals to {@link #apply}, one interval at a time in the order
+     * given (which need not be coordinate order), transforming and filtering them as {@link #traverse} does. Each read
+     * is only processed with the first of the intervals, in coordinate order, that it overlaps: reads that also overlap
+     * the interval preceding an interval on its contig are skipped. Traversing all of the intervals thus processes the
+     * same reads as {@link #traverse} does with these intervals as traversal bounds, even when the intervals are shards
+     * cut from larger intervals. {@code isDone} is checked before each interval, and the traversal ends as soon as it
+     * returns true.
+     *
+     * Requires indexed reads. Tools may call this from an override of {@link #traverse}.
+     *
+     * @param intervals non-overlapping intervals, in the order in which to traverse them
+     * @param isDone whether the traversal should end before the next interval
+     * @return the number of intervals traversed
+     */
+    protected final int traverseIntervals(final List<SimpleInterval> intervals, final BooleanSupplier isDone) {
+        Utils.nonNull(intervals);
+        Utils.nonNull(isDone);
+        if ( ! reads.isQueryableByInterval() ) {
+            throw new UserException.MissingIndex("Traversing reads interval by interval requires indexed reads.");
+        }
+
+        // the end of the interval preceding each interval on its contig; reads starting at or before it overlap both
+        final Map<SimpleInterval, Integer> precedingIntervalEnds = new HashMap<>(intervals.size());
+        final List<SimpleInterval> sortedIntervals = new ArrayList<>(intervals);
+        sortedIntervals.sort(IntervalUtils.LEXICOGRAPHICAL_ORDER_COMPARATOR);
+        for ( int i = 0; i < sortedIntervals.size(); i++ ) {
+            final SimpleInterval interval = sortedIntervals.get(i);
+            final SimpleInterval precedingInterval = i > 0 && sortedIntervals.get(i - 1).getContig().equals(interval.getContig()) ? sortedIntervals.get(i - 1) : null;
+            Utils.validateArg(precedingInterval == null || ! precedingInterval.overlaps(interval), () -> "intervals must not overlap, but " + precedingInterval + " overlaps " + interval);
+            precedingIntervalEnds.put(interval, precedingInterval == null ? 0 : precedingInterval.getEnd());
+        }
+
+        final CountingReadFilter countedFilter = makeReadFilter();
+        final ReadTransformer preReadFilterTransformer = makePreReadFilterTransformer();
+        final ReadTransformer postReadFilterTransformer = makePostReadFilterTransformer();
+        int intervalsTraversed = 0;
+        for ( final SimpleInterval interval : intervals ) {
+            if ( isDone.getAsBoolean() ) {
+                break;
+            }
+            final int precedingIntervalEnd = precedingIntervalEnds.get(interval);
+            final Iterator<GATKRead> readIterator = reads.query(interval);
+            while ( readIterator.hasNext() ) {
+                final GATKRead originalRead = readIterator.next();
+                if ( originalRead.getStart() <= precedingIntervalEnd ) {
+                    // processed with the preceding interval (or an earlier one)
+                    continue;
+                }
+                final GATKRead read = preReadFilterTransformer.apply(originalRead);
+                if ( ! countedFilter.test(read) ) {
+                    continue;
+                }
+                final GATKRead transformedRead = postReadFilterTransformer.apply(read);
+                final SimpleInterval readInterval = getReadInterval(transformedRead);
+                apply(transformedRead,
+                      new ReferenceContext(reference, readInterval),
+                      new FeatureContext(features, readInterval));
+
+                progressMeter.update(readInterval);
+            }
+            intervalsTraversed++;
+        }
+
+        logger.info(countedFilter.getSummaryLine());
+        return intervalsTraversed;
+    }
+
+    /**
+     * Parallel implementation of read-based traversal.
+     *
+     * Reads are decoded on this thread and submitted in batches of {@link #PARALLEL_TRAVERSAL_BATCH_SIZE} to worker
+     * threads, which transform, filter and process them exactly as {@link #traverse} does. Output deferred via
+     * {@link #emitInTraversalOrder} is replayed on this thread.
+     */
+    private void traverseInParallel() {
+        logger.info("Processing reads using " + traversalThreads + " traversal threads");
+
+        try ( final ParallelTraversalExecutor<ParallelTraversalWorker> executor =
+                      new ParallelTraversalExecutor<>(traversalThreads, "read-traversal-thread", requiresOrderedOutput(), ParallelTraversalWorker::new) ) {
+            final Iterator<GATKRead> readIterator = reads.iterator();
+            while ( readIterator.hasNext() ) {
+                final List<GATKRead> batch = new ArrayList<>(PARALLEL_TRAVERSAL_BATCH_SIZE);
+                while ( readIterator.hasNext() && batch.size() < PARALLEL_TRAVERSAL_BATCH_SIZE ) {
+                    batch.add(readIterator.next());
+                }
+                executor.submit(worker -> worker.processBatch(batch));
+            }
+            executor.awaitCompletion();
+
+            // each worker counts the reads it filtered by filter, so combine the counts into a single summary
+            final CountingReadFilter countedFilter = makeReadFilter();
+            executor.getWorkerStates().forEach(worker -> countedFilter.addFilteredCounts(worker.readFilter));
+            logger.info(countedFilter.getSummaryLine());
+        }
+    }
+
+    /**
+     * Per-thread state for parallel traversal. Each worker owns an independent read filter, read transformers and
+     * reference/feature data sources, since none of these are thread-safe.
+     */
+    private final class ParallelTraversalWorker implements AutoCloseable {
+        private final CountingReadFilter readFilter = makeReadFilter();
+        private final ReadTransformer preReadFilterTransformer = makePreReadFilterTransformer();
+        private final ReadTransformer postReadFilterTransformer = makePostReadFilterTransformer();
+        private final ReferenceDataSource workerReference = hasReference() && usesReferenceContexts() ? makeReferenceDataSource() : null;
+        private final FeatureManager workerFeatures = hasFeatures() ? makeFeatureManager() : null;
+
+        void processBatch(final List<GATKRead> batch) {
+            for ( final GATKRead originalRead : batch ) {
+                final GATKRead read = preReadFilterTransformer.apply(originalRead);
+                if ( ! readFilter.test(read) ) {
+                    continue;
+                }
+                final GATKRead transformedRead = postReadFilterTransformer.apply(read);
+                final SimpleInterval readInterval = getReadInterval(transformedRead);
+                apply(transformedRead,
+                      new ReferenceContext(workerReference, readInterval),
+                      new FeatureContext(workerFeatures, readInterval));
+
+                emitInTraversalOrder(() -> progressMeter.update(readInterval));
+            }
+        }
+
+        @Override
+        public void close() {
+            if ( workerReference != null ) {
+                workerReference.close();
+            }
+            if ( workerFeatures != null ) {
+                workerFeatures.close();
+            }
+        }
+    }
+
+    /**
+     * Run an output action (such as writing a read to an output file) in traversal order.
+     *
+     * During single-threaded traversal the action is run immediately. During parallel traversal the action is deferred
+     * and later run on the traversal thread, so the action itself need not be thread-safe. Tools that support parallel
+     * traversal must send all of their output through this method rather than writing it directly from {@link #apply}.
+     *
+     * @param outputAction action to run in traversal order; must not depend on state that may change after this call
+     */
+    protected final void emitInTraversalOrder(final Runnable outputAction) {
+        ParallelTraversalExecutor.emit(outputAction);
+    }
+
+    /**
+     * Tools that can process reads on multiple threads at once should override this method to return true.
+     *
+     * Such tools must ensure that {@link #apply}, as well as the filters and transformers returned by {@link #makeReadFilter},
+     * {@link #makePreReadFilterTransformer} and {@link #makePostReadFilterTransformer} (which are created once per traversal
+     * thread), are safe to use concurrently from multiple threads, and that all output is sent through {@link #emitInTraversalOrder}.
+     *
+     * @return true if this tool (with its current arguments) supports more than one {@link #traversalThreads traversal thread}.
+     *         The default implementation returns false.
+     */
+    protected boolean supportsParallelTraversal() {
+        return false;
+    }
+
+    /**
+     * Tools that only query the reference through data sources of their own, never through the {@link ReferenceContext}
+     * passed to {@link #apply}, may override this method to return false. The worker threads of a parallel traversal then
+     * don't each open a reference data source that would go unused, and the ReferenceContexts they pass to
+     * {@link #apply} have no backing data source.
+     *
+     * @return true if {@link #apply} queries the ReferenceContext it is passed. The default implementation returns true.
+     */
+    protected boolean usesReferenceContexts() {
+        return true;
+    }
+
+    /**
+     * Tools whose output does not depend on the order in which reads are processed (for example, because the output is
+     * unsorted or is sorted afterwards) may override this method to return false, which allows output from parallel
+     * traversal to be emitted as soon as each batch of reads completes rather than in input order.
+     *
+     * @return true if output must be emitted in input order during parallel traversal. The default implementation returns true.
+     */
+    protected boolean requiresOrderedOutput() {
+        return true;
+    }
+
     /**
      * Returns an interval for the read.
      * Note: some walkers must be able to work on any read, including those whose coordinates do not form a valid SimpleInterval.
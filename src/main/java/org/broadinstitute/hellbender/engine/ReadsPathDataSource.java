@@ -10,6 +10,7 @@ import htsjdk.samtools.SamFileHeaderMerger;
 import htsjdk.samtools.SamInputResource;
 import htsjdk.samtools.SamReader;
 import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.IOUtil;
 import org.apache.logging.log4j.LogManager;
@@ -20,13 +21,18 @@ import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedInputStream;
+import org.broadinstitute.hellbender.utils.iterators.ParallelDecompressingBAMIterator;
 import org.broadinstitute.hellbender.utils.iterators.SAMRecordToReadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SamReaderQueryingIterator;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadConstants;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
 import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -92,6 +98,23 @@ public final class ReadsPathDataSource implements ReadsDataSource {
      */
     private boolean indicesAvailable;
 
+    /**
+     * Caching/prefetching wrapper for the data, used when we open BAM files directly for parallel decompression
+     */
+    private final Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper;
+
+    /**
+     * Validation stringency of our readers, which we must apply ourselves to records read with parallel decompression
+     */
+    private final ValidationStringency validationStringency;
+
+    /**
+     * Number of threads with which to inflate BAM blocks during unbounded traversals (0 to inflate on the traversal thread
+     * via the readers' own iterators), and the maximum number of blocks to read ahead. See {@link #setParallelDecompression}.
+     */
+    private int decompressionThreads = 0;
+    private int maxDecompressionBlocksInFlight = 0;
+
     /**
      * Initialize this data source with a single SAM/BAM file and validation stringency SILENT.
      *
@@ -211,6 +234,8 @@ public final class ReadsPathDataSource implements ReadsDataSource {
                 customSamReaderFactory == null ?
                     SamReaderFactory.makeDefault().validationStringency(ReadConstants.DEFAULT_READ_VALIDATION_STRINGENCY) :
                     customSamReaderFactory;
+        this.cloudWrapper = cloudWrapper;
+        this.validationStringency = samReaderFactory.validationStringency();
 
         int samCount = 0;
         for ( final Path samPath : samPaths ) {
@@ -276,6 +301,23 @@ public final class ReadsPathDataSource implements ReadsDataSource {
         return indicesAvailable();
     }
 
+    /**
+     * Enables read-ahead with parallel decompression for traversals via {@link #iterator} that are not bounded by
+     * intervals or restricted to unmapped reads. During such traversals, BGZF blocks from BAM inputs are inflated ahead
+     * of the traversal on a pool of threads, rather than on the traversal thread; records are still decoded on the
+     * traversal thread. SAM and CRAM inputs, bounded traversals, and queries are unaffected.
+     *
+     * @param numThreads number of threads with which to inflate blocks of each BAM input (0 to disable)
+     * @param maxBlocksInFlight maximum number of blocks to read ahead for each BAM input, which bounds memory use
+     *                          (see {@link ParallelBlockCompressedInputStream#getMaxBlocksInFlight}). Must be at least numThreads.
+     */
+    public void setParallelDecompression( final int numThreads, final int maxBlocksInFlight ) {
+        Utils.validateArg(numThreads >= 0, "numThreads must be >= 0");
+        Utils.validateArg(numThreads == 0 || maxBlocksInFlight >= numThreads, "maxBlocksInFlight must be >= numThreads");
+        this.decompressionThreads = numThreads;
+        this.maxDecompressionBlocksInFlight = maxBlocksInFlight;
+    }
+
     /**
      * Restricts a traversal of this data source via {@link #iterator} to only return reads that overlap the given intervals,
      * and to unmapped reads if specified.
@@ -409,6 +451,8 @@ public final class ReadsPathDataSource implements ReadsDataSource {
                                 queryUnmapped
                         )
                 );
+            } else if ( decompressionThreads > 0 && readerEntry.getKey().type().equals(SamReader.Type.BAM_TYPE) ) {
+                readerEntry.setValue(makeParallelDecompressingIterator(readerEntry.getKey()));
             } else {
                 readerEntry.setValue(readerEntry.getKey().iterator());
             }
@@ -427,6 +471,23 @@ public final class ReadsPathDataSource implements ReadsDataSource {
         return new SAMRecordToReadIterator(startingIterator);
     }
 
+    /**
+     * Open an iterator over all of the reads of a BAM reader that reads the file independently of the reader,
+     * inflating blocks on multiple threads.
+     */
+    private CloseableIterator<SAMRecord> makeParallelDecompressingIterator( final SamReader samReader ) {
+        final Path samPath = backingPaths.get(samReader);
+        final Function<SeekableByteChannel, SeekableByteChannel> wrapper =
+                cloudWrapper != null && BucketUtils.isEligibleForPrefetching(samPath) ? cloudWrapper : Function.identity();
+        try {
+            final SeekableByteChannel channel = wrapper.apply(Files.newByteChannel(samPath));
+            return new ParallelDecompressingBAMIterator(new BufferedInputStream(Channels.newInputStream(channel)), samPath.toUri().toString(),
+                    samReader.getFileHeader(), validationStringency, decompressionThreads, maxDecompressionBlocksInFlight);
+        } catch ( IOException e ) {
+            throw new UserException.CouldNotReadInputFile(samPath, e);
+        }
+    }
+
     /**
      * Reduce the intervals down to only include ones that can actually intersect with this reader
      */
@@ -0,0 +1,254 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.reference.FastaSequenceIndex;
+import htsjdk.samtools.reference.FastaSequenceIndexEntry;
+import htsjdk.samtools.reference.ReferenceSequence;
+import htsjdk.samtools.reference.ReferenceSequenceFileFactory;
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.StringUtil;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.reference.ReferenceUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * Manages queries over reference data by memory-mapping an uncompressed fasta file.
+ *
+ * Bases are located using the line layout recorded in the .fai index, and copied straight from the mapped file
+ * into the returned {@link ReferenceSequence}, so there is no cache to thrash when queries jump around the genome.
+ * Pages of the file are shared by all instances and threads through the operating system's page cache.
+ *
+ * Unlike {@link ReferenceFileSource}, a single instance of this class may be queried from multiple threads at once.
+ *
+ * Only fasta files on the default (local) file system that are not block-compressed can be mapped: see {@link #canMap}.
+ * Supports targeted queries over the reference by interval, but does not yet support complete iteration over the
+ * entire reference.
+ */
+public final class ReferenceMappedFileSource implements ReferenceDataSource {
+
+    /**
+     * Size of the separately-mapped regions of the fasta file, which must each be smaller than 2GB
+     */
+    private static final long MAPPED_REGION_SIZE = 1L << 30;
+
+    private final SAMSequenceDictionary sequenceDictionary;
+    private final boolean preserveFileBases;
+
+    /**
+     * Layout of each contig in the fasta file, indexed by contig index in the sequence dictionary
+     */
+    private final long[] contigOffsets;
+    private final int[] basesPerLine;
+    private final int[] bytesPerLine;
+
+    private final MappedByteBuffer[] mappedRegions;
+
+    /**
+     * Initialize this data source using a fasta file.
+     *
+     * The provided fasta file must have companion .fai and .dict files.
+     *
+     * @param fastaPath reference fasta file, for which {@link #canMap} must be true
+     */
+    public ReferenceMappedFileSource(final Path fastaPath) {
+        this(fastaPath, false);
+    }
+
+    /**
+     * Initialize this data source using a fasta file.
+     *
+     * The provided fasta file must have companion .fai and .dict files.
+     *
+     * If {@code preserveFileBases} is {@code true}, will NOT convert IUPAC bases in the file to `N` and will NOT capitalize lower-case bases.
+     * NOTE: Most GATK tools do not support data created by setting {@code preserveFileBases} to {@code true}.
+     *
+     * @param fastaPath reference fasta file, for which {@link #canMap} must be true
+     * @param preserveFileBases Whether to preserve the original bases in the given reference file path.
+     */
+    public ReferenceMappedFileSource(final Path fastaPath, final boolean preserveFileBases) {
+        Utils.nonNull(fastaPath);
+        Utils.validateArg(canMap(fastaPath), () -> "Cannot memory-map reference " + fastaPath.toUri());
+        this.preserveFileBases = preserveFileBases;
+
+        final Path indexPath = ReferenceSequenceFileFactory.getFastaIndexFileName(fastaPath);
+        final Path dictPath = ReferenceSequenceFileFactory.getDefaultDictionaryForReferenceSequence(fastaPath);
+        if ( ! Files.exists(fastaPath) ) {
+            throw new UserException.MissingReference("The specified fasta file (" + fastaPath.toUri() + ") does not exist.");
+        }
+        if ( ! Files.exists(indexPath) ) {
+            throw new UserException.MissingReferenceFaiFile(indexPath, fastaPath);
+        }
+        if ( ! Files.exists(dictPath) ) {
+            throw new UserException.MissingReferenceDictFile(dictPath, fastaPath);
+        }
+
+        try ( final InputStream dictStream = Files.newInputStream(dictPath) ) {
+            sequenceDictionary = ReferenceUtils.loadFastaDictionary(dictStream);
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(dictPath, e);
+        }
+
+        final FastaSequenceIndex index = new FastaSequenceIndex(indexPath);
+        final int numContigs = sequenceDictionary.size();
+        contigOffsets = new long[numContigs];
+        basesPerLine = new int[numContigs];
+        bytesPerLine = new int[numContigs];
+
+        try ( final FileChannel channel = FileChannel.open(fastaPath, StandardOpenOption.READ) ) {
+            final long fileSize = channel.size();
+            for ( int contigIndex = 0; contigIndex < numContigs; contigIndex++ ) {
+                final String contig = sequenceDictionary.getSequence(contigIndex).getSequenceName();
+                if ( ! index.hasIndexEntry(contig) ) {
+                    throw new UserException.MalformedFile(indexPath, "Contig " + contig + " from the sequence dictionary is not in the fasta index");
+                }
+                final FastaSequenceIndexEntry entry = index.getIndexEntry(contig);
+                if ( entry.getSize() != sequenceDictionary.getSequence(contigIndex).getSequenceLength()
+                        || (entry.getSize() > 0 && (entry.getBasesPerLine() <= 0 || entry.getBytesPerLine() < entry.getBasesPerLine()))
+                        || (entry.getSize() > 0 && getFileOffset(entry.getLocation(), entry.getBasesPerLine(), entry.getBytesPerLine(), entry.getSize() - 1) >= fileSize) ) {
+                    throw new UserException.MalformedFile(indexPath, "Fasta index entry for contig " + contig + " is inconsistent with the fasta file or sequence dictionary");
+                }
+                contigOffsets[contigIndex] = entry.getLocation();
+                basesPerLine[contigIndex] = entry.getBasesPerLine();
+                bytesPerLine[contigIndex] = entry.getBytesPerLine();
+            }
+
+            mappedRegions = new MappedByteBuffer[(int)((fileSize + MAPPED_REGION_SIZE - 1) / MAPPED_REGION_SIZE)];
+            for ( int i = 0; i < mappedRegions.length; i++ ) {
+                final long regionStart = i * MAPPED_REGION_SIZE;
+                mappedRegions[i] = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(MAPPED_REGION_SIZE, fileSize - regionStart));
+            }
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(fastaPath, e);
+        }
+    }
+
+    /**
+     * @param fastaPath reference fasta file
+     * @return true if the fasta file can be memory-mapped: it must be on the default file system, and not block-compressed
+     */
+    public static boolean canMap(final Path fastaPath) {
+        Utils.nonNull(fastaPath);
+        if ( fastaPath.getFileSystem() != FileSystems.getDefault() ) {
+            return false;
+        }
+        try {
+            return ! (Files.exists(fastaPath) && IOUtil.isBlockCompressed(fastaPath, true));
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile("Couldn't open fasta file: " + fastaPath.toUri().toString() + ".", e);
+        }
+    }
+
+    /**
+     * @return offset in the fasta file of the 0-based position {@code position} of a contig with the given layout
+     */
+    private static long getFileOffset(final long contigOffset, final int basesPerLine, final int bytesPerLine, final long position) {
+        return basesPerLine == 0 ? contigOffset : contigOffset + (position / basesPerLine) * bytesPerLine + position % basesPerLine;
+    }
+
+    /**
+     * Start an iteration over the entire reference. Not yet supported!
+     *
+     * See the BaseUtils class for guidance on how to work with bases in this format.
+     *
+     * @return iterator over all bases in this reference
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        throw new UnsupportedOperationException("Iteration over entire reference not yet implemented");
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back all bases spanning that interval at once.
+     * Call getBases() on the returned ReferenceSequence to get the actual reference bases. See the BaseUtils
+     * class for guidance on how to work with bases in this format.
+     *
+     * @param contig query interval contig
+     * @param start query interval start (1-based)
+     * @param stop query interval stop (included)
+     * @return a ReferenceSequence containing all bases spanning the query interval, prefetched
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch( final String contig, final long start , final long stop) {
+        Utils.nonNull(contig);
+        final int contigIndex = sequenceDictionary.getSequenceIndex(contig);
+        if ( contigIndex == -1 ) {
+            throw new UserException.MissingContigInSequenceDictionary(contig, sequenceDictionary);
+        }
+        final long contigLength = sequenceDictionary.getSequence(contigIndex).getSequenceLength();
+        Utils.validateArg(start >= 1, () -> "Query start must be >= 1 but was " + start);
+        if ( stop > contigLength ) {
+            throw new SAMException("Query asks for data past end of contig. Query contig " + contig + " start:" + start + " stop:" + stop + " contigLength:" + contigLength);
+        }
+        Utils.validateArg(stop >= start - 1, () -> String.format("Asking for stop<start (%d < %d)", stop, start));
+
+        final byte[] bases = new byte[(int)(stop - start + 1)];
+        final ByteBuffer[] regionViews = new ByteBuffer[mappedRegions.length];
+        final int lineLength = basesPerLine[contigIndex];
+        long position = start - 1;
+        int copied = 0;
+        while ( copied < bases.length ) {
+            // copy the remainder of the current line, or as much of it as we need
+            final int numToCopy = (int)Math.min(lineLength - position % lineLength, bases.length - copied);
+            readBytes(getFileOffset(contigOffsets[contigIndex], lineLength, bytesPerLine[contigIndex], position), bases, copied, numToCopy, regionViews);
+            copied += numToCopy;
+            position += numToCopy;
+        }
+
+        if ( ! preserveFileBases ) {
+            StringUtil.toUpperCase(bases);
+            BaseUtils.convertIUPACtoN(bases, true, false);
+        }
+        return new ReferenceSequence(contig, contigIndex, bases);
+    }
+
+    /**
+     * Copy bytes from the mapped file. Reads through per-query views of the mapped regions, since the positions of
+     * the shared buffers can't safely be changed.
+     */
+    private void readBytes(final long fileOffset, final byte[] destination, final int destinationOffset, final int length, final ByteBuffer[] regionViews) {
+        long offset = fileOffset;
+        int copied = 0;
+        while ( copied < length ) {
+            final int region = (int)(offset / MAPPED_REGION_SIZE);
+            if ( regionViews[region] == null ) {
+                regionViews[region] = mappedRegions[region].duplicate();
+            }
+            final ByteBuffer view = regionViews[region];
+            final int positionInRegion = (int)(offset % MAPPED_REGION_SIZE);
+            final int numToCopy = Math.min(length - copied, view.limit() - positionInRegion);
+            view.position(positionInRegion);
+            view.get(destination, destinationOffset + copied, numToCopy);
+            copied += numToCopy;
+            offset += numToCopy;
+        }
+    }
+
+    /**
+     * Get the sequence dictionary for this reference
+     *
+     * @return SAMSequenceDictionary for this reference
+     */
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return sequenceDictionary;
+    }
+
+    /**
+     * Permanently close this data source. The file is unmapped once the mapped buffers are garbage collected.
+     */
+    @Override
+    public void close() {}
+}
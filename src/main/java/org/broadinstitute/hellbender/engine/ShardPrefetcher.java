@@ -0,0 +1,110 @@
+package org.broadinstitute.hellbender.engine;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Loads the data for the shards of a traversal on a background thread, ahead of the traversal thread that processes
+ * them, so that the I/O for upcoming shards overlaps with the processing of the current one.
+ *
+ * Shards are loaded one at a time, in order, on a single background thread, so the loader may use data sources that
+ * aren't thread-safe as long as the traversal thread doesn't use them too. At most a fixed number of loaded (or loading)
+ * shards are buffered ahead of the traversal thread, which bounds the memory used for prefetched data.
+ *
+ * Not thread-safe: must be iterated over and closed by the traversal thread.
+ *
+ * @param <S> type describing each shard (eg., its intervals)
+ * @param <D> type of the loaded data for each shard
+ */
+final class ShardPrefetcher<S, D> implements Iterator<D>, AutoCloseable {
+
+    private final Iterator<S> shards;
+    private final Function<S, D> loader;
+    private final int maxShardsAhead;
+    private final ExecutorService executorService;
+    private final Deque<Future<D>> loadedShards;
+
+    /**
+     * @param shards shards to load, in traversal order
+     * @param maxShardsAhead maximum number of shards to load ahead of the traversal thread
+     * @param loader loads the data for a shard; always invoked on the same background thread
+     */
+    ShardPrefetcher(final Iterator<S> shards, final int maxShardsAhead, final Function<S, D> loader) {
+        this.shards = Utils.nonNull(shards);
+        this.loader = Utils.nonNull(loader);
+        Utils.validateArg(maxShardsAhead >= 1, "maxShardsAhead must be >= 1");
+        this.maxShardsAhead = maxShardsAhead;
+        this.executorService = Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("shard-prefetch-thread-%d").setDaemon(true).build());
+        this.loadedShards = new ArrayDeque<>(maxShardsAhead);
+        loadAhead();
+    }
+
+    private void loadAhead() {
+        while ( loadedShards.size() < maxShardsAhead && shards.hasNext() ) {
+            final S shard = shards.next();
+            loadedShards.add(executorService.submit(() -> loader.apply(shard)));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return ! loadedShards.isEmpty();
+    }
+
+    /**
+     * @return the data for the next shard, blocking until it has been loaded
+     */
+    @Override
+    public D next() {
+        if ( ! hasNext() ) {
+            throw new NoSuchElementException("No more shards");
+        }
+        final Future<D> next = loadedShards.remove();
+        // start loading another shard before we (possibly) wait for this one
+        loadAhead();
+        try {
+            return next.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while prefetching shard data", e);
+        } catch ( final ExecutionException e ) {
+            // rethrow unchecked exceptions as-is, so that user errors are reported as such
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new GATKException("Problem prefetching shard data", e.getCause());
+        }
+    }
+
+    /**
+     * Discard any prefetched shards, and wait for the background thread to stop, after which the data sources used by
+     * the loader may be closed.
+     */
+    @Override
+    public void close() {
+        loadedShards.forEach(shard -> shard.cancel(true));
+        loadedShards.clear();
+        executorService.shutdownNow();
+        try {
+            while ( ! executorService.awaitTermination(1, TimeUnit.MINUTES) ) {
+                // the loader isn't responding to interruption, but is still using its data sources, so keep waiting
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while stopping shard prefetching", e);
+        }
+    }
+}
@@ -76,6 +76,18 @@ public class CountingReadFilter extends ReadFilter {
         filteredCount = 0;
     }
 
+    /**
+     * Add the counts of another filter built in the same way as this one (for example, by the same tool for another
+     * thread) to the counts of this filter, level by level, so that the summary line covers the reads seen by both.
+     * @param other filter with the same structure as this filter. May not be null
+     */
+    public void addFilteredCounts(final CountingReadFilter other) {
+        Utils.nonNull(other);
+        Utils.validateArg(other.getClass() == getClass() && other.getName().equals(getName()),
+                () -> "Cannot add the counts of filter " + other.getName() + " to filter " + getName());
+        filteredCount += other.filteredCount;
+    }
+
     public String getName() {return delegateFilter.getClass().getSimpleName();}
 
     // Returns a summary line with filter counts organized by level
@@ -144,6 +156,12 @@ public class CountingReadFilter extends ReadFilter {
             return accept;
         }
 
+        @Override
+        public void addFilteredCounts(final CountingReadFilter other) {
+            super.addFilteredCounts(other);
+            delegateCountingFilter.addFilteredCounts(((CountingNegateReadFilter) other).delegateCountingFilter);
+        }
+
         @Override
         public String getName() {
             return "NOT " + delegateCountingFilter.getName();
@@ -190,6 +208,13 @@ public class CountingReadFilter extends ReadFilter {
             this.rhs.resetFilteredCount();
         }
 
+        @Override
+        public void addFilteredCounts(final CountingReadFilter other) {
+            super.addFilteredCounts(other);
+            lhs.addFilteredCounts(((CountingBinopReadFilter) other).lhs);
+            rhs.addFilteredCounts(((CountingBinopReadFilter) other).rhs);
+        }
+
         @Override
         public abstract String getName();
     }
@@ -45,4 +45,7 @@ public final class MappingQualityReadFilter extends ReadFilter implements Serial
         return  mq >= minMappingQualityScore
                 && (maxMappingQualityScore == null || mq <= maxMappingQualityScore);
     }
+
+    @Override
+    public boolean usesOnlyFixedLengthFields() { return true; }
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -44,6 +45,9 @@ public abstract class ReadFilter implements Predicate<GATKRead>, Serializable {
         public boolean test( GATKRead read ) {
             return !delegate.test(read);
         }
+
+        @Override
+        public boolean usesOnlyFixedLengthFields() { return delegate.usesOnlyFixedLengthFields(); }
     }
 
     protected abstract static class ReadFilterBinOp extends ReadFilter {
@@ -58,6 +62,9 @@ public abstract class ReadFilter implements Predicate<GATKRead>, Serializable {
             this.lhs = lhs;
             this.rhs = rhs;
         }
+
+        @Override
+        public boolean usesOnlyFixedLengthFields() { return lhs.usesOnlyFixedLengthFields() && rhs.usesOnlyFixedLengthFields(); }
     }
 
     @VisibleForTesting
@@ -107,6 +114,34 @@ public abstract class ReadFilter implements Predicate<GATKRead>, Serializable {
         return compositeFilter;
      }
 
+    /**
+     * Return a copy of a list of {@code ReadFilter} in which the filters that use only fixed-length fields
+     * (see {@link #usesOnlyFixedLengthFields}) come first. The relative order of the filters within each of
+     * the two groups is preserved. Since and'ing filters short-circuits, composing the result with
+     * {@link #fromList} means that reads rejected by one of the cheap filters are never examined by the others.
+     * @param readFilters filters to reorder. May not be null
+     * @return reordered list of filters
+     */
+    public static List<ReadFilter> fixedLengthFieldFiltersFirst(final List<ReadFilter> readFilters) {
+        Utils.nonNull(readFilters);
+        final List<ReadFilter> reordered = new ArrayList<>(readFilters.size());
+        readFilters.stream().filter(ReadFilter::usesOnlyFixedLengthFields).forEach(reordered::add);
+        readFilters.stream().filter(f -> ! f.usesOnlyFixedLengthFields()).forEach(reordered::add);
+        return reordered;
+    }
+
+    /**
+     * Whether this filter examines only the fixed-length fields of a read: the flags, mapping quality, reference
+     * indices and positions of the read and its mate, and the fragment length. In a BAM file these fields can be
+     * read without decoding the read name, cigar, bases, base qualities or attributes, which htsjdk decodes lazily
+     * on first access, so such filters are cheap enough to run before any other filter.
+     *
+     * Filters that override this to return true must not throw on malformed reads.
+     *
+     * @return true if this filter uses only fixed-length fields, false (the default) otherwise
+     */
+    public boolean usesOnlyFixedLengthFields() { return false; }
+
     //HACK: These methods are a hack to get the type system to accept compositions of ReadFilters.
     /**
      * Specialization of {@link #and(Predicate)} so that ReadFilters anded with other ReadFilters produce a ReadFilter
@@ -33,6 +33,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Keep only reads that are first of pair")
     public static class FirstOfPairReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test (final GATKRead read) {
             return read.isFirstOfPair();}}
 
@@ -57,6 +58,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads with fragment length different from zero")
     public static class NonZeroFragmentLengthReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read){
             return read.getFragmentLength() != 0;}}
 
@@ -88,6 +90,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out unmapped reads")
     public static class MappedReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read) {
             return !read.isUnmapped();}}
 
@@ -95,6 +98,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads without available mapping quality")
     public static class MappingQualityAvailableReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read) {
             return read.getMappingQuality() != QualityUtils.MAPPING_QUALITY_UNAVAILABLE;}}
 
@@ -102,6 +106,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads with mapping quality equal to zero")
     public static class MappingQualityNotZeroReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read) {
             return read.getMappingQuality() != 0;}}
 
@@ -113,6 +118,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Keep only reads whose mate maps to the same contig or is unmapped", extraDocs = MappedReadFilter.class)
     public static class MateOnSameContigOrNoMappedMateReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read){
             return ! read.isPaired() ||
                     read.mateIsUnmapped() ||
@@ -127,6 +133,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Keep only reads with mates mapped on the different strand", extraDocs = MappedReadFilter.class)
     public static class MateDifferentStrandReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read){
             return read.isPaired() &&
                     ! read.isUnmapped() &&
@@ -147,6 +154,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads marked as duplicate")
     public static class NotDuplicateReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read){
             return ! read.isDuplicate();}}
 
@@ -154,6 +162,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Keep only paired reads that are not properly paired")
     public static class NotProperlyPairedReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read) {
             return read.isPaired() && !read.isProperlyPaired();}}
 
@@ -161,6 +170,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads representing secondary alignments")
     public static class NotSecondaryAlignmentReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read) {
             return !read.isSecondaryAlignment();}}
 
@@ -168,6 +178,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads representing supplementary alignments")
     public static class NotSupplementaryAlignmentReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read) {
             return !read.isSupplementaryAlignment();}}
 
@@ -175,6 +186,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out unpaired reads")
     public static class PairedReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read) {
             return read.isPaired();}}
 
@@ -182,6 +194,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filter out reads failing platfor/vendor quality checks")
     public static class PassesVendorQualityCheckReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read){
             return ! read.failsVendorQualityCheck();}}
 
@@ -189,6 +202,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Keep only reads that are properly paired")
     public static class ProperlyPairedReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read) {
             return read.isProperlyPaired();}}
 
@@ -207,6 +221,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY)
     public static class PrimaryLineReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read) {
             return ! read.isSecondaryAlignment() && ! read.isSupplementaryAlignment();}}
 
@@ -227,6 +242,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Keep only paired reads that are second of pair")
     public static class SecondOfPairReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test (final GATKRead read) {
             return read.isSecondOfPair();}}
 
@@ -245,6 +261,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary=HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Keep only reads with a valid alignment start", extraDocs = MappedReadFilter.class)
     public static class ValidAlignmentStartReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read){
             return read.isUnmapped() || read.getStart() > 0;}}
 
@@ -291,6 +308,7 @@ public final class ReadFilterLibrary {
     @DocumentedFeature(groupName=HelpConstants.DOC_CAT_READFILTERS, groupSummary = HelpConstants.DOC_CAT_READFILTERS_SUMMARY, summary = "Filters reads whose mate is unmapped as well as unmapped reads.")
     public static class MateUnmappedAndUnmappedReadFilter extends ReadFilter {
         private static final long serialVersionUID = 1L;
+        @Override public boolean usesOnlyFixedLengthFields() { return true; }
         @Override public boolean test(final GATKRead read) {
             return !(read.isUnmapped() || (read.isPaired() && read.mateIsUnmapped()));
         }
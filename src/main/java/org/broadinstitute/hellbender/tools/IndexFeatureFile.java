@@ -7,6 +7,7 @@ import htsjdk.tribble.*;
 import htsjdk.tribble.index.Index;
 import htsjdk.tribble.index.IndexFactory;
 import htsjdk.tribble.index.tabix.TabixIndex;
+import htsjdk.variant.vcf.VCFCodec;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.barclay.argparser.Argument;
@@ -20,6 +21,7 @@ import org.broadinstitute.hellbender.engine.FeatureManager;
 import org.broadinstitute.hellbender.engine.ProgressMeter;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.codecs.ProgressReportingDelegatingCodec;
+import org.broadinstitute.hellbender.utils.variant.PackedVariantCache;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -35,6 +37,17 @@ import java.nio.file.Path;
  *     -I cohort.vcf.gz
  * </pre>
  * This produces the corresponding index, cohort.vcf.gz.tbi.
+ *
+ * <h3>Creating a packed variant cache</h3>
+ * <pre>
+ * gatk IndexFeatureFile \
+ *     -I dbsnp.vcf.gz \
+ *     --create-packed-variant-cache
+ * </pre>
+ * This additionally produces dbsnp.vcf.gz.pvc, an uncompressed binary copy of the VCF with a built-in position index,
+ * which GATK tools memory-map and query in place of the VCF for as long as the VCF is unchanged. Queries against the
+ * cache don't decompress any of the VCF, and the sites and INFO fields of the records returned are decoded from a
+ * typed binary encoding rather than parsed from VCF text, which speeds up random access to large VCF resources.
  */
 
 @CommandLineProgramProperties(
@@ -58,6 +71,12 @@ public final class IndexFeatureFile extends CommandLineProgram {
               optional = true)
     public GATKPath outputPath;
 
+    @Argument(fullName = "create-packed-variant-cache",
+              doc = "Also create a packed variant cache of the input VCF, which tools will read instead of the VCF. " +
+                    "The cache is written next to the input file and is ignored once the input file is modified.",
+              optional = true)
+    public boolean createPackedVariantCache = false;
+
     public static final int OPTIMAL_GVCF_INDEX_BIN_SIZE = 128000;
     public static final String GVCF_FILE_EXTENSION = ".g.vcf";
 
@@ -69,8 +88,12 @@ public final class IndexFeatureFile extends CommandLineProgram {
 
         // Get the right codec for the file to be indexed. This call will throw an appropriate exception
         // if featureFile is not in a supported format or is unreadable.
+        final FeatureCodec<? extends Feature, ?> inputCodec = FeatureManager.getCodecForFile(featurePath.toPath());
+        if (createPackedVariantCache && !(inputCodec instanceof VCFCodec)) {
+            throw new UserException.BadInput("A packed variant cache can only be created for a VCF file, but " + featurePath + " is not a VCF file");
+        }
         final FeatureCodec<? extends Feature, ?> codec = new ProgressReportingDelegatingCodec<>(
-                FeatureManager.getCodecForFile(featurePath.toPath()), ProgressMeter.DEFAULT_SECONDS_BETWEEN_UPDATES);
+                inputCodec, ProgressMeter.DEFAULT_SECONDS_BETWEEN_UPDATES);
 
         final Index index = createAppropriateIndexInMemory(codec);
         final Path indexPath = determineFileName(index);
@@ -82,6 +105,12 @@ public final class IndexFeatureFile extends CommandLineProgram {
         }
 
         logger.info("Successfully wrote index to " + indexPath);
+
+        if (createPackedVariantCache) {
+            final Path cachePath = PackedVariantCache.getCachePath(featurePath.toPath());
+            final long numRecords = PackedVariantCache.create(featurePath.toPath(), cachePath);
+            logger.info("Successfully wrote packed variant cache of " + numRecords + " records to " + cachePath);
+        }
         return indexPath.toString();
     }
 
@@ -100,9 +100,14 @@ public final class PrintReads extends ReadWalker {
         outputWriter = createSAMWriter(output, true);
     }
 
+    @Override
+    protected boolean supportsParallelTraversal() {
+        return true;
+    }
+
     @Override
     public void apply( GATKRead read, ReferenceContext referenceContext, FeatureContext featureContext ) {
-        outputWriter.addRead(read);
+        emitInTraversalOrder(() -> outputWriter.addRead(read));
     }
 
     @Override
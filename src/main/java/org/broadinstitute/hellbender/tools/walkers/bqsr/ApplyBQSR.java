@@ -108,9 +108,14 @@ public final class ApplyBQSR extends ReadWalker{
         Utils.warnOnNonIlluminaReadGroups(getHeaderForReads(), logger);
     }
 
+    @Override
+    protected boolean supportsParallelTraversal() {
+        return true;
+    }
+
     @Override
     public void apply( GATKRead read, ReferenceContext referenceContext, FeatureContext featureContext ) {
-        outputWriter.addRead(read);
+        emitInTraversalOrder(() -> outputWriter.addRead(read));
     }
 
     @Override
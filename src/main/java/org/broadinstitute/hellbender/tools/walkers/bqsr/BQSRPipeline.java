@@ -0,0 +1,205 @@
+package org.broadinstitute.hellbender.tools.walkers.bqsr;
+
+import htsjdk.tribble.Feature;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.FeatureInput;
+import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.engine.MultiplePassReadWalker;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.ApplyBQSRUniqueArgumentCollection;
+import org.broadinstitute.hellbender.transformers.BQSRReadTransformer;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.recalibration.BaseRecalibrationEngine;
+import org.broadinstitute.hellbender.utils.recalibration.QuantizationInfo;
+import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCollection;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationReport;
+import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
+import org.broadinstitute.hellbender.utils.report.GATKReport;
+import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Both steps of the base quality score recalibration in one tool, without writing the recalibration table to disk.
+ *
+ * <p>The first pass over the reads builds the recalibration tables exactly like {@link BaseRecalibrator} does; the
+ * second pass recalibrates every read with those tables exactly like {@link ApplyBQSR} does. With the default
+ * arguments the output is the same as that of running BaseRecalibrator and then ApplyBQSR on the same input.</p>
+ *
+ * <p>The tables don't need every read to be accurate: the first pass can be limited to the first reads of the input
+ * with {@code --recalibration-reads}, in which case it stops reading the input as soon as that many reads have been
+ * counted, and/or to every n-th read with {@code --recalibration-read-stride}. Reads are counted after the BQSR read
+ * filters (see {@link BaseRecalibrator#getBQSRSpecificReadFilterList()}). Every read is recalibrated in the second
+ * pass regardless.</p>
+ *
+ * <h3>Input</h3>
+ * <ul>
+ *     <li>A BAM or CRAM file containing input read data</li>
+ *     <li>A database of known polymorphic sites to skip over.</li>
+ * </ul>
+ *
+ * <h3>Output</h3>
+ * <p>A BAM or CRAM file containing the recalibrated read data, and optionally the recalibration table.</p>
+ *
+ * <h3>Usage example</h3>
+ * <pre>
+ * gatk BQSRPipeline \
+ *   -R reference.fasta \
+ *   -I input.bam \
+ *   --known-sites sites_of_variation.vcf \
+ *   --known-sites another/optional/setOfSitesToMask.vcf \
+ *   --recalibration-reads 10000000 \
+ *   -O output.bam
+ * </pre>
+ */
+@CommandLineProgramProperties(
+        summary = BQSRPipeline.USAGE_SUMMARY,
+        oneLineSummary = BQSRPipeline.USAGE_ONE_LINE_SUMMARY,
+        usageExample = "BQSRPipeline -R ref.fasta -I in.bam --known-sites in.vcf -O out.bam",
+        programGroup = ReadDataManipulationProgramGroup.class
+)
+@DocumentedFeature
+@BetaFeature
+public final class BQSRPipeline extends MultiplePassReadWalker {
+    static final String USAGE_ONE_LINE_SUMMARY = "Both steps of BQSR (BaseRecalibrator and ApplyBQSR) in a single tool";
+    static final String USAGE_SUMMARY = "This tool performs 2 steps of BQSR - " +
+            "creation of recalibration tables from the reads, or from a subset of them, and rewriting of the reads " +
+            "with recalibrated base qualities, without writing the tables to disk in between.";
+
+    public static final String RECALIBRATION_READS_LONG_NAME = "recalibration-reads";
+    public static final String RECALIBRATION_READ_STRIDE_LONG_NAME = "recalibration-read-stride";
+    public static final String RECAL_TABLE_OUTPUT_LONG_NAME = "recal-table-output";
+
+    private static final Logger logger = LogManager.getLogger(BQSRPipeline.class);
+
+    @Argument(fullName = BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, doc = "One or more databases of known polymorphic sites used to exclude regions around known polymorphisms from analysis.", optional = false)
+    private List<FeatureInput<Feature>> knownSites;
+
+    @Argument(fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, doc = "Write recalibrated reads to this file")
+    public GATKPath OUTPUT;
+
+    @Argument(fullName = RECAL_TABLE_OUTPUT_LONG_NAME, doc = "Also write the recalibration table to this file", optional = true)
+    private File recalTableFile = null;
+
+    /**
+     * Once this many reads have been counted, the first pass ends without reading the rest of the input. By default
+     * every read is counted.
+     */
+    @Argument(fullName = RECALIBRATION_READS_LONG_NAME, doc = "Maximum number of reads from which to build the recalibration tables", optional = true, minValue = 1)
+    private Long maxRecalibrationReads = null;
+
+    @Argument(fullName = RECALIBRATION_READ_STRIDE_LONG_NAME, doc = "Build the recalibration tables from every n-th read that passes the BQSR read filters", optional = true, minValue = 1)
+    private int recalibrationReadStride = 1;
+
+    /**
+     * All the command line arguments for BQSR and its covariates.
+     */
+    @ArgumentCollection(doc = "all the command line arguments for BQSR and its covariates")
+    private final RecalibrationArgumentCollection recalArgs = new RecalibrationArgumentCollection();
+
+    /**
+     * Command-line arguments to fine tune the apply BQSR step.
+     */
+    @ArgumentCollection
+    public ApplyBQSRUniqueArgumentCollection applyBqsrArgs = new ApplyBQSRUniqueArgumentCollection();
+
+    private BaseRecalibrationEngine recalibrationEngine;
+
+    private ReferenceDataSource referenceDataSource; // datasource for the reference. We're using a different one from the engine itself to avoid messing with its caches.
+
+    private SAMFileGATKReadWriter outputWriter;
+
+    // reads that passed the BQSR read filters in the first pass, and those of them that were counted in the tables
+    private long bqsrReadsSeen = 0;
+    private long recalibrationReadsCounted = 0;
+
+    @Override
+    public boolean requiresReference() {
+        return true;
+    }
+
+    @Override
+    public void onTraversalStart() {
+        if (recalArgs.FORCE_PLATFORM != null) {
+            recalArgs.DEFAULT_PLATFORM = recalArgs.FORCE_PLATFORM;
+        }
+
+        Utils.warnOnNonIlluminaReadGroups(getHeaderForReads(), logger);
+
+        recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
+        recalibrationEngine.logCovariatesUsed();
+        referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+        outputWriter = createSAMWriter(OUTPUT, true);
+    }
+
+    @Override
+    public void traverseReads() {
+        // The reads given to the handlers have only been through the WellformedReadFilter, which is all the filtering
+        // that ApplyBQSR wants. BaseRecalibrator wants additional filtering performed, so we do that here.
+        final ReadFilter bqsrReadFilter = ReadFilter.fromList(BaseRecalibrator.getBQSRSpecificReadFilterList(), getHeaderForReads());
+        final long maxReads = maxRecalibrationReads == null ? Long.MAX_VALUE : maxRecalibrationReads;
+
+        forEachRead((read, referenceContext, featureContext) -> {
+            if (bqsrReadFilter.test(read) && bqsrReadsSeen++ % recalibrationReadStride == 0) {
+                recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+                recalibrationReadsCounted++;
+            }
+        }, () -> recalibrationReadsCounted >= maxReads);
+
+        if (recalibrationReadsCounted < maxReads) {
+            logger.info("Built the recalibration tables from " + recalibrationReadsCounted + " of " + bqsrReadsSeen + " reads passing the BQSR read filters");
+        } else {
+            logger.info("Built the recalibration tables from the first " + recalibrationReadsCounted + " sampled reads, ending the first pass early");
+        }
+        final BQSRReadTransformer transformer = new BQSRReadTransformer(getHeaderForReads(), buildRecalibrationReport(),
+                applyBqsrArgs.toApplyBQSRArgumentCollection(recalArgs));
+
+        forEachRead((read, referenceContext, featureContext) -> outputWriter.addRead(transformer.apply(read)));
+    }
+
+    private RecalibrationReport buildRecalibrationReport() {
+        recalibrationEngine.finalizeData();
+
+        logger.info("Calculating quantized quality scores...");
+        final QuantizationInfo quantizationInfo = new QuantizationInfo(recalibrationEngine.getFinalRecalibrationTables(), recalArgs.QUANTIZING_LEVELS);
+        final GATKReport report = RecalUtils.createRecalibrationGATKReport(recalArgs.generateReportTable(recalibrationEngine.getCovariates().covariateNames()),
+                quantizationInfo, recalibrationEngine.getFinalRecalibrationTables(), recalibrationEngine.getCovariates());
+
+        if (recalTableFile != null) {
+            logger.info("Writing recalibration report...");
+            try ( PrintStream recalTableStream = new PrintStream(recalTableFile) ) {
+                report.print(recalTableStream);
+            }
+            catch (final IOException e) {
+                throw new UserException.CouldNotCreateOutputFile(recalTableFile, e);
+            }
+        }
+        return new RecalibrationReport(report);
+    }
+
+    @Override
+    public Object onTraversalSuccess() {
+        logger.info("BQSRPipeline built its recalibration tables from " + recalibrationEngine.getNumReadsProcessed() + " reads");
+        return "SUCCESS";
+    }
+
+    @Override
+    public void closeTool() {
+        if ( outputWriter != null ) {
+            outputWriter.close();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.broadinstitute.hellbender.tools.walkers.bqsr;
 import htsjdk.tribble.Feature;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
@@ -13,18 +14,22 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.recalibration.BaseRecalibrationEngine;
 import org.broadinstitute.hellbender.utils.recalibration.QuantizationInfo;
 import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
 import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCollection;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationConvergence;
 import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -72,6 +77,23 @@ import java.util.List;
  *   --known-sites another/optional/setOfSitesToMask.vcf \
  *   -O recal_data.table
  * </pre>
+ *
+ * <h3>Sampling until convergence</h3>
+ * <p>
+ * The recalibration tables usually converge long before all reads of a high-coverage sample have been counted. With
+ * --convergence-tolerance, the traversal intervals (the whole reference by default) are cut into shards which are
+ * traversed in random order, and the traversal stops once the tables built from the reads counted so far differ from
+ * those built from half of them by less than the tolerance (see {@link RecalibrationConvergence}). The number of reads
+ * counted and the coverage they amount to are logged. This requires indexed reads.
+ * </p>
+ * <pre>
+ * gatk BaseRecalibrator \
+ *   -I my_reads.bam \
+ *   -R reference.fasta \
+ *   --known-sites sites_of_variation.vcf \
+ *   --convergence-tolerance 0.05 \
+ *   -O recal_data.table
+ * </pre>
  */
 
 @CommandLineProgramProperties(
@@ -87,6 +109,9 @@ public final class BaseRecalibrator extends ReadWalker {
             "(such as read group, reported quality score, machine cycle, and nucleotide context).";
 
     public static final String KNOWN_SITES_ARG_FULL_NAME = "known-sites";
+    public static final String CONVERGENCE_TOLERANCE_LONG_NAME = "convergence-tolerance";
+    public static final String CONVERGENCE_SHARD_SIZE_LONG_NAME = "convergence-shard-size";
+    public static final String CONVERGENCE_MIN_READS_LONG_NAME = "convergence-min-reads";
 
     protected static final Logger logger = LogManager.getLogger(BaseRecalibrator.class);
 
@@ -115,15 +140,44 @@ public final class BaseRecalibrator extends ReadWalker {
     @Argument(shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, doc = "The output recalibration table file to create", optional = false)
     private File recalTableFile = null;
 
+    /**
+     * If given, reads are counted shard by shard in random order until the recalibration tables have converged, that
+     * is until the observation-weighted mean change of the empirical qualities of the quality score table and of each
+     * covariate table, since the number of reads counted was half of what it is, is at most this many Phred units.
+     */
+    @Argument(fullName = CONVERGENCE_TOLERANCE_LONG_NAME, doc = "Stop counting reads, taken from random shards of the traversal intervals, once the recalibration tables change by at most this much (in Phred-scaled quality)", optional = true, minValue = 0.0)
+    private Double convergenceTolerance = null;
+
+    @Advanced
+    @Argument(fullName = CONVERGENCE_SHARD_SIZE_LONG_NAME, doc = "Size in bases of the shards traversed in random order when sampling until convergence", optional = true, minValue = 1)
+    private int convergenceShardSize = 100_000;
+
+    @Advanced
+    @Argument(fullName = CONVERGENCE_MIN_READS_LONG_NAME, doc = "Number of reads to count before first checking the recalibration tables for convergence", optional = true, minValue = 1)
+    private long convergenceMinReads = 1_000_000;
+
     private BaseRecalibrationEngine recalibrationEngine;
 
     private ReferenceDataSource referenceDataSource; // datasource for the reference. We're using a different one from the engine itself to avoid messing with its caches.
 
+    /**
+     * Engine and reference used by each traversal thread. The traversal thread itself uses {@link #recalibrationEngine}
+     * and {@link #referenceDataSource}; worker threads in parallel traversal mode each get their own, since neither is
+     * thread-safe, and their tables are merged into {@link #recalibrationEngine} once the traversal is done.
+     */
+    private ThreadLocal<Recalibrator> recalibratorForThread;
+
+    private final List<Recalibrator> workerRecalibrators = Collections.synchronizedList(new ArrayList<>());
+
     /**
      * an object that keeps track of the information necessary for quality score quantization
      */
     private QuantizationInfo quantizationInfo = null;
 
+    // decides when to stop traversing when sampling until convergence, and the number of bases counted
+    private RecalibrationConvergence convergence = null;
+    private long basesCounted = 0;
+
     @Override
     public boolean requiresReference() {
         return true;
@@ -141,9 +195,72 @@ public final class BaseRecalibrator extends ReadWalker {
 
         Utils.warnOnNonIlluminaReadGroups(getHeaderForReads(), logger);
 
+        if (convergenceTolerance != null) {
+            convergence = new RecalibrationConvergence(convergenceTolerance, convergenceMinReads);
+        }
+
         recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
         recalibrationEngine.logCovariatesUsed();
         referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+        recalibratorForThread = ThreadLocal.withInitial(() -> {
+            // the engine sets the platform of read groups that lack one in its header, so each gets a copy of its own
+            final Recalibrator workerRecalibrator = new Recalibrator(new BaseRecalibrationEngine(recalArgs, getHeaderForReads().clone()),
+                    ReferenceDataSource.of(referenceArguments.getReferencePath()));
+            workerRecalibrators.add(workerRecalibrator);
+            return workerRecalibrator;
+        });
+        recalibratorForThread.set(new Recalibrator(recalibrationEngine, referenceDataSource));
+    }
+
+    /**
+     * Reads may be recalibrated on several threads at once, each updating tables of its own, except when sampling until
+     * convergence, which checks the tables as reads are counted. The tables of the threads are summed once all reads
+     * have been counted. Observation counts are exact whatever the number of threads, but with BAQ the mismatch counts
+     * are sums of fractional values, and how reads are divided among the threads changes the order in which these are
+     * summed, so they may differ in their last bits between runs with more than one thread.
+     */
+    @Override
+    protected boolean supportsParallelTraversal() {
+        return convergenceTolerance == null;
+    }
+
+    /**
+     * The engine queries the reference data source of its thread rather than the ReferenceContext passed to {@link #apply}
+     */
+    @Override
+    protected boolean usesReferenceContexts() {
+        return false;
+    }
+
+    /**
+     * When sampling until convergence, traverses shards of the traversal intervals in random order until the
+     * recalibration tables have converged; otherwise traverses all reads.
+     */
+    @Override
+    public void traverse() {
+        if (convergence == null) {
+            super.traverse();
+            return;
+        }
+
+        final List<SimpleInterval> shards = IntervalUtils.cutToShards(getTraversalIntervals(), convergenceShardSize);
+        Collections.shuffle(shards, Utils.getRandomGenerator());
+        final int shardsTraversed = traverseIntervals(shards, () -> {
+            final long numReads = recalibrationEngine.getNumReadsProcessed();
+            return convergence.isCheckDue(numReads) && convergence.check(recalibrationEngine.getRecalibrationTables(), numReads);
+        });
+
+        final long territory = shards.stream().mapToLong(SimpleInterval::size).sum();
+        final long territoryTraversed = shards.subList(0, shardsTraversed).stream().mapToLong(SimpleInterval::size).sum();
+        if (convergence.hasConverged()) {
+            logger.info(String.format("Recalibration tables converged (change %.4f <= %.4f) after %d of %d shards",
+                    convergence.getLastChange(), convergenceTolerance, shardsTraversed, shards.size()));
+        } else {
+            logger.info(String.format("Recalibration tables did not converge (last change %.4f > %.4f) before all %d shards were traversed",
+                    convergence.getLastChange(), convergenceTolerance, shards.size()));
+        }
+        logger.info(String.format("Counted %d reads (%d bases) from %d of the %d bases of the traversal intervals (%.2f%%), a mean coverage of %.3f over the traversal intervals",
+                recalibrationEngine.getNumReadsProcessed(), basesCounted, territoryTraversed, territory, 100.0 * territoryTraversed / territory, (double)basesCounted / territory));
     }
 
     @Override
@@ -182,11 +299,19 @@ public final class BaseRecalibrator extends ReadWalker {
      */
     @Override
     public void apply( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
-        recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+        final Recalibrator recalibrator = recalibratorForThread.get();
+        recalibrator.engine.processRead(read, recalibrator.reference, featureContext.getValues(knownSites));
+        if (convergence != null) {
+            // only counted when sampling until convergence, which traverses reads on a single thread
+            basesCounted += read.getLength();
+        }
     }
 
     @Override
     public Object onTraversalSuccess() {
+        synchronized (workerRecalibrators) {
+            workerRecalibrators.forEach(workerRecalibrator -> recalibrationEngine.combine(workerRecalibrator.engine));
+        }
         recalibrationEngine.finalizeData();
 
         logger.info("Calculating quantized quality scores...");
@@ -217,4 +342,24 @@ public final class BaseRecalibrator extends ReadWalker {
             throw new UserException.CouldNotCreateOutputFile(recalTableFile, e);
         }
     }
+
+    @Override
+    public void closeTool() {
+        synchronized (workerRecalibrators) {
+            workerRecalibrators.forEach(workerRecalibrator -> workerRecalibrator.reference.close());
+        }
+    }
+
+    /**
+     * What a traversal thread needs to recalibrate reads: the engine whose tables it updates, and a reference data source
+     */
+    private static final class Recalibrator {
+        private final BaseRecalibrationEngine engine;
+        private final ReferenceDataSource reference;
+
+        private Recalibrator(final BaseRecalibrationEngine engine, final ReferenceDataSource reference) {
+            this.engine = engine;
+            this.reference = reference;
+        }
+    }
 }
\ No newline at end of file
@@ -36,6 +36,7 @@ public abstract class AssemblyBasedCallerArgumentCollection {
         final ReadThreadingAssembler assemblyEngine = assemblerArgs.makeReadThreadingAssembler();
         assemblyEngine.setDebug(assemblerArgs.debugAssembly);
         assemblyEngine.setMinBaseQualityToUseInAssembly(minBaseQualityScore);
+        assemblyEngine.setAssemblyThreads(assemblerArgs.assemblyThreads);
 
         return assemblyEngine;
     }
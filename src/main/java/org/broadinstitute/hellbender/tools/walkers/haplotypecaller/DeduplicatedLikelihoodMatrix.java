@@ -0,0 +1,183 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * View of a likelihood matrix with only one read out of each group of reads that are identical as far as the PairHMM
+ * is concerned (same bases, base qualities, insertion and deletion qualities and gap continuation penalties).
+ *
+ * The likelihood of such reads given each haplotype is the same, so the PairHMM only needs to compute the likelihoods
+ * of the unique reads: setting the likelihood of a unique read sets it for all of its copies in the underlying matrix.
+ * This saves most of the PairHMM work in deep amplicon or UMI-collapsed data, where many reads are identical.
+ */
+final class DeduplicatedLikelihoodMatrix implements LikelihoodMatrix<GATKRead, Haplotype> {
+
+    private final LikelihoodMatrix<GATKRead, Haplotype> likelihoods;
+    private final List<GATKRead> uniqueReads;
+    private final List<GATKRead> uniqueProcessedReads;
+
+    // for each unique read, the indices of its copies in the underlying matrix
+    private final int[][] copyIndices;
+
+    private DeduplicatedLikelihoodMatrix(final LikelihoodMatrix<GATKRead, Haplotype> likelihoods, final List<GATKRead> uniqueReads,
+                                         final List<GATKRead> uniqueProcessedReads, final int[][] copyIndices) {
+        this.likelihoods = likelihoods;
+        this.uniqueReads = uniqueReads;
+        this.uniqueProcessedReads = uniqueProcessedReads;
+        this.copyIndices = copyIndices;
+    }
+
+    /**
+     * Groups the reads of a likelihood matrix which are identical for the PairHMM.
+     *
+     * @param likelihoods the likelihood matrix in which the PairHMM results are to be stored
+     * @param processedReads the reads that are given to the PairHMM in place of the reads of the matrix, in the same order
+     * @param gcp gap continuation penalties of each of the processed reads
+     * @return the deduplicated view of {@code likelihoods}
+     */
+    static DeduplicatedLikelihoodMatrix deduplicate(final LikelihoodMatrix<GATKRead, Haplotype> likelihoods,
+                                                    final List<GATKRead> processedReads,
+                                                    final Map<GATKRead, byte[]> gcp) {
+        Utils.nonNull(likelihoods);
+        Utils.nonNull(gcp);
+        Utils.validateArg(processedReads.size() == likelihoods.evidenceCount(), "there must be one processed read per read in the matrix");
+
+        final Map<ReadKey, List<Integer>> copiesByKey = new LinkedHashMap<>(processedReads.size());
+        for ( int r = 0; r < processedReads.size(); r++ ) {
+            final GATKRead read = processedReads.get(r);
+            copiesByKey.computeIfAbsent(new ReadKey(read, gcp.get(read)), key -> new ArrayList<>(1)).add(r);
+        }
+
+        final List<GATKRead> uniqueReads = new ArrayList<>(copiesByKey.size());
+        final List<GATKRead> uniqueProcessedReads = new ArrayList<>(copiesByKey.size());
+        final int[][] copyIndices = new int[copiesByKey.size()][];
+        int unique = 0;
+        for ( final List<Integer> copies : copiesByKey.values() ) {
+            uniqueReads.add(likelihoods.getEvidence(copies.get(0)));
+            uniqueProcessedReads.add(processedReads.get(copies.get(0)));
+            copyIndices[unique++] = copies.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return new DeduplicatedLikelihoodMatrix(likelihoods, uniqueReads, uniqueProcessedReads, copyIndices);
+    }
+
+    /**
+     * @return the processed reads to give to the PairHMM along with this matrix, one per unique read
+     */
+    List<GATKRead> uniqueProcessedReads() {
+        return uniqueProcessedReads;
+    }
+
+    @Override
+    public List<GATKRead> evidence() {
+        return uniqueReads;
+    }
+
+    @Override
+    public List<Haplotype> alleles() {
+        return likelihoods.alleles();
+    }
+
+    @Override
+    public void set(final int alleleIndex, final int evidenceIndex, final double value) {
+        for ( final int copy : copyIndices[evidenceIndex] ) {
+            likelihoods.set(alleleIndex, copy, value);
+        }
+    }
+
+    @Override
+    public double get(final int alleleIndex, final int evidenceIndex) {
+        return likelihoods.get(alleleIndex, copyIndices[evidenceIndex][0]);
+    }
+
+    @Override
+    public int indexOfAllele(final Haplotype allele) {
+        return likelihoods.indexOfAllele(allele);
+    }
+
+    @Override
+    public int indexOfEvidence(final GATKRead evidence) {
+        return uniqueReads.indexOf(evidence);
+    }
+
+    @Override
+    public int numberOfAlleles() {
+        return likelihoods.numberOfAlleles();
+    }
+
+    @Override
+    public int evidenceCount() {
+        return uniqueReads.size();
+    }
+
+    @Override
+    public Haplotype getAllele(final int alleleIndex) {
+        return likelihoods.getAllele(alleleIndex);
+    }
+
+    @Override
+    public GATKRead getEvidence(final int evidenceIndex) {
+        return uniqueReads.get(evidenceIndex);
+    }
+
+    @Override
+    public void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
+        for ( int r = 0; r < copyIndices.length; r++ ) {
+            dest[offset + r] = get(alleleIndex, r);
+        }
+    }
+
+    /**
+     * Everything about a read that the PairHMM looks at
+     */
+    private static final class ReadKey {
+        private final byte[] bases;
+        private final byte[] quals;
+        private final byte[] insertionQuals;
+        private final byte[] deletionQuals;
+        private final byte[] gcp;
+        private final int hashCode;
+
+        ReadKey(final GATKRead read, final byte[] gcp) {
+            bases = read.getBasesNoCopy();
+            quals = read.getBaseQualitiesNoCopy();
+            insertionQuals = ReadUtils.getBaseInsertionQualities(read);
+            deletionQuals = ReadUtils.getBaseDeletionQualities(read);
+            this.gcp = gcp;
+
+            int hash = Arrays.hashCode(bases);
+            hash = 31 * hash + Arrays.hashCode(quals);
+            hash = 31 * hash + Arrays.hashCode(insertionQuals);
+            hash = 31 * hash + Arrays.hashCode(deletionQuals);
+            hashCode = 31 * hash + Arrays.hashCode(gcp);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !(o instanceof ReadKey) ) {
+                return false;
+            }
+            final ReadKey other = (ReadKey) o;
+            return hashCode == other.hashCode && Arrays.equals(bases, other.bases) && Arrays.equals(quals, other.quals) &&
+                    Arrays.equals(insertionQuals, other.insertionQuals) && Arrays.equals(deletionQuals, other.deletionQuals) &&
+                    Arrays.equals(gcp, other.gcp);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
@@ -13,12 +14,16 @@ import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.tools.walkers.annotator.Annotation;
 import org.broadinstitute.hellbender.tools.walkers.annotator.VariantAnnotatorEngine;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 
 /**
@@ -150,6 +155,24 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     private HaplotypeCallerEngine hcEngine;
 
+    /**
+     * Engine used by each traversal thread. The traversal thread itself uses {@link #hcEngine}; worker threads
+     * in parallel traversal mode each get one of {@link #workerEngines}, since the engine is not thread-safe.
+     */
+    private ThreadLocal<HaplotypeCallerEngine> hcEngineForThread;
+
+    /**
+     * Engines of the worker threads in parallel traversal mode, all built on the traversal thread by
+     * {@link #onTraversalStart}, since building an engine initializes the shared {@link #hcArgs}
+     */
+    private final List<HaplotypeCallerEngine> workerEngines = new ArrayList<>();
+
+    /**
+     * Regions assembled by {@link #hcEngine} whose read likelihoods are waiting to be computed in one batch
+     * (when --likelihood-batch-regions is greater than 1)
+     */
+    private final List<HaplotypeCallerEngine.PreparedRegion> pendingRegions = new ArrayList<>();
+
     @Override
     public List<ReadFilter> getDefaultReadFilters() {
         return HaplotypeCallerEngine.makeStandardHCReadFilters();
@@ -178,7 +201,19 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     @Override
     public AssemblyRegionEvaluator assemblyRegionEvaluator() {
-        return hcEngine;
+        return hcEngineForThread.get();
+    }
+
+    /**
+     * Parallel traversal is supported as long as we aren't writing per-region debugging output (such as the bamout)
+     * that would need to be shared by the engines on each thread, and aren't batching the likelihood calculations of
+     * several regions.
+     */
+    @Override
+    protected boolean supportsParallelTraversal() {
+        return hcArgs.bamOutputPath == null && hcArgs.assemblyStateOutput == null &&
+                hcArgs.assemblerArgs.graphOutput == null && hcArgs.assemblerArgs.haplotypeHistogramOutput == null &&
+                hcArgs.likelihoodArgs.likelihoodBatchRegions == 1;
     }
 
     @Override
@@ -191,23 +226,64 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
             logger.warn("*************************************************************************");
         }
 
-        final VariantAnnotatorEngine variantAnnotatorEngine = new VariantAnnotatorEngine(makeVariantAnnotations(),
-                hcArgs.dbsnp.dbsnp, hcArgs.comps,  hcArgs.emitReferenceConfidence != ReferenceConfidenceMode.NONE, false);
-        hcEngine = new HaplotypeCallerEngine(hcArgs, assemblyRegionArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments), variantAnnotatorEngine);
+        hcEngine = makeHaplotypeCallerEngine();
+        final Queue<HaplotypeCallerEngine> unassignedWorkerEngines = new ConcurrentLinkedQueue<>();
+        if ( traversalThreads > 1 ) {
+            for ( int i = 0; i < traversalThreads; i++ ) {
+                workerEngines.add(makeHaplotypeCallerEngine());
+            }
+            unassignedWorkerEngines.addAll(workerEngines);
+        }
+        hcEngineForThread = ThreadLocal.withInitial(() -> {
+            final HaplotypeCallerEngine workerEngine = unassignedWorkerEngines.poll();
+            Utils.validate(workerEngine != null, "there are more traversal threads than engines built for them");
+            return workerEngine;
+        });
+        hcEngineForThread.set(hcEngine);
 
         // The HC engine will make the right kind (VCF or GVCF) of writer for us
         final SAMSequenceDictionary sequenceDictionary = getHeaderForReads().getSequenceDictionary();
-        vcfWriter = hcEngine.makeVCFWriter(outputVCF, sequenceDictionary, createOutputVariantIndex, createOutputVariantMD5, outputSitesOnlyVCFs);
+        // in GVCF mode there is a record for almost every base, so buffer out-of-order calls under a memory cap
+        // rather than holding each shard's calls until it is replayed
+        vcfWriter = makeTraversalOrderedWriter(hcEngine.makeVCFWriter(outputVCF, sequenceDictionary, createOutputVariantIndex, createOutputVariantMD5, outputSitesOnlyVCFs));
         hcEngine.writeHeader(vcfWriter, sequenceDictionary, getDefaultToolVCFHeaderLines());
     }
 
+    private HaplotypeCallerEngine makeHaplotypeCallerEngine() {
+        final VariantAnnotatorEngine variantAnnotatorEngine = new VariantAnnotatorEngine(makeVariantAnnotations(),
+                hcArgs.dbsnp.dbsnp, hcArgs.comps,  hcArgs.emitReferenceConfidence != ReferenceConfidenceMode.NONE, false);
+        return new HaplotypeCallerEngine(hcArgs, assemblyRegionArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments), variantAnnotatorEngine);
+    }
+
     private static CachingIndexedFastaSequenceFile getReferenceReader(ReferenceInputArgumentCollection referenceArguments) {
         return new CachingIndexedFastaSequenceFile(referenceArguments.getReferenceSpecifier());
     }
 
     @Override
     public void apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
-        hcEngine.callRegion(region, featureContext, referenceContext).forEach(vcfWriter::add);
+        if ( hcArgs.likelihoodArgs.likelihoodBatchRegions > 1 ) {
+            pendingRegions.add(hcEngine.prepareRegion(region, featureContext, referenceContext));
+            if ( pendingRegions.size() >= hcArgs.likelihoodArgs.likelihoodBatchRegions ) {
+                callPendingRegions();
+            }
+            return;
+        }
+
+        final List<VariantContext> calls = hcEngineForThread.get().callRegion(region, featureContext, referenceContext);
+        calls.forEach(vcfWriter::add);
+    }
+
+    private void callPendingRegions() {
+        hcEngine.callRegions(pendingRegions).forEach(calls -> calls.forEach(vcfWriter::add));
+        pendingRegions.clear();
+    }
+
+    @Override
+    public Object onTraversalSuccess() {
+        if ( ! pendingRegions.isEmpty() ) {
+            callPendingRegions();
+        }
+        return null;
     }
 
     @Override
@@ -220,5 +296,7 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
             hcEngine.shutdown();
         }
 
+        workerEngines.forEach(HaplotypeCallerEngine::shutdown);
+
     }
 }
@@ -503,9 +503,48 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      * @return List of variants discovered in the region (may be empty)
      */
     public List<VariantContext> callRegion(final AssemblyRegion region, final FeatureContext features, final ReferenceContext referenceContext) {
+        return callRegions(Collections.singletonList(prepareRegion(region, features, referenceContext))).get(0);
+    }
+
+    /**
+     * Generate variant calls for several assembly regions that were already assembled by {@link #prepareRegion}.
+     *
+     * The read likelihoods of all of the regions are computed in a single batch, which lets the likelihood engine keep
+     * more threads busy than the reads of a single region would.
+     *
+     * @param preparedRegions regions prepared by this engine, in the order in which their calls are wanted
+     * @return for each region, the list of variants discovered in the region (may be empty)
+     */
+    public List<List<VariantContext>> callRegions(final List<PreparedRegion> preparedRegions) {
+        Utils.nonNull(preparedRegions);
+        final List<PreparedRegion> regionsToGenotype = preparedRegions.stream().filter(r -> r.calls == null).collect(Collectors.toList());
+
+        if ( ! regionsToGenotype.isEmpty() ) {
+            // Calculate the likelihoods: CPU intensive part.
+            final List<AlleleLikelihoods<GATKRead, Haplotype>> readLikelihoods = likelihoodCalculationEngine.computeReadLikelihoods(
+                    regionsToGenotype.stream().map(r -> r.assemblyResult).collect(Collectors.toList()),
+                    samplesList,
+                    regionsToGenotype.stream().map(r -> r.reads).collect(Collectors.toList()));
+            for ( int i = 0; i < regionsToGenotype.size(); i++ ) {
+                regionsToGenotype.get(i).calls = genotypeRegion(regionsToGenotype.get(i), readLikelihoods.get(i));
+            }
+        }
+
+        return preparedRegions.stream().map(r -> r.calls).collect(Collectors.toList());
+    }
+
+    /**
+     * Assemble an assembly region, and prepare everything needed to compute its read likelihoods and genotype it.
+     * Regions for which there is nothing to genotype are called right away.
+     *
+     * @param region region to assemble and perform variant calling on
+     * @param features Features overlapping the assembly region
+     * @return the prepared region, to be called by {@link #callRegions}
+     */
+    public PreparedRegion prepareRegion(final AssemblyRegion region, final FeatureContext features, final ReferenceContext referenceContext) {
         if ( hcArgs.justDetermineActiveRegions ) {
             // we're benchmarking ART and/or the active region determination code in the HC, just leave without doing any work
-            return NO_CALLS;
+            return new PreparedRegion(NO_CALLS);
         }
 
         final List<VariantContext> VCpriors = new ArrayList<>();
@@ -519,7 +558,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         if( ! region.isActive() ) {
             // Not active so nothing to do!
-            return referenceModelForNoVariation(region, true, VCpriors);
+            return new PreparedRegion(referenceModelForNoVariation(region, true, VCpriors));
         }
 
         final List<VariantContext> givenAlleles = features.getValues(hcArgs.alleles).stream()
@@ -527,7 +566,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         if( givenAlleles.isEmpty() && region.size() == 0 ) {
             // No reads here so nothing to do!
-            return referenceModelForNoVariation(region, true, VCpriors);
+            return new PreparedRegion(referenceModelForNoVariation(region, true, VCpriors));
         }
 
         if (assemblyDebugOutStream != null) {
@@ -552,7 +591,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final AssemblyRegionTrimmer.Result trimmingResult = trimmer.trim(region, allVariationEvents, referenceContext);
 
         if ( ! trimmingResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false, VCpriors);
+            return new PreparedRegion(referenceModelForNoVariation(region, false, VCpriors));
         }
 
         final AssemblyResultSet assemblyResult = untrimmedAssemblyResult.trimTo(trimmingResult.getVariantRegion());
@@ -573,27 +612,37 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         // abort early if something is out of the acceptable range
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if( ! assemblyResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false, VCpriors);
+            return new PreparedRegion(referenceModelForNoVariation(region, false, VCpriors));
         }
 
         // For sure this is not true if gVCF is on.
         if ( hcArgs.dontGenotype ) {
-            return NO_CALLS; // user requested we not proceed
+            return new PreparedRegion(NO_CALLS); // user requested we not proceed
         }
 
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if ( regionForGenotyping.size() == 0 && ! hcArgs.disableOptimizations ) {
             // no reads remain after filtering so nothing else to do!
-            return referenceModelForNoVariation(region, false, VCpriors);
+            return new PreparedRegion(referenceModelForNoVariation(region, false, VCpriors));
         }
 
         // evaluate each sample's reads against all haplotypes
-        final List<Haplotype> haplotypes = assemblyResult.getHaplotypeList();
         final Map<String,List<GATKRead>> reads = AssemblyBasedCallerUtils.splitReadsBySample(samplesList, readsHeader, regionForGenotyping.getReads());
 
-        // Calculate the likelihoods: CPU intensive part.
-        final AlleleLikelihoods<GATKRead, Haplotype> readLikelihoods =
-                likelihoodCalculationEngine.computeReadLikelihoods(assemblyResult, samplesList, reads);
+        return new PreparedRegion(region, features, VCpriors, givenAlleles, trimmingResult, assemblyResult, regionForGenotyping, perSampleFilteredReadList, reads);
+    }
+
+    /**
+     * Genotype a prepared region, given the likelihoods of its reads
+     */
+    private List<VariantContext> genotypeRegion(final PreparedRegion preparedRegion, final AlleleLikelihoods<GATKRead, Haplotype> readLikelihoods) {
+        final AssemblyRegion region = preparedRegion.region;
+        final FeatureContext features = preparedRegion.features;
+        final List<VariantContext> VCpriors = preparedRegion.VCpriors;
+        final AssemblyRegionTrimmer.Result trimmingResult = preparedRegion.trimmingResult;
+        final AssemblyResultSet assemblyResult = preparedRegion.assemblyResult;
+        final AssemblyRegion regionForGenotyping = preparedRegion.regionForGenotyping;
+        final List<Haplotype> haplotypes = assemblyResult.getHaplotypeList();
 
         // Realign reads to their best haplotype.
         final Map<GATKRead, GATKRead> readRealignments = AssemblyBasedCallerUtils.realignReadsToTheirBestHaplotype(readLikelihoods, assemblyResult.getReferenceHaplotype(), assemblyResult.getPaddedReferenceLoc(), aligner);
@@ -608,12 +657,12 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final CalledHaplotypes calledHaplotypes = genotypingEngine.assignGenotypeLikelihoods(
                 haplotypes,
                 readLikelihoods,
-                perSampleFilteredReadList,
+                preparedRegion.perSampleFilteredReadList,
                 assemblyResult.getFullReferenceWithPadding(),
                 assemblyResult.getPaddedReferenceLoc(),
                 regionForGenotyping.getSpan(),
                 features,
-                givenAlleles,
+                preparedRegion.givenAlleles,
                 emitReferenceConfidence(),
                 hcArgs.maxMnpDistance,
                 readsHeader,
@@ -661,6 +710,43 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         }
     }
 
+    /**
+     * An assembly region that was assembled by {@link #prepareRegion}, and is either already called or waiting for
+     * the likelihoods of its reads to be computed by {@link #callRegions}
+     */
+    public static final class PreparedRegion {
+        private final AssemblyRegion region;
+        private final FeatureContext features;
+        private final List<VariantContext> VCpriors;
+        private final List<VariantContext> givenAlleles;
+        private final AssemblyRegionTrimmer.Result trimmingResult;
+        private final AssemblyResultSet assemblyResult;
+        private final AssemblyRegion regionForGenotyping;
+        private final Map<String, List<GATKRead>> perSampleFilteredReadList;
+        private final Map<String, List<GATKRead>> reads;
+        private List<VariantContext> calls;
+
+        private PreparedRegion(final List<VariantContext> calls) {
+            this(null, null, null, null, null, null, null, null, null);
+            this.calls = calls;
+        }
+
+        private PreparedRegion(final AssemblyRegion region, final FeatureContext features, final List<VariantContext> VCpriors,
+                               final List<VariantContext> givenAlleles, final AssemblyRegionTrimmer.Result trimmingResult,
+                               final AssemblyResultSet assemblyResult, final AssemblyRegion regionForGenotyping,
+                               final Map<String, List<GATKRead>> perSampleFilteredReadList, final Map<String, List<GATKRead>> reads) {
+            this.region = region;
+            this.features = features;
+            this.VCpriors = VCpriors;
+            this.givenAlleles = givenAlleles;
+            this.trimmingResult = trimmingResult;
+            this.assemblyResult = assemblyResult;
+            this.regionForGenotyping = regionForGenotyping;
+            this.perSampleFilteredReadList = perSampleFilteredReadList;
+            this.reads = reads;
+        }
+    }
+
     private boolean containsCalls(final CalledHaplotypes calledHaplotypes) {
         return calledHaplotypes.getCalls().stream()
                 .flatMap(call -> call.getGenotypes().stream())
@@ -718,6 +804,7 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         }
         // Write assembly region debug output if present
         assemblyEngine.printDebugHistograms();
+        assemblyEngine.shutdown();
 
     }
 
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading.PackedKmerMap;
 import org.broadinstitute.hellbender.utils.Utils;
 
 import java.util.*;
@@ -15,7 +16,7 @@ public final class KMerCounter {
     /**
      * A map of for each kmer to its num occurrences in addKmers
      */
-    private final Map<Kmer, CountedKmer> countsByKMer = new HashMap<>();
+    private final PackedKmerMap<CountedKmer> countsByKMer;
     private final int kmerLength;
 
     /**
@@ -26,6 +27,7 @@ public final class KMerCounter {
     public KMerCounter(final int kmerLength) {
         Utils.validateArg( kmerLength > 0, () -> "kmerLength must be > 0 but got " + kmerLength);
         this.kmerLength = kmerLength;
+        this.countsByKMer = new PackedKmerMap<>(kmerLength);
     }
 
     /**
@@ -40,7 +42,7 @@ public final class KMerCounter {
     }
 
     /**
-     * Get an unordered collection of the counted kmers in this counter
+     * Get the counted kmers in this counter, in the order in which they were first added
      * @return a non-null collection
      */
     public Collection<CountedKmer> getCountedKmers() {
@@ -87,6 +89,28 @@ public final class KMerCounter {
         countFromMap.count += kmerCount;
     }
 
+    /**
+     * Add the kmer of bases starting at start, which occurred kmerCount times.
+     *
+     * Unlike {@link #addKmer(Kmer, int)}, this only creates a {@link Kmer} (with a copy of the bases) the first time
+     * the kmer is seen, so it's the cheaper way of counting all of the kmers of a read.
+     *
+     * @param bases an array of bases, with at least kmerLength bases after start
+     * @param start the start of the kmer in bases
+     * @param kmerCount the number of occurrences
+     */
+    public void addKmer(final byte[] bases, final int start, final int kmerCount) {
+        Utils.validateArg(start >= 0 && start + kmerLength <= bases.length, () -> "bad kmer start " + start + " for " + bases.length + " bases");
+        Utils.validateArg( kmerCount >= 0, () -> "bad kmerCount " + kmerCount);
+
+        CountedKmer countFromMap = countsByKMer.get(bases, start);
+        if ( countFromMap == null ) {
+            countFromMap = new CountedKmer(new Kmer(Arrays.copyOfRange(bases, start, start + kmerLength)));
+            countsByKMer.put(bases, start, countFromMap);
+        }
+        countFromMap.count += kmerCount;
+    }
+
     @Override
     public String toString() {
         final StringBuilder b = new StringBuilder("KMerCounter{");
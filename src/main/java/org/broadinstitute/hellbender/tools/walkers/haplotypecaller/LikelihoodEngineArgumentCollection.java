@@ -5,6 +5,7 @@ import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.Hidden;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodStorage;
 import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
 
 import java.io.Serializable;
@@ -32,6 +33,33 @@ public final class LikelihoodEngineArgumentCollection implements Serializable {
     @Argument(fullName = "pair-hmm-implementation", shortName = "pairHMM", doc = "The PairHMM implementation to use for genotype likelihood calculations", optional = true)
     public PairHMM.Implementation pairHMM = PairHMM.Implementation.FASTEST_AVAILABLE;
 
+    /**
+     * Number of threads on which the Java PairHMM implementations compute the likelihoods of the reads in each region,
+     * which helps in regions with very high depth. This has no effect on the native implementations, whose number of
+     * threads is set by --native-pair-hmm-threads. Results don't depend on the number of threads.
+     */
+    @Advanced
+    @Argument(fullName = "java-pair-hmm-threads", doc = "Number of threads used by the Java PairHMM implementations", optional = true, minValue = 1)
+    public int javaPairHMMThreads = 1;
+
+    /**
+     * Number of assembly regions whose read likelihoods are computed together, in a single batch. Together with
+     * --java-pair-hmm-threads this keeps the threads busy in regions with few reads, at the cost of holding the assembly
+     * results of the regions of a batch in memory until they are all genotyped. Results don't depend on the batch size.
+     */
+    @Advanced
+    @Argument(fullName = "likelihood-batch-regions", doc = "Number of assembly regions whose read likelihoods are computed in one batch", optional = true, minValue = 1)
+    public int likelihoodBatchRegions = 1;
+
+    /**
+     * How the read likelihoods of each region are stored. DENSE keeps the likelihoods of each sample in a single array
+     * rather than one per haplotype, and DENSE_FLOAT additionally halves their memory, which matters with many
+     * haplotypes and deep coverage, at the cost of keeping only about 7 significant digits of each likelihood.
+     */
+    @Advanced
+    @Argument(fullName = "likelihood-storage", doc = "How read likelihoods are stored in memory", optional = true)
+    public LikelihoodStorage likelihoodStorage = LikelihoodStorage.ALLELE_ARRAYS;
+
     /**
      * When calculating the likelihood of variants, we can try to correct for PCR errors that cause indel artifacts.
      * The correction is based on the reference context, and acts specifically around repetitive sequences that tend
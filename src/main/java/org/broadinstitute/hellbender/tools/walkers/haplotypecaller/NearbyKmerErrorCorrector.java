@@ -3,6 +3,7 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading.PackedKmerMap;
 import org.broadinstitute.hellbender.utils.BaseUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.Utils;
@@ -57,8 +58,8 @@ public final class NearbyKmerErrorCorrector implements ReadErrorCorrector {
      */
     final KMerCounter countsByKMer;
 
-    private final Map<Kmer,Kmer> kmerCorrectionMap = new HashMap<>();
-    private final Map<Kmer,Pair<int[],byte[]>> kmerDifferingBases = new HashMap<>();
+    private final PackedKmerMap<Kmer> kmerCorrectionMap;
+    private final PackedKmerMap<Pair<int[],byte[]>> kmerDifferingBases;
     private final int kmerLength;
     private final boolean debug;
     private final boolean trimLowQualityBases;
@@ -103,6 +104,8 @@ public final class NearbyKmerErrorCorrector implements ReadErrorCorrector {
                 () -> "qualityOfCorrectedBases must be >= 2 and <= MAX_REASONABLE_Q_SCORE but got " + qualityOfCorrectedBases);
 
         countsByKMer = new KMerCounter(kmerLength);
+        kmerCorrectionMap = new PackedKmerMap<>(kmerLength);
+        kmerDifferingBases = new PackedKmerMap<>(kmerLength);
         this.kmerLength = kmerLength;
         this.maxMismatchesToCorrect = maxMismatchesToCorrect;
         this.qualityOfCorrectedBases = qualityOfCorrectedBases;
@@ -139,7 +142,7 @@ public final class NearbyKmerErrorCorrector implements ReadErrorCorrector {
 
         final byte[] readBases = read.getBases();
         for (int offset = 0; offset <= readBases.length-kmerLength; offset++ )  {
-            countsByKMer.addKmer(new Kmer(readBases,offset,kmerLength),1);
+            countsByKMer.addKmer(readBases,offset,1);
         }
     }
 
@@ -243,10 +246,9 @@ public final class NearbyKmerErrorCorrector implements ReadErrorCorrector {
         final CorrectionSet correctionSet = new CorrectionSet(correctedBases.length);
 
         for (int offset = 0; offset <= correctedBases.length-kmerLength; offset++ )  {
-            final Kmer kmer = new Kmer(correctedBases,offset,kmerLength);
-            final Kmer newKmer = kmerCorrectionMap.get(kmer);
-            if (newKmer != null && !newKmer.equals(kmer)){
-                final Pair<int[],byte[]> differingPositions = kmerDifferingBases.get(kmer);
+            final Kmer newKmer = kmerCorrectionMap.get(correctedBases,offset);
+            if (newKmer != null && !Utils.equalRange(newKmer.bases(),0,correctedBases,offset,kmerLength)){
+                final Pair<int[],byte[]> differingPositions = kmerDifferingBases.get(correctedBases,offset);
                 final int[] differingIndeces = differingPositions.getLeft();
                 final byte[] differingBases = differingPositions.getRight();
 
@@ -67,6 +67,8 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
     
     private final byte baseQualityScoreThreshold;
 
+    private final LikelihoodStorage likelihoodStorage;
+
     /**
      * The expected rate of random sequencing errors for a read originating from its true haplotype.
      *
@@ -120,8 +122,53 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
                                               final double log10globalReadMismappingRate,
                                               final PCRErrorModel pcrErrorModel,
                                               final byte baseQualityScoreThreshold) {
+        this( constantGCP, arguments, hmmType, 1, log10globalReadMismappingRate, pcrErrorModel, baseQualityScoreThreshold );
+    }
+
+    /**
+     * Create a new PairHMMLikelihoodCalculationEngine using provided parameters and hmm to do its calculations
+     *
+     * @param constantGCP the gap continuation penalty to use with the PairHMM
+     * @param hmmType the type of the HMM to use
+     * @param javaPairHMMThreads number of threads to use if the HMM is a Java implementation
+     * @param log10globalReadMismappingRate the global mismapping probability, in log10(prob) units. See the other constructors.
+     * @param pcrErrorModel model to correct for PCR indel artifacts
+     * @param baseQualityScoreThreshold Base qualities below this threshold will be reduced to the minimum usable base
+     *                                  quality.
+     */
+    public PairHMMLikelihoodCalculationEngine(final byte constantGCP,
+                                              final PairHMMNativeArguments arguments,
+                                              final PairHMM.Implementation hmmType,
+                                              final int javaPairHMMThreads,
+                                              final double log10globalReadMismappingRate,
+                                              final PCRErrorModel pcrErrorModel,
+                                              final byte baseQualityScoreThreshold) {
+        this( constantGCP, arguments, hmmType, javaPairHMMThreads, log10globalReadMismappingRate, pcrErrorModel, baseQualityScoreThreshold, LikelihoodStorage.ALLELE_ARRAYS );
+    }
+
+    /**
+     * Create a new PairHMMLikelihoodCalculationEngine using provided parameters and hmm to do its calculations
+     *
+     * @param constantGCP the gap continuation penalty to use with the PairHMM
+     * @param hmmType the type of the HMM to use
+     * @param javaPairHMMThreads number of threads to use if the HMM is a Java implementation
+     * @param log10globalReadMismappingRate the global mismapping probability, in log10(prob) units. See the other constructors.
+     * @param pcrErrorModel model to correct for PCR indel artifacts
+     * @param baseQualityScoreThreshold Base qualities below this threshold will be reduced to the minimum usable base
+     *                                  quality.
+     * @param likelihoodStorage how the read likelihoods computed by this engine are stored
+     */
+    public PairHMMLikelihoodCalculationEngine(final byte constantGCP,
+                                              final PairHMMNativeArguments arguments,
+                                              final PairHMM.Implementation hmmType,
+                                              final int javaPairHMMThreads,
+                                              final double log10globalReadMismappingRate,
+                                              final PCRErrorModel pcrErrorModel,
+                                              final byte baseQualityScoreThreshold,
+                                              final LikelihoodStorage likelihoodStorage) {
         Utils.nonNull(hmmType, "hmmType is null");
         Utils.nonNull(pcrErrorModel, "pcrErrorModel is null");
+        Utils.nonNull(likelihoodStorage, "likelihoodStorage is null");
         if (constantGCP < 0){
             throw new IllegalArgumentException("gap continuation penalty must be non-negative");
         }
@@ -131,7 +178,7 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         this.constantGCP = constantGCP;
         this.log10globalReadMismappingRate = log10globalReadMismappingRate;
         this.pcrErrorModel = pcrErrorModel;
-        this.pairHMM = hmmType.makeNewHMM(arguments);
+        this.pairHMM = hmmType.makeNewHMM(arguments, javaPairHMMThreads);
 
         initializePCRErrorModel();
 
@@ -139,6 +186,7 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
             throw new IllegalArgumentException("baseQualityScoreThreshold must be greater than or equal to " + QualityUtils.MIN_USABLE_Q_SCORE + " (QualityUtils.MIN_USABLE_Q_SCORE)");
         }
         this.baseQualityScoreThreshold = baseQualityScoreThreshold;
+        this.likelihoodStorage = likelihoodStorage;
     }
 
     @Override
@@ -158,7 +206,7 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         initializePairHMM(haplotypeList, perSampleReadList);
 
         // Add likelihoods for each sample's reads to our result
-        final AlleleLikelihoods<GATKRead, Haplotype> result = new AlleleLikelihoods<>(samples, haplotypes, perSampleReadList);
+        final AlleleLikelihoods<GATKRead, Haplotype> result = new AlleleLikelihoods<>(samples, haplotypes, perSampleReadList, likelihoodStorage);
         final int sampleCount = result.numberOfSamples();
         for (int i = 0; i < sampleCount; i++) {
             computeReadLikelihoods(result.sampleMatrix(i));
@@ -169,6 +217,55 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * The likelihood matrices of all samples in all of the regions are handed to the PairHMM in a single call, so that
+     * a PairHMM that computes on several threads can spread the work of a whole batch of regions over them.
+     */
+    @Override
+    public List<AlleleLikelihoods<GATKRead, Haplotype>> computeReadLikelihoods(final List<AssemblyResultSet> assemblyResultSets, final SampleList samples,
+                                                                               final List<Map<String, List<GATKRead>>> perSampleReadLists) {
+        Utils.nonNull(assemblyResultSets, "assemblyResultSets is null");
+        Utils.nonNull(samples, "samples is null");
+        Utils.nonNull(perSampleReadLists, "perSampleReadLists is null");
+        Utils.validateArg(assemblyResultSets.size() == perSampleReadLists.size(), "there must be one read set per assembly result");
+
+        if ( assemblyResultSets.size() == 1 ) {
+            return Collections.singletonList(computeReadLikelihoods(assemblyResultSets.get(0), samples, perSampleReadLists.get(0)));
+        }
+
+        final List<AlleleLikelihoods<GATKRead, Haplotype>> results = new ArrayList<>(assemblyResultSets.size());
+        final List<LikelihoodMatrix<GATKRead, Haplotype>> matrices = new ArrayList<>();
+        final List<List<GATKRead>> processedReads = new ArrayList<>();
+        final Map<GATKRead, byte[]> gapContinuationPenalties = new HashMap<>();
+        for ( int i = 0; i < assemblyResultSets.size(); i++ ) {
+            final AlleleList<Haplotype> haplotypes = new IndexedAlleleList<>(Utils.nonNull(assemblyResultSets.get(i), "assemblyResultSet is null").getHaplotypeList());
+            final AlleleLikelihoods<GATKRead, Haplotype> result = new AlleleLikelihoods<>(samples, haplotypes, Utils.nonNull(perSampleReadLists.get(i), "perSampleReadList is null"), likelihoodStorage);
+            for ( int s = 0; s < result.numberOfSamples(); s++ ) {
+                final LikelihoodMatrix<GATKRead, Haplotype> matrix = result.sampleMatrix(s);
+                // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
+                final List<GATKRead> reads = modifyReadQualities(matrix.evidence());
+                final Map<GATKRead, byte[]> readGapContinuationPenalties = buildGapContinuationPenalties(reads, constantGCP);
+                gapContinuationPenalties.putAll(readGapContinuationPenalties);
+                // Identical reads only need to be computed once
+                final DeduplicatedLikelihoodMatrix uniqueReadsMatrix = DeduplicatedLikelihoodMatrix.deduplicate(matrix, reads, readGapContinuationPenalties);
+                matrices.add(uniqueReadsMatrix);
+                processedReads.add(uniqueReadsMatrix.uniqueProcessedReads());
+            }
+            results.add(result);
+        }
+
+        // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
+        pairHMM.computeBatchLog10Likelihoods(matrices, processedReads, gapContinuationPenalties);
+
+        for ( final AlleleLikelihoods<GATKRead, Haplotype> result : results ) {
+            result.normalizeLikelihoods(log10globalReadMismappingRate);
+            result.filterPoorlyModeledEvidence(log10MinTrueLikelihood(EXPECTED_ERROR_RATE_PER_BASE));
+        }
+        return results;
+    }
+
     private ToDoubleFunction<GATKRead> log10MinTrueLikelihood(final double maximumErrorPerBase) {
         return read -> {
             final double maxErrorsForRead = Math.min(2.0, Math.ceil(read.getLength() * maximumErrorPerBase));
@@ -237,8 +334,11 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
 
         final Map<GATKRead, byte[]> gapContinuationPenalties = buildGapContinuationPenalties(processedReads, constantGCP);
 
+        // Identical reads only need to be computed once
+        final DeduplicatedLikelihoodMatrix uniqueReadsMatrix = DeduplicatedLikelihoodMatrix.deduplicate(likelihoods, processedReads, gapContinuationPenalties);
+
         // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
-        pairHMM.computeLog10Likelihoods(likelihoods, processedReads, gapContinuationPenalties);
+        pairHMM.computeLog10Likelihoods(uniqueReadsMatrix, uniqueReadsMatrix.uniqueProcessedReads(), gapContinuationPenalties);
     }
 
     /**
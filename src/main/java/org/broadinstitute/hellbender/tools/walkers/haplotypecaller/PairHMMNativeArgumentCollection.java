@@ -11,8 +11,8 @@ public class PairHMMNativeArgumentCollection {
     @Argument(fullName = "native-pair-hmm-threads", doc="How many threads should a native pairHMM implementation use", optional = true)
     private int pairHmmNativeThreads = 4;
 
-    @Argument(fullName = "native-pair-hmm-use-double-precision", doc="use double precision in the native pairHmm. " +
-            "This is slower but matches the java implementation better", optional = true)
+    @Argument(fullName = "native-pair-hmm-use-double-precision", doc="use double precision in the native pairHmm " +
+            "(and in the JAVA_ANTI_DIAGONAL implementation). This is slower but matches the java implementation better", optional = true)
     private boolean useDoublePrecision = false;
 
     public PairHMMNativeArguments getPairHMMArgs(){
@@ -1,10 +1,12 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.AlleleLikelihoods;
 import org.broadinstitute.hellbender.utils.genotyper.SampleList;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -28,6 +30,32 @@ public interface ReadLikelihoodCalculationEngine extends AutoCloseable {
     public AlleleLikelihoods<GATKRead, Haplotype> computeReadLikelihoods(AssemblyResultSet assemblyResultSet, SampleList samples,
                                                                          Map<String, List<GATKRead>> perSampleReadList);
 
+    /**
+     * Calculates the read likelihoods of several assembly regions at once. Engines that can compute a batch of regions
+     * more efficiently than one region at a time override this; by default the regions are computed one by one.
+     *
+     * @param assemblyResultSets the input assembly results, one per region.
+     * @param samples the list of targeted samples.
+     * @param perSampleReadLists the input read sets stratified per sample, one per region.
+     *
+     * @throws IllegalArgumentException if any parameter is {@code null}, or if the number of read sets differs from the
+     *    number of assembly results.
+     *
+     * @return never {@code null}, the likelihoods of each region in the same order as {@code assemblyResultSets}.
+     */
+    default List<AlleleLikelihoods<GATKRead, Haplotype>> computeReadLikelihoods(final List<AssemblyResultSet> assemblyResultSets, final SampleList samples,
+                                                                                final List<Map<String, List<GATKRead>>> perSampleReadLists) {
+        Utils.nonNull(assemblyResultSets, "assemblyResultSets is null");
+        Utils.nonNull(perSampleReadLists, "perSampleReadLists is null");
+        Utils.validateArg(assemblyResultSets.size() == perSampleReadLists.size(), "there must be one read set per assembly result");
+
+        final List<AlleleLikelihoods<GATKRead, Haplotype>> result = new ArrayList<>(assemblyResultSets.size());
+        for ( int i = 0; i < assemblyResultSets.size(); i++ ) {
+            result.add(computeReadLikelihoods(assemblyResultSets.get(i), samples, perSampleReadLists.get(i)));
+        }
+        return result;
+    }
+
     /**
      * This method must be called when the client is done with likelihood calculations.
      * It closes any open resources.
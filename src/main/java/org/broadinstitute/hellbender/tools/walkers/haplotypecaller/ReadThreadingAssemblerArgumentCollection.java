@@ -144,6 +144,15 @@ public abstract class ReadThreadingAssemblerArgumentCollection implements Serial
     @Argument(fullName="disable-artificial-haplotype-recovery", doc = "If in 'linked-de-bruijn-graph' mode, disable recovery of haplotypes based on graph edges that are not in junction trees", optional = true)
     public boolean disableArtificialHaplotypeRecovery = false;
 
+    /**
+     * Number of threads on which the graphs for the different kmer sizes of each assembly region are built and
+     * simplified.  Graphs for larger kmer sizes may be built ahead of time, in case the smaller ones fail, so extra
+     * threads trade some wasted work for wall-clock time.  Results don't depend on the number of threads.
+     */
+    @Advanced
+    @Argument(fullName="assembly-threads", doc="Number of threads used to build the assembly graphs of each assembly region", optional = true, minValue = 1)
+    public int assemblyThreads = 1;
+
     @Advanced
     @Argument(fullName="debug-assembly", shortName="debug", doc="Print out verbose debug information about each assembly region", optional = true)
     public boolean debugAssembly;
@@ -139,6 +139,16 @@ public class ReferenceConfidenceModel {
         return headerLines;
     }
 
+    /**
+     * Whether {@link #calculateRefConfidence} sweeps the reads across the region once to compute the reference
+     * confidence of all its positions, rather than building a pileup at each position and calling
+     * {@link #calcGenotypeLikelihoodsOfRefVsAny} and {@link #doIndelRefConfCalc} on it.  The sweep computes the same
+     * results as these methods do here, so subclasses overriding them must return false.
+     */
+    protected boolean sweepsReadsForRefConfidence() {
+        return true;
+    }
+
     public List<VariantContext> calculateRefConfidence(final Haplotype refHaplotype,
                                                        final Collection<Haplotype> calledHaplotypes,
                                                        final SimpleInterval paddedReferenceLoc,
@@ -192,18 +202,28 @@ public class ReferenceConfidenceModel {
         final int ploidy = ploidyModel.samplePloidy(0); // the first sample = the only sample in reference-confidence mode.
 
         final SimpleInterval refSpan = activeRegion.getSpan();
-        final List<ReadPileup> refPileups = AssemblyBasedCallerUtils.getPileupsOverReference(activeRegion.getHeader(), refSpan, readLikelihoods, samples);
         final byte[] ref = refHaplotype.getBases();
         final List<VariantContext> results = new ArrayList<>(refSpan.size());
         final String sampleName = readLikelihoods.getSample(0);
 
         final int globalRefOffset = refSpan.getStart() - activeRegion.getPaddedSpan().getStart();
+        final List<ReadPileup> refPileups;
+        final ReadSweep readSweep;
+        if (sweepsReadsForRefConfidence()) {
+            final List<GATKRead> reads = new ArrayList<>(readLikelihoods.sampleEvidence(0));
+            reads.sort(new ReadCoordinateComparator(activeRegion.getHeader()));  // in the same order as in the pileups over the reference
+            refPileups = null;
+            readSweep = new ReadSweep(ploidy, refSpan, ref, globalRefOffset, reads);
+        } else {
+            refPileups = AssemblyBasedCallerUtils.getPileupsOverReference(activeRegion.getHeader(), refSpan, readLikelihoods, samples);
+            readSweep = null;
+        }
+
         // Note, we use an indexed for-loop here because this method has a large impact on the profile of HaplotypeCaller runtime in GVCF mode
-        final int refPileupsSize = refPileups.size();
-        for (int i = 0; i < refPileupsSize; i++) {
-            final ReadPileup pileup = refPileups.get(i);
-            final Locatable curPos = pileup.getLocation();
-            final int offset = curPos.getStart() - refSpan.getStart();
+        final int refSpanSize = refSpan.size();
+        for (int offset = 0; offset < refSpanSize; offset++) {
+            final Locatable curPos = readSweep != null ? new SimpleInterval(refSpan.getContig(), refSpan.getStart() + offset, refSpan.getStart() + offset)
+                    : refPileups.get(offset).getLocation();
 
             final VariantContext overlappingSite = GATKVariantContextUtils.getOverlappingVariantContext(curPos, variantCalls);
             final List<VariantContext> currentPriors = VCpriors.isEmpty() ? Collections.emptyList() : getMatchingPriors(curPos, overlappingSite, VCpriors);
@@ -214,9 +234,13 @@ public class ReferenceConfidenceModel {
                 } else {
                     results.add(overlappingSite);
                 }
-            } else {
+            } else if (readSweep != null) {
                 // otherwise emit a reference confidence variant context
-                results.add(makeReferenceConfidenceVariantContext(ploidy, ref, sampleName, globalRefOffset, pileup, curPos, offset, applyPriors, currentPriors));
+                final RefVsAnyResult homRefCalc = readSweep.getRefVsAnyResult(offset);
+                applyIndelRefConf(ploidy, homRefCalc, readSweep.countIndelInformativeReads(offset, ref, offset + globalRefOffset));
+                results.add(makeReferenceConfidenceVariantContext(ploidy, ref[offset + globalRefOffset], sampleName, curPos, homRefCalc, applyPriors, currentPriors));
+            } else {
+                results.add(makeReferenceConfidenceVariantContext(ploidy, ref, sampleName, globalRefOffset, refPileups.get(offset), curPos, offset, applyPriors, currentPriors));
             }
         }
 
@@ -244,7 +268,17 @@ public class ReferenceConfidenceModel {
         final int refOffset = offset + globalRefOffset;
         final byte refBase = ref[refOffset];
         final ReferenceConfidenceResult homRefCalc = calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null, true);
+        doIndelRefConfCalc(ploidy, ref, pileup, refOffset, homRefCalc);
+        return makeReferenceConfidenceVariantContext(ploidy, refBase, sampleName, curPos, homRefCalc, applyPriors, VCpriors);
+    }
 
+    private VariantContext makeReferenceConfidenceVariantContext(final int ploidy,
+                                                                 final byte refBase,
+                                                                 final String sampleName,
+                                                                 final Locatable curPos,
+                                                                 final ReferenceConfidenceResult homRefCalc,
+                                                                 final boolean applyPriors,
+                                                                 final List<VariantContext> VCpriors) {
         final Allele refAllele = Allele.create(refBase, true);
         final List<Allele> refSiteAlleles = Arrays.asList(refAllele, Allele.NON_REF_ALLELE);
         final VariantContextBuilder vcb = new VariantContextBuilder("HC", curPos.getContig(), curPos.getStart(), curPos.getStart(), refSiteAlleles);
@@ -252,9 +286,7 @@ public class ReferenceConfidenceModel {
         gb.AD(homRefCalc.getAD());
         gb.DP(homRefCalc.getDP());
 
-        doIndelRefConfCalc(ploidy, ref, pileup, refOffset, homRefCalc);
-
-       addGenotypeData(homRefCalc, gb);
+        addGenotypeData(homRefCalc, gb);
         if(!applyPriors) {
             return vcb.genotypes(gb.make()).make();
         }
@@ -265,10 +297,13 @@ public class ReferenceConfidenceModel {
     }
 
     public void doIndelRefConfCalc(final int ploidy, final byte[] ref, final ReadPileup pileup, final int refOffset, final ReferenceConfidenceResult refResult) {
-        final RefVsAnyResult homRefCalc = (RefVsAnyResult)refResult;
+        final int nIndelInformativeReads = calcNReadsWithNoPlausibleIndelsReads(pileup, refOffset, ref, indelInformativeDepthIndelSize);
+        applyIndelRefConf(ploidy, (RefVsAnyResult)refResult, nIndelInformativeReads);
+    }
+
+    private void applyIndelRefConf(final int ploidy, final RefVsAnyResult homRefCalc, final int nIndelInformativeReads) {
         // genotype likelihood calculation
         final GenotypeLikelihoods snpGLs = GenotypeLikelihoods.fromLog10Likelihoods(homRefCalc.getGenotypeLikelihoodsCappedByHomRefLikelihood());
-        final int nIndelInformativeReads = calcNReadsWithNoPlausibleIndelsReads(pileup, refOffset, ref, indelInformativeDepthIndelSize);
         final GenotypeLikelihoods indelGLs = getIndelPLs(ploidy,nIndelInformativeReads);
 
         // now that we have the SNP and indel GLs, we take the one with the least confidence,
@@ -740,6 +775,212 @@ public class ReferenceConfidenceModel {
         return offset;
     }
 
+    /**
+     * The per-position data that the reference confidence of a region needs from its pileups, gathered by walking along
+     * the alignment of each read once: the reference vs. any non-ref genotype likelihoods and depths (as computed by
+     * {@link #calcGenotypeLikelihoodsOfRefVsAny} for realigned reads), and the reads that {@link #calcNReadsWithNoPlausibleIndelsReads}
+     * would check for indels with their offsets (as computed by {@link #getCigarModifiedOffset}).
+     *
+     * Reads are added to each position in the same order as in the pileups over the region, so likelihoods are summed
+     * in the same order and indel informativeness is cached in the same way.
+     */
+    private final class ReadSweep {
+        private final int likelihoodCount;
+        private final double log10Ploidy;
+        private final int spanStart;
+        private final int spanEnd;
+        private final List<GATKRead> reads;
+
+        // the likelihoods of the position at offset i start at likelihoods[i * likelihoodCount]
+        private final double[] likelihoods;
+        private final int[] readCounts;
+        private final int[] refDepths;
+        private final int[] nonRefDepths;
+
+        // pairs of index in reads and offset into the reference-aligned read, per position
+        private final int[][] indelCandidates;
+        private final int[] indelCandidateCounts;
+
+        // likelihood terms added by a base of a given quality that matches or not the reference: the hom-ref term first,
+        // then the het terms, then the hom-var term
+        private final double[][] refBaseTerms = new double[Byte.MAX_VALUE + 1][];
+        private final double[][] altBaseTerms = new double[Byte.MAX_VALUE + 1][];
+
+        private ReadSweep(final int ploidy, final SimpleInterval span, final byte[] ref, final int globalRefOffset, final List<GATKRead> reads) {
+            likelihoodCount = ploidy + 1;
+            log10Ploidy = MathUtils.log10(ploidy);
+            spanStart = span.getStart();
+            spanEnd = span.getEnd();
+            this.reads = reads;
+            final int size = span.size();
+            likelihoods = new double[size * likelihoodCount];
+            readCounts = new int[size];
+            refDepths = new int[size];
+            nonRefDepths = new int[size];
+            indelCandidates = new int[size][];
+            indelCandidateCounts = new int[size];
+            for (int readIndex = 0; readIndex < reads.size(); readIndex++) {
+                addRead(readIndex, ref, globalRefOffset);
+            }
+        }
+
+        private void addRead(final int readIndex, final byte[] ref, final int globalRefOffset) {
+            final GATKRead read = reads.get(readIndex);
+            final List<CigarElement> cigarElements = read.getCigarElements();
+            final byte[] bases = read.getBasesNoCopy();
+            final byte[] quals = read.getBaseQualitiesNoCopy();
+            int refPosition = read.getStart();
+            int readOffset = 0;
+            int softClippedBases = 0;
+            for (int i = 0; i < cigarElements.size() && refPosition <= spanEnd; i++) {
+                final CigarElement element = cigarElements.get(i);
+                final int length = element.getLength();
+                switch (element.getOperator()) {
+                    case M:
+                    case EQ:
+                    case X:
+                        final boolean beforeIndel = isBeforeIndel(cigarElements, i);
+                        for (int n = Math.max(0, spanStart - refPosition); n < length && refPosition + n <= spanEnd; n++) {
+                            final int position = refPosition + n;
+                            if (ReadUtils.isBaseInsideAdaptor(read, position)) {
+                                continue;
+                            }
+                            final int offset = position - spanStart;
+                            final byte qual = quals[readOffset + n];
+                            if (qual > BASE_QUAL_THRESHOLD) {
+                                addBase(offset, qual, bases[readOffset + n] != ref[offset + globalRefOffset]);
+                            }
+                            if (!beforeIndel || n < length - 1) {
+                                addIndelCandidate(offset, readIndex, position - read.getStart() + softClippedBases);
+                            }
+                        }
+                        readOffset += length;
+                        refPosition += length;
+                        break;
+                    case D:
+                        for (int n = Math.max(0, spanStart - refPosition); n < length && refPosition + n <= spanEnd; n++) {
+                            if (!ReadUtils.isBaseInsideAdaptor(read, refPosition + n)) {
+                                addBase(refPosition + n - spanStart, REF_MODEL_DELETION_QUAL, true);
+                            }
+                        }
+                        refPosition += length;
+                        break;
+                    case N:
+                        // pileups don't include reads skipping over a position
+                        refPosition += length;
+                        break;
+                    case S:
+                        softClippedBases += length;
+                        readOffset += length;
+                        break;
+                    case I:
+                        readOffset += length;
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        // whether the last base of a cigar element is before a deletion or an insertion, as with
+        // PileupElement.isBeforeDeletionStart() and PileupElement.isBeforeInsertion()
+        private boolean isBeforeIndel(final List<CigarElement> cigarElements, final int elementIndex) {
+            if (elementIndex + 1 < cigarElements.size() && cigarElements.get(elementIndex + 1).getOperator() == CigarOperator.I) {
+                return true;
+            }
+            for (int i = elementIndex + 1; i < cigarElements.size(); i++) {
+                final CigarOperator operator = cigarElements.get(i).getOperator();
+                if (operator.isAlignment() || operator == CigarOperator.D) {
+                    return operator == CigarOperator.D;
+                }
+            }
+            return false;
+        }
+
+        private void addBase(final int offset, final byte qual, final boolean isAlt) {
+            final double[] terms = getLikelihoodTerms(qual, isAlt);
+            final int start = offset * likelihoodCount;
+            likelihoods[start] += terms[0];
+            likelihoods[start + likelihoodCount - 1] += terms[likelihoodCount];
+            for (int i = 1; i < likelihoodCount - 1; i++) {
+                likelihoods[start + i] += terms[i];
+            }
+            readCounts[offset]++;
+            if (isAlt) {
+                nonRefDepths[offset]++;
+            } else {
+                refDepths[offset]++;
+            }
+        }
+
+        // the same terms as added by applyPileupElementRefVsNonRefLikelihoodAndCount
+        private double[] getLikelihoodTerms(final byte qual, final boolean isAlt) {
+            final double[][] termsByQual = isAlt ? altBaseTerms : refBaseTerms;
+            if (termsByQual[qual] == null) {
+                final double referenceLikelihood = isAlt ? QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD
+                        : QualityUtils.qualToProbLog10(qual);
+                final double nonRefLikelihood = isAlt ? QualityUtils.qualToProbLog10(qual)
+                        : QualityUtils.qualToErrorProbLog10(qual) + MathUtils.LOG10_ONE_THIRD;
+                final double[] terms = new double[likelihoodCount + 1];
+                terms[0] = referenceLikelihood + log10Ploidy;
+                terms[likelihoodCount] = nonRefLikelihood + log10Ploidy;
+                for (int i = 1, j = likelihoodCount - 2; i < likelihoodCount - 1; i++, j--) {
+                    terms[i] = MathUtils.approximateLog10SumLog10(
+                            referenceLikelihood + MathUtils.log10(j),
+                            nonRefLikelihood + MathUtils.log10(i));
+                }
+                termsByQual[qual] = terms;
+            }
+            return termsByQual[qual];
+        }
+
+        private void addIndelCandidate(final int offset, final int readIndex, final int readOffset) {
+            int[] candidates = indelCandidates[offset];
+            final int count = indelCandidateCounts[offset];
+            if (candidates == null) {
+                candidates = indelCandidates[offset] = new int[16];
+            } else if (count == candidates.length) {
+                candidates = indelCandidates[offset] = Arrays.copyOf(candidates, count * 2);
+            }
+            candidates[count] = readIndex;
+            candidates[count + 1] = readOffset;
+            indelCandidateCounts[offset] = count + 2;
+        }
+
+        /**
+         * @param offset the offset of a position into the region
+         * @return a new result holding the genotype likelihoods and depths of the position
+         */
+        RefVsAnyResult getRefVsAnyResult(final int offset) {
+            final RefVsAnyResult result = new RefVsAnyResult(likelihoodCount);
+            final double denominator = readCounts[offset] * log10Ploidy;
+            for (int i = 0; i < likelihoodCount; i++) {
+                result.genotypeLikelihoods[i] = likelihoods[offset * likelihoodCount + i] - denominator;
+            }
+            result.refDepth = refDepths[offset];
+            result.nonRefDepth = nonRefDepths[offset];
+            return result;
+        }
+
+        /**
+         * Same as {@link #calcNReadsWithNoPlausibleIndelsReads} on the pileup at a position.  Must be called on
+         * positions in ascending order, as it caches the informativeness of each read.
+         */
+        int countIndelInformativeReads(final int offset, final byte[] ref, final int offsetIntoRef) {
+            final int[] candidates = indelCandidates[offset];
+            int nInformative = 0;
+            for (int i = 0; i < indelCandidateCounts[offset]; i += 2) {
+                if (readHasNoPlausibleIdealsOfSize(reads.get(candidates[i]), candidates[i + 1], ref, offsetIntoRef, indelInformativeDepthIndelSize, USE_CACHED_READ_INDEL_INFORMATIVENESS_VALUES)) {
+                    nInformative++;
+                    if (nInformative > MAX_N_INDEL_INFORMATIVE_READS) {
+                        return MAX_N_INDEL_INFORMATIVE_READS;
+                    }
+                }
+            }
+            return nInformative;
+        }
+    }
+
     /**
      * Create a reference haplotype for an active region
      *
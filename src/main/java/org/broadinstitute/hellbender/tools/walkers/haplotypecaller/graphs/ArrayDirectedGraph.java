@@ -0,0 +1,624 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.EdgeFactory;
+import org.jgrapht.WeightedGraph;
+import org.jgrapht.graph.AbstractGraph;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Directed graph which allows loops but not multiple edges between the same pair of vertices, with the same behavior as
+ * jgrapht's DefaultDirectedGraph (including the iteration order of its vertex and edge sets, which is the order in
+ * which vertices and edges were added) but with a much lighter representation.
+ *
+ * Vertices and edges are given int ids, in the order in which they are added.  The sources and targets of the edges
+ * are stored in int arrays indexed by edge id, and the incoming and outgoing edges of each vertex in arrays of edge
+ * ids, so that walking the graph, testing whether two vertices are connected (by comparing ids) and computing degrees
+ * only look up the vertex or edge at hand, rather than going through a hash set of edges per vertex and a map from
+ * each edge to its endpoints.  The ids of removed vertices and edges are reclaimed (preserving the order of the
+ * remaining ones) once they outnumber the live ones.
+ *
+ * {@link #vertexSet()}, {@link #edgeSet()}, {@link #incomingEdgesOf} and {@link #outgoingEdgesOf} return unmodifiable
+ * live views; as with the jgrapht graphs, iterating over one of them while modifying what it is a view of throws a
+ * {@link ConcurrentModificationException}.
+ *
+ * @param <V> the type of the vertices
+ * @param <E> the type of the edges
+ */
+public class ArrayDirectedGraph<V, E> extends AbstractGraph<V, E> implements DirectedGraph<V, E>, Cloneable, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MIN_IDS_TO_RECLAIM = 64;
+
+    private final EdgeFactory<V, E> edgeFactory;
+
+    // vertex ids, and for each id (up to vertexIdCount) the vertex and its edges, or null if it was removed
+    private Map<V, Integer> vertexIds = new HashMap<>();
+    private Object[] vertices = new Object[INITIAL_CAPACITY];
+    private EdgeList[] incoming = new EdgeList[INITIAL_CAPACITY];
+    private EdgeList[] outgoing = new EdgeList[INITIAL_CAPACITY];
+    private int vertexIdCount = 0;
+    private int vertexModCount = 0;
+
+    // edge ids, and for each id (up to edgeIdCount) the edge (or null if it was removed) and the ids of its endpoints
+    private Map<E, Integer> edgeIds = new HashMap<>();
+    private Object[] edges = new Object[INITIAL_CAPACITY];
+    private int[] edgeSources = new int[INITIAL_CAPACITY];
+    private int[] edgeTargets = new int[INITIAL_CAPACITY];
+    private int edgeIdCount = 0;
+    private int edgeModCount = 0;
+
+    /**
+     * @param edgeFactory the factory of the edges created by {@link #addEdge(Object, Object)}
+     */
+    public ArrayDirectedGraph(final EdgeFactory<V, E> edgeFactory) {
+        this.edgeFactory = Utils.nonNull(edgeFactory, "edgeFactory cannot be null");
+    }
+
+    @Override
+    public EdgeFactory<V, E> getEdgeFactory() {
+        return edgeFactory;
+    }
+
+    @Override
+    public boolean addVertex(final V v) {
+        if ( v == null ) {
+            throw new NullPointerException();
+        }
+        if ( vertexIds.containsKey(v) ) {
+            return false;
+        }
+        if ( vertexIdCount == vertices.length ) {
+            final int capacity = 2 * vertices.length;
+            vertices = Arrays.copyOf(vertices, capacity);
+            incoming = Arrays.copyOf(incoming, capacity);
+            outgoing = Arrays.copyOf(outgoing, capacity);
+        }
+        vertices[vertexIdCount] = v;
+        incoming[vertexIdCount] = new EdgeList();
+        outgoing[vertexIdCount] = new EdgeList();
+        vertexIds.put(v, vertexIdCount++);
+        vertexModCount++;
+        return true;
+    }
+
+    @Override
+    public boolean containsVertex(final V v) {
+        return vertexIds.containsKey(v);
+    }
+
+    @Override
+    public boolean removeVertex(final V v) {
+        final Integer id = vertexIds.get(v);
+        if ( id == null ) {
+            return false;
+        }
+        // removing a loop removes it from both lists, so always take the last edge of whichever list is not empty
+        final EdgeList in = incoming[id];
+        final EdgeList out = outgoing[id];
+        while ( out.size > 0 ) {
+            deleteEdge(out.ids[out.size - 1]);
+        }
+        while ( in.size > 0 ) {
+            deleteEdge(in.ids[in.size - 1]);
+        }
+
+        vertexIds.remove(v);
+        vertices[id] = null;
+        incoming[id] = null;
+        outgoing[id] = null;
+        vertexModCount++;
+        reclaimIdsIfNeeded();
+        return true;
+    }
+
+    @Override
+    public Set<V> vertexSet() {
+        return new VertexSetView();
+    }
+
+    @Override
+    public E addEdge(final V sourceVertex, final V targetVertex) {
+        final int source = vertexId(sourceVertex);
+        final int target = vertexId(targetVertex);
+        if ( edgeBetween(source, target) >= 0 ) {
+            return null;
+        }
+        final E e = edgeFactory.createEdge(sourceVertex, targetVertex);
+        if ( containsEdge(e) ) {
+            return null;
+        }
+        insertEdge(e, source, target);
+        return e;
+    }
+
+    @Override
+    public boolean addEdge(final V sourceVertex, final V targetVertex, final E e) {
+        if ( e == null ) {
+            throw new NullPointerException();
+        }
+        if ( containsEdge(e) ) {
+            return false;
+        }
+        final int source = vertexId(sourceVertex);
+        final int target = vertexId(targetVertex);
+        if ( edgeBetween(source, target) >= 0 ) {
+            return false;
+        }
+        insertEdge(e, source, target);
+        return true;
+    }
+
+    @Override
+    public E getEdge(final V sourceVertex, final V targetVertex) {
+        final Integer source = vertexIds.get(sourceVertex);
+        final Integer target = vertexIds.get(targetVertex);
+        if ( source == null || target == null ) {
+            return null;
+        }
+        final int edge = edgeBetween(source, target);
+        return edge < 0 ? null : edge(edge);
+    }
+
+    @Override
+    public Set<E> getAllEdges(final V sourceVertex, final V targetVertex) {
+        final Integer source = vertexIds.get(sourceVertex);
+        final Integer target = vertexIds.get(targetVertex);
+        if ( source == null || target == null ) {
+            return null;
+        }
+        final int edge = edgeBetween(source, target);
+        final Set<E> result = new LinkedHashSet<>(2);
+        if ( edge >= 0 ) {
+            result.add(edge(edge));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean containsEdge(final E e) {
+        return edgeIds.containsKey(e);
+    }
+
+    @Override
+    public E removeEdge(final V sourceVertex, final V targetVertex) {
+        final Integer source = vertexIds.get(sourceVertex);
+        final Integer target = vertexIds.get(targetVertex);
+        if ( source == null || target == null ) {
+            return null;
+        }
+        final int edge = edgeBetween(source, target);
+        if ( edge < 0 ) {
+            return null;
+        }
+        final E e = edge(edge);
+        deleteEdge(edge);
+        reclaimIdsIfNeeded();
+        return e;
+    }
+
+    @Override
+    public boolean removeEdge(final E e) {
+        final Integer id = edgeIds.get(e);
+        if ( id == null ) {
+            return false;
+        }
+        deleteEdge(id);
+        reclaimIdsIfNeeded();
+        return true;
+    }
+
+    @Override
+    public Set<E> edgeSet() {
+        return new EdgeSetView();
+    }
+
+    @Override
+    public Set<E> edgesOf(final V vertex) {
+        final int id = vertexId(vertex);
+        final EdgeList in = incoming[id];
+        final EdgeList out = outgoing[id];
+        final Set<E> result = new LinkedHashSet<>(2 * (in.size + out.size));
+        for ( int i = 0; i < in.size; i++ ) {
+            result.add(edge(in.ids[i]));
+        }
+        for ( int i = 0; i < out.size; i++ ) {
+            // loops are in both lists
+            if ( edgeTargets[out.ids[i]] != id ) {
+                result.add(edge(out.ids[i]));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<E> incomingEdgesOf(final V vertex) {
+        return new EdgeListView(incoming[vertexId(vertex)]);
+    }
+
+    @Override
+    public Set<E> outgoingEdgesOf(final V vertex) {
+        return new EdgeListView(outgoing[vertexId(vertex)]);
+    }
+
+    @Override
+    public int inDegreeOf(final V vertex) {
+        return incoming[vertexId(vertex)].size;
+    }
+
+    @Override
+    public int outDegreeOf(final V vertex) {
+        return outgoing[vertexId(vertex)].size;
+    }
+
+    @Override
+    public V getEdgeSource(final E e) {
+        return vertex(edgeSources[edgeId(e)]);
+    }
+
+    @Override
+    public V getEdgeTarget(final E e) {
+        return vertex(edgeTargets[edgeId(e)]);
+    }
+
+    @Override
+    public double getEdgeWeight(final E e) {
+        return WeightedGraph.DEFAULT_EDGE_WEIGHT;
+    }
+
+    /**
+     * @return a copy of this graph, with the same vertex and edge objects (which are not cloned)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public ArrayDirectedGraph<V, E> clone() {
+        final ArrayDirectedGraph<V, E> result;
+        try {
+            result = (ArrayDirectedGraph<V, E>) super.clone();
+        } catch ( final CloneNotSupportedException e ) {
+            throw new GATKException("ArrayDirectedGraph must be cloneable", e);
+        }
+        result.vertexIds = new HashMap<>(vertexIds);
+        result.vertices = vertices.clone();
+        result.incoming = new EdgeList[incoming.length];
+        result.outgoing = new EdgeList[outgoing.length];
+        for ( int id = 0; id < vertexIdCount; id++ ) {
+            if ( vertices[id] != null ) {
+                result.incoming[id] = incoming[id].copy();
+                result.outgoing[id] = outgoing[id].copy();
+            }
+        }
+        result.edgeIds = new HashMap<>(edgeIds);
+        result.edges = edges.clone();
+        result.edgeSources = edgeSources.clone();
+        result.edgeTargets = edgeTargets.clone();
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V vertex(final int id) {
+        return (V) vertices[id];
+    }
+
+    @SuppressWarnings("unchecked")
+    private E edge(final int id) {
+        return (E) edges[id];
+    }
+
+    // the id of v, which must be in the graph
+    private int vertexId(final V v) {
+        final Integer id = vertexIds.get(v);
+        if ( id == null ) {
+            assertVertexExist(v);
+        }
+        return id;
+    }
+
+    // the id of e, which must be in the graph
+    private int edgeId(final E e) {
+        final Integer id = edgeIds.get(e);
+        Utils.validateArg(id != null, () -> "no such edge in graph: " + e);
+        return id;
+    }
+
+    // the id of the edge from source to target, or -1 if there is none
+    private int edgeBetween(final int source, final int target) {
+        final EdgeList out = outgoing[source];
+        final EdgeList in = incoming[target];
+        // scan the shorter of the two lists
+        if ( out.size <= in.size ) {
+            for ( int i = 0; i < out.size; i++ ) {
+                if ( edgeTargets[out.ids[i]] == target ) {
+                    return out.ids[i];
+                }
+            }
+        } else {
+            for ( int i = 0; i < in.size; i++ ) {
+                if ( edgeSources[in.ids[i]] == source ) {
+                    return in.ids[i];
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void insertEdge(final E e, final int source, final int target) {
+        if ( edgeIdCount == edges.length ) {
+            final int capacity = 2 * edges.length;
+            edges = Arrays.copyOf(edges, capacity);
+            edgeSources = Arrays.copyOf(edgeSources, capacity);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+        }
+        final int id = edgeIdCount++;
+        edges[id] = e;
+        edgeSources[id] = source;
+        edgeTargets[id] = target;
+        edgeIds.put(e, id);
+        outgoing[source].add(id);
+        incoming[target].add(id);
+        edgeModCount++;
+    }
+
+    // remove an edge, without reclaiming ids, so that callers may keep using the ids they hold
+    private void deleteEdge(final int id) {
+        outgoing[edgeSources[id]].remove(id);
+        incoming[edgeTargets[id]].remove(id);
+        edgeIds.remove(edges[id]);
+        edges[id] = null;
+        edgeModCount++;
+    }
+
+    // renumber the vertices and edges once there are more ids of removed ones than of live ones, preserving their order
+    private void reclaimIdsIfNeeded() {
+        final int removedVertexIds = vertexIdCount - vertexIds.size();
+        if ( removedVertexIds > MIN_IDS_TO_RECLAIM && removedVertexIds > vertexIds.size() ) {
+            final int[] newVertexIds = new int[vertexIdCount];
+            int next = 0;
+            for ( int id = 0; id < vertexIdCount; id++ ) {
+                if ( vertices[id] != null ) {
+                    newVertexIds[id] = next;
+                    vertices[next] = vertices[id];
+                    incoming[next] = incoming[id];
+                    outgoing[next] = outgoing[id];
+                    vertexIds.put(vertex(next), next);
+                    next++;
+                }
+            }
+            Arrays.fill(vertices, next, vertexIdCount, null);
+            Arrays.fill(incoming, next, vertexIdCount, null);
+            Arrays.fill(outgoing, next, vertexIdCount, null);
+            vertexIdCount = next;
+            for ( int id = 0; id < edgeIdCount; id++ ) {
+                if ( edges[id] != null ) {
+                    edgeSources[id] = newVertexIds[edgeSources[id]];
+                    edgeTargets[id] = newVertexIds[edgeTargets[id]];
+                }
+            }
+        }
+
+        final int removedEdgeIds = edgeIdCount - edgeIds.size();
+        if ( removedEdgeIds > MIN_IDS_TO_RECLAIM && removedEdgeIds > edgeIds.size() ) {
+            final int[] newEdgeIds = new int[edgeIdCount];
+            int next = 0;
+            for ( int id = 0; id < edgeIdCount; id++ ) {
+                if ( edges[id] != null ) {
+                    newEdgeIds[id] = next;
+                    edges[next] = edges[id];
+                    edgeSources[next] = edgeSources[id];
+                    edgeTargets[next] = edgeTargets[id];
+                    edgeIds.put(edge(next), next);
+                    next++;
+                }
+            }
+            Arrays.fill(edges, next, edgeIdCount, null);
+            edgeIdCount = next;
+            // the edge lists are renumbered in place, so views of them stay valid
+            for ( int id = 0; id < vertexIdCount; id++ ) {
+                if ( vertices[id] != null ) {
+                    incoming[id].renumber(newEdgeIds);
+                    outgoing[id].renumber(newEdgeIds);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ids of the incoming or outgoing edges of a vertex, in the order in which they were added
+     */
+    private static final class EdgeList implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private int[] ids = new int[2];
+        private int size = 0;
+        private int modCount = 0;
+
+        void add(final int id) {
+            if ( size == ids.length ) {
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            ids[size++] = id;
+            modCount++;
+        }
+
+        void remove(final int id) {
+            for ( int i = size - 1; i >= 0; i-- ) {
+                if ( ids[i] == id ) {
+                    System.arraycopy(ids, i + 1, ids, i, size - i - 1);
+                    size--;
+                    modCount++;
+                    return;
+                }
+            }
+        }
+
+        boolean contains(final int id) {
+            for ( int i = 0; i < size; i++ ) {
+                if ( ids[i] == id ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void renumber(final int[] newIds) {
+            for ( int i = 0; i < size; i++ ) {
+                ids[i] = newIds[ids[i]];
+            }
+        }
+
+        EdgeList copy() {
+            final EdgeList result = new EdgeList();
+            result.ids = Arrays.copyOf(ids, Math.max(2, size));
+            result.size = size;
+            return result;
+        }
+    }
+
+    private final class EdgeListView extends AbstractSet<E> {
+        private final EdgeList list;
+
+        EdgeListView(final EdgeList list) {
+            this.list = list;
+        }
+
+        @Override
+        public int size() {
+            return list.size;
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            final Integer id = edgeIds.get(o);
+            return id != null && list.contains(id);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private final int expectedModCount = list.modCount;
+                private int next = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return next < list.size;
+                }
+
+                @Override
+                public E next() {
+                    if ( list.modCount != expectedModCount ) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if ( next >= list.size ) {
+                        throw new NoSuchElementException();
+                    }
+                    return edge(list.ids[next++]);
+                }
+            };
+        }
+    }
+
+    private final class VertexSetView extends AbstractSet<V> {
+        @Override
+        public int size() {
+            return vertexIds.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return vertexIds.containsKey(o);
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new Iterator<V>() {
+                private final int expectedModCount = vertexModCount;
+                private int next = nextVertexId(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next < vertexIdCount;
+                }
+
+                @Override
+                public V next() {
+                    if ( vertexModCount != expectedModCount ) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if ( next >= vertexIdCount ) {
+                        throw new NoSuchElementException();
+                    }
+                    final V result = vertex(next);
+                    next = nextVertexId(next + 1);
+                    return result;
+                }
+            };
+        }
+
+        private int nextVertexId(final int from) {
+            int id = from;
+            while ( id < vertexIdCount && vertices[id] == null ) {
+                id++;
+            }
+            return id;
+        }
+    }
+
+    private final class EdgeSetView extends AbstractSet<E> {
+        @Override
+        public int size() {
+            return edgeIds.size();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return edgeIds.containsKey(o);
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<E>() {
+                private final int expectedModCount = edgeModCount;
+                private int next = nextEdgeId(0);
+
+                @Override
+                public boolean hasNext() {
+                    return next < edgeIdCount;
+                }
+
+                @Override
+                public E next() {
+                    if ( edgeModCount != expectedModCount ) {
+                        throw new ConcurrentModificationException();
+                    }
+                    if ( next >= edgeIdCount ) {
+                        throw new NoSuchElementException();
+                    }
+                    final E result = edge(next);
+                    next = nextEdgeId(next + 1);
+                    return result;
+                }
+            };
+        }
+
+        private int nextEdgeId(final int from) {
+            int id = from;
+            while ( id < edgeIdCount && edges[id] == null ) {
+                id++;
+            }
+            return id;
+        }
+    }
+}
@@ -6,7 +6,6 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.jgrapht.EdgeFactory;
 import org.jgrapht.alg.CycleDetector;
-import org.jgrapht.graph.DefaultDirectedGraph;
 
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -19,7 +18,7 @@ import java.util.stream.Collectors;
 /**
  * Common code for graphs used for local assembly.
  */
-public abstract class BaseGraph<V extends BaseVertex, E extends BaseEdge> extends DefaultDirectedGraph<V, E> {
+public abstract class BaseGraph<V extends BaseVertex, E extends BaseEdge> extends ArrayDirectedGraph<V, E> {
     private static final long serialVersionUID = 1l;
     protected final int kmerSize;
 
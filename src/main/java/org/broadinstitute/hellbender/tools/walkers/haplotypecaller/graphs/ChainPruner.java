@@ -4,7 +4,14 @@ import com.google.common.annotations.VisibleForTesting;
 
 import java.util.*;
 
-
+/**
+ * Prunes chains (maximal linear paths) of a graph that are likely to be errors.
+ *
+ * Implementations must be stateless apart from configuration fixed at construction: all working state of a pruning
+ * lives in local variables, so that a single pruner may prune different graphs on several threads at once, as the
+ * {@link org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading.ReadThreadingAssembler} does when it
+ * builds the graphs for different kmer sizes concurrently.
+ */
 public abstract class ChainPruner<V extends BaseVertex, E extends BaseEdge> {
     public ChainPruner() { }
 
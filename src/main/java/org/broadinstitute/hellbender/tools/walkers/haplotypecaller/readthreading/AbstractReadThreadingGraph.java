@@ -47,7 +47,7 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
     /**
      * A map from kmers -> their corresponding vertex in the graph
      */
-    protected final Map<Kmer, MultiDeBruijnVertex> kmerToVertexMap = new LinkedHashMap<>();
+    protected final PackedKmerMap<MultiDeBruijnVertex> kmerToVertexMap = new PackedKmerMap<>(kmerSize);
     protected final boolean debugGraphTransformations;
     protected final byte minBaseQualityToUseInAssembly;
     protected List<MultiDeBruijnVertex> referencePath = null;
@@ -88,14 +88,15 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
     /**
      * Checks whether a kmer can be the threading start based on the current threading start location policy.
      *
-     * @param kmer the query kmer.
+     * @param sequence the sequence containing the query kmer.
+     * @param start the start of the query kmer in sequence.
      * @return {@code true} if we can start thread the sequence at this kmer, {@code false} otherwise.
      * @see #setThreadingStartOnlyAtExistingVertex(boolean)
      */
-    protected abstract boolean isThreadingStart(final Kmer kmer, final boolean startThreadingOnlyAtExistingVertex);
+    protected abstract boolean isThreadingStart(final byte[] sequence, final int start, final boolean startThreadingOnlyAtExistingVertex);
 
-    // get the next kmerVertex for ChainExtension and validate if necessary.
-    protected abstract MultiDeBruijnVertex getNextKmerVertexForChainExtension(final Kmer kmer, final boolean isRef, final MultiDeBruijnVertex prevVertex);
+    // get the next kmerVertex (for the kmer in sequence starting at start) for ChainExtension and validate if necessary.
+    protected abstract MultiDeBruijnVertex getNextKmerVertexForChainExtension(final byte[] sequence, final int start, final boolean isRef, final MultiDeBruijnVertex prevVertex);
 
     // perform any necessary preprocessing on the graph (such as non-unique kmer determination) before the graph is constructed
     protected abstract void preprocessReads();
@@ -112,10 +113,10 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
     /**
      * Define the behavior for how the graph should keep track of a potentially new kmer.
      *
-     * @param kmer      (potentially) new kmer to track
+     * @param kmer      (potentially) new kmer to track, exactly kmerSize bases
      * @param newVertex corresponding vertex for that kmer
      */
-    protected abstract void trackKmer(Kmer kmer, MultiDeBruijnVertex newVertex);
+    protected abstract void trackKmer(byte[] kmer, MultiDeBruijnVertex newVertex);
 
     /**
      * Determine whether the provided cigar is okay to merge into the reference path
@@ -192,8 +193,7 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
         }
 
         for (int i = seqForKmers.start; i < seqForKmers.stop - kmerSize; i++) {
-            final Kmer kmer1 = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if (isThreadingStart(kmer1, startThreadingOnlyAtExistingVertex)) {
+            if (isThreadingStart(seqForKmers.sequence, i, startThreadingOnlyAtExistingVertex)) {
                 return i;
             }
         }
@@ -354,9 +354,7 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
     public boolean removeVertex(final MultiDeBruijnVertex V) {
         final boolean result = super.removeVertex(V);
         if (result) {
-            final byte[] sequence = V.getSequence();
-            final Kmer kmer = new Kmer(sequence);
-            kmerToVertexMap.remove(kmer);
+            kmerToVertexMap.remove(new Kmer(V.getSequence()));
         }
         return result;
     }
@@ -873,33 +871,34 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
      * @return a non-null vertex
      */
     private MultiDeBruijnVertex getOrCreateKmerVertex(final byte[] sequence, final int start) {
-        final Kmer kmer = new Kmer(sequence, start, kmerSize);
-        final MultiDeBruijnVertex vertex = getKmerVertex(kmer, true);
-        return (vertex != null) ? vertex : createVertex(kmer);
+        final MultiDeBruijnVertex vertex = getKmerVertex(sequence, start, true);
+        return (vertex != null) ? vertex : createVertex(sequence, start);
     }
 
     /**
-     * Get the unique vertex for kmer, or null if not possible.
+     * Get the unique vertex for the kmer in sequence starting at start, or null if not possible.
      *
      * @param allowRefSource if true, we will allow kmer to match the reference source vertex
      * @return a vertex for kmer, or null (either because it doesn't exist or is non-unique for graphs that have such a distinction)
      */
-    protected MultiDeBruijnVertex getKmerVertex(final Kmer kmer, final boolean allowRefSource) {
-        if (!allowRefSource && kmer.equals(refSource)) {
+    protected MultiDeBruijnVertex getKmerVertex(final byte[] sequence, final int start, final boolean allowRefSource) {
+        if (!allowRefSource && refSource != null && Utils.equalRange(sequence, start, refSource.bases(), 0, kmerSize)) {
             return null;
         }
 
-        return kmerToVertexMap.get(kmer);
+        return kmerToVertexMap.get(sequence, start);
     }
 
     /**
-     * Create a new vertex for kmer.  Add it to the kmerToVertexMap map if appropriate.
+     * Create a new vertex for the kmer in sequence starting at start.  Add it to the kmerToVertexMap map if appropriate.
      *
-     * @param kmer the kmer we want to create a vertex for
+     * @param sequence the sequence containing the kmer we want to create a vertex for
+     * @param start the start of the kmer in sequence
      * @return the non-null created vertex
      */
-    private MultiDeBruijnVertex createVertex(final Kmer kmer) {
-        final MultiDeBruijnVertex newVertex = new MultiDeBruijnVertex(kmer.bases());
+    private MultiDeBruijnVertex createVertex(final byte[] sequence, final int start) {
+        final byte[] kmer = Arrays.copyOfRange(sequence, start, start + kmerSize);
+        final MultiDeBruijnVertex newVertex = new MultiDeBruijnVertex(kmer);
         final int prevSize = vertexSet().size();
         addVertex(newVertex);
 
@@ -937,11 +936,10 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
         }
 
         // none of our outgoing edges had our unique suffix base, so we check for an opportunity to merge back in
-        final Kmer kmer = new Kmer(sequence, kmerStart, kmerSize);
-        final MultiDeBruijnVertex mergeVertex = getNextKmerVertexForChainExtension(kmer, isRef, prevVertex);
+        final MultiDeBruijnVertex mergeVertex = getNextKmerVertexForChainExtension(sequence, kmerStart, isRef, prevVertex);
 
         // either use our merge vertex, or create a new one in the chain
-        final MultiDeBruijnVertex nextVertex = mergeVertex == null ? createVertex(kmer) : mergeVertex;
+        final MultiDeBruijnVertex nextVertex = mergeVertex == null ? createVertex(sequence, kmerStart) : mergeVertex;
         addEdge(prevVertex, nextVertex, ((MyEdgeFactory) getEdgeFactory()).createEdge(isRef, count));
         return nextVertex;
     }
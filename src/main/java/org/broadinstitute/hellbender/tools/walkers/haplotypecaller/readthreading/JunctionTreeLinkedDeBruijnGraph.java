@@ -60,8 +60,7 @@ public class JunctionTreeLinkedDeBruijnGraph extends AbstractReadThreadingGraph
 
     protected int findStartForJunctionThreading(final SequenceForKmers seqForKmers) {
         for ( int i = seqForKmers.start; i < seqForKmers.stop - kmerSize; i++ ) {
-            final Kmer kmer1 = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if ( kmerToVertexMap.containsKey(kmer1) ) {
+            if ( kmerToVertexMap.containsKey(seqForKmers.sequence, i) ) {
                 return i;
             }
         }
@@ -92,12 +91,13 @@ public class JunctionTreeLinkedDeBruijnGraph extends AbstractReadThreadingGraph
      *
      * @see #setThreadingStartOnlyAtExistingVertex(boolean)
      *
-     * @param kmer the query kmer.
+     * @param sequence the sequence containing the query kmer.
+     * @param start the start of the query kmer in sequence.
      * @return {@code true} if we can start thread the sequence at this kmer, {@code false} otherwise.
      */
-    protected boolean isThreadingStart(final Kmer kmer, final boolean startThreadingOnlyAtExistingVertex) {
-        Utils.nonNull(kmer);
-        return !startThreadingOnlyAtExistingVertex || kmers.contains(kmer);
+    protected boolean isThreadingStart(final byte[] sequence, final int start, final boolean startThreadingOnlyAtExistingVertex) {
+        Utils.nonNull(sequence);
+        return !startThreadingOnlyAtExistingVertex || kmers.contains(new Kmer(sequence, start, kmerSize));
     }
 
     /**
@@ -121,8 +121,8 @@ public class JunctionTreeLinkedDeBruijnGraph extends AbstractReadThreadingGraph
 
     // Since there are no non-unique kmers to worry about we just add it to our map
     @Override
-    protected void trackKmer(Kmer kmer, MultiDeBruijnVertex newVertex) {
-        kmerToVertexMap.putIfAbsent(kmer, newVertex);
+    protected void trackKmer(byte[] kmer, MultiDeBruijnVertex newVertex) {
+        kmerToVertexMap.putIfAbsent(kmer, 0, newVertex);
     }
 
     @VisibleForTesting
@@ -384,8 +384,8 @@ public class JunctionTreeLinkedDeBruijnGraph extends AbstractReadThreadingGraph
 
     @Override
     // since we don't have to validate unique vertex merging we just find the vertex and pass
-    protected MultiDeBruijnVertex getNextKmerVertexForChainExtension(final Kmer kmer, final boolean isRef, final MultiDeBruijnVertex prevVertex) {
-        return kmerToVertexMap.get(kmer);
+    protected MultiDeBruijnVertex getNextKmerVertexForChainExtension(final byte[] sequence, final int start, final boolean isRef, final MultiDeBruijnVertex prevVertex) {
+        return kmerToVertexMap.get(sequence, start);
     }
 
     /**
@@ -462,7 +462,7 @@ public class JunctionTreeLinkedDeBruijnGraph extends AbstractReadThreadingGraph
             return;
         }
 
-        final MultiDeBruijnVertex startingVertex = kmerToVertexMap.get(new Kmer(seqForKmers.sequence, startPos, kmerSize));
+        final MultiDeBruijnVertex startingVertex = kmerToVertexMap.get(seqForKmers.sequence, startPos);
 
         // loop over all of the bases in sequence, extending the graph by one base at each point, as appropriate
         MultiDeBruijnVertex lastVertex = startingVertex;
@@ -472,8 +472,7 @@ public class JunctionTreeLinkedDeBruijnGraph extends AbstractReadThreadingGraph
             if (!hasToRediscoverKmer) {
                 vertex = extendJunctionThreadingByOne(lastVertex, seqForKmers.sequence, i, nodeHelper, true);
             } else {
-                Kmer kmer = new Kmer(seqForKmers.sequence, i, kmerSize);
-                vertex = kmerToVertexMap.get(kmer);
+                vertex = kmerToVertexMap.get(seqForKmers.sequence, i);
             }
 
             // If we missed the vertex, attempt to recover the path from the graph if there is no ambiguity
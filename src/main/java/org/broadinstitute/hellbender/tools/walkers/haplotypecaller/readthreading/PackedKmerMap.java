@@ -0,0 +1,376 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Map from kmers of a fixed size to values, which can be queried directly with a range of a larger byte[] without
+ * creating a {@link Kmer} for it.
+ *
+ * Kmers of up to {@link #MAX_PACKED_KMER_SIZE} bases made only of A, C, G and T are packed into a long, 2 bits per
+ * base, and stored in an open-addressing hash table of primitive longs, so that looking them up neither allocates
+ * nor compares byte[]s. Other kmers (longer ones, or ones with Ns or other IUPAC bases) fall back to a regular map
+ * keyed by {@link Kmer}.
+ *
+ * Like a {@link java.util.LinkedHashMap}, {@link #values()} iterates over the values in the order in which their
+ * kmers were first added. Values may not be null.
+ *
+ * @param <V> the type of the values
+ */
+public final class PackedKmerMap<V> {
+
+    /**
+     * Longest kmer that can be packed into a long
+     */
+    public static final int MAX_PACKED_KMER_SIZE = 31;
+
+    /**
+     * Value returned by {@link #pack} for kmers that cannot be packed
+     */
+    public static final long NOT_PACKABLE = -1L;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final int NO_ENTRY = -1;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private static final byte[] BASE_CODES = new byte[256];
+    static {
+        Arrays.fill(BASE_CODES, (byte) -1);
+        BASE_CODES['A'] = 0;
+        BASE_CODES['C'] = 1;
+        BASE_CODES['G'] = 2;
+        BASE_CODES['T'] = 3;
+    }
+
+    private final int kmerSize;
+
+    // open-addressing table (with linear probing) of packed kmers, and for each the index of its value in values
+    private long[] keys;
+    private int[] entries;
+    private int shift;
+    private int packedCount = 0;
+
+    // kmers that can't be packed, and the index of their values in values
+    private final Map<Kmer, Integer> unpackableEntries = new HashMap<>();
+
+    // values in insertion order, with null for removed entries
+    private final List<V> values = new ArrayList<>();
+    private int size = 0;
+    private int removedCount = 0;
+
+    /**
+     * Create an empty map for kmers of size kmerSize
+     *
+     * @param kmerSize the size of the kmers in this map, must be >= 1
+     */
+    public PackedKmerMap(final int kmerSize) {
+        Utils.validateArg(kmerSize > 0, () -> "kmerSize must be > 0 but got " + kmerSize);
+        this.kmerSize = kmerSize;
+        allocateTable(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Pack the bases of a kmer into a long, 2 bits per base
+     *
+     * @param bases an array of bases
+     * @param start the start of the kmer in bases
+     * @param length the length of the kmer
+     * @return the packed kmer, or {@link #NOT_PACKABLE} if the kmer is longer than {@link #MAX_PACKED_KMER_SIZE} or has
+     *         a base other than A, C, G or T
+     */
+    public static long pack(final byte[] bases, final int start, final int length) {
+        if ( length > MAX_PACKED_KMER_SIZE ) {
+            return NOT_PACKABLE;
+        }
+        long packed = 0;
+        for ( int i = start, stop = start + length; i < stop; i++ ) {
+            final int code = BASE_CODES[bases[i] & 0xFF];
+            if ( code < 0 ) {
+                return NOT_PACKABLE;
+            }
+            packed = (packed << 2) | code;
+        }
+        return packed;
+    }
+
+    /**
+     * @return the size of the kmers in this map
+     */
+    public int kmerSize() {
+        return kmerSize;
+    }
+
+    /**
+     * @return the number of kmers in this map
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Get the value for the kmer in bases starting at start
+     *
+     * @param bases an array of bases, with at least kmerSize bases after start
+     * @param start the start of the kmer in bases
+     * @return the value, or null if the kmer is not in this map
+     */
+    public V get(final byte[] bases, final int start) {
+        final int entry = entryOf(bases, start);
+        return entry == NO_ENTRY ? null : values.get(entry);
+    }
+
+    /**
+     * Get the value for a kmer
+     *
+     * @param kmer a non-null kmer
+     * @return the value, or null if the kmer is not in this map (which is always the case if it has the wrong size)
+     */
+    public V get(final Kmer kmer) {
+        return kmer.length() == kmerSize ? get(kmer.bases(), 0) : null;
+    }
+
+    public boolean containsKey(final byte[] bases, final int start) {
+        return entryOf(bases, start) != NO_ENTRY;
+    }
+
+    public boolean containsKey(final Kmer kmer) {
+        return get(kmer) != null;
+    }
+
+    /**
+     * Associate a value with the kmer in bases starting at start.  The bases are copied if needed, so bases may be
+     * modified afterwards.
+     *
+     * @param bases an array of bases, with at least kmerSize bases after start
+     * @param start the start of the kmer in bases
+     * @param value a non-null value
+     * @return the previous value for the kmer, or null if there was none
+     */
+    public V put(final byte[] bases, final int start, final V value) {
+        return put(bases, start, value, true);
+    }
+
+    public V put(final Kmer kmer, final V value) {
+        return put(kmerBases(kmer), 0, value);
+    }
+
+    /**
+     * Associate a value with the kmer in bases starting at start, unless the kmer already has one
+     *
+     * @return the current value for the kmer, or null if there was none (and value was added)
+     */
+    public V putIfAbsent(final byte[] bases, final int start, final V value) {
+        return put(bases, start, value, false);
+    }
+
+    public V putIfAbsent(final Kmer kmer, final V value) {
+        return putIfAbsent(kmerBases(kmer), 0, value);
+    }
+
+    /**
+     * Remove the kmer in bases starting at start from this map
+     *
+     * @return the value of the kmer, or null if it was not in this map
+     */
+    public V remove(final byte[] bases, final int start) {
+        final long key = pack(bases, start, kmerSize);
+        final V removed;
+        if ( key == NOT_PACKABLE ) {
+            final Integer entry = unpackableEntries.isEmpty() ? null : unpackableEntries.remove(new Kmer(bases, start, kmerSize));
+            if ( entry == null ) {
+                return null;
+            }
+            removed = removeValue(entry);
+        } else {
+            final int slot = slotOf(key);
+            if ( entries[slot] == NO_ENTRY ) {
+                return null;
+            }
+            removed = removeValue(entries[slot]);
+            deleteSlot(slot);
+            packedCount--;
+        }
+
+        if ( removedCount > INITIAL_CAPACITY && removedCount > size ) {
+            compactValues();
+        }
+        return removed;
+    }
+
+    public V remove(final Kmer kmer) {
+        return kmer.length() == kmerSize ? remove(kmer.bases(), 0) : null;
+    }
+
+    /**
+     * Remove all kmers from this map
+     */
+    public void clear() {
+        Arrays.fill(entries, NO_ENTRY);
+        packedCount = 0;
+        unpackableEntries.clear();
+        values.clear();
+        size = 0;
+        removedCount = 0;
+    }
+
+    /**
+     * @return an unmodifiable view of the values of this map, in the order in which their kmers were added
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return values.stream().filter(Objects::nonNull).iterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "PackedKmerMap{kmerSize=" + kmerSize + ", size=" + size + ", unpackable=" + unpackableEntries.size() + '}';
+    }
+
+    private byte[] kmerBases(final Kmer kmer) {
+        Utils.validateArg(kmer.length() == kmerSize, () -> "bad kmer length " + kmer + " expected size " + kmerSize);
+        return kmer.bases();
+    }
+
+    private int entryOf(final byte[] bases, final int start) {
+        final long key = pack(bases, start, kmerSize);
+        if ( key == NOT_PACKABLE ) {
+            if ( unpackableEntries.isEmpty() ) {
+                return NO_ENTRY;
+            }
+            final Integer entry = unpackableEntries.get(new Kmer(bases, start, kmerSize));
+            return entry == null ? NO_ENTRY : entry;
+        }
+        return entries[slotOf(key)];
+    }
+
+    private V put(final byte[] bases, final int start, final V value, final boolean replace) {
+        Utils.nonNull(value, "value cannot be null");
+        final long key = pack(bases, start, kmerSize);
+        if ( key == NOT_PACKABLE ) {
+            final Kmer kmer = new Kmer(Arrays.copyOfRange(bases, start, start + kmerSize));
+            final Integer entry = unpackableEntries.get(kmer);
+            if ( entry != null ) {
+                return replace ? values.set(entry, value) : values.get(entry);
+            }
+            unpackableEntries.put(kmer, addValue(value));
+            return null;
+        }
+
+        final int slot = slotOf(key);
+        if ( entries[slot] != NO_ENTRY ) {
+            return replace ? values.set(entries[slot], value) : values.get(entries[slot]);
+        }
+        keys[slot] = key;
+        entries[slot] = addValue(value);
+        packedCount++;
+        // keep the load factor under 1/2, so that probe sequences stay short
+        if ( 2 * packedCount > keys.length ) {
+            resizeTable(2 * keys.length);
+        }
+        return null;
+    }
+
+    private int addValue(final V value) {
+        values.add(value);
+        size++;
+        return values.size() - 1;
+    }
+
+    private V removeValue(final int entry) {
+        size--;
+        removedCount++;
+        return values.set(entry, null);
+    }
+
+    private int homeSlot(final long key) {
+        return (int) ((key * HASH_MULTIPLIER) >>> shift);
+    }
+
+    // the slot holding key, or the empty slot where it would go
+    private int slotOf(final long key) {
+        final int mask = keys.length - 1;
+        int slot = homeSlot(key);
+        while ( entries[slot] != NO_ENTRY && keys[slot] != key ) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // empty a slot, moving back any entries further along the probe sequence which may no longer be reachable
+    private void deleteSlot(final int slot) {
+        final int mask = keys.length - 1;
+        int hole = slot;
+        for ( int next = (hole + 1) & mask; entries[next] != NO_ENTRY; next = (next + 1) & mask ) {
+            if ( ((next - homeSlot(keys[next])) & mask) >= ((next - hole) & mask) ) {
+                keys[hole] = keys[next];
+                entries[hole] = entries[next];
+                hole = next;
+            }
+        }
+        entries[hole] = NO_ENTRY;
+    }
+
+    private void allocateTable(final int capacity) {
+        keys = new long[capacity];
+        entries = new int[capacity];
+        Arrays.fill(entries, NO_ENTRY);
+        shift = Long.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    private void resizeTable(final int capacity) {
+        final long[] oldKeys = keys;
+        final int[] oldEntries = entries;
+        allocateTable(capacity);
+        for ( int i = 0; i < oldKeys.length; i++ ) {
+            if ( oldEntries[i] != NO_ENTRY ) {
+                final int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                entries[slot] = oldEntries[i];
+            }
+        }
+    }
+
+    // drop the removed entries from values, renumbering the remaining entries
+    private void compactValues() {
+        final int[] newEntries = new int[values.size()];
+        final List<V> remaining = new ArrayList<>(size);
+        for ( int i = 0; i < values.size(); i++ ) {
+            if ( values.get(i) != null ) {
+                newEntries[i] = remaining.size();
+                remaining.add(values.get(i));
+            }
+        }
+        for ( int slot = 0; slot < entries.length; slot++ ) {
+            if ( entries[slot] != NO_ENTRY ) {
+                entries[slot] = newEntries[entries[slot]];
+            }
+        }
+        unpackableEntries.replaceAll((kmer, entry) -> newEntries[entry]);
+        values.clear();
+        values.addAll(remaining);
+        removedCount = 0;
+    }
+}
@@ -22,12 +22,17 @@ import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
 import org.broadinstitute.hellbender.utils.read.CigarUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public final class ReadThreadingAssembler {
@@ -64,6 +69,7 @@ public final class ReadThreadingAssembler {
     
     protected byte minBaseQualityToUseInAssembly = DEFAULT_MIN_BASE_QUALITY_TO_USE;
     private int pruneFactor;
+    // shared by the graph creations for different kmer sizes, which may run concurrently; ChainPruners are stateless
     private final ChainPruner<MultiDeBruijnVertex, MultiSampleEdge> chainPruner;
 
     private File debugGraphOutputPath = null;  //Where to write debug graphs, if unset it defaults to the current working dir
@@ -72,6 +78,10 @@ public final class ReadThreadingAssembler {
     private Histogram haplotypeHistogram = null;
     private Histogram kmersUsedHistogram = null;
 
+    private int assemblyThreads = 1;
+    // pool on which the graphs for different kmer sizes are built, or null to build them on the calling thread
+    private ForkJoinPool assemblyPool = null;
+
     public ReadThreadingAssembler(final int maxAllowedPathsForReadThreadingAssembler, final List<Integer> kmerSizes,
                                   final boolean dontIncreaseKmerSizesForCycles, final boolean allowNonUniqueKmersInRef,
                                   final int numPruningSamples, final int pruneFactor, final boolean useAdaptivePruning,
@@ -131,6 +141,9 @@ public final class ReadThreadingAssembler {
 
         // Note that error correction does not modify the original reads, which are used for genotyping
         final List<GATKRead> correctedReads = readErrorCorrector == null ? assemblyRegion.getReads() : readErrorCorrector.correctReads(assemblyRegion.getReads());
+        if ( assemblyPool != null ) {
+            prepareReadsForConcurrentAccess(correctedReads, header);
+        }
 
         final List<AbstractReadThreadingGraph> nonRefRTGraphs = new LinkedList<>();
         final List<SeqGraph> nonRefSeqGraphs = new LinkedList<>();
@@ -211,12 +224,17 @@ public final class ReadThreadingAssembler {
 
         boolean hasAdequatelyAssembledGraph = false;
         List<Integer> kmersToTry = getExpandedKmerList();
-        // first, try using the requested kmer sizes
+        final List<Supplier<AssemblyResult>> graphCreations = new ArrayList<>(kmersToTry.size());
         for ( int i = 0; i < kmersToTry.size(); i++ ) {
             final int kmerSize = kmersToTry.get(i);
             final boolean isLastCycle = i == kmersToTry.size() - 1;
+            graphCreations.add(() -> createGraph(correctedReads, refHaplotype, kmerSize, isLastCycle || dontIncreaseKmerSizesForCycles, isLastCycle || allowNonUniqueKmersInRef, header, aligner));
+        }
+        final GraphCreations graphs = new GraphCreations(graphCreations);
+        // first, try using the requested kmer sizes
+        for ( int i = 0; i < kmersToTry.size(); i++ ) {
             if (!hasAdequatelyAssembledGraph) {
-                AssemblyResult assembledResult = createGraph(correctedReads, refHaplotype, kmerSize, isLastCycle || dontIncreaseKmerSizesForCycles, isLastCycle || allowNonUniqueKmersInRef, header, aligner);
+                AssemblyResult assembledResult = graphs.get(i);
                 if (assembledResult != null && assembledResult.getStatus() == AssemblyResult.Status.ASSEMBLED_SOME_VARIATION) {
                     // do some QC on the graph
                     sanityCheckGraph(assembledResult.getThreadingGraph(), refHaplotype);
@@ -256,6 +274,7 @@ public final class ReadThreadingAssembler {
                 }
             }
         }
+        graphs.cancelRemaining();
 
 
         // This indicates that we have thrown everything away... we should go back and check that we weren't too conservative about assembly results that might otherwise be good
@@ -530,21 +549,29 @@ public final class ReadThreadingAssembler {
         final List<AssemblyResult> results = new LinkedList<>();
 
         // first, try using the requested kmer sizes
-        for ( final int kmerSize : kmerSizes ) {
-            addResult(results, createGraph(reads, refHaplotype, kmerSize, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header, aligner));
+        final GraphCreations requestedGraphs = new GraphCreations(kmerSizes.stream()
+                .map(kmerSize -> (Supplier<AssemblyResult>) () -> createGraph(reads, refHaplotype, kmerSize, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header, aligner))
+                .collect(Collectors.toList()));
+        for ( int i = 0; i < kmerSizes.size(); i++ ) {
+            addResult(results, requestedGraphs.get(i));
         }
 
         // if none of those worked, iterate over larger sizes if allowed to do so
         if ( results.isEmpty() && !dontIncreaseKmerSizesForCycles ) {
+            final List<Supplier<AssemblyResult>> largerGraphCreations = new ArrayList<>(MAX_KMER_ITERATIONS_TO_ATTEMPT);
             int kmerSize = arrayMaxInt(kmerSizes) + KMER_SIZE_ITERATION_INCREASE;
-            int numIterations = 1;
-            while ( results.isEmpty() && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT ) {
+            for ( int numIterations = 1; numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT; numIterations++ ) {
                 // on the last attempt we will allow low complexity graphs
                 final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
-                addResult(results, createGraph(reads, refHaplotype, kmerSize, lastAttempt, lastAttempt, header, aligner));
+                final int largerKmerSize = kmerSize;
+                largerGraphCreations.add(() -> createGraph(reads, refHaplotype, largerKmerSize, lastAttempt, lastAttempt, header, aligner));
                 kmerSize += KMER_SIZE_ITERATION_INCREASE;
-                numIterations++;
             }
+            final GraphCreations largerGraphs = new GraphCreations(largerGraphCreations);
+            for ( int i = 0; results.isEmpty() && i < largerGraphCreations.size(); i++ ) {
+                addResult(results, largerGraphs.get(i));
+            }
+            largerGraphs.cancelRemaining();
         }
 
         return results;
@@ -568,6 +595,62 @@ public final class ReadThreadingAssembler {
         return returnList;
     }
 
+    /**
+     * Graph creations for successive kmer sizes, which are consumed in order.  When there are assembly threads, the
+     * creations run concurrently on the assembly pool, up to assemblyThreads of them ahead of the one being consumed,
+     * so that the graph for the next kmer size is often ready by the time it turns out to be needed.  Each creation
+     * builds its own graph from the same reads, which are only read, so the results are the same as when running them
+     * one after the other.
+     */
+    private final class GraphCreations {
+        private final List<Supplier<AssemblyResult>> creations;
+        private final List<ForkJoinTask<AssemblyResult>> started = new ArrayList<>();
+        private int consumed = 0;
+
+        GraphCreations(final List<Supplier<AssemblyResult>> creations) {
+            this.creations = creations;
+        }
+
+        /**
+         * @param i index of the creation, which must be greater than that of any creation consumed before
+         * @return the result of the creation, which may be null
+         */
+        AssemblyResult get(final int i) {
+            Utils.validateArg(i >= consumed, "graph creations must be consumed in order");
+            consumed = i + 1;
+            if ( assemblyPool == null ) {
+                return creations.get(i).get();
+            }
+            while ( started.size() < Math.min(creations.size(), i + assemblyThreads) ) {
+                final Callable<AssemblyResult> creation = creations.get(started.size())::get;
+                started.add(assemblyPool.submit(creation));
+            }
+            return started.get(i).join();
+        }
+
+        /**
+         * Cancel the creations that were started ahead but won't be consumed; those already running finish anyway
+         */
+        void cancelRemaining() {
+            for ( int i = consumed; i < started.size(); i++ ) {
+                started.get(i).cancel(false);
+            }
+        }
+    }
+
+    /**
+     * GATKReads may decode some of their fields lazily on first access, so access everything that building a graph
+     * reads from them on this thread, before graphs for different kmer sizes read them concurrently
+     */
+    private static void prepareReadsForConcurrentAccess(final List<GATKRead> reads, final SAMFileHeader header) {
+        for ( final GATKRead read : reads ) {
+            read.getBasesNoCopy();
+            read.getBaseQualitiesNoCopy();
+            read.getName();
+            ReadUtils.getSampleName(read, header);
+        }
+    }
+
     private static int arrayMaxInt(final List<Integer> array) {
         return array.stream().mapToInt(Integer::intValue).max().orElseThrow(() -> new IllegalArgumentException("Array size cannot be 0!"));
     }
@@ -800,6 +883,36 @@ public final class ReadThreadingAssembler {
         this.kmersUsedHistogram = new Histogram(1.0);
     }
 
+    /**
+     * Set the number of threads on which the graphs for the different kmer sizes of each region are built.  Graphs are
+     * still considered in order of kmer size, so the results don't depend on the number of threads.
+     *
+     * @param assemblyThreads number of threads, must be >= 1
+     */
+    public void setAssemblyThreads(final int assemblyThreads) {
+        Utils.validateArg(assemblyThreads >= 1, () -> "assemblyThreads must be >= 1 but got " + assemblyThreads);
+        shutdown();
+        this.assemblyThreads = assemblyThreads;
+        if ( assemblyThreads > 1 ) {
+            assemblyPool = new ForkJoinPool(assemblyThreads);
+        }
+    }
+
+    public int getAssemblyThreads() {
+        return assemblyThreads;
+    }
+
+    /**
+     * Stop the threads used to build graphs, if any.  Graphs are built on the calling thread afterwards.
+     */
+    public void shutdown() {
+        if ( assemblyPool != null ) {
+            assemblyPool.shutdownNow();
+            assemblyPool = null;
+        }
+        assemblyThreads = 1;
+    }
+
     public void setDebugGraphTransformations(final boolean debugHaplotypeFinding) {
         this.debugGraphTransformations = debugHaplotypeFinding;
     }
@@ -25,9 +25,9 @@ public class ReadThreadingGraph extends AbstractReadThreadingGraph {
     private static final long serialVersionUID = 1l;
 
     /**
-     * A set of non-unique kmers that cannot be used as merge points in the graph
+     * A set of non-unique kmers that cannot be used as merge points in the graph (each mapped to itself)
      */
-    protected Set<Kmer> nonUniqueKmers;
+    protected PackedKmerMap<Kmer> nonUniqueKmers;
 
     /**
      * Constructs an empty read-threading-grpah provided the kmerSize.
@@ -87,9 +87,9 @@ public class ReadThreadingGraph extends AbstractReadThreadingGraph {
 
     // only add the new kmer to the map if it exists and isn't in our non-unique kmer list
     @Override
-    protected void trackKmer(final Kmer kmer, final MultiDeBruijnVertex newVertex) {
-        if ( ! nonUniqueKmers.contains(kmer) && ! kmerToVertexMap.containsKey(kmer) ) {
-            kmerToVertexMap.put(kmer, newVertex);
+    protected void trackKmer(final byte[] kmer, final MultiDeBruijnVertex newVertex) {
+        if ( ! nonUniqueKmers.containsKey(kmer, 0) ) {
+            kmerToVertexMap.putIfAbsent(kmer, 0, newVertex);
         }
     }
 
@@ -103,12 +103,13 @@ public class ReadThreadingGraph extends AbstractReadThreadingGraph {
      *
      * @see #setThreadingStartOnlyAtExistingVertex(boolean)
      *
-     * @param kmer the query kmer.
+     * @param sequence the sequence containing the query kmer.
+     * @param start the start of the query kmer in sequence.
      * @return {@code true} if we can start thread the sequence at this kmer, {@code false} otherwise.
      */
-    protected boolean isThreadingStart(final Kmer kmer, final boolean startThreadingOnlyAtExistingVertex) {
-        Utils.nonNull(kmer);
-        return startThreadingOnlyAtExistingVertex ? kmerToVertexMap.containsKey(kmer) : !nonUniqueKmers.contains(kmer);
+    protected boolean isThreadingStart(final byte[] sequence, final int start, final boolean startThreadingOnlyAtExistingVertex) {
+        Utils.nonNull(sequence);
+        return startThreadingOnlyAtExistingVertex ? kmerToVertexMap.containsKey(sequence, start) : !nonUniqueKmers.containsKey(sequence, start);
     }
 
     /**
@@ -119,8 +120,8 @@ public class ReadThreadingGraph extends AbstractReadThreadingGraph {
      * @param kmerSize the kmer size to check for non-unique kmers of
      * @return a non-null NonUniqueResult
      */
-    private static Set<Kmer> determineNonUniques(final int kmerSize, Collection<SequenceForKmers> withNonUniques) {
-        final Set<Kmer> nonUniqueKmers = new HashSet<>();
+    private static PackedKmerMap<Kmer> determineNonUniques(final int kmerSize, Collection<SequenceForKmers> withNonUniques) {
+        final PackedKmerMap<Kmer> nonUniqueKmers = new PackedKmerMap<>(kmerSize);
 
         // loop over all sequences that have non-unique kmers in them from the previous iterator
         final Iterator<SequenceForKmers> it = withNonUniques.iterator();
@@ -134,7 +135,7 @@ public class ReadThreadingGraph extends AbstractReadThreadingGraph {
                 it.remove();
             } else {
                 // keep track of the non-uniques for this kmerSize, and keep it in the list of sequences that have non-uniques
-                nonUniqueKmers.addAll(nonUniquesFromSeq);
+                nonUniquesFromSeq.forEach(kmer -> nonUniqueKmers.putIfAbsent(kmer, kmer));
             }
         }
 
@@ -157,13 +158,12 @@ public class ReadThreadingGraph extends AbstractReadThreadingGraph {
      */
     static Collection<Kmer> determineNonUniqueKmers(final SequenceForKmers seqForKmers, final int kmerSize) {
         // count up occurrences of kmers within each read
-        final Set<Kmer> allKmers = new LinkedHashSet<>();
+        final PackedKmerMap<Boolean> allKmers = new PackedKmerMap<>(kmerSize);
         final List<Kmer> nonUniqueKmers = new ArrayList<>();
         final int stopPosition = seqForKmers.stop - kmerSize;
         for (int i = 0; i <= stopPosition; i++) {
-            final Kmer kmer = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if (!allKmers.add(kmer)) {
-                nonUniqueKmers.add(kmer);
+            if (allKmers.putIfAbsent(seqForKmers.sequence, i, Boolean.TRUE) != null) {
+                nonUniqueKmers.add(new Kmer(seqForKmers.sequence, i, kmerSize));
             }
         }
         return nonUniqueKmers;
@@ -181,12 +181,12 @@ public class ReadThreadingGraph extends AbstractReadThreadingGraph {
      */
     @VisibleForTesting
     Set<Kmer> getNonUniqueKmers() {
-        return nonUniqueKmers;
+        return new LinkedHashSet<>(nonUniqueKmers.values());
     }
 
     @Override
-    protected MultiDeBruijnVertex getNextKmerVertexForChainExtension(final Kmer kmer, final boolean isRef, final MultiDeBruijnVertex prevVertex) {
-        final MultiDeBruijnVertex uniqueMergeVertex = getKmerVertex(kmer, false);
+    protected MultiDeBruijnVertex getNextKmerVertexForChainExtension(final byte[] sequence, final int start, final boolean isRef, final MultiDeBruijnVertex prevVertex) {
+        final MultiDeBruijnVertex uniqueMergeVertex = getKmerVertex(sequence, start, false);
 
         Utils.validate(!(isRef && uniqueMergeVertex != null), "Found a unique vertex to merge into the reference graph " + prevVertex + " -> " + uniqueMergeVertex);
 
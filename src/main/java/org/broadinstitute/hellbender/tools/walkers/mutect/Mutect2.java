@@ -23,6 +23,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 /**
  * <p>Call somatic short mutations via local assembly of haplotypes.
@@ -248,8 +249,8 @@ public final class Mutect2 extends AssemblyRegionWalker {
     }
 
     @Override
-    protected ReadsDownsampler createDownsampler() {
-        return new MutectDownsampler(assemblyRegionArgs.maxReadsPerAlignmentStart, MTAC.maxSuspiciousReadsPerAlignmentStart, MTAC.downsamplingStride);
+    protected ReadsDownsampler createDownsampler(final Random random) {
+        return new MutectDownsampler(assemblyRegionArgs.maxReadsPerAlignmentStart, MTAC.maxSuspiciousReadsPerAlignmentStart, MTAC.downsamplingStride, random);
     }
 
     @Override
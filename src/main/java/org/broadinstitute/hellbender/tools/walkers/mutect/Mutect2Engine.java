@@ -348,6 +348,7 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator {
 
     public void shutdown() {
         likelihoodCalculationEngine.close();
+        assemblyEngine.shutdown();
         aligner.close();
         haplotypeBAMWriter.ifPresent(writer -> writer.close());
         referenceReader.close();
@@ -89,6 +89,11 @@ public class SomaticReferenceConfidenceModel extends ReferenceConfidenceModel {
         return result;
     }
 
+    @Override
+    protected boolean sweepsReadsForRefConfidence() {
+        return false;
+    }
+
     @Override
     public void addGenotypeData(final ReferenceConfidenceResult result, final GenotypeBuilder gb) {
         gb.attribute(GATKVCFConstants.TUMOR_LOG_10_ODDS_KEY, MathUtils.logToLog10(((SomaticRefVsAnyResult)result).lods.get(Allele.NON_REF_ALLELE)));
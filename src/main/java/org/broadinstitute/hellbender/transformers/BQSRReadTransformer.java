@@ -16,6 +16,7 @@ import org.broadinstitute.hellbender.utils.recalibration.covariates.ReadCovariat
 import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
 
 import java.io.File;
+import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -28,24 +29,19 @@ public final class BQSRReadTransformer implements ReadTransformer {
     private static final long serialVersionUID = 1L;
 
     private final QuantizationInfo quantizationInfo; // histogram containing the map for qual quantization (calculated after recalibration is done)
-    private final RecalibrationTables recalibrationTables;
     private final StandardCovariateList covariates; // list of all covariates to be used in this calculation
     private final SAMFileHeader header;
     
     private final int preserveQLessThan;
-    private final double globalQScorePrior;
     private final boolean emitOriginalQuals;
 
-    //These fields are created to avoid redoing these calculations for every read
-    private final int totalCovariateCount;
-    private final int specialCovariateCount;
-
     private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
 
-    //Note: varargs allocates a new array every time. We'll pre-allocate one array and reuse it to avoid object allocation for every base of every read.
-    private final RecalDatum[] empiricalQualCovsArgs;
     private final boolean useOriginalBaseQualities;
 
+    // recalibrated qualities of the bases for every combination of covariate values, computed from the recalibration tables
+    private final RecalibratedQualityLookup recalibratedQualityLookup;
+
     private byte[] staticQuantizedMapping;
     private final CovariateKeyCache keyCache;
 
@@ -71,7 +67,6 @@ public final class BQSRReadTransformer implements ReadTransformer {
      */
     private BQSRReadTransformer(final SAMFileHeader header, final RecalibrationTables recalibrationTables, final QuantizationInfo quantizationInfo, final StandardCovariateList covariates, final ApplyBQSRArgumentCollection args) {
         this.header = header;
-        this.recalibrationTables = recalibrationTables;
         this.covariates = covariates;
         this.quantizationInfo = quantizationInfo;
 
@@ -82,7 +77,6 @@ public final class BQSRReadTransformer implements ReadTransformer {
         }
 
         this.preserveQLessThan = args.PRESERVE_QSCORES_LESS_THAN;
-        this.globalQScorePrior = args.globalQScorePrior;
         this.emitOriginalQuals = args.emitOriginalQuals;
         this.useOriginalBaseQualities = args.useOriginalBaseQualities;
 
@@ -92,11 +86,15 @@ public final class BQSRReadTransformer implements ReadTransformer {
             staticQuantizedMapping = constructStaticQuantizedMapping(args.staticQuantizationQuals, args.roundDown);
         }
 
-        totalCovariateCount = covariates.size();
-        specialCovariateCount = covariates.numberOfSpecialCovariates();
+        // the quality given to a base whose recalibrated quality rounds to each value (after dynamic and static quantization)
+        final List<Byte> quantizedQuals = quantizationInfo.getQuantizedQuals();
+        final byte[] finalQuals = new byte[MAX_RECALIBRATED_Q_SCORE + 1];
+        for (int qual = 0; qual <= MAX_RECALIBRATED_Q_SCORE; qual++) {
+            final byte quantizedQual = quantizedQuals.get(qual);
+            finalQuals[qual] = staticQuantizedMapping == null ? quantizedQual : staticQuantizedMapping[quantizedQual];
+        }
+        recalibratedQualityLookup = new RecalibratedQualityLookup(recalibrationTables, covariates, args.globalQScorePrior, finalQuals);
 
-        //Note: We pre-create the varargs arrays that will be used in the calls. Otherwise we're spending a lot of time allocating those int[] objects
-        empiricalQualCovsArgs = new RecalDatum[totalCovariateCount - specialCovariateCount];
         keyCache = new CovariateKeyCache();//one cache per transformer
     }
 
@@ -154,18 +152,12 @@ public final class BQSRReadTransformer implements ReadTransformer {
         // the rg key is constant over the whole read, the global deltaQ is too
         final int rgKey = fullReadKeySet[0][0];
 
-        final RecalDatum empiricalQualRG = recalibrationTables.getReadGroupTable().get2Keys(rgKey, BASE_SUBSTITUTION_INDEX);
-
-        if (empiricalQualRG == null) {
+        if (!recalibratedQualityLookup.hasReadGroup(rgKey)) {
             return read;
         }
         final byte[] quals = read.getBaseQualities();
 
         final int readLength = quals.length;
-        final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
-
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalibrationTables.getQualityScoreTable();
-        final List<Byte> quantizedQuals = quantizationInfo.getQuantizedQuals();
 
         //Note: this loop is under very heavy use in applyBQSR. Keep it slim.
         for (int offset = 0; offset < readLength; offset++) { // recalibrate all bases in the read
@@ -174,33 +166,12 @@ public final class BQSRReadTransformer implements ReadTransformer {
             if (quals[offset] < preserveQLessThan) {
                 continue;
             }
-            Arrays.fill(empiricalQualCovsArgs, null);  //clear the array
-            final int[] keySet = fullReadKeySet[offset];
-
-
-            final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(keySet[0], keySet[1], BASE_SUBSTITUTION_INDEX);
-
-            for (int i = specialCovariateCount; i < totalCovariateCount; i++) {
-                if (keySet[i] >= 0) {
-                    empiricalQualCovsArgs[i - specialCovariateCount] = recalibrationTables.getTable(i).get4Keys(keySet[0], keySet[1], keySet[i], BASE_SUBSTITUTION_INDEX);
-                }
-            }
-            final double recalibratedQualDouble = hierarchicalBayesianQualityEstimate(epsilon, empiricalQualRG, empiricalQualQS, empiricalQualCovsArgs);
-
-            final byte recalibratedQualityScore = quantizedQuals.get(getRecalibratedQual(recalibratedQualDouble));
-
-            // Bin to static quals
-            quals[offset] = staticQuantizedMapping == null ? recalibratedQualityScore : staticQuantizedMapping[recalibratedQualityScore];
+            quals[offset] = recalibratedQualityLookup.recalibratedQual(fullReadKeySet[offset]);
         }
         read.setBaseQualities(quals);
         return read;
     }
 
-    // recalibrated quality is bound between 1 and MAX_QUAL
-    private byte getRecalibratedQual(final double recalibratedQualDouble) {
-        return boundQual(fastRound(recalibratedQualDouble), MAX_RECALIBRATED_Q_SCORE);
-    }
-
     public static double hierarchicalBayesianQualityEstimate( final double epsilon,
                                                               final RecalDatum empiricalQualRG,
                                                               final RecalDatum empiricalQualQS,
@@ -289,4 +260,114 @@ public final class BQSRReadTransformer implements ReadTransformer {
         }
         return bytes;
     }
+
+    /**
+     * The recalibrated quality of a base, given its covariate keys, as a few array lookups.
+     *
+     * The estimate of {@link #hierarchicalBayesianQualityEstimate} is a prior that only depends on the read group and
+     * the reported quality, plus one term per additional covariate that only depends on the read group, the reported
+     * quality and the key of that covariate. Since the tables don't change while reads are recalibrated, the priors and
+     * terms are computed once for every combination of keys in the tables, rather than for every base. The sums are
+     * done in the same order as in {@link #hierarchicalBayesianQualityEstimate}, so the qualities are identical to those
+     * it gives. Keys outside of the tables contribute nothing, as when their datums are missing.
+     */
+    private static final class RecalibratedQualityLookup implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int specialCovariateCount;
+        private final int numReadGroups;
+        private final int qualDimension;
+
+        // prior when there is no datum for the reported quality, by read group (NaN when there's no datum for the read group)
+        private final double[] readGroupPriors;
+
+        // prior for the additional covariates, by read group and reported quality
+        private final double[] conditionalPriors;
+
+        // for each additional covariate, its number of keys and its terms by read group and reported quality (null when
+        // there are no datums for them), and then by key
+        private final int[] covariateDimensions;
+        private final double[][][] covariateTerms;
+
+        private final byte[] finalQuals;
+
+        RecalibratedQualityLookup(final RecalibrationTables tables, final StandardCovariateList covariates, final double globalQScorePrior, final byte[] finalQuals) {
+            this.specialCovariateCount = covariates.numberOfSpecialCovariates();
+            this.finalQuals = finalQuals;
+            final NestedIntegerArray<RecalDatum> readGroupTable = tables.getReadGroupTable();
+            final NestedIntegerArray<RecalDatum> qualityScoreTable = tables.getQualityScoreTable();
+            numReadGroups = readGroupTable.getDimensions()[0];
+            qualDimension = qualityScoreTable.getDimensions()[1];
+
+            readGroupPriors = new double[numReadGroups];
+            conditionalPriors = new double[numReadGroups * qualDimension];
+            Arrays.fill(readGroupPriors, Double.NaN);
+            for (int rg = 0; rg < numReadGroups; rg++) {
+                final RecalDatum empiricalQualRG = readGroupTable.get2Keys(rg, BASE_SUBSTITUTION_INDEX);
+                if (empiricalQualRG == null) {
+                    continue;
+                }
+                final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
+                final double globalDeltaQ = empiricalQualRG.getEmpiricalQuality(epsilon) - epsilon;
+                readGroupPriors[rg] = 0.0 + globalDeltaQ + epsilon;
+                for (int qual = 0; qual < qualDimension; qual++) {
+                    final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(rg, qual, BASE_SUBSTITUTION_INDEX);
+                    final double deltaQReported = empiricalQualQS == null ? 0.0 : empiricalQualQS.getEmpiricalQuality(globalDeltaQ + epsilon) - (globalDeltaQ + epsilon);
+                    conditionalPriors[rg * qualDimension + qual] = deltaQReported + globalDeltaQ + epsilon;
+                }
+            }
+
+            final int additionalCovariateCount = covariates.size() - specialCovariateCount;
+            covariateDimensions = new int[additionalCovariateCount];
+            covariateTerms = new double[additionalCovariateCount][][];
+            for (int i = 0; i < additionalCovariateCount; i++) {
+                final NestedIntegerArray<RecalDatum> table = tables.getTable(specialCovariateCount + i);
+                covariateDimensions[i] = table.getDimensions()[2];
+                covariateTerms[i] = new double[numReadGroups * qualDimension][];
+                for (final NestedIntegerArray.Leaf<RecalDatum> leaf : table.getAllLeaves()) {
+                    final int rg = leaf.keys[0];
+                    if (leaf.keys[3] != BASE_SUBSTITUTION_INDEX || Double.isNaN(readGroupPriors[rg])) {
+                        continue;
+                    }
+                    final int block = rg * qualDimension + leaf.keys[1];
+                    if (covariateTerms[i][block] == null) {
+                        covariateTerms[i][block] = new double[covariateDimensions[i]];
+                    }
+                    final double conditionalPrior2 = conditionalPriors[block];
+                    covariateTerms[i][block][leaf.keys[2]] = leaf.value.getEmpiricalQuality(conditionalPrior2) - conditionalPrior2;
+                }
+            }
+        }
+
+        boolean hasReadGroup(final int rgKey) {
+            return rgKey < numReadGroups && !Double.isNaN(readGroupPriors[rgKey]);
+        }
+
+        /**
+         * @param keySet the covariate keys of a base of a read whose read group is in the tables
+         * @return the recalibrated (and quantized) quality of the base
+         */
+        byte recalibratedQual(final int[] keySet) {
+            final int rgKey = keySet[0];
+            final int qualKey = keySet[1];
+            if (qualKey >= qualDimension) {
+                return finalQual(readGroupPriors[rgKey] + 0.0);
+            }
+            final int block = rgKey * qualDimension + qualKey;
+            double deltaQCovariates = 0.0;
+            for (int i = 0; i < covariateTerms.length; i++) {
+                final int key = keySet[specialCovariateCount + i];
+                final double[] terms = covariateTerms[i][block];
+                if (terms != null && key >= 0 && key < covariateDimensions[i]) {
+                    deltaQCovariates += terms[key];
+                }
+            }
+            return finalQual(conditionalPriors[block] + deltaQCovariates);
+        }
+
+        // recalibrated quality is bound between 1 and MAX_QUAL
+        private byte finalQual(final double recalibratedQualDouble) {
+            return finalQuals[boundQual(fastRound(recalibratedQualDouble), MAX_RECALIBRATED_Q_SCORE)];
+        }
+    }
 }
@@ -22,6 +22,7 @@ public final class MutectDownsampler extends ReadsDownsampler {
 
     private GATKRead firstReadInStride;
 
+    private final Random random;
 
     /**
      * @param maxReadsPerAlignmentStart Maximum number of reads per alignment start position. Must be > 0
@@ -30,6 +31,18 @@ public final class MutectDownsampler extends ReadsDownsampler {
     public MutectDownsampler(final int maxReadsPerAlignmentStart,
                              final int maxSuspiciousReadsPerAlignmentStart,
                              final int stride) {
+        this(maxReadsPerAlignmentStart, maxSuspiciousReadsPerAlignmentStart, stride, Utils.getRandomGenerator());
+    }
+
+    /**
+     * @param maxReadsPerAlignmentStart Maximum number of reads per alignment start position. Must be > 0
+     * @param stride Length in bases constituting a single pool of reads to downsample
+     * @param random source of the random choices of which reads to keep. Non-null.
+     */
+    public MutectDownsampler(final int maxReadsPerAlignmentStart,
+                             final int maxSuspiciousReadsPerAlignmentStart,
+                             final int stride,
+                             final Random random) {
         // convert coverage per base to coverage per stride
         maxCoverage = maxReadsPerAlignmentStart <= 0 ? Integer.MAX_VALUE : (maxReadsPerAlignmentStart * stride);
         this.stride = ParamUtils.isPositive(stride, "stride must be > 0");
@@ -39,6 +52,7 @@ public final class MutectDownsampler extends ReadsDownsampler {
         finalizedReads = new ArrayList<>();
         rejectAllReadsInStride = false;
         suspiciousReadCount = new MutableInt(0);
+        this.random = Utils.nonNull(random);
 
         clearItems();
         resetStats();
@@ -92,7 +106,7 @@ public final class MutectDownsampler extends ReadsDownsampler {
             } else {
                 // if we exceed the max coverage, just use well-mapped reads.  Maybe the number of such reads won't reach
                 // the desired coverage, but if the region is decently mappable the shortfall will be minor.
-                final ReservoirDownsampler wellMappedDownsampler = new ReservoirDownsampler(maxCoverage, false);
+                final ReservoirDownsampler wellMappedDownsampler = new ReservoirDownsampler(maxCoverage, false, random);
                 pendingReads.stream().filter(read -> read.getMappingQuality() > SUSPICIOUS_MAPPING_QUALITY).forEach(wellMappedDownsampler::submit);
                 wellMappedDownsampler.signalEndOfInput();
                 final List<GATKRead> readsToFinalize = wellMappedDownsampler.consumeFinalizedItems();
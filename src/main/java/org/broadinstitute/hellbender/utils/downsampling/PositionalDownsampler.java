@@ -10,6 +10,7 @@ import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Random;
 
 
 /**
@@ -31,16 +32,27 @@ public final class PositionalDownsampler extends ReadsDownsampler {
     private List<GATKRead> finalizedReads;
 
     /**
-     * Construct a PositionalDownsampler
+     * Construct a PositionalDownsampler that makes its random choices with the GATK random number generator
      *
      * @param targetCoverage Maximum number of reads that may share any given alignment start position. Must be > 0
      * @param header SAMFileHeader to use to determine contig ordering. Non-null.
      */
     public PositionalDownsampler( final int targetCoverage, final SAMFileHeader header ) {
+        this(targetCoverage, header, Utils.getRandomGenerator());
+    }
+
+    /**
+     * Construct a PositionalDownsampler
+     *
+     * @param targetCoverage Maximum number of reads that may share any given alignment start position. Must be > 0
+     * @param header SAMFileHeader to use to determine contig ordering. Non-null.
+     * @param random source of the random choices of which reads to keep. Non-null.
+     */
+    public PositionalDownsampler( final int targetCoverage, final SAMFileHeader header, final Random random ) {
         Utils.validateArg(targetCoverage > 0, "targetCoverage must be > 0");
         Utils.nonNull(header);
 
-        this.reservoir = new ReservoirDownsampler(targetCoverage);
+        this.reservoir = new ReservoirDownsampler(targetCoverage, false, random);
         this.finalizedReads = new ArrayList<>();
         this.header = header;
         clearItems();
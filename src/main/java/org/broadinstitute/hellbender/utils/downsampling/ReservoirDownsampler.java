@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Reservoir Downsampler: Selects n reads out of a stream whose size is not known in advance, with
@@ -58,6 +59,10 @@ public final class ReservoirDownsampler extends ReadsDownsampler {
      */
     private boolean endOfInputStream;
 
+    /**
+     * source of the random choices of which reads to keep
+     */
+    private final Random random;
 
     /**
      * Construct a ReservoirDownsampler
@@ -70,18 +75,36 @@ public final class ReservoirDownsampler extends ReadsDownsampler {
      *                           internal buffers to targetSampleSize initially, which minimizes
      *                           the cost of allocation if we often use targetSampleSize or more
      *                           elements.
+     * @param random source of the random choices of which reads to keep. Non-null.
      */
-    public ReservoirDownsampler(final int targetSampleSize, final boolean expectFewOverflows ) {
+    public ReservoirDownsampler(final int targetSampleSize, final boolean expectFewOverflows, final Random random ) {
         if ( targetSampleSize <= 0 ) {
             throw new IllegalArgumentException("Cannot do reservoir downsampling with a sample size <= 0");
         }
 
         this.targetSampleSize = targetSampleSize;
         this.expectFewOverflows = expectFewOverflows;
+        this.random = Utils.nonNull(random);
         clearItems();
         resetStats();
     }
 
+    /**
+     * Construct a ReservoirDownsampler that makes its random choices with the GATK random number generator
+     *
+     * @param targetSampleSize Size of the reservoir used by this downsampler.
+     *
+     * @param expectFewOverflows if true, this downsampler will be optimized for the case
+     *                           where most of the time we won't fill up anything like the
+     *                           targetSampleSize elements.  If this is false, we will allocate
+     *                           internal buffers to targetSampleSize initially, which minimizes
+     *                           the cost of allocation if we often use targetSampleSize or more
+     *                           elements.
+     */
+    public ReservoirDownsampler(final int targetSampleSize, final boolean expectFewOverflows ) {
+        this(targetSampleSize, expectFewOverflows, Utils.getRandomGenerator());
+    }
+
     /**
      * Construct a ReservoirDownsampler
      *
@@ -110,7 +133,7 @@ public final class ReservoirDownsampler extends ReadsDownsampler {
                 isLinkedList = false;
             }
 
-            final int randomSlot = Utils.getRandomGenerator().nextInt(totalReadsSeen);
+            final int randomSlot = random.nextInt(totalReadsSeen);
             if ( randomSlot < targetSampleSize ) {
                 reservoir.set(randomSlot, newRead);
             }
@@ -49,12 +49,17 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
     protected final List<List<EVIDENCE>> evidenceBySampleIndex;
 
     /**
-     * Indexed per sample, allele and finally evidence (within sample).
+     * Indexed per sample, then by allele and evidence (within sample).
      * <p>
-     *     valuesBySampleIndex[s][a][r] == lnLk(R_r | A_a) where R_r comes from Sample s.
+     *     valuesBySampleIndex[s].get(a, r) == lnLk(R_r | A_a) where R_r comes from Sample s.
      * </p>
      */
-    protected final double[][][] valuesBySampleIndex;
+    private final LikelihoodValues[] valuesBySampleIndex;
+
+    /**
+     * How the likelihood values are stored.
+     */
+    private final LikelihoodStorage storage;
 
     /**
      * Holds the number of evidence per sample.
@@ -107,22 +112,48 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
      * or {@code evidenceBySample} is {@code null},
      *  or if they contain null values.
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
     public AlleleLikelihoods(final SampleList samples,
                              final AlleleList<A> alleles,
                              final Map<String, List<EVIDENCE>> evidenceBySample) {
+        this(samples, alleles, evidenceBySample, LikelihoodStorage.ALLELE_ARRAYS);
+    }
+
+    /**
+     * Constructs a new evidence-likelihood collection that stores its likelihoods in a particular way.
+     *
+     * <p>
+     *     The initial likelihoods for all allele-evidence combinations are
+     *     0. Collections derived from this one (for example by {@link #marginalize}) store their likelihoods in the
+     *     same way.
+     * </p>
+     *
+     * @param samples all supported samples in the collection.
+     * @param alleles all supported alleles in the collection.
+     * @param evidenceBySample evidence stratified per sample.
+     * @param storage how to store the likelihoods.
+     *
+     * @throws IllegalArgumentException if any of {@code allele}, {@code samples}, {@code evidenceBySample}
+     * or {@code storage} is {@code null}, or if they contain null values.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public AlleleLikelihoods(final SampleList samples,
+                             final AlleleList<A> alleles,
+                             final Map<String, List<EVIDENCE>> evidenceBySample,
+                             final LikelihoodStorage storage) {
         Utils.nonNull(alleles);
         Utils.nonNull(samples);
         Utils.nonNull(evidenceBySample);
+        Utils.nonNull(storage);
 
         this.samples = samples;
         this.alleles = alleles;
+        this.storage = storage;
 
         final int sampleCount = samples.numberOfSamples();
         final int alleleCount = alleles.numberOfAlleles();
 
         evidenceBySampleIndex = new ArrayList<>(sampleCount);
-        valuesBySampleIndex = new double[sampleCount][][];
+        valuesBySampleIndex = new LikelihoodValues[sampleCount];
         referenceAlleleIndex = findReferenceAllele(alleles);
         numberOfEvidences = new int[sampleCount];
 
@@ -139,11 +170,13 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
     AlleleLikelihoods(final AlleleList alleles,
                       final SampleList samples,
                       final List<List<EVIDENCE>> evidenceBySampleIndex,
-                      final double[][][] values) {
+                      final LikelihoodValues[] values,
+                      final LikelihoodStorage storage) {
         this.samples = samples;
         this.alleles = alleles;
         this.evidenceBySampleIndex = evidenceBySampleIndex;
         this.valuesBySampleIndex = values;
+        this.storage = storage;
         final int sampleCount = samples.numberOfSamples();
         evidenceIndexBySampleIndex = new ArrayList<>(Collections.nCopies(sampleCount, null));
 
@@ -163,8 +196,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
             evidenceBySampleIndex.add(sampleEvidences == null ? new ArrayList<>() : new ArrayList<>(sampleEvidences));
             final int sampleEvidenceCount = evidenceBySampleIndex.get(s).size();
 
-            final double[][] sampleValues = new double[alleleCount][sampleEvidenceCount];
-            valuesBySampleIndex[s] = sampleValues;
+            valuesBySampleIndex[s] = LikelihoodValues.create(storage, alleleCount, sampleEvidenceCount);
         }
     }
 
@@ -276,16 +308,24 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         }
     }
 
+    /**
+     * Returns how the likelihoods of this collection are stored.
+     */
+    public LikelihoodStorage storage() {
+        return storage;
+    }
+
     public void switchToNaturalLog() {
         Utils.validate(!isNaturalLog, "Likelihoods have already been switched to natural log");
         final int sampleCount = samples.numberOfSamples();
         final int alleleCount = alleles.numberOfAlleles();
 
         for (int s = 0; s < sampleCount; s++) {
+            final LikelihoodValues sampleValues = valuesBySampleIndex[s];
             final int evidenceCount = sampleEvidenceCount(s);
             for (int a = 0; a < alleleCount; a++) {
                 for (int e = 0; e < evidenceCount; e++) {
-                    valuesBySampleIndex[s][a][e] = MathUtils.log10ToLog(valuesBySampleIndex[s][a][e]);
+                    sampleValues.set(a, e, MathUtils.log10ToLog(sampleValues.get(a, e)));
                 }
             }
         }
@@ -342,7 +382,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         }
 
         for (int s = 0; s < valuesBySampleIndex.length; s++) {
-            final double[][] sampleValues = valuesBySampleIndex[s];
+            final LikelihoodValues sampleValues = valuesBySampleIndex[s];
             final int evidenceCount = evidenceBySampleIndex.get(s).size();
             for (int r = 0; r < evidenceCount; r++) {
                 normalizeLikelihoodsPerEvidence(maximumLikelihoodDifferenceCap, sampleValues, s, r);
@@ -352,7 +392,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
     // Does the normalizeLikelihoods job for each piece of evidence.
     private void normalizeLikelihoodsPerEvidence(final double maximumBestAltLikelihoodDifference,
-                                                 final double[][] sampleValues, final int sampleIndex, final int evidenceIndex) {
+                                                 final LikelihoodValues sampleValues, final int sampleIndex, final int evidenceIndex) {
 
         //allow the best allele to be the reference because asymmetry leads to strange artifacts like het calls with >90% alt reads
         final BestAllele bestAllele = searchBestAllele(sampleIndex,evidenceIndex,true);
@@ -363,8 +403,8 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
         // Guarantee to be the case by enclosing code.
         for (int a = 0; a < alleleCount; a++) {
-            if (sampleValues[a][evidenceIndex] < worstLikelihoodCap) {
-                sampleValues[a][evidenceIndex] = worstLikelihoodCap;
+            if (sampleValues.get(a, evidenceIndex) < worstLikelihoodCap) {
+                sampleValues.set(a, evidenceIndex, worstLikelihoodCap);
             }
         }
 
@@ -421,18 +461,18 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
             return new BestAllele(sampleIndex, evidenceIndex, MISSING_INDEX, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
         }
 
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        final LikelihoodValues sampleValues = valuesBySampleIndex[sampleIndex];
         int bestAlleleIndex = canBeReference || referenceAlleleIndex != 0 ? 0 : 1;
 
         int secondBestIndex = 0;
-        double bestLikelihood = sampleValues[bestAlleleIndex][evidenceIndex];
+        double bestLikelihood = sampleValues.get(bestAlleleIndex, evidenceIndex);
         double secondBestLikelihood = Double.NEGATIVE_INFINITY;
 
         for (int a = bestAlleleIndex + 1; a < alleleCount; a++) {
             if (!canBeReference && referenceAlleleIndex == a) {
                 continue;
             }
-            final double candidateLikelihood = sampleValues[a][evidenceIndex];
+            final double candidateLikelihood = sampleValues.get(a, evidenceIndex);
             if (candidateLikelihood > bestLikelihood) {
                 secondBestIndex = bestAlleleIndex;
                 bestAlleleIndex = a;
@@ -448,7 +488,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
             double bestPriority = priorities.get()[bestAlleleIndex];
             double secondBestPriority = priorities.get()[secondBestIndex];
             for (int a = 0; a < alleleCount; a++) {
-                final double candidateLikelihood = sampleValues[a][evidenceIndex];
+                final double candidateLikelihood = sampleValues.get(a, evidenceIndex);
                 if (a == bestAlleleIndex || (!canBeReference && a == referenceAlleleIndex) || bestLikelihood - candidateLikelihood > getInformativeThreshold()) {
                     continue;
                 }
@@ -466,8 +506,8 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
             }
         }
 
-        bestLikelihood = sampleValues[bestAlleleIndex][evidenceIndex];
-        secondBestLikelihood = secondBestIndex != bestAlleleIndex ? sampleValues[secondBestIndex][evidenceIndex] : Double.NEGATIVE_INFINITY;
+        bestLikelihood = sampleValues.get(bestAlleleIndex, evidenceIndex);
+        secondBestLikelihood = secondBestIndex != bestAlleleIndex ? sampleValues.get(secondBestIndex, evidenceIndex) : Double.NEGATIVE_INFINITY;
 
         return new BestAllele(sampleIndex, evidenceIndex, bestAlleleIndex, bestLikelihood, secondBestLikelihood);
     }
@@ -543,15 +583,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
         //copy old allele likelihoods and set new allele likelihoods to the default value
         for (int s = 0; s < samples.numberOfSamples(); s++) {
-            final int sampleEvidenceCount = evidenceBySampleIndex.get(s).size();
-            final double[][] newValuesBySampleIndex = Arrays.copyOf(valuesBySampleIndex[s], newAlleleCount);
-            for (int a = oldAlleleCount; a < newAlleleCount; a++) {
-                newValuesBySampleIndex[a] = new double[sampleEvidenceCount];
-                if (defaultLikelihood != 0.0) {
-                    Arrays.fill(newValuesBySampleIndex[a], defaultLikelihood);
-                }
-            }
-            valuesBySampleIndex[s] = newValuesBySampleIndex;
+            valuesBySampleIndex[s].addAlleles(newAlleleCount - oldAlleleCount, defaultLikelihood);
         }
         return true;
     }
@@ -571,7 +603,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
      */
     public <U, NEW_EVIDENCE_TYPE extends Locatable> AlleleLikelihoods<NEW_EVIDENCE_TYPE, A> groupEvidence(final Function<EVIDENCE, U> groupingFunction, final Function<List<EVIDENCE>, NEW_EVIDENCE_TYPE> gather) {
         final int sampleCount = samples.numberOfSamples();
-        final double[][][] newLikelihoodValues = new double[sampleCount][][];
+        final LikelihoodValues[] newLikelihoodValues = new LikelihoodValues[sampleCount];
         final int alleleCount = alleles.numberOfAlleles();
 
         final List<List<NEW_EVIDENCE_TYPE>> newEvidenceBySampleIndex = new ArrayList<>(sampleCount);
@@ -583,15 +615,15 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
             final int newEvidenceCount = evidenceGroups.size();
 
-            final double[][] oldSampleValues = valuesBySampleIndex[s];
-            newLikelihoodValues[s] = new double[alleleCount][newEvidenceCount];
+            final LikelihoodValues oldSampleValues = valuesBySampleIndex[s];
+            final LikelihoodValues newSampleValues = newLikelihoodValues[s] = LikelihoodValues.create(storage, alleleCount, newEvidenceCount);
 
             // For each old allele and read we update the new table keeping the maximum likelihood.
             for (int newEvidenceIndex = 0; newEvidenceIndex < newEvidenceCount; newEvidenceIndex++) {
                 for (int a = 0; a < alleleCount; a++) {
                     for (final EVIDENCE evidence : evidenceGroups.get(newEvidenceIndex)) {
                         final int oldEvidenceIndex = evidenceIndex(s, evidence);
-                        newLikelihoodValues[s][a][newEvidenceIndex] += oldSampleValues[a][oldEvidenceIndex];
+                        newSampleValues.set(a, newEvidenceIndex, newSampleValues.get(a, newEvidenceIndex) + oldSampleValues.get(a, oldEvidenceIndex));
                     }
                 }
             }
@@ -603,7 +635,8 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
                 alleles,
                 samples,
                 newEvidenceBySampleIndex,
-                newLikelihoodValues);
+                newLikelihoodValues,
+                storage);
 
         result.isNaturalLog = this.isNaturalLog;
         return result;
@@ -635,7 +668,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         final int[] oldToNewAlleleIndexMap = oldToNewAlleleIndexMap(newToOldAlleleMap, oldAlleleCount, newAlleles);
 
         // We calculate the marginal likelihoods.
-        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap);
+        final LikelihoodValues[] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap);
 
         final int sampleCount = samples.numberOfSamples();
 
@@ -650,35 +683,37 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
                 new IndexedAlleleList(newAlleles),
                 samples,
                 newEvidenceBySampleIndex,
-                newLikelihoodValues);
+                newLikelihoodValues,
+                storage);
         result.isNaturalLog = isNaturalLog;
         return result;
     }
 
     // Calculate the marginal likelihoods considering the old -> new allele index mapping.
-    private double[][][] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount,
-                                             final int[] oldToNewAlleleIndexMap) {
+    // Values are written directly into the new storage, one allele row at a time, without intermediate arrays.
+    private LikelihoodValues[] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount,
+                                                   final int[] oldToNewAlleleIndexMap) {
         final int sampleCount = samples.numberOfSamples();
-        final double[][][] result = new double[sampleCount][][];
+        final LikelihoodValues[] result = new LikelihoodValues[sampleCount];
 
         for (int s = 0; s < sampleCount; s++) {
             final int sampleEvidenceCount = evidenceBySampleIndex.get(s).size();
-            final double[][] oldSampleValues = valuesBySampleIndex[s];
-            final double[][] newSampleValues = result[s] = new double[newAlleleCount][sampleEvidenceCount];
+            final LikelihoodValues oldSampleValues = valuesBySampleIndex[s];
+            final LikelihoodValues newSampleValues = result[s] = LikelihoodValues.create(storage, newAlleleCount, sampleEvidenceCount);
             // We initiate all likelihoods to -Inf.
             for (int a = 0; a < newAlleleCount; a++) {
-                Arrays.fill(newSampleValues[a], Double.NEGATIVE_INFINITY);
+                newSampleValues.fill(a, Double.NEGATIVE_INFINITY);
             }
             // For each old allele and read we update the new table keeping the maximum likelihood.
-            for (int r = 0; r < sampleEvidenceCount; r++) {
-                for (int a = 0; a < oldAlleleCount; a++) {
-                    final int newAlleleIndex = oldToNewAlleleIndexMap[a];
-                    if (newAlleleIndex == MISSING_INDEX) {
-                        continue;
-                    }
-                    final double likelihood = oldSampleValues[a][r];
-                    if (likelihood > newSampleValues[newAlleleIndex][r]) {
-                        newSampleValues[newAlleleIndex][r] = likelihood;
+            for (int a = 0; a < oldAlleleCount; a++) {
+                final int newAlleleIndex = oldToNewAlleleIndexMap[a];
+                if (newAlleleIndex == MISSING_INDEX) {
+                    continue;
+                }
+                for (int r = 0; r < sampleEvidenceCount; r++) {
+                    final double likelihood = oldSampleValues.get(a, r);
+                    if (likelihood > newSampleValues.get(newAlleleIndex, r)) {
+                        newSampleValues.set(newAlleleIndex, r, likelihood);
                     }
                 }
             }
@@ -741,22 +776,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
             final int oldEvidenceCount = evidenceBySampleIndex.get(sampleIndex).size();
             appendEvidence(newSampleEvidence, sampleIndex);
             final int newEvidenceCount = evidenceBySampleIndex.get(sampleIndex).size();
-            extendsLikelihoodArrays(initialLikelihood, sampleIndex, oldEvidenceCount, newEvidenceCount);
-        }
-    }
-
-    // Extends the likelihood arrays-matrices.
-    private void extendsLikelihoodArrays(final double initialLikelihood, final int sampleIndex, final int sampleEvidenceCount, final int newSampleEvidenceCount) {
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
-        final int alleleCount = alleles.numberOfAlleles();
-        for (int a = 0; a < alleleCount; a++) {
-            sampleValues[a] = sampleValues[a].length < newSampleEvidenceCount ? Arrays.copyOf(sampleValues[a], newSampleEvidenceCount) : sampleValues[a];
-        }
-        if (initialLikelihood != 0.0) // the default array new value.
-        {
-            for (int a = 0; a < alleleCount; a++) {
-                Arrays.fill(sampleValues[a], sampleEvidenceCount, newSampleEvidenceCount, initialLikelihood);
-            }
+            valuesBySampleIndex[sampleIndex].addEvidence(newEvidenceCount - oldEvidenceCount, initialLikelihood);
         }
     }
 
@@ -836,13 +856,13 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         final double[] qualifiedAlleleLikelihoods = new double[nonSymbolicAlleleCount];
         final Median medianCalculator = new Median();
         for (int s = 0; s < samples.numberOfSamples(); s++) {
-            final double[][] sampleValues = valuesBySampleIndex[s];
+            final LikelihoodValues sampleValues = valuesBySampleIndex[s];
             final int evidenceCount = evidenceBySampleIndex.get(s).size();
             for (int r = 0; r < evidenceCount; r++) {
                 final BestAllele bestAllele = searchBestAllele(s, r, true);
                 int numberOfQualifiedAlleleLikelihoods = 0;
                 for (int i = 0; i < alleleCount; i++) {
-                    final double alleleLikelihood = sampleValues[i][r];
+                    final double alleleLikelihood = sampleValues.get(i, r);
                     if (i != nonRefAlleleIndex && alleleLikelihood < bestAllele.likelihood
                             && !Double.isNaN(alleleLikelihood) && allelesToConsider.indexOfAllele(alleles.getAllele(i)) != MISSING_INDEX) {
                         qualifiedAlleleLikelihoods[numberOfQualifiedAlleleLikelihoods++] = alleleLikelihood;
@@ -853,8 +873,8 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
                 // so the evidence is not informative at all given the existing alleles. Unless there is only one (or zero) concrete
                 // alleles with give the same (the best) likelihood to the NON-REF. When there is only one (or zero) concrete
                 // alleles we set the NON-REF likelihood to NaN.
-                sampleValues[nonRefAlleleIndex][r] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
-                        : nonSymbolicAlleleCount <= 1 ? Double.NaN : bestAllele.likelihood;
+                sampleValues.set(nonRefAlleleIndex, r, !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
+                        : nonSymbolicAlleleCount <= 1 ? Double.NaN : bestAllele.likelihood);
             }
         }
     }
@@ -1042,10 +1062,11 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
     protected double maximumLikelihoodOverAllAlleles(final int sampleIndex, final int evidenceIndex) {
         double result = Double.NEGATIVE_INFINITY;
         final int alleleCount = alleles.numberOfAlleles();
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        final LikelihoodValues sampleValues = valuesBySampleIndex[sampleIndex];
         for (int a = 0; a < alleleCount; a++) {
-            if (sampleValues[a][evidenceIndex] > result) {
-                result = sampleValues[a][evidenceIndex];
+            final double likelihood = sampleValues.get(a, evidenceIndex);
+            if (likelihood > result) {
+                result = likelihood;
             }
         }
         return result;
@@ -1127,13 +1148,10 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
                 numRemoved++;
             } else {
                 newEvidence.add(oldEvidence.get(n));
-
-                // update the likelihoods arrays in place
-                for (final double[] alleleValues : valuesBySampleIndex[sampleIndex]) {
-                    alleleValues[n - numRemoved] = alleleValues[n];
-                }
             }
         }
+        // update the likelihoods in place
+        valuesBySampleIndex[sampleIndex].removeEvidence(evidencesToRemove);
         evidenceBySampleIndex.set(sampleIndex, newEvidence);
         numberOfEvidences[sampleIndex] = newEvidenceCount;
 
@@ -1214,16 +1232,16 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
         @Override
         public void set(final int alleleIndex, final int evidenceIndex, final double value) {
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
+            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].alleleCount());
             Utils.validIndex(evidenceIndex,  numberOfEvidences[sampleIndex]);
-            valuesBySampleIndex[sampleIndex][alleleIndex][evidenceIndex] = value;
+            valuesBySampleIndex[sampleIndex].set(alleleIndex, evidenceIndex, value);
         }
 
         @Override
         public double get(final int alleleIndex, final int evidenceIndex) {
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
+            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].alleleCount());
             Utils.validIndex(evidenceIndex, numberOfEvidences[sampleIndex]);
-            return valuesBySampleIndex[sampleIndex][alleleIndex][evidenceIndex];
+            return valuesBySampleIndex[sampleIndex].get(alleleIndex, evidenceIndex);
         }
 
         @Override
@@ -1263,8 +1281,8 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         @Override
         public void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
             Utils.nonNull(dest);
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            System.arraycopy(valuesBySampleIndex[sampleIndex][alleleIndex], 0, dest, offset, numberOfEvidences[sampleIndex]);
+            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].alleleCount());
+            valuesBySampleIndex[sampleIndex].copyAlleleLikelihoods(alleleIndex, dest, offset);
         }
     }
 }
@@ -0,0 +1,24 @@
+package org.broadinstitute.hellbender.utils.genotyper;
+
+/**
+ * How {@link AlleleLikelihoods} stores the likelihood values of each sample.
+ */
+public enum LikelihoodStorage {
+
+    /**
+     * One double[] per allele, indexed by evidence.
+     */
+    ALLELE_ARRAYS,
+
+    /**
+     * A single double[] for all alleles, which avoids allocating (and later collecting) one array per allele
+     * when there are many alleles, as when these are haplotypes.
+     */
+    DENSE,
+
+    /**
+     * Like {@link #DENSE} but in a float[], which halves the memory needed at the cost of precision: likelihoods
+     * keep about 7 significant digits.
+     */
+    DENSE_FLOAT
+}
@@ -0,0 +1,348 @@
+package org.broadinstitute.hellbender.utils.genotyper;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Likelihood values of the evidence of one sample in an {@link AlleleLikelihoods}, indexed by allele and evidence.
+ *
+ * <p>
+ *     Alleles and evidence can be added at the end, and evidence can be removed, without copying the values of the
+ *     rest when there is room for it.
+ * </p>
+ */
+abstract class LikelihoodValues {
+
+    protected int alleleCount;
+    protected int evidenceCount;
+
+    /**
+     * Creates values for some alleles and evidence, all initially 0.
+     */
+    static LikelihoodValues create(final LikelihoodStorage storage, final int alleleCount, final int evidenceCount) {
+        Utils.nonNull(storage, "storage cannot be null");
+        switch (storage) {
+            case ALLELE_ARRAYS: return new AlleleArrays(alleleCount, evidenceCount);
+            case DENSE: return new DenseDoubles(alleleCount, evidenceCount);
+            case DENSE_FLOAT: return new DenseFloats(alleleCount, evidenceCount);
+            default: throw new IllegalArgumentException("unknown likelihood storage " + storage);
+        }
+    }
+
+    private LikelihoodValues(final int alleleCount, final int evidenceCount) {
+        this.alleleCount = alleleCount;
+        this.evidenceCount = evidenceCount;
+    }
+
+    abstract LikelihoodStorage storage();
+
+    final int alleleCount() {
+        return alleleCount;
+    }
+
+    final int evidenceCount() {
+        return evidenceCount;
+    }
+
+    abstract double get(final int alleleIndex, final int evidenceIndex);
+
+    abstract void set(final int alleleIndex, final int evidenceIndex, final double value);
+
+    /**
+     * Sets the value of all evidence given an allele.
+     */
+    abstract void fill(final int alleleIndex, final double value);
+
+    /**
+     * Copies the values of all evidence given an allele into an array.
+     */
+    abstract void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset);
+
+    /**
+     * Adds alleles after the existing ones.
+     *
+     * @param count the number of alleles to add.
+     * @param value the value of all evidence given the new alleles.
+     */
+    abstract void addAlleles(final int count, final double value);
+
+    /**
+     * Adds evidence after the existing one.
+     *
+     * @param count the number of units of evidence to add.
+     * @param value the value of the new evidence given every allele.
+     */
+    abstract void addEvidence(final int count, final double value);
+
+    /**
+     * Removes evidence, moving that after it to lower indices.
+     *
+     * @param sortedIndices the indices of the evidence to remove, sorted and without duplicates.
+     */
+    abstract void removeEvidence(final int[] sortedIndices);
+
+    // moves the values of a row of evidence over those to remove, given sorted indices to remove
+    private static void compactRow(final int evidenceCount, final int[] sortedIndices, final Mover mover) {
+        for (int n = sortedIndices[0] + 1, numRemoved = 1; n < evidenceCount; n++) {
+            if (numRemoved < sortedIndices.length && n == sortedIndices[numRemoved]) {
+                numRemoved++;
+            } else {
+                mover.move(n, n - numRemoved);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Mover {
+        void move(final int from, final int to);
+    }
+
+    private static int denseSize(final int alleleCount, final int evidenceCapacity) {
+        final long size = (long) alleleCount * evidenceCapacity;
+        Utils.validate(size <= Integer.MAX_VALUE, () -> "too many likelihoods for dense storage: " + alleleCount + " alleles and " + evidenceCapacity + " units of evidence");
+        return (int) size;
+    }
+
+    private static int grownCapacity(final int capacity, final int requiredCapacity) {
+        return Math.max(requiredCapacity, capacity + (capacity >> 1));
+    }
+
+    /**
+     * One array per allele.
+     */
+    private static final class AlleleArrays extends LikelihoodValues {
+        private double[][] values;
+
+        private AlleleArrays(final int alleleCount, final int evidenceCount) {
+            super(alleleCount, evidenceCount);
+            values = new double[alleleCount][evidenceCount];
+        }
+
+        @Override
+        LikelihoodStorage storage() {
+            return LikelihoodStorage.ALLELE_ARRAYS;
+        }
+
+        @Override
+        double get(final int alleleIndex, final int evidenceIndex) {
+            return values[alleleIndex][evidenceIndex];
+        }
+
+        @Override
+        void set(final int alleleIndex, final int evidenceIndex, final double value) {
+            values[alleleIndex][evidenceIndex] = value;
+        }
+
+        @Override
+        void fill(final int alleleIndex, final double value) {
+            Arrays.fill(values[alleleIndex], 0, evidenceCount, value);
+        }
+
+        @Override
+        void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
+            System.arraycopy(values[alleleIndex], 0, dest, offset, evidenceCount);
+        }
+
+        @Override
+        void addAlleles(final int count, final double value) {
+            final int newAlleleCount = alleleCount + count;
+            values = Arrays.copyOf(values, newAlleleCount);
+            for (int a = alleleCount; a < newAlleleCount; a++) {
+                values[a] = new double[evidenceCount];
+            }
+            alleleCount = newAlleleCount;
+            for (int a = newAlleleCount - count; a < newAlleleCount; a++) {
+                fill(a, value);
+            }
+        }
+
+        @Override
+        void addEvidence(final int count, final double value) {
+            final int newEvidenceCount = evidenceCount + count;
+            for (int a = 0; a < alleleCount; a++) {
+                if (values[a].length < newEvidenceCount) {
+                    values[a] = Arrays.copyOf(values[a], newEvidenceCount);
+                }
+                Arrays.fill(values[a], evidenceCount, newEvidenceCount, value);
+            }
+            evidenceCount = newEvidenceCount;
+        }
+
+        @Override
+        void removeEvidence(final int[] sortedIndices) {
+            if (sortedIndices.length == 0) {
+                return;
+            }
+            for (final double[] alleleValues : values) {
+                compactRow(evidenceCount, sortedIndices, (from, to) -> alleleValues[to] = alleleValues[from]);
+            }
+            evidenceCount -= sortedIndices.length;
+        }
+    }
+
+    /**
+     * A single array, by allele and then by evidence, with room for evidenceCapacity units of evidence per allele.
+     */
+    private static final class DenseDoubles extends LikelihoodValues {
+        private double[] values;
+        private int evidenceCapacity;
+
+        private DenseDoubles(final int alleleCount, final int evidenceCount) {
+            super(alleleCount, evidenceCount);
+            evidenceCapacity = evidenceCount;
+            values = new double[denseSize(alleleCount, evidenceCapacity)];
+        }
+
+        @Override
+        LikelihoodStorage storage() {
+            return LikelihoodStorage.DENSE;
+        }
+
+        @Override
+        double get(final int alleleIndex, final int evidenceIndex) {
+            return values[alleleIndex * evidenceCapacity + evidenceIndex];
+        }
+
+        @Override
+        void set(final int alleleIndex, final int evidenceIndex, final double value) {
+            values[alleleIndex * evidenceCapacity + evidenceIndex] = value;
+        }
+
+        @Override
+        void fill(final int alleleIndex, final double value) {
+            final int start = alleleIndex * evidenceCapacity;
+            Arrays.fill(values, start, start + evidenceCount, value);
+        }
+
+        @Override
+        void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
+            System.arraycopy(values, alleleIndex * evidenceCapacity, dest, offset, evidenceCount);
+        }
+
+        @Override
+        void addAlleles(final int count, final double value) {
+            final int newAlleleCount = alleleCount + count;
+            values = Arrays.copyOf(values, denseSize(newAlleleCount, evidenceCapacity));
+            alleleCount = newAlleleCount;
+            for (int a = newAlleleCount - count; a < newAlleleCount; a++) {
+                fill(a, value);
+            }
+        }
+
+        @Override
+        void addEvidence(final int count, final double value) {
+            final int newEvidenceCount = evidenceCount + count;
+            if (newEvidenceCount > evidenceCapacity) {
+                final int newCapacity = grownCapacity(evidenceCapacity, newEvidenceCount);
+                final double[] newValues = new double[denseSize(alleleCount, newCapacity)];
+                for (int a = 0; a < alleleCount; a++) {
+                    System.arraycopy(values, a * evidenceCapacity, newValues, a * newCapacity, evidenceCount);
+                }
+                values = newValues;
+                evidenceCapacity = newCapacity;
+            }
+            for (int a = 0; a < alleleCount; a++) {
+                final int start = a * evidenceCapacity;
+                Arrays.fill(values, start + evidenceCount, start + newEvidenceCount, value);
+            }
+            evidenceCount = newEvidenceCount;
+        }
+
+        @Override
+        void removeEvidence(final int[] sortedIndices) {
+            if (sortedIndices.length == 0) {
+                return;
+            }
+            for (int a = 0; a < alleleCount; a++) {
+                final int start = a * evidenceCapacity;
+                compactRow(evidenceCount, sortedIndices, (from, to) -> values[start + to] = values[start + from]);
+            }
+            evidenceCount -= sortedIndices.length;
+        }
+    }
+
+    /**
+     * Like {@link DenseDoubles} but with float values.
+     */
+    private static final class DenseFloats extends LikelihoodValues {
+        private float[] values;
+        private int evidenceCapacity;
+
+        private DenseFloats(final int alleleCount, final int evidenceCount) {
+            super(alleleCount, evidenceCount);
+            evidenceCapacity = evidenceCount;
+            values = new float[denseSize(alleleCount, evidenceCapacity)];
+        }
+
+        @Override
+        LikelihoodStorage storage() {
+            return LikelihoodStorage.DENSE_FLOAT;
+        }
+
+        @Override
+        double get(final int alleleIndex, final int evidenceIndex) {
+            return values[alleleIndex * evidenceCapacity + evidenceIndex];
+        }
+
+        @Override
+        void set(final int alleleIndex, final int evidenceIndex, final double value) {
+            values[alleleIndex * evidenceCapacity + evidenceIndex] = (float) value;
+        }
+
+        @Override
+        void fill(final int alleleIndex, final double value) {
+            final int start = alleleIndex * evidenceCapacity;
+            Arrays.fill(values, start, start + evidenceCount, (float) value);
+        }
+
+        @Override
+        void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
+            final int start = alleleIndex * evidenceCapacity;
+            for (int e = 0; e < evidenceCount; e++) {
+                dest[offset + e] = values[start + e];
+            }
+        }
+
+        @Override
+        void addAlleles(final int count, final double value) {
+            final int newAlleleCount = alleleCount + count;
+            values = Arrays.copyOf(values, denseSize(newAlleleCount, evidenceCapacity));
+            alleleCount = newAlleleCount;
+            for (int a = newAlleleCount - count; a < newAlleleCount; a++) {
+                fill(a, value);
+            }
+        }
+
+        @Override
+        void addEvidence(final int count, final double value) {
+            final int newEvidenceCount = evidenceCount + count;
+            if (newEvidenceCount > evidenceCapacity) {
+                final int newCapacity = grownCapacity(evidenceCapacity, newEvidenceCount);
+                final float[] newValues = new float[denseSize(alleleCount, newCapacity)];
+                for (int a = 0; a < alleleCount; a++) {
+                    System.arraycopy(values, a * evidenceCapacity, newValues, a * newCapacity, evidenceCount);
+                }
+                values = newValues;
+                evidenceCapacity = newCapacity;
+            }
+            for (int a = 0; a < alleleCount; a++) {
+                final int start = a * evidenceCapacity;
+                Arrays.fill(values, start + evidenceCount, start + newEvidenceCount, (float) value);
+            }
+            evidenceCount = newEvidenceCount;
+        }
+
+        @Override
+        void removeEvidence(final int[] sortedIndices) {
+            if (sortedIndices.length == 0) {
+                return;
+            }
+            for (int a = 0; a < alleleCount; a++) {
+                final int start = a * evidenceCapacity;
+                compactRow(evidenceCount, sortedIndices, (from, to) -> values[start + to] = values[start + from]);
+            }
+            evidenceCount -= sortedIndices.length;
+        }
+    }
+}
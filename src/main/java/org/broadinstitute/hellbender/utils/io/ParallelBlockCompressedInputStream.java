@@ -0,0 +1,264 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * An {@link InputStream} that reads a BGZF (block compressed gzip) file sequentially, inflating blocks ahead of the
+ * reader on a pool of worker threads.
+ *
+ * Compressed blocks are read from the underlying stream on the calling thread and handed to worker threads to be
+ * inflated; the inflated blocks are consumed strictly in file order. Up to a fixed number of blocks are kept in flight
+ * (read but not yet consumed), which bounds memory use to about twice that number of maximum-size BGZF blocks.
+ *
+ * Only supports sequential reading from the start of the file: there is no support for seeking or for virtual file
+ * pointers. Not thread-safe.
+ */
+public final class ParallelBlockCompressedInputStream extends InputStream {
+
+    private static final int BLOCK_FOOTER_LENGTH = 8; // CRC32 and ISIZE
+
+    private final InputStream in;
+    private final String source;
+    private final ExecutorService executorService;
+    private final int maxBlocksInFlight;
+    private final Deque<Future<byte[]>> blocksInFlight;
+    private final List<Inflater> inflaters = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<Inflater> inflaterForThread;
+
+    private byte[] currentBlock = new byte[0];
+    private int currentBlockOffset = 0;
+    private boolean reachedEndOfInput = false;
+    private boolean isClosed = false;
+
+    /**
+     * @param in BGZF input, positioned at the start of a block; closed when this stream is closed
+     * @param source description of the input, for error messages
+     * @param numThreads number of threads to use for inflating blocks
+     * @param maxBlocksInFlight maximum number of blocks that may have been read ahead of the caller at any time (at least numThreads)
+     */
+    public ParallelBlockCompressedInputStream(final InputStream in, final String source, final int numThreads, final int maxBlocksInFlight) {
+        this.in = Utils.nonNull(in);
+        this.source = Utils.nonNull(source);
+        Utils.validateArg(numThreads >= 1, "numThreads must be >= 1");
+        Utils.validateArg(maxBlocksInFlight >= numThreads, "maxBlocksInFlight must be >= numThreads");
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        this.blocksInFlight = new ArrayDeque<>(maxBlocksInFlight);
+        this.executorService = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat("bgzf-decompression-thread-%d").setDaemon(true).build());
+        this.inflaterForThread = ThreadLocal.withInitial(() -> {
+            final Inflater inflater = new Inflater(true);
+            inflaters.add(inflater);
+            return inflater;
+        });
+    }
+
+    /**
+     * @param bufferSizeBytes approximate cap on the memory used for read-ahead
+     * @param numThreads number of threads that will be used for inflating blocks
+     * @return the number of blocks that may be kept in flight within the memory cap (but at least numThreads),
+     *         assuming each block occupies a maximum-size BGZF block both before and after inflation
+     */
+    public static int getMaxBlocksInFlight(final long bufferSizeBytes, final int numThreads) {
+        Utils.validateArg(bufferSizeBytes >= 0, "bufferSizeBytes must be >= 0");
+        final long maxBlocks = bufferSizeBytes / (2L * BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE);
+        return (int)Math.max(numThreads, Math.min(maxBlocks, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public int read() throws IOException {
+        if ( ! ensureDataAvailable() ) {
+            return -1;
+        }
+        return currentBlock[currentBlockOffset++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+        Utils.nonNull(buffer);
+        if ( length == 0 ) {
+            return 0;
+        }
+        if ( ! ensureDataAvailable() ) {
+            return -1;
+        }
+        final int numToCopy = Math.min(length, currentBlock.length - currentBlockOffset);
+        System.arraycopy(currentBlock, currentBlockOffset, buffer, offset, numToCopy);
+        currentBlockOffset += numToCopy;
+        return numToCopy;
+    }
+
+    @Override
+    public int available() throws IOException {
+        checkNotClosed();
+        return currentBlock.length - currentBlockOffset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if ( isClosed ) {
+            return;
+        }
+        isClosed = true;
+        executorService.shutdownNow();
+        blocksInFlight.clear();
+        try {
+            in.close();
+        } finally {
+            synchronized (inflaters) {
+                inflaters.forEach(Inflater::end);
+            }
+        }
+    }
+
+    private void checkNotClosed() throws IOException {
+        if ( isClosed ) {
+            throw new IOException("Stream is closed");
+        }
+    }
+
+    /**
+     * Make sure the current block has unread data, moving on to the next non-empty block if necessary.
+     *
+     * @return false if there's no more data
+     */
+    private boolean ensureDataAvailable() throws IOException {
+        checkNotClosed();
+        while ( currentBlockOffset == currentBlock.length ) {
+            readAhead();
+            if ( blocksInFlight.isEmpty() ) {
+                return false;
+            }
+            currentBlock = getInflatedBlock(blocksInFlight.remove());
+            currentBlockOffset = 0;
+        }
+        return true;
+    }
+
+    /**
+     * Read compressed blocks and submit them for inflation until we have the maximum number in flight, or reach the end of the input.
+     */
+    private void readAhead() throws IOException {
+        while ( ! reachedEndOfInput && blocksInFlight.size() < maxBlocksInFlight ) {
+            final byte[] compressedBlock = readCompressedBlock();
+            if ( compressedBlock == null ) {
+                reachedEndOfInput = true;
+            } else {
+                blocksInFlight.add(executorService.submit(() -> inflateBlock(compressedBlock)));
+            }
+        }
+    }
+
+    /**
+     * @return the next complete compressed block, including its header and footer, or null at the end of the input
+     */
+    private byte[] readCompressedBlock() throws IOException {
+        final byte[] header = new byte[BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH];
+        final int headerBytesRead = readFully(header, 0, header.length);
+        if ( headerBytesRead == 0 ) {
+            return null;
+        }
+        if ( headerBytesRead < header.length || ! isValidBlockHeader(header) ) {
+            throw new IOException("Invalid BGZF block header in " + source);
+        }
+
+        final int blockSize = ((header[16] & 0xff) | ((header[17] & 0xff) << 8)) + 1;
+        if ( blockSize < BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + BLOCK_FOOTER_LENGTH ) {
+            throw new IOException("Invalid BGZF block size " + blockSize + " in " + source);
+        }
+        final byte[] block = new byte[blockSize];
+        System.arraycopy(header, 0, block, 0, header.length);
+        if ( readFully(block, header.length, blockSize - header.length) < blockSize - header.length ) {
+            throw new IOException("Unexpected end of file in BGZF block in " + source);
+        }
+        return block;
+    }
+
+    private static boolean isValidBlockHeader(final byte[] header) {
+        return (header[0] & 0xff) == 31 && (header[1] & 0xff) == 139   // gzip magic
+                && header[2] == 8                                       // CM = deflate
+                && (header[3] & 4) != 0                                 // FLG.FEXTRA
+                && header[10] == 6 && header[11] == 0                   // XLEN
+                && header[12] == 'B' && header[13] == 'C'               // BGZF subfield
+                && header[14] == 2 && header[15] == 0;                  // SLEN
+    }
+
+    private int readFully(final byte[] buffer, final int offset, final int length) throws IOException {
+        int totalRead = 0;
+        while ( totalRead < length ) {
+            final int numRead = in.read(buffer, offset + totalRead, length - totalRead);
+            if ( numRead < 0 ) {
+                break;
+            }
+            totalRead += numRead;
+        }
+        return totalRead;
+    }
+
+    private byte[] getInflatedBlock(final Future<byte[]> inflatedBlock) throws IOException {
+        try {
+            return inflatedBlock.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while inflating BGZF blocks", e);
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof IOException ) {
+                throw (IOException)e.getCause();
+            }
+            throw new GATKException("Problem inflating BGZF block from " + source, e.getCause());
+        }
+    }
+
+    /**
+     * Inflate a complete BGZF block, checking its size and CRC. Runs on a worker thread.
+     */
+    private byte[] inflateBlock(final byte[] compressedBlock) throws IOException {
+        final int footerOffset = compressedBlock.length - BLOCK_FOOTER_LENGTH;
+        final int expectedCrc = readInt32(compressedBlock, footerOffset);
+        final int uncompressedSize = readInt32(compressedBlock, footerOffset + 4);
+        if ( uncompressedSize < 0 || uncompressedSize > BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE ) {
+            throw new IOException("Invalid uncompressed size " + uncompressedSize + " of BGZF block in " + source);
+        }
+
+        final byte[] inflated = new byte[uncompressedSize];
+        final Inflater inflater = inflaterForThread.get();
+        inflater.reset();
+        inflater.setInput(compressedBlock, BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH, footerOffset - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH);
+        try {
+            final int inflatedSize = inflater.inflate(inflated, 0, uncompressedSize);
+            if ( inflatedSize != uncompressedSize ) {
+                throw new IOException("Size of inflated BGZF block in " + source + " is " + inflatedSize + " instead of " + uncompressedSize);
+            }
+        } catch ( final DataFormatException e ) {
+            throw new IOException("Corrupt BGZF block in " + source, e);
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(inflated, 0, uncompressedSize);
+        if ( (int)crc.getValue() != expectedCrc ) {
+            throw new IOException("CRC mismatch in BGZF block in " + source);
+        }
+        return inflated;
+    }
+
+    private static int readInt32(final byte[] buffer, final int offset) {
+        return (buffer[offset] & 0xff) | ((buffer[offset + 1] & 0xff) << 8) | ((buffer[offset + 2] & 0xff) << 16) | ((buffer[offset + 3] & 0xff) << 24);
+    }
+}
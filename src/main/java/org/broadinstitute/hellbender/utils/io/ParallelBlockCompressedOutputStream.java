@@ -0,0 +1,287 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An {@link OutputStream} that writes BGZF (block compressed gzip) output, deflating blocks on a pool of worker threads.
+ *
+ * Bytes written to this stream are accumulated into blocks on the calling thread. Each full block (or partial block,
+ * on {@link #flush}) is handed to a worker thread to be deflated, and finished blocks are written to the underlying
+ * stream on the calling thread, strictly in the order the blocks were created, so the output is a valid BGZF file that
+ * is byte-for-byte independent of the number of threads. At most a fixed multiple of the number of threads blocks may
+ * be in flight at once, which bounds memory use.
+ *
+ * Since the compressed address of a block isn't known until all earlier blocks have been compressed, positions in the
+ * stream are reported by {@link #getFilePointer} as <em>logical</em> file pointers, in which the block index stands in
+ * for the compressed block address. Clients that need real BGZF virtual file pointers (for example, to build an index)
+ * can register a {@link BlockListener} to learn the compressed address of each block as it is written.
+ *
+ * Not thread-safe: all methods must be called from the same thread, and any {@link BlockListener} is invoked on that thread.
+ */
+public final class ParallelBlockCompressedOutputStream extends OutputStream {
+
+    /**
+     * Amount of uncompressed data per block. This matches htslib, and leaves enough room for incompressible data
+     * to be stored without exceeding the maximum BGZF block size.
+     */
+    public static final int UNCOMPRESSED_BLOCK_SIZE = 0xff00;
+
+    private static final int BLOCK_FOOTER_LENGTH = 8; // CRC32 and ISIZE
+    private static final int MAX_DEFLATED_SIZE = BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE
+            - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH - BLOCK_FOOTER_LENGTH;
+
+    /**
+     * Receives the compressed address of each block, as it is written to the underlying stream
+     */
+    @FunctionalInterface
+    public interface BlockListener {
+        /**
+         * @param blockIndex zero-based index of the block in this stream
+         * @param blockAddress offset of the start of the block in the compressed output
+         * @param compressedBlockSize size of the block in the compressed output, so that the address of the next block
+         *                            is {@code blockAddress + compressedBlockSize}
+         */
+        void blockWritten(long blockIndex, long blockAddress, int compressedBlockSize);
+    }
+
+    private final OutputStream out;
+    private final BlockListener blockListener;
+    private final ExecutorService executorService;
+    private final int maxBlocksInFlight;
+    private final Deque<Future<byte[]>> blocksInFlight;
+    private final List<Deflater> deflaters = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<Deflater> deflaterForThread;
+    private final ThreadLocal<Deflater> noCompressionDeflaterForThread;
+
+    private byte[] uncompressedBlock = new byte[UNCOMPRESSED_BLOCK_SIZE];
+    private int numUncompressedBytes = 0;
+    private long numBlocksCreated = 0;
+    private long numBlocksWritten = 0;
+    private long numCompressedBytesWritten = 0;
+    private boolean isClosed = false;
+
+    /**
+     * @param out destination for the compressed output; closed when this stream is closed
+     * @param compressionLevel deflate compression level, 0-9
+     * @param numThreads number of threads to use for compression
+     * @param blockListener if not null, notified of the address of each block as it is written
+     */
+    public ParallelBlockCompressedOutputStream(final OutputStream out, final int compressionLevel, final int numThreads, final BlockListener blockListener) {
+        this.out = Utils.nonNull(out);
+        Utils.validateArg(compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION,
+                () -> "Invalid compression level: " + compressionLevel);
+        Utils.validateArg(numThreads >= 1, "numThreads must be >= 1");
+        this.blockListener = blockListener;
+        this.maxBlocksInFlight = 2 * numThreads;
+        this.blocksInFlight = new ArrayDeque<>(maxBlocksInFlight);
+        this.executorService = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat("bgzf-compression-thread-%d").setDaemon(true).build());
+        this.deflaterForThread = ThreadLocal.withInitial(() -> makeDeflater(compressionLevel));
+        this.noCompressionDeflaterForThread = ThreadLocal.withInitial(() -> makeDeflater(Deflater.NO_COMPRESSION));
+    }
+
+    public ParallelBlockCompressedOutputStream(final OutputStream out, final int compressionLevel, final int numThreads) {
+        this(out, compressionLevel, numThreads, null);
+    }
+
+    private Deflater makeDeflater(final int compressionLevel) {
+        final Deflater deflater = new Deflater(compressionLevel, true);
+        deflaters.add(deflater);
+        return deflater;
+    }
+
+    /**
+     * @return the logical file pointer of the next byte to be written: the index of the current block in place of its
+     *         compressed address, combined with the offset within the block as in a BGZF virtual file pointer. Use
+     *         {@link BlockCompressedFilePointerUtil#getBlockAddress} and {@link BlockCompressedFilePointerUtil#getBlockOffset}
+     *         to decode it.
+     */
+    public long getFilePointer() {
+        return BlockCompressedFilePointerUtil.makeFilePointer(numBlocksCreated, numUncompressedBytes);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        checkNotClosed();
+        uncompressedBlock[numUncompressedBytes++] = (byte)b;
+        if ( numUncompressedBytes == UNCOMPRESSED_BLOCK_SIZE ) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(final byte[] bytes, int offset, int length) throws IOException {
+        checkNotClosed();
+        Utils.nonNull(bytes);
+        while ( length > 0 ) {
+            final int numToCopy = Math.min(length, UNCOMPRESSED_BLOCK_SIZE - numUncompressedBytes);
+            System.arraycopy(bytes, offset, uncompressedBlock, numUncompressedBytes, numToCopy);
+            numUncompressedBytes += numToCopy;
+            offset += numToCopy;
+            length -= numToCopy;
+            if ( numUncompressedBytes == UNCOMPRESSED_BLOCK_SIZE ) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Ends the current block (if it's non-empty), waits for all blocks to be compressed and written, and flushes the
+     * underlying stream. Subsequent writes start a new block.
+     */
+    @Override
+    public void flush() throws IOException {
+        checkNotClosed();
+        if ( numUncompressedBytes > 0 ) {
+            submitBlock();
+        }
+        while ( ! blocksInFlight.isEmpty() ) {
+            writeNextBlock();
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes all remaining data followed by the BGZF terminator block, and closes the underlying stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if ( isClosed ) {
+            return;
+        }
+        try {
+            flush();
+            out.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+            out.close();
+        } finally {
+            isClosed = true;
+            executorService.shutdownNow();
+            synchronized (deflaters) {
+                deflaters.forEach(Deflater::end);
+            }
+        }
+    }
+
+    private void checkNotClosed() throws IOException {
+        if ( isClosed ) {
+            throw new IOException("Stream is closed");
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        while ( blocksInFlight.size() >= maxBlocksInFlight ) {
+            writeNextBlock();
+        }
+        final byte[] block = uncompressedBlock;
+        final int blockLength = numUncompressedBytes;
+        blocksInFlight.add(executorService.submit(() -> compressBlock(block, blockLength)));
+        uncompressedBlock = new byte[UNCOMPRESSED_BLOCK_SIZE];
+        numUncompressedBytes = 0;
+        numBlocksCreated++;
+    }
+
+    private void writeNextBlock() throws IOException {
+        final byte[] compressedBlock = getCompressedBlock(blocksInFlight.remove());
+        out.write(compressedBlock);
+        if ( blockListener != null ) {
+            blockListener.blockWritten(numBlocksWritten, numCompressedBytesWritten, compressedBlock.length);
+        }
+        numBlocksWritten++;
+        numCompressedBytesWritten += compressedBlock.length;
+    }
+
+    private static byte[] getCompressedBlock(final Future<byte[]> compressedBlock) {
+        try {
+            return compressedBlock.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while compressing BGZF blocks", e);
+        } catch ( final ExecutionException e ) {
+            throw new GATKException("Problem compressing BGZF block", e.getCause());
+        }
+    }
+
+    /**
+     * Deflate a block of data into a complete BGZF block, including the gzip header and footer.
+     * Runs on a worker thread.
+     */
+    private byte[] compressBlock(final byte[] uncompressed, final int length) {
+        final byte[] deflated = new byte[MAX_DEFLATED_SIZE];
+        int deflatedSize = deflate(deflaterForThread.get(), uncompressed, length, deflated);
+        if ( deflatedSize < 0 ) {
+            // the data didn't fit when deflated at the requested level, so store it uncompressed instead
+            deflatedSize = deflate(noCompressionDeflaterForThread.get(), uncompressed, length, deflated);
+            if ( deflatedSize < 0 ) {
+                throw new GATKException("Unable to fit " + length + " bytes into a single BGZF block");
+            }
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(uncompressed, 0, length);
+
+        final int totalBlockSize = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + deflatedSize + BLOCK_FOOTER_LENGTH;
+        final byte[] block = Arrays.copyOf(writeBlockHeader(totalBlockSize), totalBlockSize);
+        System.arraycopy(deflated, 0, block, BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH, deflatedSize);
+        final int footerOffset = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + deflatedSize;
+        writeInt32(block, footerOffset, (int)crc.getValue());
+        writeInt32(block, footerOffset + 4, length);
+        return block;
+    }
+
+    /**
+     * @return the number of deflated bytes, or -1 if the deflated data didn't fit in the output buffer
+     */
+    private static int deflate(final Deflater deflater, final byte[] uncompressed, final int length, final byte[] deflated) {
+        deflater.reset();
+        deflater.setInput(uncompressed, 0, length);
+        deflater.finish();
+        final int deflatedSize = deflater.deflate(deflated, 0, deflated.length);
+        return deflater.finished() ? deflatedSize : -1;
+    }
+
+    /**
+     * @return the gzip header of a BGZF block of the given total size, including the BC extra subfield holding the block size
+     */
+    private static byte[] writeBlockHeader(final int totalBlockSize) {
+        final byte[] header = new byte[BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH];
+        header[0] = (byte)31;       // ID1
+        header[1] = (byte)139;      // ID2
+        header[2] = (byte)8;        // CM = deflate
+        header[3] = (byte)4;        // FLG = FEXTRA
+        // bytes 4-7 (MTIME) and 8 (XFL) are 0
+        header[9] = (byte)255;      // OS = unknown
+        header[10] = (byte)6;       // XLEN (little-endian)
+        header[12] = (byte)'B';     // SI1
+        header[13] = (byte)'C';     // SI2
+        header[14] = (byte)2;       // SLEN (little-endian)
+        header[16] = (byte)((totalBlockSize - 1) & 0xff);   // BSIZE - 1 (little-endian)
+        header[17] = (byte)(((totalBlockSize - 1) >> 8) & 0xff);
+        return header;
+    }
+
+    private static void writeInt32(final byte[] buffer, final int offset, final int value) {
+        buffer[offset] = (byte)value;
+        buffer[offset + 1] = (byte)(value >> 8);
+        buffer[offset + 2] = (byte)(value >> 16);
+        buffer[offset + 3] = (byte)(value >> 24);
+    }
+}
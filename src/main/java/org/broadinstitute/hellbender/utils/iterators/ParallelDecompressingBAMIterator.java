@@ -0,0 +1,140 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMUtils;
+import htsjdk.samtools.SAMValidationError;
+import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.RuntimeIOException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over all of the records in a BAM file, from start to end, inflating BGZF blocks ahead of the
+ * caller on multiple threads via a {@link ParallelBlockCompressedInputStream}. Records are decoded on the calling thread.
+ *
+ * This is an alternative to the iterator of an htsjdk {@link htsjdk.samtools.SamReader} for whole-file traversals,
+ * in which inflating blocks on the traversal thread is often a large fraction of the total work. It does not support
+ * queries, and records have no file source.
+ */
+public final class ParallelDecompressingBAMIterator implements CloseableIterator<SAMRecord> {
+
+    private static final byte[] BAM_MAGIC = "BAM\1".getBytes(StandardCharsets.US_ASCII);
+
+    private final ParallelBlockCompressedInputStream inputStream;
+    private final BAMRecordCodec recordCodec;
+    private final ValidationStringency validationStringency;
+    private final String source;
+    private SAMRecord nextRecord;
+    private long numRecordsRead = 0;
+
+    /**
+     * @param bamInput BAM file contents, from the start of the file; closed when this iterator is closed
+     * @param source description of the input, for error messages
+     * @param header header to give the records. Should be the header of the BAM file, which is skipped rather than re-parsed.
+     * @param validationStringency how strictly to validate records
+     * @param numThreads number of threads to use for inflating blocks
+     * @param maxBlocksInFlight maximum number of BGZF blocks to read ahead
+     */
+    public ParallelDecompressingBAMIterator(final InputStream bamInput, final String source, final SAMFileHeader header,
+                                            final ValidationStringency validationStringency, final int numThreads, final int maxBlocksInFlight) {
+        Utils.nonNull(bamInput);
+        Utils.nonNull(header);
+        this.source = Utils.nonNull(source);
+        this.validationStringency = Utils.nonNull(validationStringency);
+        this.inputStream = new ParallelBlockCompressedInputStream(bamInput, source, numThreads, maxBlocksInFlight);
+        try {
+            skipHeader(new BinaryCodec(inputStream));
+            this.recordCodec = new BAMRecordCodec(header);
+            recordCodec.setInputStream(inputStream, source);
+            advance();
+        } catch ( final RuntimeException e ) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Skip over the binary BAM header, which we don't need since we're given the header
+     */
+    private void skipHeader(final BinaryCodec binaryCodec) {
+        final byte[] magic = new byte[BAM_MAGIC.length];
+        readBytes(binaryCodec, magic);
+        if ( ! Arrays.equals(magic, BAM_MAGIC) ) {
+            throw new UserException.MalformedFile("Invalid BAM file header in " + source);
+        }
+        readBytes(binaryCodec, new byte[readNonNegativeInt(binaryCodec)]); // header text
+        final int numSequences = readNonNegativeInt(binaryCodec);
+        for ( int i = 0; i < numSequences; i++ ) {
+            readBytes(binaryCodec, new byte[readNonNegativeInt(binaryCodec)]); // sequence name
+            binaryCodec.readInt(); // sequence length
+        }
+    }
+
+    private void readBytes(final BinaryCodec binaryCodec, final byte[] buffer) {
+        try {
+            binaryCodec.readBytes(buffer);
+        } catch ( final RuntimeIOException e ) {
+            throw new UserException.CouldNotReadInputFile("Unable to read BAM file " + source, e);
+        }
+    }
+
+    private int readNonNegativeInt(final BinaryCodec binaryCodec) {
+        final int value = binaryCodec.readInt();
+        if ( value < 0 ) {
+            throw new UserException.MalformedFile("Invalid BAM file header in " + source);
+        }
+        return value;
+    }
+
+    private void advance() {
+        try {
+            nextRecord = recordCodec.decode();
+        } catch ( final RuntimeIOException e ) {
+            throw new UserException.CouldNotReadInputFile("Unable to read BAM file " + source, e);
+        }
+        if ( nextRecord != null ) {
+            ++numRecordsRead;
+            if ( validationStringency != ValidationStringency.SILENT ) {
+                final List<SAMValidationError> validationErrors = nextRecord.isValid();
+                SAMUtils.processValidationErrors(validationErrors, numRecordsRead, validationStringency);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextRecord != null;
+    }
+
+    @Override
+    public SAMRecord next() {
+        if ( ! hasNext() ) {
+            throw new NoSuchElementException("No more records in " + source);
+        }
+        final SAMRecord current = nextRecord;
+        advance();
+        return current;
+    }
+
+    @Override
+    public void close() {
+        nextRecord = null;
+        try {
+            inputStream.close();
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile("Unable to read BAM file " + source, e);
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.utils.QualityUtils;
+
+import static org.broadinstitute.hellbender.utils.pairhmm.PairHMMModel.*;
+
+/**
+ * Pure-Java PairHMM computing the same model as {@link LoglessPairHMM}, but organized for data parallelism so that it
+ * performs reasonably on machines where the native AVX implementations are not available.
+ *
+ * Rather than filling the match, insertion and deletion matrices row by row, cells are computed one anti-diagonal
+ * (read position + haplotype position = constant) at a time. Every cell of an anti-diagonal depends only on the two
+ * preceding anti-diagonals, so the inner loops have no loop-carried dependencies. Each anti-diagonal is stored in a
+ * flat array indexed by read position, the transition probabilities are stored as one flat array per transition, and
+ * the haplotype is stored reversed so that the haplotype base for each cell of an anti-diagonal is also at a fixed
+ * offset from the read position. The inner loops are therefore plain element-wise arithmetic on contiguous arrays,
+ * which HotSpot's superword optimization compiles to SIMD instructions. Only three anti-diagonals of each matrix are
+ * kept, so memory use is linear in the read length.
+ *
+ * Like the native implementations, likelihoods are computed in single precision (which doubles the number of
+ * SIMD lanes) unless double precision is requested, and are recomputed in double precision when the single-precision
+ * result is too small to be accurate. In double precision the results are identical to those of {@link LoglessPairHMM}.
+ */
+public final class AntiDiagonalPairHMM extends PairHMM {
+    // same scaling as the native implementations for single precision, which keeps intermediate values out of the denormal range
+    static final float INITIAL_CONDITION_FLOAT = (float)Math.pow(2, 120);
+    static final double INITIAL_CONDITION_FLOAT_LOG10 = Math.log10(INITIAL_CONDITION_FLOAT);
+
+    // single-precision results whose probability is smaller than this are recomputed in double precision
+    static final float MIN_ACCEPTED_FLOAT = 1e-28f;
+
+    private static final byte N = (byte)'N';
+
+    private final boolean useDoublePrecision;
+
+    // per-read values, indexed by 1-based read position (index 0 is unused)
+    private byte[] paddedReadBases;
+    private double[] matchPrior, mismatchPrior;
+    private double[] matchToMatchProb, indelToMatchProb, matchToInsertionProb, insertionToInsertionProb, matchToDeletionProb, deletionToDeletionProb;
+    private float[] matchPriorFloat, mismatchPriorFloat;
+    private float[] matchToMatchProbFloat, indelToMatchProbFloat, matchToInsertionProbFloat, insertionToInsertionProbFloat, matchToDeletionProbFloat, deletionToDeletionProbFloat;
+
+    private byte[] reversedHaplotypeBases;
+
+    // the last three anti-diagonals of each matrix, indexed by read position
+    private double[][] matchDiagonals, insertionDiagonals, deletionDiagonals;
+    private double[] priorDiagonal;
+    private float[][] matchDiagonalsFloat, insertionDiagonalsFloat, deletionDiagonalsFloat;
+    private float[] priorDiagonalFloat;
+
+    // the read arrays for which the per-read values were last computed
+    private byte[] cachedReadBases, cachedReadQuals, cachedInsertionGOP, cachedDeletionGOP, cachedOverallGCP;
+
+    /**
+     * Create an uninitialized PairHMM
+     *
+     * @param useDoublePrecision if true, always compute in double precision; otherwise compute in single precision
+     *                           and fall back to double precision only when necessary
+     */
+    public AntiDiagonalPairHMM(final boolean useDoublePrecision) {
+        this.useDoublePrecision = useDoublePrecision;
+    }
+
+    /**
+     * @return true if this HMM always computes in double precision
+     */
+    public boolean isUsingDoublePrecision() {
+        return useDoublePrecision;
+    }
+
+    @Override
+    public void doNotUseTristateCorrection() {
+        doNotUseTristateCorrection = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize( final int readMaxLength, final int haplotypeMaxLength ) {
+        super.initialize(readMaxLength, haplotypeMaxLength);
+
+        paddedReadBases = new byte[paddedMaxReadLength];
+        reversedHaplotypeBases = new byte[maxHaplotypeLength];
+
+        matchPrior = new double[paddedMaxReadLength];
+        mismatchPrior = new double[paddedMaxReadLength];
+        matchToMatchProb = new double[paddedMaxReadLength];
+        indelToMatchProb = new double[paddedMaxReadLength];
+        matchToInsertionProb = new double[paddedMaxReadLength];
+        insertionToInsertionProb = new double[paddedMaxReadLength];
+        matchToDeletionProb = new double[paddedMaxReadLength];
+        deletionToDeletionProb = new double[paddedMaxReadLength];
+
+        matchDiagonals = new double[3][paddedMaxReadLength];
+        insertionDiagonals = new double[3][paddedMaxReadLength];
+        deletionDiagonals = new double[3][paddedMaxReadLength];
+        priorDiagonal = new double[paddedMaxReadLength];
+
+        if ( ! useDoublePrecision ) {
+            matchPriorFloat = new float[paddedMaxReadLength];
+            mismatchPriorFloat = new float[paddedMaxReadLength];
+            matchToMatchProbFloat = new float[paddedMaxReadLength];
+            indelToMatchProbFloat = new float[paddedMaxReadLength];
+            matchToInsertionProbFloat = new float[paddedMaxReadLength];
+            insertionToInsertionProbFloat = new float[paddedMaxReadLength];
+            matchToDeletionProbFloat = new float[paddedMaxReadLength];
+            deletionToDeletionProbFloat = new float[paddedMaxReadLength];
+
+            matchDiagonalsFloat = new float[3][paddedMaxReadLength];
+            insertionDiagonalsFloat = new float[3][paddedMaxReadLength];
+            deletionDiagonalsFloat = new float[3][paddedMaxReadLength];
+            priorDiagonalFloat = new float[paddedMaxReadLength];
+        }
+
+        cachedReadBases = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The whole matrix is always recomputed, so {@code hapStartIndex} and {@code nextHapStartIndex} are ignored.
+     */
+    @Override
+    protected double subComputeReadLikelihoodGivenHaplotypeLog10( final byte[] haplotypeBases,
+                                                                  final byte[] readBases,
+                                                                  final byte[] readQuals,
+                                                                  final byte[] insertionGOP,
+                                                                  final byte[] deletionGOP,
+                                                                  final byte[] overallGCP,
+                                                                  final int hapStartIndex,
+                                                                  final boolean recacheReadValues,
+                                                                  final int nextHapStartIndex) {
+        // the generic traversal in PairHMM asks us to recache for every read/haplotype pair, but passes the same
+        // arrays for all haplotypes of a read, so we can tell for ourselves when the read has changed
+        if ( readBases != cachedReadBases || readQuals != cachedReadQuals || insertionGOP != cachedInsertionGOP ||
+                deletionGOP != cachedDeletionGOP || overallGCP != cachedOverallGCP ) {
+            initializeReadValues(readBases, readQuals, insertionGOP, deletionGOP, overallGCP);
+        }
+
+        final int haplotypeLength = haplotypeBases.length;
+        for ( int k = 0; k < haplotypeLength; k++ ) {
+            reversedHaplotypeBases[k] = haplotypeBases[haplotypeLength - 1 - k];
+        }
+
+        if ( ! useDoublePrecision ) {
+            final float sumProbabilities = computeFloat(readBases.length, haplotypeLength);
+            if ( sumProbabilities >= MIN_ACCEPTED_FLOAT ) {
+                return Math.log10(sumProbabilities) - INITIAL_CONDITION_FLOAT_LOG10;
+            }
+        }
+        return Math.log10(computeDouble(readBases.length, haplotypeLength)) - LoglessPairHMM.INITIAL_CONDITION_LOG10;
+    }
+
+    /**
+     * Compute the per-read-position priors and transition probabilities for a read.
+     */
+    private void initializeReadValues(final byte[] readBases, final byte[] readQuals, final byte[] insertionGOP,
+                                      final byte[] deletionGOP, final byte[] overallGCP) {
+        final double[] transition = new double[TRANS_PROB_ARRAY_LENGTH];
+        final double tristateCorrection = doNotUseTristateCorrection ? 1.0 : LoglessPairHMM.TRISTATE_CORRECTION;
+        for ( int i = 1; i <= readBases.length; i++ ) {
+            final byte base = readBases[i - 1];
+            final byte qual = readQuals[i - 1];
+            paddedReadBases[i] = base;
+            matchPrior[i] = QualityUtils.qualToProb(qual);
+            // an N in the read matches any haplotype base
+            mismatchPrior[i] = base == N ? matchPrior[i] : QualityUtils.qualToErrorProb(qual) / tristateCorrection;
+
+            PairHMMModel.qualToTransProbs(transition, insertionGOP[i - 1], deletionGOP[i - 1], overallGCP[i - 1]);
+            matchToMatchProb[i] = transition[matchToMatch];
+            indelToMatchProb[i] = transition[indelToMatch];
+            matchToInsertionProb[i] = transition[matchToInsertion];
+            insertionToInsertionProb[i] = transition[insertionToInsertion];
+            matchToDeletionProb[i] = transition[matchToDeletion];
+            deletionToDeletionProb[i] = transition[deletionToDeletion];
+
+            if ( ! useDoublePrecision ) {
+                matchPriorFloat[i] = (float)matchPrior[i];
+                mismatchPriorFloat[i] = (float)mismatchPrior[i];
+                matchToMatchProbFloat[i] = (float)matchToMatchProb[i];
+                indelToMatchProbFloat[i] = (float)indelToMatchProb[i];
+                matchToInsertionProbFloat[i] = (float)matchToInsertionProb[i];
+                insertionToInsertionProbFloat[i] = (float)insertionToInsertionProb[i];
+                matchToDeletionProbFloat[i] = (float)matchToDeletionProb[i];
+                deletionToDeletionProbFloat[i] = (float)deletionToDeletionProb[i];
+            }
+        }
+
+        cachedReadBases = readBases;
+        cachedReadQuals = readQuals;
+        cachedInsertionGOP = insertionGOP;
+        cachedDeletionGOP = deletionGOP;
+        cachedOverallGCP = overallGCP;
+    }
+
+    /**
+     * Fill the matrices in double precision.
+     *
+     * Anti-diagonal d holds the cells (i, j) with i + j = d, where i is the 1-based read position (0 for the initial
+     * row) and j the 1-based haplotype position (0 for the initial column), stored at index i.
+     *
+     * @return the scaled sum of the probabilities of all alignments ending in the last read position
+     */
+    private double computeDouble(final int readLength, final int haplotypeLength) {
+        final double initialValue = LoglessPairHMM.INITIAL_CONDITION / haplotypeLength;
+
+        double[] match = matchDiagonals[0], matchPrev = matchDiagonals[1], matchPrev2 = matchDiagonals[2];
+        double[] insertion = insertionDiagonals[0], insertionPrev = insertionDiagonals[1], insertionPrev2 = insertionDiagonals[2];
+        double[] deletion = deletionDiagonals[0], deletionPrev = deletionDiagonals[1], deletionPrev2 = deletionDiagonals[2];
+        final double[] prior = priorDiagonal;
+        final byte[] read = paddedReadBases;
+        final byte[] haplotype = reversedHaplotypeBases;
+
+        // anti-diagonal 0 is the single cell (0, 0), where deletions are free
+        matchPrev[0] = 0.0;
+        insertionPrev[0] = 0.0;
+        deletionPrev[0] = initialValue;
+
+        double sumProbabilities = 0.0;
+        for ( int d = 1; d <= readLength + haplotypeLength; d++ ) {
+            // initial row (free deletions at the beginning of the haplotype) and initial column
+            if ( d <= haplotypeLength ) {
+                match[0] = 0.0;
+                insertion[0] = 0.0;
+                deletion[0] = initialValue;
+            }
+            if ( d <= readLength ) {
+                match[d] = 0.0;
+                insertion[d] = 0.0;
+                deletion[d] = 0.0;
+            }
+
+            final int first = Math.max(1, d - haplotypeLength);
+            final int last = Math.min(readLength, d - 1);
+            // the haplotype base for cell (i, d - i) is at index offset + i of the reversed haplotype
+            final int offset = haplotypeLength - d;
+
+            for ( int i = first; i <= last; i++ ) {
+                final byte y = haplotype[offset + i];
+                prior[i] = read[i] == y || y == N ? matchPrior[i] : mismatchPrior[i];
+            }
+
+            for ( int i = first; i <= last; i++ ) {
+                match[i] = prior[i] * ( matchPrev2[i - 1] * matchToMatchProb[i] +
+                        insertionPrev2[i - 1] * indelToMatchProb[i] +
+                        deletionPrev2[i - 1] * indelToMatchProb[i] );
+                insertion[i] = matchPrev[i - 1] * matchToInsertionProb[i] + insertionPrev[i - 1] * insertionToInsertionProb[i];
+                deletion[i] = matchPrev[i] * matchToDeletionProb[i] + deletionPrev[i] * deletionToDeletionProb[i];
+            }
+
+            // sum the paths ending in the match and insertion states in the last read position, in haplotype order
+            if ( d > readLength ) {
+                sumProbabilities += match[readLength] + insertion[readLength];
+            }
+
+            final double[] nextMatch = matchPrev2;
+            matchPrev2 = matchPrev;
+            matchPrev = match;
+            match = nextMatch;
+            final double[] nextInsertion = insertionPrev2;
+            insertionPrev2 = insertionPrev;
+            insertionPrev = insertion;
+            insertion = nextInsertion;
+            final double[] nextDeletion = deletionPrev2;
+            deletionPrev2 = deletionPrev;
+            deletionPrev = deletion;
+            deletion = nextDeletion;
+        }
+        return sumProbabilities;
+    }
+
+    /**
+     * Single-precision version of {@link #computeDouble}
+     */
+    private float computeFloat(final int readLength, final int haplotypeLength) {
+        final float initialValue = INITIAL_CONDITION_FLOAT / haplotypeLength;
+
+        float[] match = matchDiagonalsFloat[0], matchPrev = matchDiagonalsFloat[1], matchPrev2 = matchDiagonalsFloat[2];
+        float[] insertion = insertionDiagonalsFloat[0], insertionPrev = insertionDiagonalsFloat[1], insertionPrev2 = insertionDiagonalsFloat[2];
+        float[] deletion = deletionDiagonalsFloat[0], deletionPrev = deletionDiagonalsFloat[1], deletionPrev2 = deletionDiagonalsFloat[2];
+        final float[] prior = priorDiagonalFloat;
+        final byte[] read = paddedReadBases;
+        final byte[] haplotype = reversedHaplotypeBases;
+
+        matchPrev[0] = 0.0f;
+        insertionPrev[0] = 0.0f;
+        deletionPrev[0] = initialValue;
+
+        float sumProbabilities = 0.0f;
+        for ( int d = 1; d <= readLength + haplotypeLength; d++ ) {
+            if ( d <= haplotypeLength ) {
+                match[0] = 0.0f;
+                insertion[0] = 0.0f;
+                deletion[0] = initialValue;
+            }
+            if ( d <= readLength ) {
+                match[d] = 0.0f;
+                insertion[d] = 0.0f;
+                deletion[d] = 0.0f;
+            }
+
+            final int first = Math.max(1, d - haplotypeLength);
+            final int last = Math.min(readLength, d - 1);
+            final int offset = haplotypeLength - d;
+
+            for ( int i = first; i <= last; i++ ) {
+                final byte y = haplotype[offset + i];
+                prior[i] = read[i] == y || y == N ? matchPriorFloat[i] : mismatchPriorFloat[i];
+            }
+
+            for ( int i = first; i <= last; i++ ) {
+                match[i] = prior[i] * ( matchPrev2[i - 1] * matchToMatchProbFloat[i] +
+                        insertionPrev2[i - 1] * indelToMatchProbFloat[i] +
+                        deletionPrev2[i - 1] * indelToMatchProbFloat[i] );
+                insertion[i] = matchPrev[i - 1] * matchToInsertionProbFloat[i] + insertionPrev[i - 1] * insertionToInsertionProbFloat[i];
+                deletion[i] = matchPrev[i] * matchToDeletionProbFloat[i] + deletionPrev[i] * deletionToDeletionProbFloat[i];
+            }
+
+            if ( d > readLength ) {
+                sumProbabilities += match[readLength] + insertion[readLength];
+            }
+
+            final float[] nextMatch = matchPrev2;
+            matchPrev2 = matchPrev;
+            matchPrev = match;
+            match = nextMatch;
+            final float[] nextInsertion = insertionPrev2;
+            insertionPrev2 = insertionPrev;
+            insertionPrev = insertion;
+            insertion = nextInsertion;
+            final float[] nextDeletion = deletionPrev2;
+            deletionPrev2 = deletionPrev;
+            deletionPrev = deletion;
+            deletion = nextDeletion;
+        }
+        return sumProbabilities;
+    }
+}
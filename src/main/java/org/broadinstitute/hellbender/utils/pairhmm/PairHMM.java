@@ -17,6 +17,7 @@ import java.io.Closeable;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 
 /**
@@ -51,6 +52,13 @@ public abstract class PairHMM implements Closeable{
             logger.info("Using the non-hardware-accelerated Java LOGLESS_CACHING PairHMM implementation");
             return hmm;
         }),
+        /* Pure-Java implementation of LOGLESS_CACHING that computes anti-diagonals with SIMD-friendly loops. Uses single
+           precision with a double precision fallback like the native implementations, unless double precision is requested */
+        JAVA_ANTI_DIAGONAL(args -> {
+            final AntiDiagonalPairHMM hmm = new AntiDiagonalPairHMM(args != null && args.useDoublePrecision);
+            logger.info("Using the non-hardware-accelerated Java JAVA_ANTI_DIAGONAL PairHMM implementation");
+            return hmm;
+        }),
         /* Optimized AVX implementation of LOGLESS_CACHING called through JNI. Throws if AVX is not available */
         AVX_LOGLESS_CACHING(args -> {
             // Constructor will throw a UserException if AVX is not available
@@ -76,7 +84,7 @@ public abstract class PairHMM implements Closeable{
            Order of precedence:
             1. AVX_LOGLESS_CACHING_OMP
             2. AVX_LOGLESS_CACHING
-            3. LOGLESS_CACHING
+            3. JAVA_ANTI_DIAGONAL
          */
         FASTEST_AVAILABLE(args -> {
             // This try block is temporarily commented out becuase FPGA support is experimental for the time being. Once
@@ -105,8 +113,8 @@ public abstract class PairHMM implements Closeable{
             }
             catch ( UserException.HardwareFeatureException e ) {
                 logger.warn("***WARNING: Machine does not have the AVX instruction set support needed for the accelerated AVX PairHmm. " +
-                            "Falling back to the MUCH slower LOGLESS_CACHING implementation!");
-                return new LoglessPairHMM();
+                            "Falling back to the slower Java JAVA_ANTI_DIAGONAL implementation!");
+                return new AntiDiagonalPairHMM(args != null && args.useDoublePrecision);
             }
         });
 
@@ -119,6 +127,26 @@ public abstract class PairHMM implements Closeable{
         public PairHMM makeNewHMM(PairHMMNativeArguments args) {
             return makeHmm.apply(args);
         }
+
+        /**
+         * Make a PairHMM that computes likelihoods on several threads. Java implementations are run on
+         * {@code javaThreads} threads by a {@link ParallelPairHMM}, while native implementations are returned as-is,
+         * since they use {@code args.maxNumberOfThreads} threads of their own.
+         *
+         * @param args arguments to native implementations, and the precision of JAVA_ANTI_DIAGONAL
+         * @param javaThreads number of threads to run a Java implementation on
+         */
+        public PairHMM makeNewHMM(final PairHMMNativeArguments args, final int javaThreads) {
+            Utils.validateArg(javaThreads >= 1, "javaThreads must be >= 1");
+            final PairHMM hmm = makeNewHMM(args);
+            if ( javaThreads == 1 || hmm instanceof VectorLoglessPairHMM ) {
+                return hmm;
+            }
+            // FASTEST_AVAILABLE only returns a Java implementation when no native implementation can be loaded
+            final Implementation javaImplementation = this == FASTEST_AVAILABLE ? JAVA_ANTI_DIAGONAL : this;
+            logger.info("Computing PairHMM likelihoods on " + javaThreads + " threads");
+            return new ParallelPairHMM(hmm, () -> javaImplementation.makeNewHMM(args), javaThreads);
+        }
     }
 
     protected int maxHaplotypeLength, maxReadLength;
@@ -135,7 +163,8 @@ public abstract class PairHMM implements Closeable{
 
     //profiling information
     protected static Boolean doProfiling = true;
-    protected static long pairHMMComputeTime = 0;
+    // shared by all PairHMMs, which may be computing likelihoods on different threads at once
+    protected static final AtomicLong pairHMMComputeTime = new AtomicLong();
     protected long threadLocalPairHMMComputeTimeDiff = 0;
     protected long startTime = 0;
 
@@ -252,9 +281,29 @@ public abstract class PairHMM implements Closeable{
         }
         if(doProfiling) {
             threadLocalPairHMMComputeTimeDiff = (System.nanoTime() - startTime);
-            {
-                pairHMMComputeTime += threadLocalPairHMMComputeTimeDiff;
-            }
+            pairHMMComputeTime.addAndGet(threadLocalPairHMMComputeTimeDiff);
+        }
+    }
+
+    /**
+     * Compute the likelihoods of several likelihood matrices, typically from different assembly regions (and so with
+     * different haplotypes), at once. Implementations that can spread the work of a batch over more resources than
+     * that of a single matrix override this; by default the matrices are computed one after the other.
+     *
+     * Unlike {@link #computeLog10Likelihoods(LikelihoodMatrix, List, Map)}, there is no need to {@link #initialize}
+     * this PairHMM for the haplotypes of each matrix beforehand. After this call {@link #getLogLikelihoodArray} holds the
+     * likelihoods of the last matrix.
+     *
+     * @param logLikelihoods matrices in which to store the log10 likelihoods
+     * @param processedReads for each matrix, the reads to analyze instead of the ones present in the matrix
+     * @param gcp penalty for gap continuations base array map for all of the processed reads
+     */
+    public void computeBatchLog10Likelihoods(final List<LikelihoodMatrix<GATKRead, Haplotype>> logLikelihoods,
+                                             final List<List<GATKRead>> processedReads,
+                                             final Map<GATKRead, byte[]> gcp) {
+        Utils.validateArg(logLikelihoods.size() == processedReads.size(), "there must be one list of processed reads per likelihood matrix");
+        for ( int i = 0; i < logLikelihoods.size(); i++ ) {
+            computeLog10Likelihoods(logLikelihoods.get(i), processedReads.get(i), gcp);
         }
     }
 
@@ -375,6 +424,6 @@ public abstract class PairHMM implements Closeable{
     @Override
     public void close() {
         if(doProfiling)
-            logger.info("Total compute time in PairHMM computeLogLikelihoods() : "+(pairHMMComputeTime*1e-9));
+            logger.info("Total compute time in PairHMM computeLogLikelihoods() : "+(pairHMMComputeTime.get()*1e-9));
     }
 }
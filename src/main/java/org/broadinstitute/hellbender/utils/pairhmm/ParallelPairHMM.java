@@ -0,0 +1,283 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Runs a Java PairHMM implementation on several threads at once, by partitioning the reads of each likelihood matrix
+ * (or of each matrix of a batch) into blocks that are computed concurrently on a {@link ForkJoinPool}.
+ *
+ * Each thread computes its blocks with a PairHMM of its own (PairHMMs hold per-read and per-haplotype state, so a
+ * PairHMM is never used by two threads at once). The likelihood of each read/haplotype pair doesn't depend on the other
+ * reads, so the results are identical to those of the wrapped implementation running on a single thread, regardless of
+ * the number of threads. Likelihoods of single read/haplotype pairs are computed by the PairHMM of the calling thread.
+ */
+public final class ParallelPairHMM extends PairHMM {
+
+    // blocks per thread, so that threads which finish early can pick up more work
+    private static final int BLOCKS_PER_THREAD = 4;
+
+    private final Supplier<PairHMM> hmmFactory;
+    private final int numberOfThreads;
+    private final ForkJoinPool pool;
+
+    private final ThreadLocal<PairHMM> threadHMMs = ThreadLocal.withInitial(this::makeThreadHMM);
+    private final List<PairHMM> allHMMs = new ArrayList<>();
+
+    // PairHMM initialized along with this one, which computes the likelihoods of single read/haplotype pairs
+    private PairHMM pairHMM;
+
+    /**
+     * @param hmm PairHMM with which to compute likelihoods on the calling thread (e.g. when there are too few reads to
+     *            split up); must not be a native implementation, which manages its own threads
+     * @param hmmFactory makes additional PairHMMs with the same implementation and configuration as {@code hmm}
+     * @param numberOfThreads number of threads to compute likelihoods on
+     */
+    public ParallelPairHMM(final PairHMM hmm, final Supplier<PairHMM> hmmFactory, final int numberOfThreads) {
+        Utils.nonNull(hmm);
+        Utils.validateArg(!(hmm instanceof VectorLoglessPairHMM), "native PairHMM implementations manage their own threads");
+        Utils.validateArg(numberOfThreads >= 1, "numberOfThreads must be >= 1");
+        this.hmmFactory = Utils.nonNull(hmmFactory);
+        this.numberOfThreads = numberOfThreads;
+        this.pool = new ForkJoinPool(numberOfThreads);
+        threadHMMs.set(hmm);
+        allHMMs.add(hmm);
+    }
+
+    private PairHMM makeThreadHMM() {
+        final PairHMM hmm = hmmFactory.get();
+        synchronized ( allHMMs ) {
+            allHMMs.add(hmm);
+        }
+        return hmm;
+    }
+
+    /**
+     * @return the number of threads used to compute likelihoods
+     */
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Only the PairHMM of the calling thread, which then computes single read/haplotype pairs, is initialized here;
+     * the others initialize themselves as needed when computing each block.
+     */
+    @Override
+    public void initialize(final int readMaxLength, final int haplotypeMaxLength) {
+        super.initialize(readMaxLength, haplotypeMaxLength);
+        pairHMM = threadHMMs.get();
+        pairHMM.initialize(readMaxLength, haplotypeMaxLength);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The PairHMMs computing blocks initialize themselves as needed, so this does nothing.
+     */
+    @Override
+    public void initialize(final List<Haplotype> haplotypes, final Map<String, List<GATKRead>> perSampleReadList, final int readMaxLength, final int haplotypeMaxLength) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void computeLog10Likelihoods(final LikelihoodMatrix<GATKRead, Haplotype> logLikelihoods,
+                                        final List<GATKRead> processedReads,
+                                        final Map<GATKRead, byte[]> gcp) {
+        computeBatchLog10Likelihoods(Collections.singletonList(logLikelihoods), Collections.singletonList(processedReads), gcp);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The blocks of all of the matrices are computed together, so that a batch of small matrices (e.g. from assembly
+     * regions with few reads) still keeps all of the threads busy.
+     */
+    @Override
+    public void computeBatchLog10Likelihoods(final List<LikelihoodMatrix<GATKRead, Haplotype>> logLikelihoods,
+                                             final List<List<GATKRead>> processedReads,
+                                             final Map<GATKRead, byte[]> gcp) {
+        Utils.validateArg(logLikelihoods.size() == processedReads.size(), "there must be one list of processed reads per likelihood matrix");
+        final int totalReadCount = processedReads.stream().mapToInt(List::size).sum();
+        if ( totalReadCount == 0 ) {
+            return;
+        }
+
+        final List<double[][]> values = new ArrayList<>(logLikelihoods.size());
+        for ( int m = 0; m < logLikelihoods.size(); m++ ) {
+            values.add(new double[logLikelihoods.get(m).numberOfAlleles()][processedReads.get(m).size()]);
+        }
+
+        final int blockSize = Math.max(1, (totalReadCount + numberOfThreads * BLOCKS_PER_THREAD - 1) / (numberOfThreads * BLOCKS_PER_THREAD));
+        if ( numberOfThreads == 1 || blockSize >= totalReadCount ) {
+            for ( int m = 0; m < logLikelihoods.size(); m++ ) {
+                computeBlock(logLikelihoods.get(m).alleles(), processedReads.get(m), gcp, values.get(m), 0, processedReads.get(m).size());
+            }
+        } else {
+            final List<Future<?>> blocks = new ArrayList<>();
+            for ( int m = 0; m < logLikelihoods.size(); m++ ) {
+                final List<Haplotype> haplotypes = logLikelihoods.get(m).alleles();
+                final List<GATKRead> reads = processedReads.get(m);
+                final double[][] matrixValues = values.get(m);
+                for ( int start = 0; start < reads.size(); start += blockSize ) {
+                    final int blockStart = start;
+                    final int blockEnd = Math.min(reads.size(), start + blockSize);
+                    blocks.add(pool.submit(() -> computeBlock(haplotypes, reads, gcp, matrixValues, blockStart, blockEnd)));
+                }
+            }
+            awaitBlocks(blocks);
+        }
+
+        // copy the results on this thread, since likelihood matrices aren't thread-safe
+        for ( int m = 0; m < logLikelihoods.size(); m++ ) {
+            final LikelihoodMatrix<GATKRead, Haplotype> matrix = logLikelihoods.get(m);
+            final double[][] matrixValues = values.get(m);
+            final int readCount = processedReads.get(m).size();
+            final int haplotypeCount = matrixValues.length;
+            mLogLikelihoodArray = new double[readCount * haplotypeCount];
+            int idx = 0;
+            for ( int r = 0; r < readCount; r++ ) {
+                for ( int a = 0; a < haplotypeCount; a++ ) {
+                    matrix.set(a, r, matrixValues[a][r]);
+                    mLogLikelihoodArray[idx++] = matrixValues[a][r];
+                }
+            }
+        }
+    }
+
+    private void computeBlock(final List<Haplotype> haplotypes, final List<GATKRead> reads, final Map<GATKRead, byte[]> gcp,
+                              final double[][] values, final int start, final int end) {
+        threadHMMs.get().computeLog10Likelihoods(new BlockMatrix(haplotypes, reads.subList(start, end), values, start), reads.subList(start, end), gcp);
+    }
+
+    private static void awaitBlocks(final List<Future<?>> blocks) {
+        try {
+            for ( final Future<?> block : blocks ) {
+                block.get();
+            }
+        } catch ( final InterruptedException e ) {
+            blocks.forEach(block -> block.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while computing PairHMM likelihoods", e);
+        } catch ( final ExecutionException e ) {
+            blocks.forEach(block -> block.cancel(true));
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new GATKException("Problem computing PairHMM likelihoods", e.getCause());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Computed by the PairHMM initialized along with this one, which is given the state that {@link PairHMM} keeps
+     * between the read/haplotype pairs of this one.
+     */
+    @Override
+    protected double subComputeReadLikelihoodGivenHaplotypeLog10(final byte[] haplotypeBases, final byte[] readBases, final byte[] readQuals,
+                                                                 final byte[] insertionGOP, final byte[] deletionGOP, final byte[] overallGCP,
+                                                                 final int hapStartIndex, final boolean recacheReadValues, final int nextHapStartIndex) {
+        pairHMM.paddedReadLength = paddedReadLength;
+        pairHMM.paddedHaplotypeLength = paddedHaplotypeLength;
+        pairHMM.previousHaplotypeBases = previousHaplotypeBases;
+        return pairHMM.subComputeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP,
+                hapStartIndex, recacheReadValues, nextHapStartIndex);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+        // all of the PairHMMs share the same (static) profiling information, so only one of them needs to report it
+        allHMMs.get(0).close();
+    }
+
+    /**
+     * Likelihood matrix for a block of consecutive reads, which stores its values into the corresponding columns of
+     * an array shared by all blocks
+     */
+    private static final class BlockMatrix implements LikelihoodMatrix<GATKRead, Haplotype> {
+        private final List<Haplotype> haplotypes;
+        private final List<GATKRead> reads;
+        private final double[][] values;
+        private final int offset;
+
+        BlockMatrix(final List<Haplotype> haplotypes, final List<GATKRead> reads, final double[][] values, final int offset) {
+            this.haplotypes = haplotypes;
+            this.reads = reads;
+            this.values = values;
+            this.offset = offset;
+        }
+
+        @Override
+        public List<GATKRead> evidence() {
+            return reads;
+        }
+
+        @Override
+        public List<Haplotype> alleles() {
+            return haplotypes;
+        }
+
+        @Override
+        public void set(final int alleleIndex, final int evidenceIndex, final double value) {
+            values[alleleIndex][offset + evidenceIndex] = value;
+        }
+
+        @Override
+        public double get(final int alleleIndex, final int evidenceIndex) {
+            return values[alleleIndex][offset + evidenceIndex];
+        }
+
+        @Override
+        public int indexOfAllele(final Haplotype allele) {
+            return haplotypes.indexOf(allele);
+        }
+
+        @Override
+        public int indexOfEvidence(final GATKRead evidence) {
+            return reads.indexOf(evidence);
+        }
+
+        @Override
+        public int numberOfAlleles() {
+            return haplotypes.size();
+        }
+
+        @Override
+        public int evidenceCount() {
+            return reads.size();
+        }
+
+        @Override
+        public Haplotype getAllele(final int alleleIndex) {
+            return haplotypes.get(alleleIndex);
+        }
+
+        @Override
+        public GATKRead getEvidence(final int evidenceIndex) {
+            return reads.get(evidenceIndex);
+        }
+
+        @Override
+        public void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
+            System.arraycopy(values[alleleIndex], this.offset, dest, offset, reads.size());
+        }
+    }
+}
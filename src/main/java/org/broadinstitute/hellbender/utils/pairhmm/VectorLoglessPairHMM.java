@@ -10,6 +10,7 @@ import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
 import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeBinding;
 import org.broadinstitute.gatk.nativebindings.pairhmm.ReadDataHolder;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
@@ -165,12 +166,29 @@ public final class VectorLoglessPairHMM extends LoglessPairHMM {
         }
         if (doProfiling) {
             threadLocalPairHMMComputeTimeDiff = (System.nanoTime() - startTime);
-            pairHMMComputeTime += threadLocalPairHMMComputeTimeDiff;
+            pairHMMComputeTime.addAndGet(threadLocalPairHMMComputeTimeDiff);
             pairHMMSetupTime += threadLocalSetupTimeDiff;
         }
     }
 
 
+    /**
+     * {@inheritDoc}
+     *
+     * The native implementation computes all reads of a call against the same haplotypes, so the matrices are still
+     * computed one at a time, initializing the haplotypes of each.
+     */
+    @Override
+    public void computeBatchLog10Likelihoods(final List<LikelihoodMatrix<GATKRead, Haplotype>> logLikelihoods,
+                                             final List<List<GATKRead>> processedReads,
+                                             final Map<GATKRead, byte[]> gcp) {
+        Utils.validateArg(logLikelihoods.size() == processedReads.size(), "there must be one list of processed reads per likelihood matrix");
+        for ( int i = 0; i < logLikelihoods.size(); i++ ) {
+            initialize(logLikelihoods.get(i).alleles(), null, 0, 0);
+            computeLog10Likelihoods(logLikelihoods.get(i), processedReads.get(i), gcp);
+        }
+    }
+
     @Override
     public void close() {
         pairHmm.done();
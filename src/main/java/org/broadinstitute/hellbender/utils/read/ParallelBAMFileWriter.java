@@ -0,0 +1,246 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.BAMFileSpan;
+import htsjdk.samtools.BAMIndexer;
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.Chunk;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileSource;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMSortOrderChecker;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.FileExtensions;
+import htsjdk.samtools.util.Md5CalculatingOutputStream;
+import htsjdk.samtools.util.ProgressLoggerInterface;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedOutputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A {@link SAMFileWriter} for BAM output that compresses BGZF blocks on multiple threads.
+ *
+ * Records are encoded on the calling thread and the resulting BGZF blocks are deflated by a
+ * {@link ParallelBlockCompressedOutputStream}, which writes them out in order. The output is identical regardless of
+ * the number of threads.
+ *
+ * If requested, a BAI index is built on the fly. The virtual file pointer of a record isn't known until the blocks
+ * it occupies have been compressed, so records are held until their blocks have been written, and only then passed
+ * to the {@link BAMIndexer}. The number of records held is bounded by the number of blocks the stream allows in flight.
+ *
+ * Unlike the writers produced by {@link htsjdk.samtools.SAMFileWriterFactory}, this writer never sorts: records must
+ * be added in the sort order declared by the header (which is checked), unless that order is unsorted or unknown.
+ * When indexing, records must also not be modified after they are added, since they may be indexed later.
+ */
+public final class ParallelBAMFileWriter implements SAMFileWriter {
+
+    private static final byte[] BAM_MAGIC = "BAM\1".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path outputPath;
+    private final SAMFileHeader header;
+    private final ParallelBlockCompressedOutputStream blockCompressedOutputStream;
+    private final BAMRecordCodec recordCodec;
+    private final SAMSortOrderChecker sortOrderChecker;
+    private final BAMIndexer bamIndexer;
+    private ProgressLoggerInterface progressLogger;
+
+    /** Records that have been written but not yet indexed, because the addresses of their blocks aren't known yet */
+    private final Deque<PendingIndexEntry> pendingIndexEntries = new ArrayDeque<>();
+
+    /** Compressed addresses of the blocks from firstKnownBlockIndex onwards that may still be needed for indexing */
+    private final Deque<Long> knownBlockAddresses = new ArrayDeque<>();
+    private long firstKnownBlockIndex = 0;
+
+    private boolean isClosed = false;
+
+    /**
+     * @param outputPath BAM file to write
+     * @param header header for the output. Records must be added in the sort order it declares.
+     * @param createIndex if true, write a BAI index alongside the output. Requires a coordinate-sorted header.
+     * @param createMd5 if true, write an MD5 digest of the output alongside it
+     * @param compressionLevel deflate compression level, 0-9
+     * @param numCompressionThreads number of threads to use for compression
+     */
+    public ParallelBAMFileWriter(final Path outputPath, final SAMFileHeader header, final boolean createIndex, final boolean createMd5,
+                                 final int compressionLevel, final int numCompressionThreads) {
+        this.outputPath = Utils.nonNull(outputPath);
+        this.header = Utils.nonNull(header);
+        Utils.validateArg(!createIndex || header.getSortOrder() == SAMFileHeader.SortOrder.coordinate,
+                "Index creation requires a coordinate-sorted header");
+
+        this.sortOrderChecker = header.getSortOrder() == SAMFileHeader.SortOrder.unsorted || header.getSortOrder() == SAMFileHeader.SortOrder.unknown ?
+                null : new SAMSortOrderChecker(header.getSortOrder());
+        if ( createIndex ) {
+            bamIndexer = new BAMIndexer(outputPath.resolveSibling(IOUtils.replaceExtension(outputPath.getFileName().toString(), FileExtensions.BAI_INDEX)), header);
+            knownBlockAddresses.add(0L);
+        } else {
+            bamIndexer = null;
+        }
+
+        try {
+            OutputStream out = new BufferedOutputStream(Files.newOutputStream(outputPath));
+            if ( createMd5 ) {
+                out = new Md5CalculatingOutputStream(out, outputPath.resolveSibling(outputPath.getFileName() + ".md5"));
+            }
+            blockCompressedOutputStream = new ParallelBlockCompressedOutputStream(out, compressionLevel, numCompressionThreads,
+                    createIndex ? this::blockWritten : null);
+            writeHeader();
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(outputPath.toUri().toString(), "Unable to write BAM header", e);
+        }
+
+        recordCodec = new BAMRecordCodec(header);
+        recordCodec.setOutputStream(blockCompressedOutputStream);
+    }
+
+    /**
+     * Writes the binary BAM header, and ends the block so that the first record starts at the beginning of a block.
+     */
+    private void writeHeader() throws IOException {
+        final StringWriter headerText = new StringWriter();
+        new SAMTextHeaderCodec().encode(headerText, header);
+
+        final BinaryCodec binaryCodec = new BinaryCodec(blockCompressedOutputStream);
+        binaryCodec.writeBytes(BAM_MAGIC);
+        binaryCodec.writeString(headerText.toString(), true, false);
+        binaryCodec.writeInt(header.getSequenceDictionary().size());
+        for ( final SAMSequenceRecord sequence : header.getSequenceDictionary().getSequences() ) {
+            binaryCodec.writeString(sequence.getSequenceName(), true, true);
+            binaryCodec.writeInt(sequence.getSequenceLength());
+        }
+        blockCompressedOutputStream.flush();
+    }
+
+    @Override
+    public void addAlignment(final SAMRecord alignment) {
+        Utils.nonNull(alignment);
+        Utils.validate(!isClosed, "Cannot add alignments to a closed writer");
+        if ( sortOrderChecker != null ) {
+            final SAMRecord previous = sortOrderChecker.getPreviousRecord();
+            if ( ! sortOrderChecker.isSorted(alignment) ) {
+                throw new IllegalArgumentException(String.format("Alignments added out of order to %s. Sort order is %s. Offending records are at %s and %s",
+                        outputPath.toUri(), header.getSortOrder(), sortOrderChecker.getSortKey(previous), sortOrderChecker.getSortKey(alignment)));
+            }
+        }
+
+        final long start = blockCompressedOutputStream.getFilePointer();
+        recordCodec.encode(alignment);
+        if ( bamIndexer != null ) {
+            pendingIndexEntries.add(new PendingIndexEntry(alignment, start, blockCompressedOutputStream.getFilePointer()));
+            indexResolvableEntries();
+        }
+
+        if ( progressLogger != null ) {
+            progressLogger.record(alignment);
+        }
+    }
+
+    /**
+     * Called by the block compressed stream each time a block is written, at which point the address of the following
+     * block becomes known.
+     */
+    private void blockWritten(final long blockIndex, final long blockAddress, final int compressedBlockSize) {
+        if ( blockIndex != getLastKnownBlockIndex() ) {
+            throw new GATKException(String.format("Blocks written out of order: expected block %d but got %d", getLastKnownBlockIndex(), blockIndex));
+        }
+        knownBlockAddresses.add(blockAddress + compressedBlockSize);
+        indexResolvableEntries();
+    }
+
+    private long getLastKnownBlockIndex() {
+        return firstKnownBlockIndex + knownBlockAddresses.size() - 1;
+    }
+
+    /**
+     * Index every pending record whose blocks now have known addresses, then discard addresses that are no longer needed.
+     */
+    private void indexResolvableEntries() {
+        while ( ! pendingIndexEntries.isEmpty() &&
+                BlockCompressedFilePointerUtil.getBlockAddress(pendingIndexEntries.peek().logicalEnd) <= getLastKnownBlockIndex() ) {
+            final PendingIndexEntry entry = pendingIndexEntries.remove();
+            final Chunk chunk = new Chunk(toVirtualFilePointer(entry.logicalStart), toVirtualFilePointer(entry.logicalEnd));
+            entry.record.setFileSource(new SAMFileSource(null, new BAMFileSpan(chunk)));
+            bamIndexer.processAlignment(entry.record);
+        }
+
+        // records yet to be indexed (or written) can't start before the first pending record, or else the last known block
+        final long firstNeededBlockIndex = pendingIndexEntries.isEmpty() ? getLastKnownBlockIndex() :
+                BlockCompressedFilePointerUtil.getBlockAddress(pendingIndexEntries.peek().logicalStart);
+        while ( firstKnownBlockIndex < firstNeededBlockIndex ) {
+            knownBlockAddresses.remove();
+            firstKnownBlockIndex++;
+        }
+    }
+
+    private long toVirtualFilePointer(final long logicalFilePointer) {
+        final long blockIndex = BlockCompressedFilePointerUtil.getBlockAddress(logicalFilePointer);
+        long blockAddress = -1;
+        long index = firstKnownBlockIndex;
+        for ( final long address : knownBlockAddresses ) {
+            if ( index++ == blockIndex ) {
+                blockAddress = address;
+                break;
+            }
+        }
+        if ( blockAddress < 0 ) {
+            throw new GATKException("Address of block " + blockIndex + " is not known");
+        }
+        return BlockCompressedFilePointerUtil.makeFilePointer(blockAddress, BlockCompressedFilePointerUtil.getBlockOffset(logicalFilePointer));
+    }
+
+    @Override
+    public SAMFileHeader getFileHeader() {
+        return header;
+    }
+
+    @Override
+    public void setProgressLogger(final ProgressLoggerInterface progressLogger) {
+        this.progressLogger = progressLogger;
+    }
+
+    @Override
+    public void close() {
+        if ( isClosed ) {
+            return;
+        }
+        isClosed = true;
+        try {
+            blockCompressedOutputStream.close();
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(outputPath.toUri().toString(), "Unable to finish writing BAM file", e);
+        }
+        if ( bamIndexer != null ) {
+            if ( ! pendingIndexEntries.isEmpty() ) {
+                throw new GATKException(pendingIndexEntries.size() + " record(s) were never indexed");
+            }
+            bamIndexer.finish();
+        }
+    }
+
+    private static final class PendingIndexEntry {
+        private final SAMRecord record;
+        private final long logicalStart;
+        private final long logicalEnd;
+
+        PendingIndexEntry(final SAMRecord record, final long logicalStart, final long logicalEnd) {
+            this.record = record;
+            this.logicalStart = logicalStart;
+            this.logicalEnd = logicalEnd;
+        }
+    }
+}
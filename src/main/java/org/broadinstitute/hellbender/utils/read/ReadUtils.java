@@ -962,6 +962,50 @@ public final class ReadUtils {
         return ReadUtils.createCommonSAMWriterFromFactory(factory, outputPath, referenceFile, header, preSorted);
     }
 
+    /**
+     * Create a common SAMFileWriter for use with GATK tools, optionally compressing BAM output on multiple threads.
+     *
+     * A {@link ParallelBAMFileWriter} is used only if compressionThreads is positive, the output is a BAM file, and the
+     * writer won't have to sort the records (either they're presorted, or the header sort order doesn't require sorting).
+     * Otherwise, this is equivalent to {@link #createCommonSAMWriter(Path, Path, SAMFileHeader, boolean, boolean, boolean)}.
+     *
+     * @param outputPath - if this file has a .cram extension then a reference is required. Can not be null.
+     * @param referenceFile - the reference source to use. Can not be null if a output file has a .cram extension.
+     * @param header - header to be used for the output writer
+     * @param preSorted - if true then the records must already be sorted to match the header sort order
+     * @param createOutputBamIndex - if true an index will be created for .BAM and .CRAM files
+     * @param createMD5 - if true an MD5 file will be created
+     * @param compressionThreads - number of threads to use for BGZF compression of BAM output (0 to use the standard htsjdk writer)
+     *
+     * @return SAMFileWriter
+     */
+    public static SAMFileWriter createCommonSAMWriter(
+        final Path outputPath,
+        final Path referenceFile,
+        final SAMFileHeader header,
+        final boolean preSorted,
+        boolean createOutputBamIndex,
+        final boolean createMD5,
+        final int compressionThreads)
+    {
+        Utils.nonNull(outputPath);
+        Utils.nonNull(header);
+        Utils.validateArg(compressionThreads >= 0, "compressionThreads must be >= 0");
+
+        final boolean needsSorting = !preSorted && header.getSortOrder() != SAMFileHeader.SortOrder.unsorted && header.getSortOrder() != SAMFileHeader.SortOrder.unknown;
+        if (compressionThreads == 0 || needsSorting || !outputPath.toString().endsWith(FileExtensions.BAM)) {
+            return createCommonSAMWriter(outputPath, referenceFile, header, preSorted, createOutputBamIndex, createMD5);
+        }
+
+        if (createOutputBamIndex && header.getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
+            logger.warn("Skipping index file creation for: " +
+                outputPath +  ". Index file creation requires reads in coordinate sorted order.");
+            createOutputBamIndex = false;
+        }
+
+        return new ParallelBAMFileWriter(outputPath, header.clone(), createOutputBamIndex, createMD5, Defaults.COMPRESSION_LEVEL, compressionThreads);
+    }
+
     /**
      * Create a common SAMFileWriter from a factory for use with GATK tools. Assumes that if the factory has been set
      * to create an index, the header must be set to coordinate sorted.
@@ -62,6 +62,11 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     private RecalibrationArgumentCollection recalArgs;
 
+    /**
+     * counts of the bases processed, from which recalTables is made by finalizeData()
+     */
+    private FlatRecalibrationTables flatTables;
+
     private RecalibrationTables recalTables;
 
     private SAMFileHeader readsHeader;
@@ -97,7 +102,7 @@ public final class BaseRecalibrationEngine implements Serializable {
         if ( numReadGroups < 1 ) {
             throw new UserException("Number of read groups must be >= 1, but is " + numReadGroups);
         }
-        recalTables = new RecalibrationTables(covariates, numReadGroups);
+        flatTables = new FlatRecalibrationTables(covariates, numReadGroups);
         keyCache = new CovariateKeyCache();
         cachedEventTypes = recalArgs.computeIndelBQSRTables ? EventType.values() : new EventType[]{EventType.BASE_SUBSTITUTION};
     }
@@ -159,6 +164,7 @@ public final class BaseRecalibrationEngine implements Serializable {
      */
     public void finalizeData() {
         Utils.validate(!finalized, "FinalizeData() has already been called");
+        recalTables = flatTables.toRecalibrationTables();
         finalizeRecalibrationTables(recalTables);
         finalized = true;
     }
@@ -208,11 +214,25 @@ public final class BaseRecalibrationEngine implements Serializable {
         }
     }
 
+    /**
+     * Merge the tables and read count of another engine, created with the same arguments and header, into this one's.
+     *
+     * Called before finalizeData(), when reads have been processed by several engines.
+     */
+    public void combine( final BaseRecalibrationEngine other ) {
+        Utils.nonNull(other);
+        Utils.validate(!finalized && !other.finalized, "Cannot combine engines after finalizeData() has been called");
+        flatTables.combine(other.flatTables);
+        numReadsProcessed += other.numReadsProcessed;
+    }
+
     /**
      * Get a possibly not-final recalibration table, to deal with distributed execution.
+     *
+     * Before finalizeData() has been called, this makes new tables from the counts of the bases processed so far.
      */
     public RecalibrationTables getRecalibrationTables() {
-        return recalTables;
+        return finalized ? recalTables : flatTables.toRecalibrationTables();
     }
 
     /**
@@ -246,7 +266,6 @@ public final class BaseRecalibrationEngine implements Serializable {
 
         final GATKRead read = recalInfo.getRead();
         final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalTables.getQualityScoreTable();
 
         final int nCovariates = covariates.size();
         final int nSpecialCovariates = covariates.numberOfSpecialCovariates();
@@ -257,18 +276,18 @@ public final class BaseRecalibrationEngine implements Serializable {
                     final EventType eventType = cachedEventTypes[idx];
                     final int[] keys = readCovariates.getKeySet(offset, eventType);
                     final int eventIndex = eventType.ordinal();
-                    final byte qual = recalInfo.getQual(eventType, offset);
                     final double isError = recalInfo.getErrorFraction(eventType, offset);
 
                     final int key0 = keys[0];
                     final int key1 = keys[1];
 
-                    RecalUtils.incrementDatumOrPutIfNecessary3keys(qualityScoreTable, qual, isError, key0, key1, eventIndex);
+                    // the quality score key is the reported quality of the base, which the flat tables rely on
+                    flatTables.incrementQualityScore(key0, key1, eventIndex, isError);
 
                     for (int i = nSpecialCovariates; i < nCovariates; i++) {
                         final int keyi = keys[i];
                         if (keyi >= 0) {
-                            RecalUtils.incrementDatumOrPutIfNecessary4keys(recalTables.getTable(i), qual, isError, key0, key1, keyi, eventIndex);
+                            flatTables.incrementCovariate(i - nSpecialCovariates, key0, key1, keyi, eventIndex, isError);
                         }
                     }
                 }
@@ -0,0 +1,197 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.Covariate;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+
+import java.io.Serializable;
+
+/**
+ * Observation and mismatch counts of the quality score table and of the additional covariate tables, kept in primitive
+ * arrays indexed by covariate keys rather than in {@link NestedIntegerArray}s of {@link RecalDatum}s, so that counting
+ * the bases of a read allocates nothing. These are converted to {@link RecalibrationTables} once all reads have been
+ * counted (the read group table is derived from the quality score table when finalizing those).
+ *
+ * The quality score table is a single array, by read group, quality score and event type. The table of each additional
+ * covariate is split into blocks, one per read group and quality score, each by covariate key and event type; a block
+ * is only allocated when the first base with that read group and quality score is counted, since a sample usually
+ * only has a few of the possible quality scores.
+ *
+ * Every base counted in a cell has the quality score of the cell as its reported quality, so that isn't stored.
+ * Mismatches are summed with the same scaling as {@link RecalDatum} uses, so the resulting datums are identical to
+ * those built by incrementing datums one base at a time.
+ */
+public final class FlatRecalibrationTables implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final StandardCovariateList covariates;
+    private final int numReadGroups;
+    private final int qualDimension;
+    private final int eventDimension = EventType.values().length;
+
+    private final long[] qualObservations;
+    private final double[] qualMismatches;
+
+    // for each additional covariate, the number of keys and the blocks by read group and quality score
+    private final int[] covariateDimensions;
+    private final long[][][] covariateObservations;
+    private final double[][][] covariateMismatches;
+
+    public FlatRecalibrationTables(final StandardCovariateList covariates, final int numReadGroups) {
+        Utils.nonNull(covariates);
+        Utils.validateArg(numReadGroups >= 1, "numReadGroups must be >= 1");
+        this.covariates = covariates;
+        this.numReadGroups = numReadGroups;
+        this.qualDimension = covariates.getQualityScoreCovariate().maximumKeyValue() + 1;
+
+        final int qualTableSize = numReadGroups * qualDimension * eventDimension;
+        qualObservations = new long[qualTableSize];
+        qualMismatches = new double[qualTableSize];
+
+        final int numAdditionalCovariates = covariates.size() - covariates.numberOfSpecialCovariates();
+        covariateDimensions = new int[numAdditionalCovariates];
+        covariateObservations = new long[numAdditionalCovariates][][];
+        covariateMismatches = new double[numAdditionalCovariates][][];
+        int i = 0;
+        for ( final Covariate cov : covariates.getAdditionalCovariates() ) {
+            covariateDimensions[i] = cov.maximumKeyValue() + 1;
+            covariateObservations[i] = new long[numReadGroups * qualDimension][];
+            covariateMismatches[i] = new double[numReadGroups * qualDimension][];
+            i++;
+        }
+    }
+
+    /**
+     * Counts a base in the quality score table.
+     *
+     * @param readGroup read group key
+     * @param qual quality score key, which is also the reported quality of the base
+     * @param eventIndex ordinal of the event type
+     * @param isError error value for this event
+     */
+    public void incrementQualityScore(final int readGroup, final int qual, final int eventIndex, final double isError) {
+        final int index = (qualIndex(readGroup, qual) * eventDimension) + eventIndex;
+        qualObservations[index]++;
+        qualMismatches[index] += RecalDatum.scaleMismatches(isError);
+    }
+
+    /**
+     * Counts a base in the table of an additional covariate.
+     *
+     * @param covariateIndex index of the covariate among the additional covariates
+     * @param readGroup read group key
+     * @param qual quality score key, which is also the reported quality of the base
+     * @param key key of the covariate
+     * @param eventIndex ordinal of the event type
+     * @param isError error value for this event
+     */
+    public void incrementCovariate(final int covariateIndex, final int readGroup, final int qual, final int key, final int eventIndex, final double isError) {
+        final int dimension = covariateDimensions[covariateIndex];
+        if ( key >= dimension ) {
+            throw new IllegalArgumentException("Key " + key + " is too large for covariate " + covariateIndex + " (max is " + (dimension - 1) + ")");
+        }
+        final int block = qualIndex(readGroup, qual);
+        long[] observations = covariateObservations[covariateIndex][block];
+        if ( observations == null ) {
+            observations = covariateObservations[covariateIndex][block] = new long[dimension * eventDimension];
+            covariateMismatches[covariateIndex][block] = new double[dimension * eventDimension];
+        }
+        final int index = key * eventDimension + eventIndex;
+        observations[index]++;
+        covariateMismatches[covariateIndex][block][index] += RecalDatum.scaleMismatches(isError);
+    }
+
+    private int qualIndex(final int readGroup, final int qual) {
+        if ( readGroup >= numReadGroups || qual >= qualDimension ) {
+            throw new IllegalArgumentException("Read group " + readGroup + " or quality score " + qual + " is too large (max are " + (numReadGroups - 1) + " and " + (qualDimension - 1) + ")");
+        }
+        return readGroup * qualDimension + qual;
+    }
+
+    /**
+     * Adds the counts of other tables, made with the same covariates and number of read groups, to these.
+     */
+    public FlatRecalibrationTables combine(final FlatRecalibrationTables other) {
+        Utils.nonNull(other);
+        Utils.validateArg(numReadGroups == other.numReadGroups && qualDimension == other.qualDimension &&
+                covariateDimensions.length == other.covariateDimensions.length, "Attempting to merge FlatRecalibrationTables with different sizes");
+        addCounts(other.qualObservations, other.qualMismatches, qualObservations, qualMismatches);
+        for ( int i = 0; i < covariateDimensions.length; i++ ) {
+            Utils.validateArg(covariateDimensions[i] == other.covariateDimensions[i], "Attempting to merge FlatRecalibrationTables with different sizes");
+            for ( int block = 0; block < numReadGroups * qualDimension; block++ ) {
+                final long[] otherObservations = other.covariateObservations[i][block];
+                if ( otherObservations == null ) {
+                    continue;
+                }
+                if ( covariateObservations[i][block] == null ) {
+                    covariateObservations[i][block] = otherObservations.clone();
+                    covariateMismatches[i][block] = other.covariateMismatches[i][block].clone();
+                } else {
+                    addCounts(otherObservations, other.covariateMismatches[i][block], covariateObservations[i][block], covariateMismatches[i][block]);
+                }
+            }
+        }
+        return this;
+    }
+
+    private static void addCounts(final long[] fromObservations, final double[] fromMismatches, final long[] toObservations, final double[] toMismatches) {
+        for ( int i = 0; i < fromObservations.length; i++ ) {
+            toObservations[i] += fromObservations[i];
+            toMismatches[i] += fromMismatches[i];
+        }
+    }
+
+    /**
+     * @return true if no bases have been counted
+     */
+    public boolean isEmpty() {
+        for ( final long observations : qualObservations ) {
+            if ( observations != 0 ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes recalibration tables with a datum for every cell in which bases have been counted. The read group table
+     * is left empty, as it is filled in by {@link BaseRecalibrationEngine#finalizeRecalibrationTables}.
+     */
+    public RecalibrationTables toRecalibrationTables() {
+        final RecalibrationTables tables = new RecalibrationTables(covariates, numReadGroups);
+        final NestedIntegerArray<RecalDatum> qualityScoreTable = tables.getQualityScoreTable();
+        for ( int readGroup = 0; readGroup < numReadGroups; readGroup++ ) {
+            for ( int qual = 0; qual < qualDimension; qual++ ) {
+                for ( int event = 0; event < eventDimension; event++ ) {
+                    final int index = (qualIndex(readGroup, qual) * eventDimension) + event;
+                    if ( qualObservations[index] > 0 ) {
+                        qualityScoreTable.put(RecalDatum.fromScaledMismatches(qualObservations[index], qualMismatches[index], (byte)qual), readGroup, qual, event);
+                    }
+                }
+            }
+        }
+
+        for ( int i = 0; i < covariateDimensions.length; i++ ) {
+            final NestedIntegerArray<RecalDatum> table = tables.getAdditionalTables().get(i);
+            for ( int readGroup = 0; readGroup < numReadGroups; readGroup++ ) {
+                for ( int qual = 0; qual < qualDimension; qual++ ) {
+                    final long[] observations = covariateObservations[i][qualIndex(readGroup, qual)];
+                    if ( observations == null ) {
+                        continue;
+                    }
+                    final double[] mismatches = covariateMismatches[i][qualIndex(readGroup, qual)];
+                    for ( int key = 0; key < covariateDimensions[i]; key++ ) {
+                        for ( int event = 0; event < eventDimension; event++ ) {
+                            final int index = key * eventDimension + event;
+                            if ( observations[index] > 0 ) {
+                                table.put(RecalDatum.fromScaledMismatches(observations[index], mismatches[index], (byte)qual), readGroup, qual, key, event);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+}
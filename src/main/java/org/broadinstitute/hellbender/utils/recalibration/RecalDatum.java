@@ -85,6 +85,28 @@ public final class RecalDatum implements Serializable {
         this.empiricalQuality = copy.empiricalQuality;
     }
 
+    /**
+     * Create a new RecalDatum from a number of mismatches that has already been scaled with {@link #scaleMismatches}
+     *
+     * @param numObservations     observations
+     * @param scaledNumMismatches sum of scaled mismatches
+     * @param reportedQuality     Qreported
+     */
+    static RecalDatum fromScaledMismatches(final long numObservations, final double scaledNumMismatches, final byte reportedQuality) {
+        final RecalDatum datum = new RecalDatum(numObservations, 0.0, reportedQuality);
+        if ( scaledNumMismatches < 0.0 ) throw new IllegalArgumentException("numMismatches < 0");
+        datum.numMismatches = scaledNumMismatches;
+        return datum;
+    }
+
+    /**
+     * Scales mismatches as they're stored in a RecalDatum, so that mismatches summed outside of one (as in
+     * {@link FlatRecalibrationTables}) are the same as if they had been added with {@link #increment}
+     */
+    static double scaleMismatches(final double mismatches) {
+        return mismatches * MULTIPLIER;
+    }
+
     /**
      * Add in all of the data from other into this object, updating the reported quality from the expected
      * error rate implied by the two reported qualities
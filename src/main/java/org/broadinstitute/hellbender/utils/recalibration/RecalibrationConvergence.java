@@ -0,0 +1,100 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+
+/**
+ * Decides when recalibration tables built from a growing sample of the reads have stopped changing.
+ *
+ * The tables are checked each time the number of reads counted doubles, starting from a minimum number of reads, and
+ * are compared with the tables of the previous check, ie those built from half of the reads. The change of a table is
+ * the mean absolute change of the empirical qualities of its datums, weighted by their current numbers of observations
+ * (a datum that is new since the previous check is compared with its reported quality), so that sparse cells, whose
+ * estimates remain noisy for a long time, don't keep the tables from converging. The tables have converged once the
+ * largest change among the quality score table and the tables of the additional covariates is within the tolerance.
+ */
+public final class RecalibrationConvergence {
+    private final double tolerance;
+
+    private RecalibrationTables previousTables = null;
+    private long nextCheck;
+    private double lastChange = Double.POSITIVE_INFINITY;
+
+    /**
+     * @param tolerance largest change of the tables, in Phred-scaled quality, for them to be considered converged
+     * @param minReads number of reads to count before the first check
+     */
+    public RecalibrationConvergence(final double tolerance, final long minReads) {
+        Utils.validateArg(tolerance >= 0.0, "tolerance must be >= 0");
+        Utils.validateArg(minReads >= 1, "minReads must be >= 1");
+        this.tolerance = tolerance;
+        this.nextCheck = minReads;
+    }
+
+    /**
+     * @return true if the tables should be checked now that this many reads have been counted
+     */
+    public boolean isCheckDue(final long numReads) {
+        return numReads >= nextCheck;
+    }
+
+    /**
+     * Compares the tables with those of the previous check, and keeps them for the next check.
+     *
+     * @param tables tables built from the reads counted so far, which must not be modified afterwards
+     * @param numReads number of reads counted so far
+     * @return true if the tables have converged
+     */
+    public boolean check(final RecalibrationTables tables, final long numReads) {
+        Utils.nonNull(tables);
+        Utils.validate(isCheckDue(numReads), "Tables checked before enough reads have been counted");
+        if ( previousTables != null ) {
+            lastChange = largestChange(previousTables, tables);
+        }
+        previousTables = tables;
+        nextCheck = 2 * numReads;
+        return hasConverged();
+    }
+
+    /**
+     * @return true if the change measured by the last check is within the tolerance
+     */
+    public boolean hasConverged() {
+        return lastChange <= tolerance;
+    }
+
+    /**
+     * @return the change measured by the last check, or infinity if fewer than two checks have been made
+     */
+    public double getLastChange() {
+        return lastChange;
+    }
+
+    /**
+     * @return the largest weighted mean change of empirical quality from {@code previous} to {@code current} among the
+     *         quality score table and the tables of the additional covariates
+     */
+    public static double largestChange(final RecalibrationTables previous, final RecalibrationTables current) {
+        Utils.nonNull(previous);
+        Utils.nonNull(current);
+        Utils.validateArg(previous.numTables() == current.numTables(), "Tables made with different covariates");
+        double largest = weightedChange(previous.getQualityScoreTable(), current.getQualityScoreTable());
+        for ( int i = 0; i < current.getAdditionalTables().size(); i++ ) {
+            largest = Math.max(largest, weightedChange(previous.getAdditionalTables().get(i), current.getAdditionalTables().get(i)));
+        }
+        return largest;
+    }
+
+    private static double weightedChange(final NestedIntegerArray<RecalDatum> previous, final NestedIntegerArray<RecalDatum> current) {
+        double weightedSum = 0.0;
+        long totalObservations = 0;
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : current.getAllLeaves() ) {
+            final RecalDatum datum = leaf.value;
+            final RecalDatum previousDatum = previous.get(leaf.keys);
+            final double previousQuality = previousDatum == null ? datum.getEstimatedQReported() : previousDatum.getEmpiricalQuality();
+            weightedSum += datum.getNumObservations() * Math.abs(datum.getEmpiricalQuality() - previousQuality);
+            totalObservations += datum.getNumObservations();
+        }
+        return totalObservations == 0 ? 0.0 : weightedSum / totalObservations;
+    }
+}
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.utils.smithwaterman;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 import htsjdk.samtools.Cigar;
 import htsjdk.samtools.CigarElement;
@@ -14,6 +15,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Pairwise discrete smith-waterman alignment implemented in pure java
@@ -25,7 +27,8 @@ import java.util.List;
  */
 public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
     private static final SmithWatermanJavaAligner ALIGNER = new SmithWatermanJavaAligner();
-    private long totalComputeTime = 0;
+    // updated by every thread aligning with this aligner, which may be several at once
+    private final AtomicLong totalComputeTime = new AtomicLong();
 
     /**
      * return the stateless singleton instance of SmithWatermanJavaAligner
@@ -50,6 +53,14 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
      */
     private SmithWatermanJavaAligner(){}
 
+    /**
+     * Width on each side of the diagonals between the corners of the first band of the SW matrix that is computed.
+     * Alignments with gaps that take them further than this from those diagonals are found by widening the band.
+     */
+    private static final int INITIAL_BAND_MARGIN = 16;
+
+    private static final int MATRIX_MIN_CUTOFF = (int) -1.0e8;   // never let matrix elements drop below this cutoff
+
     /**
      * Aligns the alternate sequence to the reference sequence
      *
@@ -60,8 +71,6 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
     public SmithWatermanAlignment align(final byte[] reference, final byte[] alternate, final SWParameters parameters, final SWOverhangStrategy overhangStrategy) {
         long startTime = System.nanoTime();
 
-        new String(reference);
-
         if ( reference == null || reference.length == 0 || alternate == null || alternate.length == 0 ) {
             throw new IllegalArgumentException("Non-null, non-empty sequences are required for the Smith-Waterman calculation");
         }
@@ -83,39 +92,118 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
             alignmentResult = new SWPairwiseAlignmentResult(new Cigar(Collections.singletonList(new CigarElement(alternate.length, CigarOperator.M))), matchIndex);
         }
         else {
-            // run full Smith-Waterman
-            final int n = reference.length+1;
-            final int m = alternate.length+1;
-            final int[][] sw = new int[n][m];
-            final int[][] btrack=new int[n][m];
-
-            calculateMatrix(reference, alternate, sw, btrack, overhangStrategy, parameters);
-            alignmentResult = calculateCigar(sw, btrack, overhangStrategy); // length of the segment (continuous matches, insertions or deletions)
+            alignmentResult = align(reference, alternate, parameters, overhangStrategy, true);
         }
 
-        totalComputeTime += System.nanoTime() - startTime;
+        totalComputeTime.addAndGet(System.nanoTime() - startTime);
         return alignmentResult;
     }
 
     /**
-     * Calculates the SW matrices for the given sequences
+     * Runs Smith-Waterman, possibly on a band of diagonals of the matrix only.
+     *
+     * When the alignment can't start anywhere along the edges of the matrix (that is, with the INDEL and LEADING_INDEL
+     * overhang strategies), an alignment that strays far from the diagonals between the start and end corners needs
+     * long gaps, so only a band around them is computed, and the band is doubled until no alignment leaving it could
+     * score as high as the best one within it.  The result is then the same as that of the whole matrix, which is
+     * what is computed when the band would cover (nearly) all of it.
+     *
+     * @param banded whether a band may be used; false to always compute the whole matrix
+     */
+    @VisibleForTesting
+    static SmithWatermanAlignment align(final byte[] reference, final byte[] alternate, final SWParameters parameters,
+                                        final SWOverhangStrategy overhangStrategy, final boolean banded) {
+        // diagonals are indexed by j - i, from -n in the bottom left corner to m in the top right one
+        final int n = reference.length;
+        final int m = alternate.length;
+        if ( banded && canUseBand(overhangStrategy, parameters) ) {
+            final int endDiagonal = m - n;
+            for ( int margin = INITIAL_BAND_MARGIN; Math.min(0, endDiagonal) - margin > -n || Math.max(0, endDiagonal) + margin < m; margin *= 2 ) {
+                final int lowDiagonal = Math.max(-n, Math.min(0, endDiagonal) - margin);
+                final int highDiagonal = Math.min(m, Math.max(0, endDiagonal) + margin);
+                final AlignmentMatrix matrix = calculateMatrix(reference, alternate, overhangStrategy, parameters, lowDiagonal, highDiagonal);
+                final int[] end = findAlignmentEnd(matrix, overhangStrategy);
+                if ( bandIsExact(matrix, matrix.score(end[0], end[1]), parameters, overhangStrategy) ) {
+                    return calculateCigar(matrix, end, overhangStrategy);
+                }
+            }
+        }
+        final AlignmentMatrix matrix = calculateMatrix(reference, alternate, overhangStrategy, parameters, -n, m);
+        return calculateCigar(matrix, findAlignmentEnd(matrix, overhangStrategy), overhangStrategy);
+    }
+
+    // bands only make sense when alignments start in the top left corner, and gaps only get more costly with length
+    private static boolean canUseBand(final SWOverhangStrategy overhangStrategy, final SWParameters parameters) {
+        return (overhangStrategy == SWOverhangStrategy.INDEL || overhangStrategy == SWOverhangStrategy.LEADING_INDEL)
+                && parameters.getGapOpenPenalty() <= 0 && parameters.getGapExtendPenalty() <= 0;
+    }
+
+    /**
+     * Whether any alignment that leaves a band of diagonals is guaranteed to score lower than the best alignment within
+     * the band, in which case every cell along the latter has the same score and back track in the banded matrix as in
+     * the whole one, and no other alignment end can win over it or tie with it, so both give the same alignment.
+     *
+     * An alignment leaves the band with a gap step from a cell on one of its edges, so it scores at most the score of
+     * that cell in the banded matrix, plus that of the step, plus the highest score of any path from there to an end.
+     */
+    private static boolean bandIsExact(final AlignmentMatrix matrix, final int bestScore, final SWParameters parameters,
+                                       final SWOverhangStrategy overhangStrategy) {
+        final int n = matrix.refLength;
+        final int m = matrix.altLength;
+        final long maxStepScore = Math.max(parameters.getMatchValue(), parameters.getMismatchPenalty());
+        final long maxGapStepScore = Math.max(parameters.getGapOpenPenalty(), parameters.getGapExtendPenalty());
+        // scores are floored at MATRIX_MIN_CUTOFF, which is like starting an alignment anywhere with that score
+        if ( bestScore <= MATRIX_MIN_CUTOFF + Math.max(0, maxStepScore) * Math.min(n, m) ) {
+            return false;
+        }
+        for ( int i = 0; i <= n; i++ ) {
+            // a step down from the lowest diagonal, or to the right from the highest one
+            final int lowColumn = i + matrix.lowDiagonal;
+            if ( lowColumn >= 0 && lowColumn <= m && i < n && matrix.lowEdgeScores[i] + maxGapStepScore
+                    + maxScoreToEnd(i + 1, lowColumn, n, m, maxStepScore, maxGapStepScore, overhangStrategy) >= bestScore ) {
+                return false;
+            }
+            final int highColumn = i + matrix.highDiagonal;
+            if ( highColumn >= 0 && highColumn < m && matrix.highEdgeScores[i] + maxGapStepScore
+                    + maxScoreToEnd(i, highColumn + 1, n, m, maxStepScore, maxGapStepScore, overhangStrategy) >= bestScore ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // the highest score of a path from cell (i, j) to where an alignment can end: the bottom right corner with the INDEL
+    // strategy, or any cell of the last column below it with LEADING_INDEL
+    private static long maxScoreToEnd(final int i, final int j, final int n, final int m, final long maxStepScore,
+                                      final long maxGapStepScore, final SWOverhangStrategy overhangStrategy) {
+        if ( overhangStrategy == SWOverhangStrategy.INDEL ) {
+            return maxPathScore(n - i, m - j, maxStepScore, maxGapStepScore);
+        }
+        return Math.max(maxPathScore(0, m - j, maxStepScore, maxGapStepScore),
+                maxPathScore(Math.min(n - i, m - j), m - j, maxStepScore, maxGapStepScore));
+    }
+
+    // the highest score of a path down and right through a number of rows and columns, which is linear in its number of
+    // diagonal steps, so that either as few or as many as possible of them are best
+    private static long maxPathScore(final int rows, final int columns, final long maxStepScore, final long maxGapStepScore) {
+        return Math.max(maxGapStepScore * (rows + columns),
+                maxStepScore * Math.min(rows, columns) + maxGapStepScore * Math.abs(rows - columns));
+    }
+
+    /**
+     * Calculates the SW matrix and back track for the given sequences, within a band of diagonals
      * @param reference  ref sequence
      * @param alternate  alt sequence
-     * @param sw         the Smith-Waterman matrix to populate
-     * @param btrack     the back track matrix to populate
      * @param overhangStrategy    the strategy to use for dealing with overhangs
      * @param parameters the set of weights to use to configure the alignment
+     * @param lowDiagonal the lowest diagonal j - i of the band, at least -reference.length for the whole matrix
+     * @param highDiagonal the highest diagonal j - i of the band, at most alternate.length for the whole matrix
      */
-    private static void calculateMatrix(final byte[] reference, final byte[] alternate, final int[][] sw, final int[][] btrack,
-                                        final SWOverhangStrategy overhangStrategy, final SWParameters parameters) {
-        if ( reference.length == 0 || alternate.length == 0 ) {
-            throw new IllegalArgumentException("Non-null, non-empty sequences are required for the Smith-Waterman calculation");
-        }
-
-        final int ncol = sw[0].length;//alternate.length+1; formerly m
-        final int nrow = sw.length;// reference.length+1; formerly n
-
-        final int MATRIX_MIN_CUTOFF = (int) -1.0e8;   // never let matrix elements drop below this cutoff
+    private static AlignmentMatrix calculateMatrix(final byte[] reference, final byte[] alternate,
+                                                   final SWOverhangStrategy overhangStrategy, final SWParameters parameters,
+                                                   final int lowDiagonal, final int highDiagonal) {
+        final int ncol = alternate.length + 1; // formerly m
+        final int nrow = reference.length + 1; // formerly n
 
         final int lowInitValue= Integer.MIN_VALUE/2;
         final int[] best_gap_v = new int[ncol+1];
@@ -125,42 +213,51 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
         Arrays.fill(best_gap_h, lowInitValue);
         final int[] gap_size_h = new int[nrow+1];
 
-        // we need to initialize the SW matrix with gap penalties if we want to keep track of indels at the edges of alignments
-        if ( overhangStrategy == SWOverhangStrategy.INDEL || overhangStrategy == SWOverhangStrategy.LEADING_INDEL ) {
-            // initialize the first row
-            final int[] topRow=sw[0];
-            topRow[1]= parameters.getGapOpenPenalty();
-            int currentValue = parameters.getGapOpenPenalty();
-            for ( int i = 2; i < topRow.length; i++ ) {
-                currentValue += parameters.getGapExtendPenalty();
-                topRow[i]=currentValue;
-            }
-            // initialize the first column
-            sw[1][0]= parameters.getGapOpenPenalty();
-            currentValue = parameters.getGapOpenPenalty();
-            for ( int i = 2; i < sw.length; i++ ) {
-                currentValue += parameters.getGapExtendPenalty();
-                sw[i][0]=currentValue;
-            }
-        }
-        // build smith-waterman matrix and keep backtrack info:
-        int[] curRow=sw[0];
-
         //access is pricey if done enough times so we extract those out
         final int w_open = parameters.getGapOpenPenalty();
         final int w_extend = parameters.getGapExtendPenalty();
         final int w_match = parameters.getMatchValue();
         final int w_mismatch = parameters.getMismatchPenalty();
 
-        //array length checks are expensive in tight loops so extract the length out
-        for ( int i = 1, sw_length = sw.length; i < sw_length ; i++ ) {
+        final AlignmentMatrix matrix = new AlignmentMatrix(nrow, ncol, lowDiagonal, highDiagonal);
+        final int[] btrack = matrix.btrack;
+
+        // we need to initialize the SW matrix with gap penalties if we want to keep track of indels at the edges of alignments
+        final boolean edgeGaps = overhangStrategy == SWOverhangStrategy.INDEL || overhangStrategy == SWOverhangStrategy.LEADING_INDEL;
+
+        // only the previous and current rows of the SW matrix are kept, with lowInitValue outside of the band
+        int[] lastRow = new int[ncol];
+        int[] curRow = new int[ncol];
+        // initialize the first row
+        Arrays.fill(curRow, lowInitValue);
+        for ( int j = 0, end = Math.min(ncol - 1, highDiagonal); j <= end; j++ ) {
+            curRow[j] = edgeGaps ? edgeValue(j, w_open, w_extend) : 0;
+        }
+        matrix.lastColumn[0] = curRow[ncol - 1];
+        matrix.recordEdgeScores(0, curRow);
+        int previousHigh = Math.min(ncol - 1, highDiagonal);
+
+        // build smith-waterman matrix and keep backtrack info:
+        for ( int i = 1; i < nrow ; i++ ) {
             final byte a_base = reference[i-1]; // letter in a at the current pos
-            final int[] lastRow=curRow;
-            curRow=sw[i];
-            final int[] curBackTrackRow=btrack[i];
+            final int[] swap = lastRow;
+            lastRow = curRow;
+            curRow = swap;
+
+            final int low = matrix.low(i);
+            final int high = matrix.high(i);
+            // initialize the first column, and mark the cells next to the band as outside of it
+            curRow[0] = -i >= lowDiagonal ? (edgeGaps ? edgeValue(i, w_open, w_extend) : 0) : lowInitValue;
+            if ( low > 1 ) {
+                curRow[low - 1] = lowInitValue;
+            }
+            if ( high > previousHigh ) {
+                lastRow[high] = lowInitValue;
+            }
+            final int btrackOffset = matrix.btrackOffset(i);
 
             //array length checks are expensive in tight loops so extract the length out
-            for ( int j = 1, curRow_length = curRow.length; j < curRow_length; j++) {
+            for ( int j = low; j <= high; j++) {
                 final byte b_base = alternate[j-1]; // letter in b at the current pos
                 // in other words, step_diag = sw[i-1][j-1] + wd(a_base,b_base);
                 final int step_diag = lastRow[j-1] + (a_base == b_base ? w_match : w_mismatch);
@@ -213,17 +310,100 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
 
                 if ( diagHighestOrEqual ) {
                     curRow[j]= Math.max(MATRIX_MIN_CUTOFF, step_diag);
-                    curBackTrackRow[j]=0;
+                    btrack[btrackOffset + j]=0;
                 }
                 else if(step_right>=step_down) { //moving right is the highest
                     curRow[j]= Math.max(MATRIX_MIN_CUTOFF, step_right);
-                    curBackTrackRow[j]=-ki; // negative = horizontal
+                    btrack[btrackOffset + j]=-ki; // negative = horizontal
                 }
                 else  {
                     curRow[j]= Math.max(MATRIX_MIN_CUTOFF, step_down);
-                    curBackTrackRow[j]= kd; // positive=vertical
+                    btrack[btrackOffset + j]= kd; // positive=vertical
                 }
             }
+            matrix.lastColumn[i] = high == ncol - 1 ? curRow[ncol - 1] : lowInitValue;
+            matrix.recordEdgeScores(i, curRow);
+            previousHigh = high;
+        }
+
+        // keep the bottom row, with lowInitValue outside of the band
+        final int[] bottomRow = matrix.bottomRow;
+        Arrays.fill(bottomRow, lowInitValue);
+        final int lastRowIndex = nrow - 1;
+        bottomRow[0] = curRow[0];
+        System.arraycopy(curRow, matrix.low(lastRowIndex), bottomRow, matrix.low(lastRowIndex), matrix.high(lastRowIndex) - matrix.low(lastRowIndex) + 1);
+        return matrix;
+    }
+
+    // score of a cell on the first row or column when alignments are initialized with gaps
+    private static int edgeValue(final int index, final int w_open, final int w_extend) {
+        return index == 0 ? 0 : w_open + (index - 1) * w_extend;
+    }
+
+    /**
+     * The parts of the SW matrix needed to find the alignment: its last column and bottom row, and the back track
+     * of the cells within a band of diagonals, stored row after row in a single array.
+     */
+    private static final class AlignmentMatrix {
+        private final int refLength;
+        private final int altLength;
+        private final int lowDiagonal;
+        private final int highDiagonal;
+        private final int[] lastColumn;
+        private final int[] bottomRow;
+        // scores of the cells of each row on the lowest and highest diagonals of the band, if any
+        private final int[] lowEdgeScores;
+        private final int[] highEdgeScores;
+        private final int[] btrack;
+        // btrack[btrackOffsets[i] + j] is the back track of cell (i, j)
+        private final int[] btrackOffsets;
+
+        AlignmentMatrix(final int nrow, final int ncol, final int lowDiagonal, final int highDiagonal) {
+            refLength = nrow - 1;
+            altLength = ncol - 1;
+            this.lowDiagonal = lowDiagonal;
+            this.highDiagonal = highDiagonal;
+            lastColumn = new int[nrow];
+            bottomRow = new int[ncol];
+            lowEdgeScores = new int[nrow];
+            highEdgeScores = new int[nrow];
+            btrackOffsets = new int[nrow];
+            long size = 0;
+            for ( int i = 1; i < nrow; i++ ) {
+                btrackOffsets[i] = (int) size - low(i);
+                size += high(i) - low(i) + 1;
+            }
+            Utils.validate(size <= Integer.MAX_VALUE, () -> "sequences too long for Smith-Waterman: " + refLength + " and " + altLength);
+            btrack = new int[(int) size];
+        }
+
+        // the first and last columns of row i within the band, leaving out the first column
+        int low(final int i) {
+            return Math.max(1, i + lowDiagonal);
+        }
+
+        int high(final int i) {
+            return Math.min(altLength, i + highDiagonal);
+        }
+
+        void recordEdgeScores(final int i, final int[] row) {
+            final int lowColumn = i + lowDiagonal;
+            final int highColumn = i + highDiagonal;
+            lowEdgeScores[i] = lowColumn >= 0 && lowColumn <= altLength ? row[lowColumn] : Integer.MIN_VALUE/2;
+            highEdgeScores[i] = highColumn >= 0 && highColumn <= altLength ? row[highColumn] : Integer.MIN_VALUE/2;
+        }
+
+        int btrackOffset(final int i) {
+            return btrackOffsets[i];
+        }
+
+        int backTrack(final int i, final int j) {
+            return btrack[btrackOffsets[i] + j];
+        }
+
+        // score of a cell in the last column or bottom row
+        int score(final int i, final int j) {
+            return j == altLength ? lastColumn[i] : bottomRow[j];
         }
     }
 
@@ -251,19 +431,18 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
     }
 
     /**
-     * Calculates the CIGAR for the alignment from the back track matrix
+     * Finds where the alignment ends in the SW matrix
      *
-     * @param sw                   the Smith-Waterman matrix to use
-     * @param btrack               the back track matrix to use
+     * @param matrix               the Smith-Waterman matrix to use
      * @param overhangStrategy    the strategy to use for dealing with overhangs
-     * @return non-null SWPairwiseAlignmentResult object
+     * @return the row and column of the end of the alignment, and the length of the alternate overhanging it
      */
-    private static SWPairwiseAlignmentResult calculateCigar(final int[][] sw, final int[][] btrack, final SWOverhangStrategy overhangStrategy) {
+    private static int[] findAlignmentEnd(final AlignmentMatrix matrix, final SWOverhangStrategy overhangStrategy) {
         // p holds the position we start backtracking from; we will be assembling a cigar in the backwards order
         int p1 = 0, p2 = 0;
 
-        final int refLength = sw.length-1;
-        final int altLength = sw[0].length-1;
+        final int refLength = matrix.refLength;
+        final int altLength = matrix.altLength;
 
         int maxscore = Integer.MIN_VALUE; // sw scores are allowed to be negative
         int segment_length = 0; // length of the segment (continuous matches, insertions or deletions)
@@ -279,8 +458,8 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
             //excluding high scoring local alignments
             p2=altLength;
 
-            for(int i=1;i<sw.length;i++)  {
-               final int curScore = sw[i][altLength];
+            for(int i=1;i<=refLength;i++)  {
+               final int curScore = matrix.lastColumn[i];
                if (curScore >= maxscore ) {
                     p1 = i;
                     maxscore = curScore;
@@ -288,7 +467,7 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
             }
             // now look for a larger score on the bottom-most row
             if ( overhangStrategy != SWOverhangStrategy.LEADING_INDEL ) {
-                final int[] bottomRow=sw[refLength];
+                final int[] bottomRow=matrix.bottomRow;
                 for ( int j = 1 ; j < bottomRow.length; j++) {
                     final int curScore=bottomRow[j];
                     // data_offset is the offset of [n][j]
@@ -302,6 +481,21 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
                 }
             }
         }
+        return new int[]{p1, p2, segment_length};
+    }
+
+    /**
+     * Calculates the CIGAR for the alignment from the back track matrix
+     *
+     * @param matrix               the Smith-Waterman matrix to use
+     * @param end                  the end of the alignment, as returned by {@link #findAlignmentEnd}
+     * @param overhangStrategy    the strategy to use for dealing with overhangs
+     * @return non-null SWPairwiseAlignmentResult object
+     */
+    private static SWPairwiseAlignmentResult calculateCigar(final AlignmentMatrix matrix, final int[] end, final SWOverhangStrategy overhangStrategy) {
+        int p1 = end[0];
+        int p2 = end[1];
+        int segment_length = end[2];
         final List<CigarElement> lce = new ArrayList<>(5);
         if ( segment_length > 0 && overhangStrategy == SWOverhangStrategy.SOFTCLIP ) {
             lce.add(makeElement(State.CLIP, segment_length));
@@ -313,7 +507,7 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
 
         State state = State.MATCH;
         do {
-            final int btr = btrack[p1][p2];
+            final int btr = matrix.backTrack(p1, p2);
             final State new_state;
             int step_length = 1;
             if ( btr > 0 ) {
@@ -391,6 +585,6 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
 
     @Override
     public void close() {
-        logger.info(String.format("Total compute time in java Smith-Waterman : %.2f sec", totalComputeTime * 1e-9));
+        logger.info(String.format("Total compute time in java Smith-Waterman : %.2f sec", totalComputeTime.get() * 1e-9));
     }
 }
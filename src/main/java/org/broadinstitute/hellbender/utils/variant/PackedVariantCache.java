@@ -0,0 +1,780 @@
+package org.broadinstitute.hellbender.utils.variant;
+
+import htsjdk.tribble.CloseableTribbleIterator;
+import htsjdk.tribble.FeatureReader;
+import htsjdk.tribble.readers.LineIterator;
+import htsjdk.tribble.readers.LineIteratorImpl;
+import htsjdk.tribble.readers.SynchronousLineReader;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.LazyGenotypesContext;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFCodec;
+import htsjdk.variant.vcf.VCFConstants;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFHeaderLineType;
+import htsjdk.variant.vcf.VCFInfoHeaderLine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A position-indexed, binary copy of a VCF file that is memory-mapped for random-access queries, as an alternative
+ * to querying large VCF resources such as dbSNP or gnomAD through a tabix or Tribble index.
+ *
+ * Records are stored in a binary encoding modelled on BCF: the ID, alleles, quality and filters as typed fixed fields,
+ * followed by a block of typed INFO fields, each keyed by its index in a dictionary of FILTER and INFO names stored in
+ * the cache and prefixed with its length, so that fields that aren't wanted are skipped without being decoded. INFO
+ * fields declared in the header as Integer or Float are stored as ints or doubles (unless a value doesn't parse as
+ * such, such as a missing value in a list), and are decoded as Integers or Doubles rather than the Strings produced by
+ * {@link VCFCodec}; all other values are stored as strings. The FORMAT and sample columns are kept as VCF text, which
+ * is only parsed by a {@link VCFCodec} if the genotypes of a record are accessed, as when reading the VCF itself.
+ *
+ * An index of the start, end, and running maximum end position of every record makes a query a binary search over the
+ * mapped index, with no separate index file to consult and no compressed blocks to inflate. Records outside the query
+ * are never read, and those overlapping it are only decoded as they are iterated over. {@link #setFieldsToDecode} can
+ * further restrict decoding to the sites and the INFO fields a tool needs.
+ *
+ * Caches are created next to the VCF by {@link #create} (see {@link #getCachePath}), and record the size and
+ * modification time of the VCF they were created from, so that a stale cache is never used in place of its VCF:
+ * see {@link #hasUpToDateCache}.
+ *
+ * Cache layout (big-endian; strings are a length in bytes (int) followed by UTF-8 text):
+ * <pre>
+ *     magic, source VCF size (long), source VCF modification time (long), header text (string)
+ *     for each record: record length (int), record
+ *     for each record: start (int), end (int), maximum end on the contig so far (int), record offset (long)
+ *     number of contigs (int), and for each contig: name (string), first record (long), number of records (long)
+ *     number of dictionary entries (int), and for each entry: name (string)
+ *     index offset (long), contig table offset (long), dictionary offset (long), magic
+ * </pre>
+ * where each record is
+ * <pre>
+ *     ID (string), log10 probability of error (double), number of alleles (int), alleles (strings, reference first)
+ *     number of filters (int, or -1 if filters weren't applied), and for each filter: dictionary index (int)
+ *     number of INFO fields (int), and for each field: key dictionary index (int), type (byte), value length (int), value
+ *     FORMAT and sample columns (string, empty if the record has none)
+ * </pre>
+ * and each INFO value is empty for flags, or else the number of values (int) followed by the ints, doubles or strings.
+ *
+ * Instances are not thread-safe.
+ */
+public final class PackedVariantCache implements FeatureReader<VariantContext> {
+    private static final Logger logger = LogManager.getLogger(PackedVariantCache.class);
+
+    public static final String CACHE_EXTENSION = ".pvc";
+
+    private static final byte[] MAGIC = "GATKPVC2".getBytes(StandardCharsets.US_ASCII);
+    private static final int SOURCE_STAMP_SIZE = MAGIC.length + 2 * Long.BYTES;
+    private static final int INDEX_ENTRY_SIZE = 3 * Integer.BYTES + Long.BYTES;
+    private static final int FOOTER_SIZE = 3 * Long.BYTES + MAGIC.length;
+    private static final int MIN_CACHE_SIZE = SOURCE_STAMP_SIZE + 3 * Integer.BYTES + FOOTER_SIZE;
+
+    // types of INFO values
+    private static final byte INFO_FLAG = 0;
+    private static final byte INFO_INTEGER = 1;
+    private static final byte INFO_FLOAT = 2;
+    private static final byte INFO_STRING = 3;
+
+    /**
+     * Size of the separately-mapped regions of the cache file, which must each be smaller than 2GB
+     */
+    private static final long MAPPED_REGION_SIZE = 1L << 30;
+
+    /**
+     * The records of one contig, which are stored contiguously
+     */
+    private static final class ContigRecords {
+        final String contig;
+        final long firstRecord;
+        final long numRecords;
+
+        ContigRecords(final String contig, final long firstRecord, final long numRecords) {
+            this.contig = contig;
+            this.firstRecord = firstRecord;
+            this.numRecords = numRecords;
+        }
+    }
+
+    private final Path cachePath;
+    private final MappedByteBuffer[] mappedRegions;
+    private final byte[] scratch = new byte[Long.BYTES];
+
+    private final long indexOffset;
+    private final Map<String, ContigRecords> contigRecords = new LinkedHashMap<>();
+    private final String[] dictionary;
+
+    private final VCFCodec codec;
+    private final VCFHeader header;
+
+    private Set<String> infoFieldsToDecode = null;
+    private boolean sitesOnly = false;
+    private VCFHeader sitesOnlyHeader = null;
+
+    /**
+     * @param cachePath cache created by {@link #create}, on the default file system
+     */
+    public PackedVariantCache(final Path cachePath) {
+        this.cachePath = Utils.nonNull(cachePath);
+        Utils.validateArg(cachePath.getFileSystem() == FileSystems.getDefault(), () -> "Cannot memory-map " + cachePath.toUri());
+
+        try ( final FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ) ) {
+            final long fileSize = channel.size();
+            mappedRegions = new MappedByteBuffer[(int)((fileSize + MAPPED_REGION_SIZE - 1) / MAPPED_REGION_SIZE)];
+            for ( int i = 0; i < mappedRegions.length; i++ ) {
+                final long regionStart = i * MAPPED_REGION_SIZE;
+                mappedRegions[i] = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(MAPPED_REGION_SIZE, fileSize - regionStart));
+            }
+
+            if ( fileSize < MIN_CACHE_SIZE
+                    || ! Arrays.equals(readBytes(0, MAGIC.length), MAGIC)
+                    || ! Arrays.equals(readBytes(fileSize - MAGIC.length, MAGIC.length), MAGIC) ) {
+                throw new UserException.MalformedFile(cachePath, "Not a complete packed variant cache");
+            }
+            final String headerText = readString(SOURCE_STAMP_SIZE);
+
+            indexOffset = readLong(fileSize - FOOTER_SIZE);
+            long offset = readLong(fileSize - FOOTER_SIZE + Long.BYTES);
+            final int numContigs = readInt(offset);
+            offset += Integer.BYTES;
+            for ( int i = 0; i < numContigs; i++ ) {
+                final String contig = readString(offset);
+                offset += Integer.BYTES + contig.getBytes(StandardCharsets.UTF_8).length;
+                contigRecords.put(contig, new ContigRecords(contig, readLong(offset), readLong(offset + Long.BYTES)));
+                offset += 2 * Long.BYTES;
+            }
+
+            offset = readLong(fileSize - FOOTER_SIZE + 2 * Long.BYTES);
+            dictionary = new String[readInt(offset)];
+            offset += Integer.BYTES;
+            for ( int i = 0; i < dictionary.length; i++ ) {
+                dictionary[i] = readString(offset);
+                offset += Integer.BYTES + dictionary[i].getBytes(StandardCharsets.UTF_8).length;
+            }
+
+            codec = new VCFCodec();
+            header = (VCFHeader)codec.readActualHeader(makeLineIterator(headerText));
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(cachePath, e);
+        }
+    }
+
+    /**
+     * @param vcfPath VCF file
+     * @return the path at which {@link #create} writes the cache for the VCF
+     */
+    public static Path getCachePath(final Path vcfPath) {
+        Utils.nonNull(vcfPath);
+        return vcfPath.resolveSibling(vcfPath.getFileName().toString() + CACHE_EXTENSION);
+    }
+
+    /**
+     * Only the size and modification time of the VCF at the start of the cache, and the magic number at either end
+     * of it, are read.
+     *
+     * @param vcfPath VCF file
+     * @return true if the VCF has a complete cache at {@link #getCachePath} on the default file system (so that it can
+     *         be memory-mapped), that was created from the current version of the VCF
+     */
+    public static boolean hasUpToDateCache(final Path vcfPath) {
+        Utils.nonNull(vcfPath);
+        final Path cachePath = getCachePath(vcfPath);
+        if ( cachePath.getFileSystem() != FileSystems.getDefault() || ! Files.isRegularFile(cachePath) ) {
+            return false;
+        }
+        try ( final FileChannel channel = FileChannel.open(cachePath, StandardOpenOption.READ) ) {
+            final ByteBuffer sourceStamp = readFully(channel, 0, SOURCE_STAMP_SIZE);
+            final byte[] startMagic = new byte[MAGIC.length];
+            sourceStamp.get(startMagic);
+            final byte[] endMagic = new byte[MAGIC.length];
+            readFully(channel, channel.size() - MAGIC.length, MAGIC.length).get(endMagic);
+            if ( channel.size() < MIN_CACHE_SIZE || ! Arrays.equals(startMagic, MAGIC) || ! Arrays.equals(endMagic, MAGIC) ) {
+                logger.warn("Ignoring packed variant cache " + cachePath + ", which is incomplete or was written by a different version of GATK");
+                return false;
+            }
+            if ( sourceStamp.getLong() == Files.size(vcfPath) && sourceStamp.getLong() == Files.getLastModifiedTime(vcfPath).toMillis() ) {
+                return true;
+            }
+            logger.warn("Ignoring packed variant cache " + cachePath + ", which is out of date with respect to " + vcfPath);
+            return false;
+        } catch ( final IOException e ) {
+            logger.warn("Ignoring unreadable packed variant cache " + cachePath, e);
+            return false;
+        }
+    }
+
+    private static ByteBuffer readFully(final FileChannel channel, final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while ( buffer.hasRemaining() ) {
+            if ( position < 0 || channel.read(buffer, position + buffer.position()) < 0 ) {
+                // too short to hold the bytes we want; leave them zeroed, which never matches the magic number
+                break;
+            }
+        }
+        buffer.rewind();
+        return buffer;
+    }
+
+    /**
+     * Create a cache of a VCF file. Records must be sorted, and all records on a contig must be together.
+     *
+     * @param vcfPath VCF file, optionally gzipped
+     * @param cachePath path at which to write the cache
+     * @return the number of records cached
+     */
+    public static long create(final Path vcfPath, final Path cachePath) {
+        Utils.nonNull(vcfPath);
+        Utils.nonNull(cachePath);
+        final long sourceSize;
+        final long sourceLastModified;
+        try {
+            sourceSize = Files.size(vcfPath);
+            sourceLastModified = Files.getLastModifiedTime(vcfPath).toMillis();
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(vcfPath, e);
+        }
+
+        // index entries are written to a separate file, which is appended to the cache once all records are written
+        final File indexFile = IOUtils.createTempFile("packedVariantCacheIndex", ".tmp");
+        boolean succeeded = false;
+        try ( final BufferedReader reader = new BufferedReader(IOUtils.makeReaderMaybeGzipped(vcfPath));
+              final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(cachePath)));
+              final DataOutputStream index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile))) ) {
+            final StringBuilder headerText = new StringBuilder();
+            String line;
+            while ( (line = reader.readLine()) != null && line.startsWith(VCFHeader.HEADER_INDICATOR) ) {
+                headerText.append(line).append('\n');
+            }
+            final VCFCodec codec = new VCFCodec();
+            final VCFHeader header = (VCFHeader)codec.readActualHeader(makeLineIterator(headerText.toString()));
+            out.write(MAGIC);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceLastModified);
+            writeString(out, headerText.toString());
+
+            // the dictionary starts with the FILTER and INFO lines of the header, followed by any undeclared keys we come across
+            final Map<String, Integer> dictionary = new LinkedHashMap<>();
+            header.getFilterLines().forEach(filterLine -> dictionary.putIfAbsent(filterLine.getID(), dictionary.size()));
+            header.getInfoHeaderLines().forEach(infoLine -> dictionary.putIfAbsent(infoLine.getID(), dictionary.size()));
+
+            final List<ContigRecords> contigs = new ArrayList<>();
+            final Set<String> contigsSeen = new HashSet<>();
+            final RecordEncoder encoder = new RecordEncoder(header, dictionary);
+            long offset = out.size();
+            String currentContig = null;
+            long firstRecordOnContig = 0;
+            long numRecords = 0;
+            int previousStart = 0;
+            int maxEnd = 0;
+            for ( ; line != null; line = reader.readLine() ) {
+                if ( line.isEmpty() ) {
+                    continue;
+                }
+                final VariantContext vc = codec.decode(line);
+                if ( ! vc.getContig().equals(currentContig) ) {
+                    if ( currentContig != null ) {
+                        contigs.add(new ContigRecords(currentContig, firstRecordOnContig, numRecords - firstRecordOnContig));
+                    }
+                    if ( ! contigsSeen.add(vc.getContig()) ) {
+                        throw new UserException.MalformedFile(vcfPath, "Records on contig " + vc.getContig() + " are not together, so the file can't be cached");
+                    }
+                    currentContig = vc.getContig();
+                    firstRecordOnContig = numRecords;
+                    maxEnd = 0;
+                } else if ( vc.getStart() < previousStart ) {
+                    throw new UserException.MalformedFile(vcfPath, "Records are not sorted at " + vc.getContig() + ":" + vc.getStart() + ", so the file can't be cached");
+                }
+                previousStart = vc.getStart();
+                maxEnd = Math.max(maxEnd, vc.getEnd());
+
+                index.writeInt(vc.getStart());
+                index.writeInt(vc.getEnd());
+                index.writeInt(maxEnd);
+                index.writeLong(offset);
+                offset += encoder.write(vc, getGenotypeColumns(line), out);
+                numRecords++;
+            }
+            if ( currentContig != null ) {
+                contigs.add(new ContigRecords(currentContig, firstRecordOnContig, numRecords - firstRecordOnContig));
+            }
+
+            index.flush();
+            final long indexOffset = offset;
+            Files.copy(indexFile.toPath(), out);
+            final long contigTableOffset = indexOffset + numRecords * INDEX_ENTRY_SIZE;
+            final ByteArrayOutputStream tables = new ByteArrayOutputStream();
+            final DataOutputStream tablesOut = new DataOutputStream(tables);
+            tablesOut.writeInt(contigs.size());
+            for ( final ContigRecords contig : contigs ) {
+                writeString(tablesOut, contig.contig);
+                tablesOut.writeLong(contig.firstRecord);
+                tablesOut.writeLong(contig.numRecords);
+            }
+            final long dictionaryOffset = contigTableOffset + tables.size();
+            tablesOut.writeInt(dictionary.size());
+            for ( final String name : dictionary.keySet() ) {
+                writeString(tablesOut, name);
+            }
+            tables.writeTo(out);
+            out.writeLong(indexOffset);
+            out.writeLong(contigTableOffset);
+            out.writeLong(dictionaryOffset);
+            out.write(MAGIC);
+            succeeded = true;
+            return numRecords;
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(cachePath.toString(), "Could not write packed variant cache for " + vcfPath, e);
+        } finally {
+            indexFile.delete();
+            if ( ! succeeded ) {
+                // don't leave a partial cache behind
+                try {
+                    Files.deleteIfExists(cachePath);
+                } catch ( final IOException e ) {
+                    logger.warn("Could not delete partial packed variant cache " + cachePath, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the FORMAT and sample columns of a VCF line, or an empty string if it has none
+     */
+    private static String getGenotypeColumns(final String line) {
+        int columnStart = 0;
+        for ( int i = 0; i < VCFHeader.HEADER_FIELDS.values().length; i++ ) {
+            columnStart = line.indexOf(VCFConstants.FIELD_SEPARATOR_CHAR, columnStart) + 1;
+            if ( columnStart == 0 ) {
+                return "";
+            }
+        }
+        return line.substring(columnStart);
+    }
+
+    private static void writeString(final DataOutputStream out, final String string) throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static LineIterator makeLineIterator(final String text) {
+        return new LineIteratorImpl(new SynchronousLineReader(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Encodes records decoded by a {@link VCFCodec}, adding any undeclared FILTER and INFO keys to the dictionary
+     */
+    private static final class RecordEncoder {
+        private final VCFHeader header;
+        private final Map<String, Integer> dictionary;
+        private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        private final DataOutputStream record = new DataOutputStream(recordBytes);
+        private final ByteArrayOutputStream valueBytes = new ByteArrayOutputStream();
+        private final DataOutputStream value = new DataOutputStream(valueBytes);
+
+        RecordEncoder(final VCFHeader header, final Map<String, Integer> dictionary) {
+            this.header = header;
+            this.dictionary = dictionary;
+        }
+
+        /**
+         * @return the number of bytes written
+         */
+        int write(final VariantContext vc, final String genotypeColumns, final DataOutputStream out) throws IOException {
+            recordBytes.reset();
+            writeString(record, vc.getID());
+            record.writeDouble(vc.getLog10PError());
+            record.writeInt(vc.getNAlleles());
+            for ( final Allele allele : vc.getAlleles() ) {
+                writeString(record, allele.getDisplayString());
+            }
+
+            if ( vc.filtersWereApplied() ) {
+                record.writeInt(vc.getFilters().size());
+                for ( final String filter : vc.getFilters() ) {
+                    record.writeInt(getDictionaryIndex(filter));
+                }
+            } else {
+                record.writeInt(-1);
+            }
+
+            record.writeInt(vc.getAttributes().size());
+            for ( final Map.Entry<String, Object> attribute : vc.getAttributes().entrySet() ) {
+                valueBytes.reset();
+                record.writeInt(getDictionaryIndex(attribute.getKey()));
+                record.writeByte(writeInfoValue(attribute.getValue(), header.getInfoHeaderLine(attribute.getKey())));
+                record.writeInt(valueBytes.size());
+                valueBytes.writeTo(record);
+            }
+
+            writeString(record, genotypeColumns);
+
+            out.writeInt(recordBytes.size());
+            recordBytes.writeTo(out);
+            return Integer.BYTES + recordBytes.size();
+        }
+
+        private int getDictionaryIndex(final String name) {
+            return dictionary.computeIfAbsent(name, k -> dictionary.size());
+        }
+
+        /**
+         * Write an INFO value as decoded by {@link VCFCodec} (a String, a List of Strings, or true for flags) to
+         * {@link #value}, using the type declared for it in the header if all of its values parse as that type
+         *
+         * @return the type of value written
+         */
+        private byte writeInfoValue(final Object attribute, final VCFInfoHeaderLine headerLine) throws IOException {
+            if ( attribute instanceof Boolean ) {
+                return INFO_FLAG;
+            }
+            final List<String> values = new ArrayList<>();
+            if ( attribute instanceof List ) {
+                ((List<?>)attribute).forEach(element -> values.add(element.toString()));
+            } else {
+                values.add(attribute.toString());
+            }
+            value.writeInt(values.size());
+
+            final VCFHeaderLineType type = headerLine == null ? null : headerLine.getType();
+            try {
+                if ( type == VCFHeaderLineType.Integer ) {
+                    final int[] ints = values.stream().mapToInt(Integer::parseInt).toArray();
+                    for ( final int i : ints ) {
+                        value.writeInt(i);
+                    }
+                    return INFO_INTEGER;
+                } else if ( type == VCFHeaderLineType.Float ) {
+                    final double[] doubles = values.stream().mapToDouble(Double::parseDouble).toArray();
+                    for ( final double d : doubles ) {
+                        value.writeDouble(d);
+                    }
+                    return INFO_FLOAT;
+                }
+            } catch ( final NumberFormatException e ) {
+                // fall back on storing the text of the values
+            }
+            for ( final String s : values ) {
+                writeString(value, s);
+            }
+            return INFO_STRING;
+        }
+    }
+
+    /**
+     * Restrict the decoding of the records returned by subsequent queries and iterations to the parts that are needed,
+     * skipping the decoding of the rest.
+     *
+     * @param infoFieldsToDecode decode only these INFO fields, or all INFO fields if null
+     * @param sitesOnly if true, don't decode genotypes, and report a header without samples
+     */
+    public void setFieldsToDecode(final Set<String> infoFieldsToDecode, final boolean sitesOnly) {
+        this.infoFieldsToDecode = infoFieldsToDecode == null ? null : new HashSet<>(infoFieldsToDecode);
+        this.sitesOnly = sitesOnly;
+        if ( sitesOnly && sitesOnlyHeader == null ) {
+            sitesOnlyHeader = new VCFHeader(header.getMetaDataInInputOrder());
+        }
+    }
+
+    @Override
+    public CloseableTribbleIterator<VariantContext> query(final String chr, final int start, final int end) {
+        Utils.nonNull(chr);
+        final ContigRecords contig = contigRecords.get(chr);
+        if ( contig == null ) {
+            return new RecordIterator(Collections.emptyIterator(), start, end);
+        }
+
+        // find the first record whose running maximum end reaches the query start
+        long low = contig.firstRecord;
+        long high = contig.firstRecord + contig.numRecords;
+        while ( low < high ) {
+            final long mid = (low + high) >>> 1;
+            if ( readInt(getIndexEntryOffset(mid) + 2 * Integer.BYTES) < start ) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        final ContigRecords queriedRecords = new ContigRecords(contig.contig, low, contig.firstRecord + contig.numRecords - low);
+        return new RecordIterator(Collections.singletonList(queriedRecords).iterator(), start, end);
+    }
+
+    @Override
+    public CloseableTribbleIterator<VariantContext> iterator() {
+        return new RecordIterator(contigRecords.values().iterator(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<String> getSequenceNames() {
+        return Collections.unmodifiableList(new ArrayList<>(contigRecords.keySet()));
+    }
+
+    @Override
+    public Object getHeader() {
+        return sitesOnly ? sitesOnlyHeader : header;
+    }
+
+    @Override
+    public boolean isQueryable() {
+        return true;
+    }
+
+    /**
+     * The file is unmapped once the mapped buffers are garbage collected.
+     */
+    @Override
+    public void close() {}
+
+    @Override
+    public String toString() {
+        return "PackedVariantCache(" + cachePath + ")";
+    }
+
+    private long getIndexEntryOffset(final long record) {
+        return indexOffset + record * INDEX_ENTRY_SIZE;
+    }
+
+    private VariantContext decodeRecord(final String contig, final long record) {
+        final long entryOffset = getIndexEntryOffset(record);
+        final int start = readInt(entryOffset);
+        final int end = readInt(entryOffset + Integer.BYTES);
+        final long recordOffset = readLong(entryOffset + 3 * Integer.BYTES);
+        final ByteBuffer buffer = ByteBuffer.wrap(readBytes(recordOffset + Integer.BYTES, readInt(recordOffset)));
+
+        final VariantContextBuilder builder = new VariantContextBuilder().source(codec.getName()).chr(contig).start(start).stop(end);
+        final String id = getString(buffer);
+        if ( id.equals(VCFConstants.EMPTY_ID_FIELD) ) {
+            builder.noID();
+        } else {
+            builder.id(id);
+        }
+        builder.log10PError(buffer.getDouble());
+
+        final int numAlleles = buffer.getInt();
+        final List<Allele> alleles = new ArrayList<>(numAlleles);
+        for ( int i = 0; i < numAlleles; i++ ) {
+            alleles.add(Allele.create(getString(buffer), i == 0));
+        }
+        builder.alleles(alleles);
+
+        final int numFilters = buffer.getInt();
+        if ( numFilters >= 0 ) {
+            final Set<String> filters = new HashSet<>();
+            for ( int i = 0; i < numFilters; i++ ) {
+                filters.add(dictionary[buffer.getInt()]);
+            }
+            builder.filters(filters);
+        }
+
+        final int numInfoFields = buffer.getInt();
+        final Map<String, Object> attributes = new HashMap<>();
+        for ( int i = 0; i < numInfoFields; i++ ) {
+            final String key = dictionary[buffer.getInt()];
+            final byte type = buffer.get();
+            final int valueLength = buffer.getInt();
+            if ( infoFieldsToDecode == null || infoFieldsToDecode.contains(key) ) {
+                attributes.put(key, getInfoValue(buffer, type));
+            } else {
+                buffer.position(buffer.position() + valueLength);
+            }
+        }
+        builder.attributes(attributes);
+
+        if ( ! sitesOnly ) {
+            final int genotypeColumnsLength = buffer.getInt();
+            if ( genotypeColumnsLength > 0 ) {
+                // the genotype columns are only turned into text and parsed if the genotypes are accessed
+                final ByteBuffer genotypeColumns = buffer.slice();
+                genotypeColumns.limit(genotypeColumnsLength);
+                builder.genotypesNoValidation(new LazyGenotypesContext(new LazyGenotypesParser(alleles, contig, start),
+                        genotypeColumns, header.getNGenotypeSamples()));
+            }
+        }
+        return builder.make();
+    }
+
+    private static Object getInfoValue(final ByteBuffer buffer, final byte type) {
+        if ( type == INFO_FLAG ) {
+            return true;
+        }
+        final int numValues = buffer.getInt();
+        final List<Object> values = new ArrayList<>(numValues);
+        for ( int i = 0; i < numValues; i++ ) {
+            switch ( type ) {
+                case INFO_INTEGER: values.add(buffer.getInt()); break;
+                case INFO_FLOAT: values.add(buffer.getDouble()); break;
+                case INFO_STRING: values.add(getString(buffer)); break;
+                default: throw new IllegalStateException("Unknown INFO value type " + type);
+            }
+        }
+        return numValues == 1 ? values.get(0) : values;
+    }
+
+    /**
+     * Parses the genotype columns of a record with our {@link VCFCodec} when its genotypes are first accessed
+     */
+    private final class LazyGenotypesParser implements LazyGenotypesContext.LazyParser {
+        private final List<Allele> alleles;
+        private final String contig;
+        private final int start;
+
+        LazyGenotypesParser(final List<Allele> alleles, final String contig, final int start) {
+            this.alleles = alleles;
+            this.contig = contig;
+            this.start = start;
+        }
+
+        @Override
+        public LazyGenotypesContext.LazyData parse(final Object data) {
+            final ByteBuffer genotypeColumns = (ByteBuffer)data;
+            final String text = new String(genotypeColumns.array(), genotypeColumns.arrayOffset(), genotypeColumns.limit(), StandardCharsets.UTF_8);
+            return codec.createGenotypeMap(text, alleles, contig, start);
+        }
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        final String string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+
+    private String readString(final long offset) {
+        return new String(readBytes(offset + Integer.BYTES, readInt(offset)), StandardCharsets.UTF_8);
+    }
+
+    private int readInt(final long offset) {
+        readBytes(offset, scratch, Integer.BYTES);
+        return ((scratch[0] & 0xff) << 24) | ((scratch[1] & 0xff) << 16) | ((scratch[2] & 0xff) << 8) | (scratch[3] & 0xff);
+    }
+
+    private long readLong(final long offset) {
+        readBytes(offset, scratch, Long.BYTES);
+        long value = 0;
+        for ( int i = 0; i < Long.BYTES; i++ ) {
+            value = (value << 8) | (scratch[i] & 0xff);
+        }
+        return value;
+    }
+
+    private byte[] readBytes(final long offset, final int length) {
+        final byte[] bytes = new byte[length];
+        readBytes(offset, bytes, length);
+        return bytes;
+    }
+
+    private void readBytes(final long fileOffset, final byte[] destination, final int length) {
+        long offset = fileOffset;
+        int copied = 0;
+        while ( copied < length ) {
+            final MappedByteBuffer region = mappedRegions[(int)(offset / MAPPED_REGION_SIZE)];
+            final int positionInRegion = (int)(offset % MAPPED_REGION_SIZE);
+            final int numToCopy = Math.min(length - copied, region.limit() - positionInRegion);
+            region.position(positionInRegion);
+            region.get(destination, copied, numToCopy);
+            copied += numToCopy;
+            offset += numToCopy;
+        }
+    }
+
+    /**
+     * Iterates over the records in ranges of the index, one per contig, that overlap a query interval, decoding each
+     * as it's returned
+     */
+    private final class RecordIterator implements CloseableTribbleIterator<VariantContext> {
+        private final Iterator<ContigRecords> remainingRanges;
+        private final int queryStart;
+        private final int queryEnd;
+        private String contig;
+        private long nextRecord = 0;
+        private long endRecord = 0;
+
+        RecordIterator(final Iterator<ContigRecords> ranges, final int queryStart, final int queryEnd) {
+            this.remainingRanges = ranges;
+            this.queryStart = queryStart;
+            this.queryEnd = queryEnd;
+            advanceToOverlappingRecord();
+        }
+
+        private void advanceToOverlappingRecord() {
+            while ( true ) {
+                while ( nextRecord < endRecord ) {
+                    final long entryOffset = getIndexEntryOffset(nextRecord);
+                    if ( readInt(entryOffset) > queryEnd ) {
+                        nextRecord = endRecord;
+                    } else if ( readInt(entryOffset + Integer.BYTES) >= queryStart ) {
+                        return;
+                    } else {
+                        nextRecord++;
+                    }
+                }
+                if ( ! remainingRanges.hasNext() ) {
+                    return;
+                }
+                final ContigRecords range = remainingRanges.next();
+                contig = range.contig;
+                nextRecord = range.firstRecord;
+                endRecord = range.firstRecord + range.numRecords;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextRecord < endRecord;
+        }
+
+        @Override
+        public VariantContext next() {
+            if ( ! hasNext() ) {
+                throw new NoSuchElementException();
+            }
+            final VariantContext vc = decodeRecord(contig, nextRecord);
+            nextRecord++;
+            advanceToOverlappingRecord();
+            return vc;
+        }
+
+        @Override
+        public void close() {
+            nextRecord = endRecord;
+            while ( remainingRanges.hasNext() ) {
+                remainingRanges.next();
+            }
+        }
+
+        @Override
+        public Iterator<VariantContext> iterator() {
+            return this;
+        }
+    }
+}
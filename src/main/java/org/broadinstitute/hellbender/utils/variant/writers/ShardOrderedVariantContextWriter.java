@@ -0,0 +1,305 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.Genotype;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.vcf.VCFHeader;
+import htsjdk.variant.vcf.VCFRecordCodec;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Reorder buffer that accepts the output of consecutive shards of a traversal, produced concurrently and in any order,
+ * and writes it to an underlying {@link VariantContextWriter} in shard order.
+ *
+ * Producers (typically worker threads, each processing a different shard) {@link #add} the records of a shard,
+ * identified by its zero-based index in traversal order, as they are produced, and call {@link #completeShard} once the
+ * shard is done. Records of the earliest shard not yet completed are written to the underlying writer as soon as they
+ * are added; those of later shards are buffered until every shard before them has completed. Since records reach the
+ * underlying writer in the same order as during a serial traversal, wrapping a {@link GVCFWriter} (and hence a
+ * {@link GVCFBlockCombiner}) correctly merges hom-ref blocks across shard boundaries.
+ *
+ * The memory used by buffered records is capped, using an {@link #estimateSizeInBytes estimate} of the size of each
+ * record. When the cap is exceeded, the buffered shards that will be written last are spilled to temporary files in VCF
+ * text format using the provided header, any records added to them later are appended to those files, and the files are
+ * read back when their turn comes. The header must therefore describe every INFO and FORMAT field present in the records.
+ *
+ * All public methods are synchronized, so a single instance may be shared by multiple producer threads. Records are
+ * written to the underlying writer on whichever producer thread adds them or completes the shards preceding them.
+ *
+ * Closing this writer does not close the underlying writer.
+ */
+public final class ShardOrderedVariantContextWriter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(ShardOrderedVariantContextWriter.class);
+
+    public static final long DEFAULT_MAX_BYTES_IN_RAM = 256L * 1024 * 1024;
+
+    // overheads of the objects making up a record in memory, used to estimate its size
+    private static final long RECORD_OVERHEAD_BYTES = 400;
+    private static final long ALLELE_OVERHEAD_BYTES = 64;
+    private static final long GENOTYPE_OVERHEAD_BYTES = 200;
+    private static final long ATTRIBUTE_OVERHEAD_BYTES = 96;
+
+    private final VariantContextWriter underlyingWriter;
+    private final VCFHeader header;
+    private final long maxBytesInRam;
+
+    /** Output of the shards after the next one to be written, keyed by shard index */
+    private final TreeMap<Integer, BufferedShard> pendingShards = new TreeMap<>();
+    private int nextShardIndex = 0;
+    private long bytesInRam = 0;
+    private int numSpilledShards = 0;
+    private boolean isClosed = false;
+
+    /**
+     * @param underlyingWriter destination of the records, in shard order
+     * @param header header describing the records, used when spilling records to disk
+     * @param maxBytesInRam maximum estimated size in bytes of the records to buffer in memory before spilling to disk
+     */
+    public ShardOrderedVariantContextWriter(final VariantContextWriter underlyingWriter, final VCFHeader header, final long maxBytesInRam) {
+        this.underlyingWriter = Utils.nonNull(underlyingWriter);
+        this.header = Utils.nonNull(header);
+        Utils.validateArg(maxBytesInRam >= 0, "maxBytesInRam must be >= 0");
+        this.maxBytesInRam = maxBytesInRam;
+    }
+
+    public ShardOrderedVariantContextWriter(final VariantContextWriter underlyingWriter, final VCFHeader header) {
+        this(underlyingWriter, header, DEFAULT_MAX_BYTES_IN_RAM);
+    }
+
+    /**
+     * Add a record of a shard. The records of each shard must be added in coordinate order.
+     *
+     * @param shardIndex zero-based index of the shard in traversal order, which must not have been completed yet
+     * @param vc record to add
+     */
+    public synchronized void add(final int shardIndex, final VariantContext vc) {
+        Utils.nonNull(vc);
+        validateShardInProgress(shardIndex);
+
+        if ( shardIndex == nextShardIndex ) {
+            underlyingWriter.add(vc);
+        } else {
+            pendingShards.computeIfAbsent(shardIndex, index -> new BufferedShard()).add(vc);
+            spillIfNecessary();
+        }
+    }
+
+    /**
+     * Mark a shard as complete. Every shard must be completed, even if it has no records, so that later shards can be written.
+     *
+     * @param shardIndex zero-based index of the shard in traversal order, which must not have been completed yet
+     */
+    public synchronized void completeShard(final int shardIndex) {
+        validateShardInProgress(shardIndex);
+
+        if ( shardIndex == nextShardIndex ) {
+            nextShardIndex++;
+            writePendingShards();
+        } else {
+            pendingShards.computeIfAbsent(shardIndex, index -> new BufferedShard()).isComplete = true;
+        }
+    }
+
+    private void validateShardInProgress(final int shardIndex) {
+        Utils.validate(!isClosed, "Cannot add output to a closed writer");
+        Utils.validateArg(shardIndex >= nextShardIndex && !(pendingShards.containsKey(shardIndex) && pendingShards.get(shardIndex).isComplete),
+                () -> "Shard " + shardIndex + " has already been completed");
+    }
+
+    /**
+     * @return index of the earliest shard that has not been completed, whose records are written as soon as they are added
+     */
+    public synchronized int getNextShardIndex() {
+        return nextShardIndex;
+    }
+
+    /**
+     * @return number of later shards with buffered records or which have been completed, but can't be written yet
+     */
+    public synchronized int getNumPendingShards() {
+        return pendingShards.size();
+    }
+
+    /**
+     * @return estimated size in bytes of the records currently buffered in memory
+     */
+    public synchronized long getNumBytesInRam() {
+        return bytesInRam;
+    }
+
+    /**
+     * @return total number of shards that have been spilled to disk so far
+     */
+    public synchronized int getNumSpilledShards() {
+        return numSpilledShards;
+    }
+
+    /**
+     * Write the buffered records of the shards that have become next in line, up to the first one still in progress,
+     * whose records will then be written as they are added.
+     */
+    private void writePendingShards() {
+        while ( !pendingShards.isEmpty() && pendingShards.firstKey() == nextShardIndex ) {
+            final BufferedShard shard = pendingShards.remove(nextShardIndex);
+            shard.writeTo(underlyingWriter);
+            if ( !shard.isComplete ) {
+                return;
+            }
+            nextShardIndex++;
+        }
+    }
+
+    /**
+     * Spill in-memory shards to disk, starting with the one furthest from being written, until we're under our memory cap.
+     */
+    private void spillIfNecessary() {
+        for ( final BufferedShard shard : pendingShards.descendingMap().values() ) {
+            if ( bytesInRam <= maxBytesInRam ) {
+                return;
+            }
+            if ( !shard.isSpilled() && !shard.records.isEmpty() ) {
+                shard.spill();
+                numSpilledShards++;
+            }
+        }
+    }
+
+    /**
+     * Rough estimate of the heap used by a record, for comparison with the memory cap: a fixed overhead for the record
+     * and each of its alleles, genotypes and attributes, plus the bases of its alleles and the PL and AD values of its genotypes.
+     *
+     * @param vc record whose size to estimate
+     * @return estimated size of the record in bytes
+     */
+    public static long estimateSizeInBytes(final VariantContext vc) {
+        long size = RECORD_OVERHEAD_BYTES + vc.getAttributes().size() * ATTRIBUTE_OVERHEAD_BYTES;
+        for ( final Allele allele : vc.getAlleles() ) {
+            size += ALLELE_OVERHEAD_BYTES + allele.length();
+        }
+        for ( final Genotype genotype : vc.getGenotypes() ) {
+            size += GENOTYPE_OVERHEAD_BYTES + genotype.getExtendedAttributes().size() * ATTRIBUTE_OVERHEAD_BYTES
+                    + Integer.BYTES * ((genotype.hasPL() ? genotype.getPL().length : 0) + (genotype.hasAD() ? genotype.getAD().length : 0));
+        }
+        return size;
+    }
+
+    /**
+     * Deletes any remaining spill files. Throws if any shard with buffered records, or preceding a completed shard, was
+     * never completed, since its output would otherwise be silently lost.
+     */
+    @Override
+    public synchronized void close() {
+        if ( isClosed ) {
+            return;
+        }
+        isClosed = true;
+        if ( !pendingShards.isEmpty() ) {
+            final int numPending = pendingShards.size();
+            final int firstPending = pendingShards.firstKey();
+            pendingShards.values().forEach(BufferedShard::deleteSpillFile);
+            pendingShards.clear();
+            throw new GATKException(String.format("Closed writer with output for %d shard(s) still pending: shard %d was never completed (next pending shard is %d)",
+                    numPending, nextShardIndex, firstPending));
+        }
+        if ( numSpilledShards > 0 ) {
+            logger.debug(String.format("Spilled %d shard(s) to disk while reordering output", numSpilledShards));
+        }
+    }
+
+    /**
+     * Output of a single shard, held either in memory or in a spill file
+     */
+    private final class BufferedShard {
+        private final List<VariantContext> records = new ArrayList<>();
+        private long recordBytes = 0;
+        private boolean isComplete = false;
+        private File spillFile;
+        private OutputStream spillOutput;
+        private VCFRecordCodec spillCodec;
+
+        boolean isSpilled() {
+            return spillFile != null;
+        }
+
+        void add(final VariantContext vc) {
+            if ( isSpilled() ) {
+                spillCodec.encode(vc);
+            } else {
+                records.add(vc);
+                final long size = estimateSizeInBytes(vc);
+                recordBytes += size;
+                bytesInRam += size;
+            }
+        }
+
+        void spill() {
+            spillFile = IOUtils.createTempFile("shardOrderedSpill", ".vcf");
+            try {
+                spillOutput = new BufferedOutputStream(Files.newOutputStream(spillFile.toPath()));
+            } catch ( final IOException e ) {
+                throw new GATKException("Unable to spill shard output to " + spillFile.getAbsolutePath(), e);
+            }
+            spillCodec = new VCFRecordCodec(header, true);
+            spillCodec.setOutputStream(spillOutput);
+            records.forEach(spillCodec::encode);
+            records.clear();
+            bytesInRam -= recordBytes;
+            recordBytes = 0;
+        }
+
+        void writeTo(final VariantContextWriter writer) {
+            if ( !isSpilled() ) {
+                records.forEach(writer::add);
+                records.clear();
+                bytesInRam -= recordBytes;
+                recordBytes = 0;
+                return;
+            }
+
+            final VCFRecordCodec codec = new VCFRecordCodec(header, true);
+            try {
+                spillOutput.close();
+                try ( final InputStream in = new BufferedInputStream(Files.newInputStream(spillFile.toPath())) ) {
+                    codec.setInputStream(in);
+                    for ( VariantContext vc = codec.decode(); vc != null; vc = codec.decode() ) {
+                        writer.add(vc);
+                    }
+                }
+            } catch ( final IOException e ) {
+                throw new GATKException("Unable to read spilled shard output from " + spillFile.getAbsolutePath(), e);
+            } finally {
+                deleteSpillFile();
+            }
+        }
+
+        void deleteSpillFile() {
+            if ( spillFile != null ) {
+                try {
+                    spillOutput.close();
+                } catch ( final IOException e ) {
+                    logger.warn("Unable to close spill file " + spillFile.getAbsolutePath(), e);
+                }
+                spillFile.delete();
+                spillFile = null;
+                spillOutput = null;
+                spillCodec = null;
+            }
+        }
+    }
+}
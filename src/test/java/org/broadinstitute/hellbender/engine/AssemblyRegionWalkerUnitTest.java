@@ -0,0 +1,60 @@
+package org.broadinstitute.hellbender.engine;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class AssemblyRegionWalkerUnitTest extends GATKBaseTest {
+
+    @DataProvider(name = "ParallelShardIntervalsTestData")
+    public Object[][] parallelShardIntervalsTestData() {
+        return new Object[][] {
+                // single interval smaller than the shard size
+                {
+                        Collections.singletonList(new SimpleInterval("1", 1, 100)), 1000,
+                        Collections.singletonList(Collections.singletonList(new SimpleInterval("1", 1, 100)))
+                },
+                // single interval divided into pieces of the shard size
+                {
+                        Collections.singletonList(new SimpleInterval("1", 1, 250)), 100,
+                        Arrays.asList(Collections.singletonList(new SimpleInterval("1", 1, 100)),
+                                Collections.singletonList(new SimpleInterval("1", 101, 200)),
+                                Collections.singletonList(new SimpleInterval("1", 201, 250)))
+                },
+                // nearby intervals grouped together, distant interval in its own shard
+                {
+                        Arrays.asList(new SimpleInterval("1", 1, 10), new SimpleInterval("1", 50, 60), new SimpleInterval("1", 500, 510)), 100,
+                        Arrays.asList(Arrays.asList(new SimpleInterval("1", 1, 10), new SimpleInterval("1", 50, 60)),
+                                Collections.singletonList(new SimpleInterval("1", 500, 510)))
+                },
+                // intervals on different contigs never share a shard
+                {
+                        Arrays.asList(new SimpleInterval("1", 1, 10), new SimpleInterval("2", 1, 10)), 1000,
+                        Arrays.asList(Collections.singletonList(new SimpleInterval("1", 1, 10)),
+                                Collections.singletonList(new SimpleInterval("2", 1, 10)))
+                },
+                // tail of a divided interval grouped with the following interval
+                {
+                        Arrays.asList(new SimpleInterval("1", 1, 120), new SimpleInterval("1", 150, 160)), 100,
+                        Arrays.asList(Collections.singletonList(new SimpleInterval("1", 1, 100)),
+                                Arrays.asList(new SimpleInterval("1", 101, 120), new SimpleInterval("1", 150, 160)))
+                }
+        };
+    }
+
+    @Test(dataProvider = "ParallelShardIntervalsTestData")
+    public void testMakeParallelShardIntervals(final List<SimpleInterval> intervals, final int shardSize, final List<List<SimpleInterval>> expectedShards) {
+        Assert.assertEquals(AssemblyRegionWalker.makeParallelShardIntervals(intervals, shardSize), expectedShards);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testMakeParallelShardIntervalsRejectsNonPositiveShardSize() {
+        AssemblyRegionWalker.makeParallelShardIntervals(Collections.singletonList(new SimpleInterval("1", 1, 10)), 0);
+    }
+}
@@ -677,4 +677,140 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
      * End of direct testing on the FeatureCache inner class
      *********************************************************/
 
+    /**
+     * Runs all of the independent queries against a single data source with an in-memory index, in an order
+     * (decreasing start positions, switching contigs) that the default cache handles poorly
+     */
+    @Test
+    public void testInMemoryIndexQuerying() {
+        final List<Object[]> queries = Arrays.asList(getIndependentFeatureQueryTestData());
+        Collections.reverse(queries);
+        try (final FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(QUERY_TEST_VCF)) {
+            featureSource.setInMemoryQueryIndex(null, 1000);
+            for ( final Object[] query : queries ) {
+                @SuppressWarnings("unchecked")
+                final List<String> expectedVariantIDs = (List<String>)query[1];
+                final SimpleInterval queryInterval = (SimpleInterval)query[0];
+                checkVariantQueryResults(featureSource.queryAndPrefetch(queryInterval), expectedVariantIDs, queryInterval);
+            }
+        }
+    }
+
+    /**
+     * With load intervals and a limit that only fits one contig at a time, every query must still return the
+     * same results, whether it's answered from memory or from the default cache
+     */
+    @Test
+    public void testInMemoryIndexQueryingWithIntervalsAndEviction() {
+        final List<Object[]> queries = Arrays.asList(getIndependentFeatureQueryTestData());
+        Collections.shuffle(queries, new Random(5));
+        try (final FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(QUERY_TEST_VCF.getAbsolutePath(), null, 10, null)) {
+            featureSource.setInMemoryQueryIndex(Arrays.asList(new SimpleInterval("1", 190, 290), new SimpleInterval("2", 600, 700), new SimpleInterval("4", 700, 800)), 3);
+            for ( final Object[] query : queries ) {
+                @SuppressWarnings("unchecked")
+                final List<String> expectedVariantIDs = (List<String>)query[1];
+                final SimpleInterval queryInterval = (SimpleInterval)query[0];
+                checkVariantQueryResults(featureSource.queryAndPrefetch(queryInterval), expectedVariantIDs, queryInterval);
+            }
+        }
+    }
+
+    /**************************************************
+     * Direct testing on the InMemoryFeatureIndex inner class
+     **************************************************/
+
+    private static final List<ArtificialTestFeature> IN_MEMORY_INDEX_TEST_FEATURES = Arrays.asList(
+            new ArtificialTestFeature("1", 1, 1000), new ArtificialTestFeature("1", 10, 20), new ArtificialTestFeature("1", 10, 10),
+            new ArtificialTestFeature("1", 15, 150), new ArtificialTestFeature("1", 100, 100), new ArtificialTestFeature("1", 2000, 2100),
+            new ArtificialTestFeature("2", 50, 60), new ArtificialTestFeature("2", 55, 55), new ArtificialTestFeature("3", 5, 5),
+            new ArtificialTestFeature("4", 1, 1));
+
+    /**
+     * Loads from IN_MEMORY_INDEX_TEST_FEATURES, recording the intervals loaded
+     */
+    private static InMemoryFeatureIndex.FeatureLoader<ArtificialTestFeature> makeTestLoader(final List<SimpleInterval> loadedIntervals) {
+        return interval -> {
+            loadedIntervals.add(interval);
+            final Iterator<ArtificialTestFeature> iterator = IN_MEMORY_INDEX_TEST_FEATURES.stream().filter(interval::overlaps).iterator();
+            return new htsjdk.samtools.util.CloseableIterator<ArtificialTestFeature>() {
+                @Override public void close() { }
+                @Override public boolean hasNext() { return iterator.hasNext(); }
+                @Override public ArtificialTestFeature next() { return iterator.next(); }
+            };
+        };
+    }
+
+    @Test
+    public void testInMemoryIndexQueries() throws Exception {
+        final List<SimpleInterval> loadedIntervals = new ArrayList<>();
+        final InMemoryFeatureIndex.FeatureLoader<ArtificialTestFeature> loader = makeTestLoader(loadedIntervals);
+        final InMemoryFeatureIndex<ArtificialTestFeature> index = new InMemoryFeatureIndex<>(null, 0, 100);
+
+        for ( final SimpleInterval query : Arrays.asList(new SimpleInterval("1", 2000, 2000), new SimpleInterval("1", 11, 14),
+                new SimpleInterval("1", 1, 1), new SimpleInterval("1", 151, 1999), new SimpleInterval("1", 10, 10),
+                new SimpleInterval("2", 56, 70), new SimpleInterval("1", 1001, 1999), new SimpleInterval("3", 1, 4),
+                new SimpleInterval("4", 1, 1)) ) {
+            final List<ArtificialTestFeature> expected = IN_MEMORY_INDEX_TEST_FEATURES.stream().filter(query::overlaps).collect(Collectors.toList());
+            Assert.assertEquals(index.query(query, loader), expected, "Wrong Features returned for query " + query);
+        }
+        // each contig is loaded in full exactly once
+        Assert.assertEquals(loadedIntervals, Arrays.asList(new SimpleInterval("1", 1, Integer.MAX_VALUE),
+                new SimpleInterval("2", 1, Integer.MAX_VALUE), new SimpleInterval("3", 1, Integer.MAX_VALUE), new SimpleInterval("4", 1, Integer.MAX_VALUE)));
+        Assert.assertEquals(index.getNumFeaturesInMemory(), IN_MEMORY_INDEX_TEST_FEATURES.size());
+    }
+
+    @Test
+    public void testInMemoryIndexLoadIntervals() throws Exception {
+        final List<SimpleInterval> loadedIntervals = new ArrayList<>();
+        final InMemoryFeatureIndex.FeatureLoader<ArtificialTestFeature> loader = makeTestLoader(loadedIntervals);
+        final InMemoryFeatureIndex<ArtificialTestFeature> index = new InMemoryFeatureIndex<>(
+                Arrays.asList(new SimpleInterval("1", 95, 98), new SimpleInterval("1", 12, 14), new SimpleInterval("1", 2050, 2060)), 2, 100);
+
+        // the padded intervals 10-16 and 93-100 don't overlap, so are loaded separately, but "1":1-1000 and "1":15-150 are only loaded once
+        Assert.assertEquals(index.query(new SimpleInterval("1", 95, 100), loader),
+                Arrays.asList(IN_MEMORY_INDEX_TEST_FEATURES.get(0), IN_MEMORY_INDEX_TEST_FEATURES.get(3), IN_MEMORY_INDEX_TEST_FEATURES.get(4)));
+        Assert.assertEquals(loadedIntervals, Arrays.asList(new SimpleInterval("1", 10, 16), new SimpleInterval("1", 93, 100), new SimpleInterval("1", 2048, 2062)));
+        Assert.assertEquals(index.getNumFeaturesInMemory(), 6);
+        Assert.assertEquals(index.query(new SimpleInterval("1", 10, 10), loader), IN_MEMORY_INDEX_TEST_FEATURES.subList(0, 3));
+
+        // queries outside the padded intervals can't be answered
+        Assert.assertNull(index.query(new SimpleInterval("1", 17, 92), loader));
+        Assert.assertNull(index.query(new SimpleInterval("1", 9, 10), loader));
+        Assert.assertNull(index.query(new SimpleInterval("2", 50, 50), loader));
+        Assert.assertEquals(loadedIntervals.size(), 3);
+    }
+
+    @Test
+    public void testInMemoryIndexEviction() throws Exception {
+        final List<SimpleInterval> loadedIntervals = new ArrayList<>();
+        final InMemoryFeatureIndex.FeatureLoader<ArtificialTestFeature> loader = makeTestLoader(loadedIntervals);
+        final InMemoryFeatureIndex<ArtificialTestFeature> index = new InMemoryFeatureIndex<>(null, 0, 3);
+
+        // contig 1 has too many Features to load
+        Assert.assertNull(index.query(new SimpleInterval("1", 10, 10), loader));
+        Assert.assertNull(index.query(new SimpleInterval("1", 10, 10), loader));
+        Assert.assertEquals(loadedIntervals.size(), 1);
+
+        Assert.assertEquals(index.query(new SimpleInterval("2", 55, 55), loader).size(), 2);
+        Assert.assertEquals(index.query(new SimpleInterval("3", 5, 5), loader).size(), 1);
+        Assert.assertEquals(index.getNumFeaturesInMemory(), 3);
+
+        // make contig 3 the least recently used, so that loading contig 4 evicts it
+        Assert.assertEquals(index.query(new SimpleInterval("2", 50, 50), loader).size(), 1);
+        Assert.assertEquals(index.query(new SimpleInterval("4", 1, 1), loader).size(), 1);
+        Assert.assertEquals(index.getNumFeaturesInMemory(), 3);
+        Assert.assertEquals(loadedIntervals.size(), 4);
+
+        loadedIntervals.clear();
+        Assert.assertEquals(index.query(new SimpleInterval("2", 60, 60), loader).size(), 1);
+        Assert.assertTrue(loadedIntervals.isEmpty());
+        Assert.assertEquals(index.query(new SimpleInterval("3", 1, 10), loader).size(), 1);
+        Assert.assertEquals(loadedIntervals, Collections.singletonList(new SimpleInterval("3", 1, Integer.MAX_VALUE)));
+        Assert.assertEquals(index.getNumFeaturesInMemory(), 3);
+    }
+
+    /*********************************************************
+     * End of direct testing on the InMemoryFeatureIndex inner class
+     *********************************************************/
+
 }
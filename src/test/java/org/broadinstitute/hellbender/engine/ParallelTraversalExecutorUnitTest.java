@@ -0,0 +1,163 @@
+package org.broadinstitute.hellbender.engine;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ParallelTraversalExecutorUnitTest extends GATKBaseTest {
+
+    private static class CountingWorkerState implements AutoCloseable {
+        int numProcessed = 0;
+        boolean closed = false;
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @DataProvider(name = "numThreads")
+    public Object[][] numThreads() {
+        return new Object[][] { {1}, {2}, {8} };
+    }
+
+    @Test(dataProvider = "numThreads")
+    public void testOutputIsReplayedInSubmissionOrder(final int numThreads) {
+        final List<Integer> output = new ArrayList<>();
+        final List<CountingWorkerState> states;
+        try ( final ParallelTraversalExecutor<CountingWorkerState> executor =
+                      new ParallelTraversalExecutor<>(numThreads, "test-thread", true, CountingWorkerState::new) ) {
+            for ( int i = 0; i < 100; i++ ) {
+                final int unit = i;
+                executor.submit(state -> {
+                    // make later units of work tend to finish first
+                    try {
+                        Thread.sleep((100 - unit) % 7);
+                    } catch ( final InterruptedException e ) {
+                        throw new RuntimeException(e);
+                    }
+                    state.numProcessed++;
+                    ParallelTraversalExecutor.emit(() -> output.add(unit));
+                    ParallelTraversalExecutor.emit(() -> output.add(-unit));
+                });
+            }
+            executor.awaitCompletion();
+            states = executor.getWorkerStates();
+            Assert.assertTrue(states.size() <= numThreads);
+            Assert.assertEquals(states.stream().mapToInt(state -> state.numProcessed).sum(), 100);
+        }
+
+        final List<Integer> expected = IntStream.range(0, 100).boxed().flatMap(i -> IntStream.of(i, -i).boxed()).collect(Collectors.toList());
+        Assert.assertEquals(output, expected);
+        Assert.assertTrue(states.stream().allMatch(state -> state.closed));
+    }
+
+    @Test(dataProvider = "numThreads")
+    public void testUnorderedOutputIsComplete(final int numThreads) {
+        final List<Integer> output = new ArrayList<>();
+        try ( final ParallelTraversalExecutor<CountingWorkerState> executor =
+                      new ParallelTraversalExecutor<>(numThreads, "test-thread", false, CountingWorkerState::new) ) {
+            for ( int i = 0; i < 100; i++ ) {
+                final int unit = i;
+                executor.submit(state -> ParallelTraversalExecutor.emit(() -> output.add(unit)));
+            }
+            executor.awaitCompletion();
+        }
+
+        Collections.sort(output);
+        Assert.assertEquals(output, IntStream.range(0, 100).boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testEmitOutsideOfWorkerRunsImmediately() {
+        final List<Integer> output = new ArrayList<>();
+        ParallelTraversalExecutor.emit(() -> output.add(1));
+        Assert.assertEquals(output, Collections.singletonList(1));
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testExceptionsFromWorkArePropagated() {
+        try ( final ParallelTraversalExecutor<CountingWorkerState> executor =
+                      new ParallelTraversalExecutor<>(2, "test-thread", true, CountingWorkerState::new) ) {
+            executor.submit(state -> { throw new UserException("bad input"); });
+            executor.awaitCompletion();
+        }
+    }
+
+    @Test
+    public void testCloseWaitsForInterruptedWork() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean usedAfterClose = new AtomicBoolean(false);
+        final List<CountingWorkerState> states;
+        final ParallelTraversalExecutor<CountingWorkerState> executor = new ParallelTraversalExecutor<>(1, "test-thread", true, CountingWorkerState::new);
+        executor.submit(state -> {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            } catch ( final InterruptedException e ) {
+                // carry on using the state for a while, as a read from a data source in progress would
+            }
+            try {
+                Thread.sleep(200);
+            } catch ( final InterruptedException e ) {
+                throw new RuntimeException(e);
+            }
+            usedAfterClose.set(state.closed);
+        });
+        started.await();
+        states = executor.getWorkerStates();
+        executor.close();
+
+        Assert.assertEquals(states.size(), 1);
+        Assert.assertTrue(states.get(0).closed);
+        Assert.assertFalse(usedAfterClose.get());
+    }
+
+    @Test
+    public void testCloseClosesEveryWorkerStateDespiteFailures() {
+        final int numThreads = 4;
+        final CountDownLatch allStarted = new CountDownLatch(numThreads);
+        final ParallelTraversalExecutor<CountingWorkerState> executor = new ParallelTraversalExecutor<>(numThreads, "test-thread", true,
+                () -> new CountingWorkerState() {
+                    @Override
+                    public void close() {
+                        super.close();
+                        throw new IllegalStateException("close failed");
+                    }
+                });
+        // hold each unit of work until all have started, so that every thread creates a state
+        for ( int i = 0; i < numThreads; i++ ) {
+            executor.submit(state -> {
+                allStarted.countDown();
+                try {
+                    allStarted.await();
+                } catch ( final InterruptedException e ) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+        executor.awaitCompletion();
+        final List<CountingWorkerState> states = executor.getWorkerStates();
+        Assert.assertEquals(states.size(), numThreads);
+
+        try {
+            executor.close();
+            Assert.fail("expected closing the worker states to fail");
+        } catch ( final GATKException e ) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            Assert.assertEquals(e.getSuppressed().length, numThreads - 1);
+        }
+        Assert.assertTrue(states.stream().allMatch(state -> state.closed));
+    }
+}
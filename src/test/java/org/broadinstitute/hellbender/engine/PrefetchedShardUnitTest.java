@@ -0,0 +1,224 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+public class PrefetchedShardUnitTest extends GATKBaseTest {
+    private static final Path READS = new File(publicTestDir + "org/broadinstitute/hellbender/engine/reads_data_source_test1.bam").toPath();
+    private static final Path REFERENCE = new File(hg19MiniReference).toPath();
+
+    /**
+     * Counts the queries made to, and records the closing of, another reference data source, optionally failing every query
+     */
+    private static final class RecordingReferenceSource implements ReferenceDataSource {
+        private final ReferenceDataSource delegate;
+        private final RuntimeException queryException;
+        private int numQueries = 0;
+        private boolean closed = false;
+
+        RecordingReferenceSource(final ReferenceDataSource delegate, final RuntimeException queryException) {
+            this.delegate = delegate;
+            this.queryException = queryException;
+        }
+
+        @Override
+        public ReferenceSequence queryAndPrefetch(final String contig, final long start, final long stop) {
+            numQueries++;
+            if ( queryException != null ) {
+                throw queryException;
+            }
+            return delegate.queryAndPrefetch(contig, start, stop);
+        }
+
+        @Override
+        public SAMSequenceDictionary getSequenceDictionary() {
+            return delegate.getSequenceDictionary();
+        }
+
+        @Override
+        public Iterator<Byte> iterator() {
+            return delegate.iterator();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            delegate.close();
+        }
+    }
+
+    /**
+     * Counts the queries made to another source of reads
+     */
+    private static final class CountingReadsSource implements GATKDataSource<GATKRead> {
+        private final GATKDataSource<GATKRead> delegate;
+        private int numQueries = 0;
+
+        CountingReadsSource(final GATKDataSource<GATKRead> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Iterator<GATKRead> query(final SimpleInterval interval) {
+            numQueries++;
+            return delegate.query(interval);
+        }
+
+        @Override
+        public Iterator<GATKRead> iterator() {
+            return delegate.iterator();
+        }
+    }
+
+    private static List<String> toNames(final Iterator<GATKRead> reads) {
+        final List<String> names = new ArrayList<>();
+        reads.forEachRemaining(read -> names.add(read.getName() + "@" + read.getContig() + ":" + read.getStart()));
+        return names;
+    }
+
+    private static PrefetchedShard load(final PrefetchedShard.Loader loader, final SimpleInterval interval) {
+        return loader.load(Collections.singletonList(interval), Collections.singletonList(interval),
+                loader.getReads() == null ? null : loader.getReads().query(interval));
+    }
+
+    @Test
+    public void testShardsArePrefetchedInOrder() {
+        final List<SimpleInterval> intervals = Arrays.asList(new SimpleInterval("1", 100, 200), new SimpleInterval("1", 5000, 6000),
+                new SimpleInterval("2", 500, 600), new SimpleInterval("2", 550, 700), new SimpleInterval("4", 1, 16000));
+        final List<SimpleInterval> spans = new ArrayList<>();
+
+        try ( final ReadsDataSource reads = new ReadsPathDataSource(READS);
+              final ReferenceDataSource reference = ReferenceDataSource.of(REFERENCE);
+              final PrefetchedShard.Loader loader = new PrefetchedShard.Loader(new ReadsPathDataSource(READS), ReferenceDataSource.of(REFERENCE), null);
+              final ShardPrefetcher<SimpleInterval, PrefetchedShard> prefetcher = new ShardPrefetcher<>(intervals.iterator(), 2, interval -> load(loader, interval)) ) {
+            while ( prefetcher.hasNext() ) {
+                final PrefetchedShard shard = prefetcher.next();
+                final SimpleInterval span = shard.getSpan();
+                spans.add(span);
+                Assert.assertEquals(shard.getIntervals(), Collections.singletonList(span));
+                Assert.assertEquals(toNames(shard.iterator()), toNames(reads.query(span)));
+                Assert.assertEquals(shard.getReference(reference).queryAndPrefetch(span).getBases(), reference.queryAndPrefetch(span).getBases());
+            }
+        }
+
+        Assert.assertEquals(spans, intervals);
+    }
+
+    @Test
+    public void testReadQueriesWithinShardUsePrefetchedReads() {
+        final SimpleInterval span = new SimpleInterval("2", 400, 700);
+        try ( final ReadsDataSource reads = new ReadsPathDataSource(READS);
+              final PrefetchedShard.Loader loader = new PrefetchedShard.Loader(new ReadsPathDataSource(READS), null, null) ) {
+            final PrefetchedShard shard = load(loader, span);
+            Assert.assertFalse(toNames(shard.iterator()).isEmpty());
+
+            final CountingReadsSource fallback = new CountingReadsSource(reads);
+            final GATKDataSource<GATKRead> prefetchedReads = shard.getReadsSource(fallback);
+            for ( final SimpleInterval interval : Arrays.asList(span, new SimpleInterval("2", 400, 500), new SimpleInterval("2", 560, 580), new SimpleInterval("2", 650, 700)) ) {
+                Assert.assertEquals(toNames(prefetchedReads.query(interval)), toNames(reads.query(interval)), "reads in " + interval);
+            }
+            Assert.assertEquals(fallback.numQueries, 0);
+
+            // queries extending outside of the shard go to the fallback
+            for ( final SimpleInterval interval : Arrays.asList(new SimpleInterval("2", 300, 550), new SimpleInterval("1", 100, 300)) ) {
+                Assert.assertEquals(toNames(prefetchedReads.query(interval)), toNames(reads.query(interval)), "reads in " + interval);
+            }
+            Assert.assertEquals(fallback.numQueries, 2);
+
+            Assert.assertNull(shard.getReadsSource(null));
+        }
+    }
+
+    @Test
+    public void testReferenceQueriesWithinShardUsePrefetchedBases() {
+        final SimpleInterval span = new SimpleInterval("3", 1000, 3000);
+        try ( final ReferenceDataSource reference = ReferenceDataSource.of(REFERENCE);
+              final PrefetchedShard.Loader loader = new PrefetchedShard.Loader(null, ReferenceDataSource.of(REFERENCE), null) ) {
+            final PrefetchedShard shard = load(loader, span);
+            Assert.assertFalse(shard.iterator().hasNext());
+
+            final RecordingReferenceSource fallback = new RecordingReferenceSource(reference, null);
+            final ReferenceDataSource prefetchedReference = shard.getReference(fallback);
+            for ( final SimpleInterval interval : Arrays.asList(span, new SimpleInterval("3", 1000, 1000), new SimpleInterval("3", 2000, 2500), new SimpleInterval("3", 3000, 3000)) ) {
+                Assert.assertEquals(prefetchedReference.queryAndPrefetch(interval).getBases(), reference.queryAndPrefetch(interval).getBases(), "bases in " + interval);
+            }
+            Assert.assertEquals(fallback.numQueries, 0);
+
+            for ( final SimpleInterval interval : Arrays.asList(new SimpleInterval("3", 999, 1100), new SimpleInterval("3", 2900, 3001), new SimpleInterval("4", 1000, 2000)) ) {
+                Assert.assertEquals(prefetchedReference.queryAndPrefetch(interval).getBases(), reference.queryAndPrefetch(interval).getBases(), "bases in " + interval);
+            }
+            Assert.assertEquals(fallback.numQueries, 3);
+
+            // the fallback belongs to the caller
+            prefetchedReference.close();
+            Assert.assertFalse(fallback.closed);
+        }
+    }
+
+    @Test
+    public void testReferenceBeyondEndOfContigIsNotPrefetched() {
+        final SimpleInterval span = new SimpleInterval("1", 15900, 16100);
+        try ( final ReferenceDataSource reference = ReferenceDataSource.of(REFERENCE);
+              final PrefetchedShard.Loader loader = new PrefetchedShard.Loader(null, ReferenceDataSource.of(REFERENCE), null) ) {
+            final RecordingReferenceSource fallback = new RecordingReferenceSource(reference, null);
+            final ReferenceDataSource prefetchedReference = load(loader, span).getReference(fallback);
+            final SimpleInterval endOfContig = new SimpleInterval("1", 15900, 16000);
+            Assert.assertEquals(prefetchedReference.queryAndPrefetch(endOfContig).getBases(), reference.queryAndPrefetch(endOfContig).getBases());
+            Assert.assertEquals(fallback.numQueries, 0);
+        }
+    }
+
+    @Test
+    public void testLoaderClosesItsDataSources() {
+        final RecordingReferenceSource reference = new RecordingReferenceSource(ReferenceDataSource.of(REFERENCE), null);
+        try ( final PrefetchedShard.Loader loader = new PrefetchedShard.Loader(null, reference, null) ) {
+            load(loader, new SimpleInterval("1", 1, 100));
+            Assert.assertFalse(reference.closed);
+        }
+        Assert.assertTrue(reference.closed);
+    }
+
+    @Test
+    public void testClosingPrefetcherBeforeLastShardLetsLoaderClose() {
+        final RecordingReferenceSource reference = new RecordingReferenceSource(ReferenceDataSource.of(REFERENCE), null);
+        final List<SimpleInterval> intervals = Arrays.asList(new SimpleInterval("1", 1, 100), new SimpleInterval("2", 1, 100), new SimpleInterval("3", 1, 100));
+        try ( final PrefetchedShard.Loader loader = new PrefetchedShard.Loader(null, reference, null);
+              final ShardPrefetcher<SimpleInterval, PrefetchedShard> prefetcher = new ShardPrefetcher<>(intervals.iterator(), 1, interval -> load(loader, interval)) ) {
+            Assert.assertEquals(prefetcher.next().getSpan(), intervals.get(0));
+        }
+        Assert.assertTrue(reference.closed);
+        Assert.assertTrue(reference.numQueries <= intervals.size());
+    }
+
+    @Test(expectedExceptions = UserException.CouldNotReadInputFile.class)
+    public void testLoadingExceptionIsRethrownOnTraversalThread() {
+        final RecordingReferenceSource reference = new RecordingReferenceSource(ReferenceDataSource.of(REFERENCE),
+                new UserException.CouldNotReadInputFile(REFERENCE, "test failure"));
+        try ( final PrefetchedShard.Loader loader = new PrefetchedShard.Loader(null, reference, null);
+              final ShardPrefetcher<SimpleInterval, PrefetchedShard> prefetcher = new ShardPrefetcher<>(
+                      Collections.singletonList(new SimpleInterval("1", 1, 100)).iterator(), 1, interval -> load(loader, interval)) ) {
+            prefetcher.next();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLoadRequiresIntervals() {
+        try ( final PrefetchedShard.Loader loader = new PrefetchedShard.Loader(null, null, null) ) {
+            loader.load(Collections.emptyList(), Collections.emptyList(), null);
+        }
+    }
+}
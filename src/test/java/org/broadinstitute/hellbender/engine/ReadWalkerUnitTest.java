@@ -8,9 +8,11 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.transformers.ReadTransformer;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Daniel Gomez-Sanchez (magicDGS)
@@ -110,4 +112,56 @@ public class ReadWalkerUnitTest extends CommandLineProgramTest {
         Assert.assertEquals(tool.totalReads, 5);
     }
 
-}
\ No newline at end of file
+    @CommandLineProgramProperties(
+            summary = "Dummy that counts the reads it is given with and without a backing reference data source",
+            oneLineSummary = "empty class",
+            programGroup = TestProgramGroup.class
+    )
+    private static class TestReferenceContextReadWalker extends ReadWalker {
+        private final boolean usesReferenceContexts;
+        final AtomicInteger readsWithReference = new AtomicInteger();
+        final AtomicInteger readsWithoutReference = new AtomicInteger();
+
+        TestReferenceContextReadWalker(final boolean usesReferenceContexts) {
+            this.usesReferenceContexts = usesReferenceContexts;
+        }
+
+        @Override
+        protected boolean supportsParallelTraversal() {
+            return true;
+        }
+
+        @Override
+        protected boolean usesReferenceContexts() {
+            return usesReferenceContexts;
+        }
+
+        @Override
+        public void apply(GATKRead read, ReferenceContext referenceContext, FeatureContext featureContext) {
+            (referenceContext.hasBackingDataSource() ? readsWithReference : readsWithoutReference).incrementAndGet();
+        }
+    }
+
+    @DataProvider(name = "referenceContextUse")
+    public Object[][] referenceContextUse() {
+        return new Object[][] { {1, true}, {1, false}, {2, true}, {2, false} };
+    }
+
+    @Test(dataProvider = "referenceContextUse")
+    public void testWorkersOnlyOpenReferenceForToolsUsingReferenceContexts(final int traversalThreads, final boolean usesReferenceContexts) {
+        final TestReferenceContextReadWalker tool = new TestReferenceContextReadWalker(usesReferenceContexts);
+
+        final String[] args = {
+                "-I", getTestDataDir()+ "/print_reads.sorted.bam",
+                "-R", getTestDataDir()+ "/print_reads.fasta",
+                "--" + ReadWalker.TRAVERSAL_THREADS_LONG_NAME, Integer.toString(traversalThreads)
+        };
+
+        tool.instanceMain(args);
+
+        // the traversal thread always passes contexts backed by the tool's reference
+        final boolean expectReference = traversalThreads == 1 || usesReferenceContexts;
+        Assert.assertTrue((expectReference ? tool.readsWithReference : tool.readsWithoutReference).get() > 0);
+        Assert.assertEquals((expectReference ? tool.readsWithoutReference : tool.readsWithReference).get(), 0);
+    }
+}
@@ -133,6 +133,39 @@ public final class ReadsPathDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test(dataProvider = "SingleFileCompleteTraversalData")
+    public void testSingleFileTraversalWithParallelDecompression( final Path samFile, final List<String> expectedReadNames ) {
+        try (ReadsPathDataSource readsSource = new ReadsPathDataSource(samFile)) {
+            readsSource.setParallelDecompression(2, 4);
+            traverseOnce(readsSource, samFile, expectedReadNames);
+            traverseOnce(readsSource, samFile, expectedReadNames);
+        }
+    }
+
+    @Test
+    public void testParallelDecompressionMatchesSerialDecompression() {
+        final Path bam = IOUtils.getPath(READS_DATA_SOURCE_TEST_DIRECTORY + "CEUTrio.HiSeq.WGS.b37.NA12878.20.21.10000000-10000020.with.unmapped.bam");
+        try (ReadsPathDataSource serialSource = new ReadsPathDataSource(bam);
+             ReadsPathDataSource parallelSource = new ReadsPathDataSource(bam)) {
+            parallelSource.setParallelDecompression(4, 8);
+            final Iterator<GATKRead> serialReads = serialSource.iterator();
+            final Iterator<GATKRead> parallelReads = parallelSource.iterator();
+            while (serialReads.hasNext()) {
+                Assert.assertTrue(parallelReads.hasNext());
+                Assert.assertEquals(parallelReads.next().convertToSAMRecord(parallelSource.getHeader()).getSAMString(),
+                        serialReads.next().convertToSAMRecord(serialSource.getHeader()).getSAMString());
+            }
+            Assert.assertFalse(parallelReads.hasNext());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testParallelDecompressionRejectsTooFewBlocks() {
+        try (ReadsPathDataSource readsSource = new ReadsPathDataSource(FIRST_TEST_BAM)) {
+            readsSource.setParallelDecompression(4, 2);
+        }
+    }
+
     private void traverseOnce(final ReadsDataSource readsSource, final Path samFile, final List<String> expectedReadNames) {
         List<GATKRead> reads = new ArrayList<>();
         for ( GATKRead read : readsSource ) {
@@ -282,19 +315,31 @@ public final class ReadsPathDataSourceUnitTest extends GATKBaseTest {
     @Test(dataProvider = "MultipleFilesCompleteTraversalData")
     public void testMultipleFilesCompleteTraversal(final List<Path> samFiles, final List<String> expectedReadNames) {
         try (ReadsDataSource readsSource = new ReadsPathDataSource(samFiles)) {
-            List<GATKRead> reads = new ArrayList<>();
+            traverseMultipleFiles(readsSource, samFiles, expectedReadNames);
+        }
+    }
 
-            for (GATKRead read : readsSource) {
-                reads.add(read);
-            }
+    @Test(dataProvider = "MultipleFilesCompleteTraversalData")
+    public void testMultipleFilesCompleteTraversalWithParallelDecompression(final List<Path> samFiles, final List<String> expectedReadNames) {
+        try (ReadsPathDataSource readsSource = new ReadsPathDataSource(samFiles)) {
+            readsSource.setParallelDecompression(2, 2);
+            traverseMultipleFiles(readsSource, samFiles, expectedReadNames);
+        }
+    }
 
-            // Make sure we got the right number of reads
-            Assert.assertEquals(reads.size(), expectedReadNames.size(), "Wrong number of reads returned in complete traversal of " + samFiles);
+    private void traverseMultipleFiles(final ReadsDataSource readsSource, final List<Path> samFiles, final List<String> expectedReadNames) {
+        List<GATKRead> reads = new ArrayList<>();
 
-            // Make sure we got the reads we expected in the right order
-            for (int readIndex = 0; readIndex < reads.size(); ++readIndex) {
-                Assert.assertEquals(reads.get(readIndex).getName(), expectedReadNames.get(readIndex), "Read #" + (readIndex + 1) + " in complete traversal of " + samFiles + " not equal to expected read");
-            }
+        for (GATKRead read : readsSource) {
+            reads.add(read);
+        }
+
+        // Make sure we got the right number of reads
+        Assert.assertEquals(reads.size(), expectedReadNames.size(), "Wrong number of reads returned in complete traversal of " + samFiles);
+
+        // Make sure we got the reads we expected in the right order
+        for (int readIndex = 0; readIndex < reads.size(); ++readIndex) {
+            Assert.assertEquals(reads.get(readIndex).getName(), expectedReadNames.get(readIndex), "Read #" + (readIndex + 1) + " in complete traversal of " + samFiles + " not equal to expected read");
         }
     }
 
@@ -0,0 +1,146 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class ReferenceMappedFileSourceUnitTest extends GATKBaseTest {
+
+    private static final Path TEST_REFERENCE = IOUtils.getPath(hg19MiniReference);
+
+    /**
+     * Write a small fasta with lower-case and IUPAC bases, lines of different lengths in different contigs, and no
+     * trailing newline, together with its index and dictionary.
+     */
+    private static Path writeTestFasta() throws IOException {
+        final File dir = createTempDir("referenceMappedFileSource");
+        final Path fasta = new File(dir, "test.fasta").toPath();
+        final String contigA = ">a first\nACGTAcgtaR\nNNACGTACGT\nACG\n";
+        final String contigB = ">b\nACGTACG\nTTTTTTT";
+        Files.write(fasta, (contigA + contigB).getBytes(StandardCharsets.US_ASCII));
+        Files.write(new File(dir, "test.fasta.fai").toPath(), (
+                "a\t23\t" + ">a first\n".length() + "\t10\t11\n" +
+                "b\t14\t" + (contigA.length() + ">b\n".length()) + "\t7\t8\n").getBytes(StandardCharsets.US_ASCII));
+        Files.write(new File(dir, "test.dict").toPath(), (
+                "@HD\tVN:1.6\n" +
+                "@SQ\tSN:a\tLN:23\n" +
+                "@SQ\tSN:b\tLN:14\n").getBytes(StandardCharsets.US_ASCII));
+        return fasta;
+    }
+
+    private static String query(final ReferenceDataSource reference, final String contig, final int start, final int stop) {
+        return new String(reference.queryAndPrefetch(contig, start, stop).getBases(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testQueriesMatchReferenceFileSource() {
+        final Random random = new Random(11);
+        try ( final ReferenceDataSource mapped = new ReferenceMappedFileSource(TEST_REFERENCE);
+              final ReferenceDataSource cached = new ReferenceFileSource(TEST_REFERENCE) ) {
+            Assert.assertEquals(mapped.getSequenceDictionary(), cached.getSequenceDictionary());
+            for ( int i = 0; i < 500; i++ ) {
+                final String contig = Integer.toString(1 + random.nextInt(4));
+                final int start = 1 + random.nextInt(16000);
+                final int stop = Math.min(16000, start + random.nextInt(1000));
+                final ReferenceSequence expected = cached.queryAndPrefetch(contig, start, stop);
+                final ReferenceSequence actual = mapped.queryAndPrefetch(new SimpleInterval(contig, start, stop));
+                Assert.assertEquals(actual.getBases(), expected.getBases());
+                Assert.assertEquals(actual.getContigIndex(), expected.getContigIndex());
+                Assert.assertEquals(actual.getName(), contig);
+            }
+            Assert.assertEquals(mapped.queryAndPrefetch("4", 1, 16000).getBases(), cached.queryAndPrefetch("4", 1, 16000).getBases());
+        }
+    }
+
+    @DataProvider(name = "testFastaQueries")
+    public Object[][] testFastaQueries() {
+        return new Object[][] {
+                {"a", 1, 23, false, "ACGTACGTANNNACGTACGTACG"},
+                {"a", 1, 23, true, "ACGTAcgtaRNNACGTACGTACG"},
+                {"a", 6, 12, true, "cgtaRNN"},
+                {"a", 10, 11, false, "NN"},
+                {"a", 21, 23, false, "ACG"},
+                {"a", 5, 4, false, ""},
+                {"b", 1, 14, false, "ACGTACGTTTTTTT"},
+                {"b", 7, 8, false, "GT"},
+                {"b", 14, 14, false, "T"}
+        };
+    }
+
+    @Test(dataProvider = "testFastaQueries")
+    public void testQueries(final String contig, final int start, final int stop, final boolean preserveFileBases, final String expected) throws IOException {
+        try ( final ReferenceDataSource reference = new ReferenceMappedFileSource(writeTestFasta(), preserveFileBases) ) {
+            Assert.assertEquals(query(reference, contig, start, stop), expected);
+        }
+    }
+
+    @Test
+    public void testConcurrentQueries() throws IOException, InterruptedException, ExecutionException {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try ( final ReferenceDataSource mapped = new ReferenceMappedFileSource(TEST_REFERENCE);
+              final ReferenceDataSource cached = new ReferenceFileSource(TEST_REFERENCE) ) {
+            final List<Future<String>> results = new ArrayList<>();
+            final List<String> expected = new ArrayList<>();
+            for ( int i = 0; i < 200; i++ ) {
+                final String contig = Integer.toString(1 + i % 4);
+                final int start = 1 + (i * 7919) % 15000;
+                results.add(executor.submit(() -> query(mapped, contig, start, start + 999)));
+                expected.add(query(cached, contig, start, start + 999));
+            }
+            for ( int i = 0; i < results.size(); i++ ) {
+                Assert.assertEquals(results.get(i).get(), expected.get(i));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(expectedExceptions = SAMException.class)
+    public void testQueryPastEndOfContig() throws IOException {
+        try ( final ReferenceDataSource reference = new ReferenceMappedFileSource(writeTestFasta()) ) {
+            reference.queryAndPrefetch("b", 10, 15);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MissingContigInSequenceDictionary.class)
+    public void testQueryUnknownContig() throws IOException {
+        try ( final ReferenceDataSource reference = new ReferenceMappedFileSource(writeTestFasta()) ) {
+            reference.queryAndPrefetch("c", 1, 1);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MissingReferenceFaiFile.class)
+    public void testReferenceWithMissingFaiFile() {
+        new ReferenceMappedFileSource(IOUtils.getPath(publicTestDir + "fastaWithoutFai.fasta"));
+    }
+
+    @Test(expectedExceptions = UserException.MissingReferenceDictFile.class)
+    public void testReferenceWithMissingDictFile() {
+        new ReferenceMappedFileSource(IOUtils.getPath(publicTestDir + "fastaWithoutDict.fasta"));
+    }
+
+    @Test
+    public void testCanMap() {
+        Assert.assertTrue(ReferenceMappedFileSource.canMap(TEST_REFERENCE));
+        Assert.assertFalse(ReferenceMappedFileSource.canMap(IOUtils.getPath(hg19MiniReference + ".gz")));
+    }
+}
@@ -0,0 +1,100 @@
+package org.broadinstitute.hellbender.engine;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ShardPrefetcherUnitTest extends GATKBaseTest {
+
+    @DataProvider(name = "maxShardsAhead")
+    public Object[][] maxShardsAhead() {
+        return new Object[][] { {1}, {2}, {10}, {200} };
+    }
+
+    @Test(dataProvider = "maxShardsAhead")
+    public void testShardsAreLoadedInOrderAndAhead(final int maxShardsAhead) {
+        final List<Integer> shards = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+        final AtomicInteger numLoaded = new AtomicInteger();
+        final Set<String> loaderThreads = ConcurrentHashMap.newKeySet();
+        final List<Integer> results = new ArrayList<>();
+
+        try ( final ShardPrefetcher<Integer, Integer> prefetcher = new ShardPrefetcher<>(shards.iterator(), maxShardsAhead, shard -> {
+            numLoaded.incrementAndGet();
+            loaderThreads.add(Thread.currentThread().getName());
+            return shard * 2;
+        }) ) {
+            while ( prefetcher.hasNext() ) {
+                results.add(prefetcher.next());
+                Assert.assertTrue(numLoaded.get() <= results.size() + maxShardsAhead, "loaded too far ahead");
+            }
+        }
+
+        Assert.assertEquals(results, shards.stream().map(shard -> shard * 2).collect(Collectors.toList()));
+        Assert.assertEquals(numLoaded.get(), shards.size());
+        Assert.assertEquals(loaderThreads.size(), 1);
+        Assert.assertFalse(loaderThreads.contains(Thread.currentThread().getName()));
+    }
+
+    @Test
+    public void testNoShards() {
+        try ( final ShardPrefetcher<Integer, Integer> prefetcher = new ShardPrefetcher<>(Collections.<Integer>emptyList().iterator(), 2, shard -> shard) ) {
+            Assert.assertFalse(prefetcher.hasNext());
+        }
+    }
+
+    @Test(expectedExceptions = NoSuchElementException.class)
+    public void testNextAfterLastShard() {
+        try ( final ShardPrefetcher<Integer, Integer> prefetcher = new ShardPrefetcher<>(Collections.singletonList(1).iterator(), 2, shard -> shard) ) {
+            prefetcher.next();
+            prefetcher.next();
+        }
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testLoaderExceptionIsRethrown() {
+        try ( final ShardPrefetcher<Integer, Integer> prefetcher = new ShardPrefetcher<>(IntStream.range(0, 10).iterator(), 3, shard -> {
+            if ( shard == 5 ) {
+                throw new UserException("bad shard");
+            }
+            return shard;
+        }) ) {
+            while ( prefetcher.hasNext() ) {
+                prefetcher.next();
+            }
+        }
+    }
+
+    @Test
+    public void testCloseStopsLoading() {
+        final AtomicInteger numLoaded = new AtomicInteger();
+        final ShardPrefetcher<Integer, Integer> prefetcher = new ShardPrefetcher<>(IntStream.range(0, 1000).iterator(), 4, shard -> {
+            numLoaded.incrementAndGet();
+            return shard;
+        });
+        Assert.assertEquals(prefetcher.next().intValue(), 0);
+        prefetcher.close();
+
+        // once closed, no more shards are loaded
+        final int loadedWhenClosed = numLoaded.get();
+        Assert.assertTrue(loadedWhenClosed <= 5);
+        Assert.assertFalse(prefetcher.hasNext());
+        Assert.assertEquals(numLoaded.get(), loadedWhenClosed);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidMaxShardsAhead() {
+        new ShardPrefetcher<Integer, Integer>(Collections.singletonList(1).iterator(), 0, shard -> shard);
+    }
+}
@@ -272,6 +272,33 @@ public final class CountingReadFilterUnitTest {
         Assert.assertEquals(isEgon.getFilteredCount(), 0);
     }
 
+    private static CountingReadFilter makeCompoundFilter() {
+        return new CountingReadFilter(startOk).and(new CountingReadFilter(endOk).negate().or(new CountingReadFilter(ReadFilterLibrary.MAPPED)));
+    }
+
+    @Test(dataProvider = "subFilterCounts")
+    public void testAddFilteredCounts(GATKRead[] reads, long totalRejections, long startEndRejections, long nameRejections) {
+        final CountingReadFilter allReadsFilter = makeCompoundFilter();
+        Arrays.stream(reads).filter(allReadsFilter).count();
+
+        // split the reads between two filters, as parallel traversal does between threads
+        final CountingReadFilter firstHalfFilter = makeCompoundFilter();
+        final CountingReadFilter secondHalfFilter = makeCompoundFilter();
+        Arrays.stream(reads, 0, reads.length / 2).filter(firstHalfFilter).count();
+        Arrays.stream(reads, reads.length / 2, reads.length).filter(secondHalfFilter).count();
+
+        final CountingReadFilter combinedFilter = makeCompoundFilter();
+        combinedFilter.addFilteredCounts(firstHalfFilter);
+        combinedFilter.addFilteredCounts(secondHalfFilter);
+        Assert.assertEquals(combinedFilter.getFilteredCount(), allReadsFilter.getFilteredCount());
+        Assert.assertEquals(combinedFilter.getSummaryLine(), allReadsFilter.getSummaryLine());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAddFilteredCountsOfDifferentFilter() {
+        makeCompoundFilter().addFilteredCounts(new CountingReadFilter(startOk).and(new CountingReadFilter(endOk)));
+    }
+
     @Test
     public void testFromListNull() {
         CountingReadFilter rf = CountingReadFilter.fromList(null, ArtificialReadUtils.createArtificialSamHeader(1, 1, 10));
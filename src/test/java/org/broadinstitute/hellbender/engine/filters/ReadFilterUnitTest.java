@@ -158,6 +158,39 @@ public final class ReadFilterUnitTest {
         Assert.assertEquals(count, 4);
     }
 
+    @Test
+    public void testFixedLengthFieldFiltersFirst() {
+        List<ReadFilter> filters = new ArrayList<>();
+        filters.add(new WellformedReadFilter());
+        filters.add(ReadFilterLibrary.MAPPED);
+        filters.add(ReadFilterLibrary.GOOD_CIGAR);
+        filters.add(new MappingQualityReadFilter(20));
+        filters.add(ReadFilterLibrary.NOT_DUPLICATE.negate());
+        filters.add(ReadFilterLibrary.HAS_READ_GROUP.and(ReadFilterLibrary.PAIRED));
+
+        // the input list is left alone, and the relative order within each group is preserved
+        final List<ReadFilter> reordered = ReadFilter.fixedLengthFieldFiltersFirst(filters);
+        Assert.assertEquals(filters.get(0).getClass(), WellformedReadFilter.class);
+        Assert.assertEquals(reordered.size(), filters.size());
+        Assert.assertSame(reordered.get(0), filters.get(1));
+        Assert.assertSame(reordered.get(1), filters.get(3));
+        Assert.assertSame(reordered.get(2), filters.get(4));
+        Assert.assertSame(reordered.get(3), filters.get(0));
+        Assert.assertSame(reordered.get(4), filters.get(2));
+        Assert.assertSame(reordered.get(5), filters.get(5));
+    }
+
+    @Test
+    public void testUsesOnlyFixedLengthFields() {
+        Assert.assertTrue(ReadFilterLibrary.MAPPED.usesOnlyFixedLengthFields());
+        Assert.assertTrue(ReadFilterLibrary.MAPPED.negate().usesOnlyFixedLengthFields());
+        Assert.assertTrue(ReadFilterLibrary.MAPPED.and(ReadFilterLibrary.PRIMARY_LINE).usesOnlyFixedLengthFields());
+        Assert.assertTrue(ReadFilterLibrary.MAPPED.or(new MappingQualityReadFilter(10)).usesOnlyFixedLengthFields());
+        Assert.assertFalse(ReadFilterLibrary.MAPPED.and(ReadFilterLibrary.GOOD_CIGAR).usesOnlyFixedLengthFields());
+        Assert.assertFalse(ReadFilterLibrary.HAS_READ_GROUP.usesOnlyFixedLengthFields());
+        Assert.assertFalse(new WellformedReadFilter().usesOnlyFixedLengthFields());
+    }
+
     public static int verifyAndFilterOrder(final ReadFilter rf, final String[] expectedOrder) {
         Assert.assertEquals(rf.getClass(), ReadFilter.ReadFilterAnd.class);
         return verifyAndFilterOrder((ReadFilter.ReadFilterAnd) rf, expectedOrder);
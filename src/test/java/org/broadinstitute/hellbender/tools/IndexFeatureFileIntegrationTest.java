@@ -1,20 +1,25 @@
 package org.broadinstitute.hellbender.tools;
 
 import htsjdk.samtools.util.FileExtensions;
+import htsjdk.tribble.AbstractFeatureReader;
+import htsjdk.tribble.FeatureReader;
 import htsjdk.tribble.Tribble;
 import htsjdk.tribble.index.Index;
 import htsjdk.tribble.index.IndexFactory;
 import htsjdk.tribble.index.linear.LinearIndex;
 import htsjdk.tribble.index.tabix.TabixIndex;
 import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFCodec;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.Main;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.testutils.VariantContextTestUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.codecs.gtf.EnsemblGtfCodec;
 import org.broadinstitute.hellbender.utils.codecs.gtf.GencodeGtfFeature;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.variant.PackedVariantCache;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -147,6 +152,43 @@ public final class IndexFeatureFileIntegrationTest extends CommandLineProgramTes
         checkIndex(index, Arrays.asList("1", "2", "3", "4"));
     }
 
+    @Test
+    public void testVCFGZIndexWithPackedVariantCache() throws IOException {
+        final File inputVCF = getTestFile("test_variants_for_index.vcf.blockgz.gz");
+        final File inputCopy = new File(createTempDir("testVCFGZIndexWithPackedVariantCache"), inputVCF.getName());
+        Files.copy(inputVCF.toPath(), inputCopy.toPath());
+
+        final String[] args = {
+                "-I" ,  inputCopy.getAbsolutePath(),
+                "--create-packed-variant-cache"
+        };
+        this.runCommandLine(args);
+        Assert.assertTrue(PackedVariantCache.hasUpToDateCache(inputCopy.toPath()));
+
+        // the original is unindexed, and a FeatureDataSource over the copy would read it from the cache
+        try (final FeatureReader<VariantContext> originalSource = AbstractFeatureReader.getFeatureReader(inputVCF.getAbsolutePath(), new VCFCodec(), false);
+             final PackedVariantCache cache = new PackedVariantCache(PackedVariantCache.getCachePath(inputCopy.toPath()))) {
+            final Iterator<VariantContext> originalIterator = originalSource.iterator();
+            final Iterator<VariantContext> cachedIterator = cache.iterator();
+            while (originalIterator.hasNext()) {
+                // INFO values are typed in the cache, rather than text
+                VariantContextTestUtils.assertVariantContextsAreEqual(cachedIterator.next(), originalIterator.next(), Collections.emptyList(), Collections.emptyList());
+            }
+            Assert.assertFalse(cachedIterator.hasNext());
+        }
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testPackedVariantCacheRequiresVCF() {
+        final File outName = createTempFile("test_bed_for_index.bed", ".idx");
+        final String[] args = {
+                "-I" ,  getTestFile("test_bed_for_index.bed").getAbsolutePath(),
+                "-O" ,  outName.getAbsolutePath(),
+                "--create-packed-variant-cache"
+        };
+        this.runCommandLine(args);
+    }
+
     @Test
     public void testVCFGZLargeHeaderIndex_tabix() throws IOException {
         // copy the input file, and create an index
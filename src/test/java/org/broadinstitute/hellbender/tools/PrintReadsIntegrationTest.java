@@ -6,6 +6,7 @@ import org.broadinstitute.hellbender.GATKBaseTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.ReadsDataSource;
 import org.broadinstitute.hellbender.engine.ReadsPathDataSource;
+import org.broadinstitute.hellbender.engine.ReadWalker;
 import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
 import org.broadinstitute.hellbender.testutils.SamAssertionUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
@@ -50,6 +51,22 @@ public final class PrintReadsIntegrationTest extends AbstractPrintReadsIntegrati
         Assert.assertNotNull(SamReaderFactory.makeDefault().open(outFile).getFileHeader().getProgramRecord("GATK PrintReads.1"));
     }
 
+    @Test
+    public void testParallelTraversalMatchesSerialTraversal() throws IOException {
+        final File serialOut = createTempFile("testParallelTraversal_serial", ".bam");
+        final File parallelOut = createTempFile("testParallelTraversal_parallel", ".bam");
+        for ( final File out : Arrays.asList(serialOut, parallelOut) ) {
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addInput(NA12878_20_21_WGS_bam)
+                    .addInterval("20:10000000-10100000")
+                    .addOutput(out)
+                    .add(ReadWalker.TRAVERSAL_THREADS_LONG_NAME, out == serialOut ? 1 : 4)
+                    .add(StandardArgumentDefinitions.ADD_OUTPUT_SAM_PROGRAM_RECORD, false);
+            runCommandLine(args);
+        }
+        SamAssertionUtils.assertSamsEqual(parallelOut, serialOut);
+    }
+
     @DataProvider
     public Object[][] getHttpPaths(){
         final String bam = "gs://hellbender/test/resources/benchmark/CEUTrio.HiSeq.WEx.b37.NA12892.bam";
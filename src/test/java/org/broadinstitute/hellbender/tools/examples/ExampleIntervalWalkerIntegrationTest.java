@@ -1,7 +1,9 @@
 package org.broadinstitute.hellbender.tools.examples;
 
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
@@ -23,4 +25,24 @@ public final class ExampleIntervalWalkerIntegrationTest extends CommandLineProgr
         );
         testSpec.executeTest("testExampleIntervalWalker", this);
     }
+
+    @DataProvider(name = "prefetchShards")
+    public Object[][] getPrefetchShards() {
+        return new Object[][] {{1}, {2}, {10}};
+    }
+
+    // prefetching the data for upcoming intervals must not change the output
+    @Test(dataProvider = "prefetchShards")
+    public void testExampleIntervalWalkerWithPrefetching(final int prefetchShards) throws IOException {
+        IntegrationTestSpec testSpec = new IntegrationTestSpec(
+                " -L 1:100-200 -L 2:500-600" +
+                " -R " + hg19MiniReference +
+                " -I " + TEST_DATA_DIRECTORY + "reads_data_source_test1.bam" +
+                " -V " + TEST_DATA_DIRECTORY + "feature_data_source_test.vcf" +
+                " --" + StandardArgumentDefinitions.PREFETCH_SHARDS_LONG_NAME + " " + prefetchShards +
+                " -O %s",
+                Arrays.asList(TEST_OUTPUT_DIRECTORY + "expected_ExampleIntervalWalkerIntegrationTest_output.txt")
+        );
+        testSpec.executeTest("testExampleIntervalWalkerWithPrefetching", this);
+    }
 }
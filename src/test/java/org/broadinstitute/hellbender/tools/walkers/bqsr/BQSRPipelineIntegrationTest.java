@@ -0,0 +1,71 @@
+package org.broadinstitute.hellbender.tools.walkers.bqsr;
+
+import htsjdk.samtools.ValidationStringency;
+import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
+import org.broadinstitute.hellbender.testutils.SamAssertionUtils;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public final class BQSRPipelineIntegrationTest extends CommandLineProgramTest {
+    private static final String RESOURCE_DIR = getTestDataDir() + "/" + "BQSR" + "/";
+    private static final File BAM = new File(RESOURCE_DIR + "CEUTrio.HiSeq.WGS.b37.NA12878.20.21.10m-10m100.bam");
+    private static final File SITES_20 = new File(RESOURCE_DIR + "dbsnp_138.b37.20.10m-10m100.vcf");
+    private static final File SITES_21 = new File(RESOURCE_DIR + "dbsnp_138.b37.21.10m-10m100.vcf");
+
+    private static ArgumentsBuilder makeArgs(final File output) {
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.addReference(new File(b37_reference_20_21));
+        args.addInput(BAM);
+        args.add(BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, SITES_20);
+        args.add(BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, SITES_21);
+        args.addRaw("-indels");
+        args.addRaw("--enable-baq");
+        args.addOutput(output);
+        return args;
+    }
+
+    @Test
+    public void testMatchesBaseRecalibratorAndApplyBQSR() throws IOException {
+        final File output = GATKBaseTest.createTempFile("bqsrPipeline", ".bam");
+        runCommandLine(makeArgs(output));
+
+        // same expected output as that of BQSRPipelineSpark
+        SamAssertionUtils.assertEqualBamFiles(output, new File(RESOURCE_DIR + "expected.MultiSite.bqsr.pipeline.bam"),
+                new File(b37_reference_20_21), true, ValidationStringency.SILENT);
+    }
+
+    @DataProvider(name = "subsamples")
+    public Object[][] makeSubsamples() {
+        return new Object[][]{
+                {"10", "1"}, {null, "3"}, {"20", "4"}
+        };
+    }
+
+    // recalibrating with tables from a subset of the reads must give the same output as ApplyBQSR given those tables
+    @Test(dataProvider = "subsamples")
+    public void testSubsampledTables(final String maxReads, final String stride) throws IOException {
+        final File output = GATKBaseTest.createTempFile("bqsrPipeline", ".bam");
+        final File recalTable = GATKBaseTest.createTempFile("bqsrPipeline", ".table");
+        final ArgumentsBuilder args = makeArgs(output);
+        if (maxReads != null) {
+            args.add(BQSRPipeline.RECALIBRATION_READS_LONG_NAME, maxReads);
+        }
+        args.add(BQSRPipeline.RECALIBRATION_READ_STRIDE_LONG_NAME, stride);
+        args.add(BQSRPipeline.RECAL_TABLE_OUTPUT_LONG_NAME, recalTable);
+        runCommandLine(args);
+
+        final File expected = GATKBaseTest.createTempFile("applyBQSR", ".bam");
+        final ArgumentsBuilder applyArgs = new ArgumentsBuilder();
+        applyArgs.addInput(BAM);
+        applyArgs.add("bqsr", recalTable);
+        applyArgs.addOutput(expected);
+        runCommandLine(applyArgs, ApplyBQSR.class.getSimpleName());
+
+        SamAssertionUtils.assertEqualBamFiles(output, expected, new File(b37_reference_20_21), true, ValidationStringency.SILENT);
+    }
+}
@@ -5,10 +5,14 @@ import htsjdk.samtools.ValidationStringency;
 import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.ReadWalker;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
 import org.broadinstitute.hellbender.testutils.SamAssertionUtils;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.recalibration.RecalDatum;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationReport;
+import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -96,6 +100,15 @@ public final class BaseRecalibratorIntegrationTest extends CommandLineProgramTes
                 {new BQSRTest(hg18Reference, HiSeqBam_chr17, dbSNPb37_chr17, "-indels --enable-baq " +"--quantizing-levels 6", getResourceDir() + "expected.NA12878.chr17_69k_70k.quantizing_levels6.txt")},
                 {new BQSRTest(hg18Reference, HiSeqBam_chr17, dbSNPb37_chr17, "-indels --enable-baq " +"--mismatches-context-size 4", getResourceDir() + "expected.NA12878.chr17_69k_70k.mismatches_context_size4.txt")},
                 {new BQSRTest(b36Reference, origQualsBam_chr1, dbSNPb36_chr1, "-indels --enable-baq " +"-OQ", getResourceDir() + "expected.originalQuals.1kg.chr1.1-1K.1RG.dictFix.OQ.txt")},
+
+                // the tables don't depend on the number of traversal threads
+                {new BQSRTest(GRCh37Ref_chr2021, hiSeqBam_chr20, dbSNPb37_chr20, "--" + ReadWalker.TRAVERSAL_THREADS_LONG_NAME + " 4", getResourceDir() + BQSRTestData.EXPECTED_WGS_B37_CH20_1M_1M1K_NOINDEL_NOBAQ_RECAL)},
+                {new BQSRTest(GRCh37Ref_chr2021, hiSeqBam_chr20, dbSNPb37_chr20, "-indels --enable-baq --" + ReadWalker.TRAVERSAL_THREADS_LONG_NAME + " 4", getResourceDir() + BQSRTestData.EXPECTED_WGS_B37_CH20_1M_1M1K_RECAL)},
+                {new BQSRTest(hg18Reference, HiSeqBam_chr17, dbSNPb37_chr17, "-indels --enable-baq --" + ReadWalker.TRAVERSAL_THREADS_LONG_NAME + " 3", getResourceDir() + "expected.NA12878.chr17_69k_70k.txt")},
+
+                // sampling shards in random order until convergence counts every read once when the tables never get checked
+                {new BQSRTest(GRCh37Ref_chr2021, hiSeqBam_chr20, dbSNPb37_chr20, "-indels --enable-baq --" + BaseRecalibrator.CONVERGENCE_TOLERANCE_LONG_NAME + " 0 --" + BaseRecalibrator.CONVERGENCE_MIN_READS_LONG_NAME + " 1000000000", getResourceDir() + BQSRTestData.EXPECTED_WGS_B37_CH20_1M_1M1K_RECAL)},
+                {new BQSRTest(hg18Reference, HiSeqBam_chr17, dbSNPb37_chr17, "-indels --enable-baq --" + BaseRecalibrator.CONVERGENCE_TOLERANCE_LONG_NAME + " 0 --" + BaseRecalibrator.CONVERGENCE_MIN_READS_LONG_NAME + " 1000000000 --" + BaseRecalibrator.CONVERGENCE_SHARD_SIZE_LONG_NAME + " 100", getResourceDir() + "expected.NA12878.chr17_69k_70k.txt")},
         };
     }
     @Test(dataProvider = "BQSRTest")
@@ -134,6 +147,77 @@ public final class BaseRecalibratorIntegrationTest extends CommandLineProgramTes
         IntegrationTestSpec.assertEqualTextFiles(actualTablePost, expectedTablePost);
     }
 
+    @Test
+    public void testConvergenceStopsEarly() throws IOException {
+        final String hg18Reference = publicTestDir + "human_g1k_v37.chr17_1Mb.fasta";
+        final String dbSNPb37_chr17 =  getResourceDir() + "dbsnp_132.b37.excluding_sites_after_129.chr17_69k_70k.vcf";
+        final String HiSeqBam_chr17 = getResourceDir() + "NA12878.chr17_69k_70k.dictFix.bam";
+
+        final File fullTable = createTempFile("full", ".table");
+        final File sampledTable = createTempFile("sampled", ".table");
+        final String args = "-R " + hg18Reference + " --known-sites " + dbSNPb37_chr17 + " -I " + HiSeqBam_chr17;
+        new BaseRecalibrator().instanceMain(Utils.escapeExpressions(args + " -O " + fullTable.getAbsolutePath()));
+        // with a tolerance this large the tables converge at the second check
+        new BaseRecalibrator().instanceMain(Utils.escapeExpressions(args + " -O " + sampledTable.getAbsolutePath() +
+                " --" + BaseRecalibrator.CONVERGENCE_TOLERANCE_LONG_NAME + " 1000 --" + BaseRecalibrator.CONVERGENCE_MIN_READS_LONG_NAME + " 20 --" +
+                BaseRecalibrator.CONVERGENCE_SHARD_SIZE_LONG_NAME + " 50"));
+
+        final long fullObservations = countObservations(new RecalibrationReport(fullTable));
+        final long sampledObservations = countObservations(new RecalibrationReport(sampledTable));
+        Assert.assertTrue(sampledObservations > 0);
+        Assert.assertTrue(sampledObservations < fullObservations, sampledObservations + " vs " + fullObservations);
+    }
+
+    @DataProvider(name = "convergenceIntervals")
+    public Object[][] getConvergenceIntervals() {
+        return new Object[][]{
+                {" -L 17:69250-69850"},
+                // reads overlapping both intervals must only be counted once
+                {" -L 17:69200-69400 -L 17:69450-69800"}
+        };
+    }
+
+    /**
+     * When the tables never get checked, sampling shards of the user's intervals in random order counts the same reads
+     * as traversing the intervals, including reads that start before an interval or before the shard they overlap
+     */
+    @Test(dataProvider = "convergenceIntervals")
+    public void testConvergenceWithIntervalsCountsAllReads(final String intervals) throws IOException {
+        final String hg18Reference = publicTestDir + "human_g1k_v37.chr17_1Mb.fasta";
+        final String dbSNPb37_chr17 =  getResourceDir() + "dbsnp_132.b37.excluding_sites_after_129.chr17_69k_70k.vcf";
+        final String HiSeqBam_chr17 = getResourceDir() + "NA12878.chr17_69k_70k.dictFix.bam";
+
+        final File fullTable = createTempFile("full", ".table");
+        final File sampledTable = createTempFile("sampled", ".table");
+        final String args = "-R " + hg18Reference + " --known-sites " + dbSNPb37_chr17 + " -I " + HiSeqBam_chr17 + intervals + " -indels --enable-baq";
+        new BaseRecalibrator().instanceMain(Utils.escapeExpressions(args + " -O " + fullTable.getAbsolutePath()));
+        new BaseRecalibrator().instanceMain(Utils.escapeExpressions(args + " -O " + sampledTable.getAbsolutePath() +
+                " --" + BaseRecalibrator.CONVERGENCE_TOLERANCE_LONG_NAME + " 0 --" + BaseRecalibrator.CONVERGENCE_MIN_READS_LONG_NAME + " 1000000000 --" +
+                BaseRecalibrator.CONVERGENCE_SHARD_SIZE_LONG_NAME + " 100"));
+
+        IntegrationTestSpec.assertEqualTextFiles(sampledTable, fullTable);
+    }
+
+    private static long countObservations(final RecalibrationReport report) {
+        return report.getRecalibrationTables().getReadGroupTable().getAllValues().stream().mapToLong(RecalDatum::getNumObservations).sum();
+    }
+
+    @Test
+    public void testConvergenceFailsWithTraversalThreads() throws IOException {
+        final String hg18Reference = publicTestDir + "human_g1k_v37.chr17_1Mb.fasta";
+        final String dbSNPb37_chr17 =  getResourceDir() + "dbsnp_132.b37.excluding_sites_after_129.chr17_69k_70k.vcf";
+        final String HiSeqBam_chr17 = getResourceDir() + "NA12878.chr17_69k_70k.dictFix.bam";
+
+        final BQSRTest params = new BQSRTest(hg18Reference, HiSeqBam_chr17, dbSNPb37_chr17,
+                "--" + BaseRecalibrator.CONVERGENCE_TOLERANCE_LONG_NAME + " 0.1 --" + ReadWalker.TRAVERSAL_THREADS_LONG_NAME + " 2",
+                getResourceDir() + "expected.NA12878.chr17_69k_70k.txt");
+        IntegrationTestSpec spec = new IntegrationTestSpec(
+                params.getCommandLine(),
+                1,
+                CommandLineException.class);
+        spec.executeTest("testConvergenceFailsWithTraversalThreads", this);
+    }
+
     @Test
     public void testBQSRFailWithoutDBSNP() throws IOException {
         final String resourceDir =  getTestDataDir() + "/" + "BQSR" + "/";
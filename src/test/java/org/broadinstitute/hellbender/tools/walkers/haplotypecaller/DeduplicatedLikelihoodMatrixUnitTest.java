@@ -0,0 +1,127 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.AlleleLikelihoods;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.genotyper.SampleList;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class DeduplicatedLikelihoodMatrixUnitTest extends GATKBaseTest {
+
+    private static final String SAMPLE = "sample";
+
+    private static GATKRead makeRead(final String name, final String bases, final int qual) {
+        final byte[] quals = Utils.dupBytes((byte)qual, bases.length());
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(bases.getBytes(), quals, bases.length() + "M");
+        read.setName(name);
+        read.setMappingQuality(60);
+        ReadUtils.setInsertionBaseQualities(read, Utils.dupBytes((byte)45, bases.length()));
+        ReadUtils.setDeletionBaseQualities(read, Utils.dupBytes((byte)45, bases.length()));
+        return read;
+    }
+
+    private static LikelihoodMatrix<GATKRead, Haplotype> makeMatrix(final List<GATKRead> reads) {
+        final List<Haplotype> haplotypes = Arrays.asList(new Haplotype("ACGTACGTAC".getBytes(), true), new Haplotype("ACGTTCGTAC".getBytes(), false));
+        return new AlleleLikelihoods<>(new IndexedSampleList(SAMPLE), new IndexedAlleleList<>(haplotypes),
+                Collections.singletonMap(SAMPLE, reads)).sampleMatrix(0);
+    }
+
+    private static Map<GATKRead, byte[]> gcps(final List<GATKRead> reads, final byte gcp) {
+        final Map<GATKRead, byte[]> result = new HashMap<>();
+        reads.forEach(read -> result.put(read, Utils.dupBytes(gcp, read.getLength())));
+        return result;
+    }
+
+    @Test
+    public void testIdenticalReadsAreComputedOnce() {
+        final List<GATKRead> reads = Arrays.asList(
+                makeRead("read1", "ACGTAC", 30),
+                makeRead("read2", "ACGTAC", 30),    // same as read1
+                makeRead("read3", "ACGTAC", 20),    // different base qualities
+                makeRead("read4", "CGTACG", 30),    // different bases
+                makeRead("read5", "ACGTAC", 30));   // same as read1
+        final LikelihoodMatrix<GATKRead, Haplotype> matrix = makeMatrix(reads);
+        final DeduplicatedLikelihoodMatrix deduplicated = DeduplicatedLikelihoodMatrix.deduplicate(matrix, reads, gcps(reads, (byte)10));
+
+        Assert.assertEquals(deduplicated.evidence(), Arrays.asList(reads.get(0), reads.get(2), reads.get(3)));
+        Assert.assertEquals(deduplicated.uniqueProcessedReads(), Arrays.asList(reads.get(0), reads.get(2), reads.get(3)));
+        Assert.assertEquals(deduplicated.numberOfAlleles(), 2);
+
+        // setting the likelihood of a unique read sets it for all of its copies
+        deduplicated.set(1, 0, -2.0);
+        deduplicated.set(1, 1, -3.0);
+        deduplicated.set(1, 2, -4.0);
+        Assert.assertEquals(matrix.get(1, 0), -2.0);
+        Assert.assertEquals(matrix.get(1, 1), -2.0);
+        Assert.assertEquals(matrix.get(1, 2), -3.0);
+        Assert.assertEquals(matrix.get(1, 3), -4.0);
+        Assert.assertEquals(matrix.get(1, 4), -2.0);
+        Assert.assertEquals(deduplicated.get(1, 2), -4.0);
+    }
+
+    @Test
+    public void testGapContinuationPenaltiesDistinguishReads() {
+        final List<GATKRead> reads = Arrays.asList(makeRead("read1", "ACGTAC", 30), makeRead("read2", "ACGTAC", 30));
+        final Map<GATKRead, byte[]> gcps = gcps(reads, (byte)10);
+        gcps.put(reads.get(1), Utils.dupBytes((byte)20, reads.get(1).getLength()));
+
+        final DeduplicatedLikelihoodMatrix deduplicated = DeduplicatedLikelihoodMatrix.deduplicate(makeMatrix(reads), reads, gcps);
+        Assert.assertEquals(deduplicated.evidenceCount(), 2);
+    }
+
+    @Test
+    public void testEngineLikelihoodsOfDuplicateReads() {
+        final byte[] refBases = "ACGTTGCAACGGTACCATGCAAGTCCGATTACGGATCCAGTAGCATGCAAT".getBytes();
+        final SimpleInterval location = new SimpleInterval("1", 1, refBases.length);
+        final AssemblyResultSet assemblyResultSet = new AssemblyResultSet();
+        final Haplotype refHaplotype = new Haplotype(refBases, true);
+        refHaplotype.setGenomeLocation(location);
+        assemblyResultSet.add(refHaplotype);
+        final byte[] altBases = refBases.clone();
+        altBases[20] = 'T';
+        final Haplotype altHaplotype = new Haplotype(altBases, false);
+        altHaplotype.setGenomeLocation(location);
+        assemblyResultSet.add(altHaplotype);
+
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ ) {
+            reads.add(makeRead("dup" + i, new String(Arrays.copyOfRange(altBases, 10, 40)), 30));
+        }
+        reads.add(makeRead("other", new String(Arrays.copyOfRange(refBases, 5, 35)), 25));
+        final SampleList samples = new IndexedSampleList(SAMPLE);
+
+        final PairHMMLikelihoodCalculationEngine engine = new PairHMMLikelihoodCalculationEngine((byte)10, new PairHMMNativeArguments(),
+                PairHMM.Implementation.LOGLESS_CACHING, -4.5, PairHMMLikelihoodCalculationEngine.PCRErrorModel.NONE);
+        final LikelihoodMatrix<GATKRead, Haplotype> withDuplicates = engine.computeReadLikelihoods(assemblyResultSet, samples,
+                Collections.singletonMap(SAMPLE, reads)).sampleMatrix(0);
+        final LikelihoodMatrix<GATKRead, Haplotype> withoutDuplicates = engine.computeReadLikelihoods(assemblyResultSet, samples,
+                Collections.singletonMap(SAMPLE, Arrays.asList(reads.get(0), reads.get(10)))).sampleMatrix(0);
+        engine.close();
+
+        Assert.assertEquals(withDuplicates.evidenceCount(), reads.size());
+        for ( int a = 0; a < 2; a++ ) {
+            for ( int r = 0; r < 10; r++ ) {
+                Assert.assertEquals(withDuplicates.get(a, r), withoutDuplicates.get(a, 0));
+            }
+            Assert.assertEquals(withDuplicates.get(a, 10), withoutDuplicates.get(a, 1));
+        }
+    }
+}
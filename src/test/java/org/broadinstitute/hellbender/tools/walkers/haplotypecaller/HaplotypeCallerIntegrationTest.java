@@ -11,9 +11,11 @@ import htsjdk.variant.vcf.VCFConstants;
 import htsjdk.variant.vcf.VCFHeader;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.tuple.Pair;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.argumentcollections.IntervalArgumentCollection;
+import org.broadinstitute.hellbender.engine.AssemblyRegionWalker;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
 import org.broadinstitute.hellbender.engine.ReadsDataSource;
 import org.broadinstitute.hellbender.engine.ReadsPathDataSource;
@@ -30,6 +32,7 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
@@ -41,6 +44,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -100,6 +104,217 @@ public class HaplotypeCallerIntegrationTest extends CommandLineProgramTest {
         }
     }
 
+    /*
+     * Test that running with multiple traversal threads produces the same output as a single-threaded run
+     * when each contig fits within a single traversal shard. Downsampling is disabled, since parallel shards are
+     * downsampled with random number generators of their own (see testParallelTraversalWithDownsamplingComparedToSerialTraversal).
+     */
+    @Test
+    public void testParallelTraversalMatchesSerialTraversal() throws Exception {
+        final File serialOutput = createTempFile("testParallelTraversalMatchesSerialTraversal_serial", ".g.vcf");
+        final File parallelOutput = createTempFile("testParallelTraversalMatchesSerialTraversal_parallel", ".g.vcf");
+
+        for ( final Pair<File, Integer> outputAndThreads : Arrays.asList(Pair.of(serialOutput, 1), Pair.of(parallelOutput, 4)) ) {
+            Utils.resetRandomGenerator();
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addInput(NA12878_20_21_WGS_bam)
+                    .addReference(b37_reference_20_21)
+                    .addInterval("20:10000000-10100000")
+                    .addInterval("21:10000000-10100000")
+                    .addOutput(outputAndThreads.getLeft())
+                    .add(AssemblyBasedCallerArgumentCollection.EMIT_REF_CONFIDENCE_LONG_NAME, ReferenceConfidenceMode.GVCF)
+                    .add(AssemblyRegionArgumentCollection.MAX_STARTS_LONG_NAME, 0)
+                    .add(AssemblyRegionWalker.TRAVERSAL_THREADS_LONG_NAME, outputAndThreads.getRight())
+                    .add(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, false);
+            runCommandLine(args);
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(parallelOutput, serialOutput);
+    }
+
+    @DataProvider(name = "parallelTraversalThreads")
+    public Object[][] getParallelTraversalThreads() {
+        return new Object[][] {{2}, {4}};
+    }
+
+    /*
+     * Test that with shards small enough for reads to cross their boundaries, and with reads being downsampled, running
+     * with multiple traversal threads produces the same output as a single thread processing the same shards in order
+     * (which it does when prefetching them)
+     */
+    @Test(dataProvider = "parallelTraversalThreads")
+    public void testParallelTraversalWithDownsamplingMatchesSingleThread(final int threads) throws Exception {
+        final File singleThreadOutput = createTempFile("testParallelTraversalWithDownsampling_singleThread", ".vcf");
+        final File parallelOutput = createTempFile("testParallelTraversalWithDownsampling_parallel", ".vcf");
+
+        for ( final File output : Arrays.asList(singleThreadOutput, parallelOutput) ) {
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addInput(NA12878_chr17_1k_BAM)
+                    .addReference(v37_chr17_1Mb_Reference)
+                    .addInterval("17:69000-71000")
+                    .addOutput(output)
+                    .add(AssemblyRegionArgumentCollection.MAX_STARTS_LONG_NAME, 1)
+                    .add(AssemblyRegionWalker.TRAVERSAL_SHARD_SIZE_LONG_NAME, 150)
+                    .add(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, false);
+            if ( output == singleThreadOutput ) {
+                args.add(StandardArgumentDefinitions.PREFETCH_SHARDS_LONG_NAME, 1);
+            } else {
+                args.add(AssemblyRegionWalker.TRAVERSAL_THREADS_LONG_NAME, threads);
+            }
+            runCommandLine(args);
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(parallelOutput, singleThreadOutput);
+    }
+
+    /*
+     * Test that GVCF output of a parallel traversal is still written in order, with hom-ref blocks merged across shard
+     * boundaries, when every shard that can't be written yet is spilled to disk
+     */
+    @Test(dataProvider = "parallelTraversalThreads")
+    public void testParallelTraversalWithSpilledOutputMatchesSingleThread(final int threads) throws Exception {
+        final File singleThreadOutput = createTempFile("testParallelTraversalWithSpilledOutput_singleThread", ".g.vcf");
+        final File parallelOutput = createTempFile("testParallelTraversalWithSpilledOutput_parallel", ".g.vcf");
+
+        for ( final File output : Arrays.asList(singleThreadOutput, parallelOutput) ) {
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addInput(NA12878_chr17_1k_BAM)
+                    .addReference(v37_chr17_1Mb_Reference)
+                    .addInterval("17:69000-71000")
+                    .addOutput(output)
+                    .add(AssemblyBasedCallerArgumentCollection.EMIT_REF_CONFIDENCE_LONG_NAME, ReferenceConfidenceMode.GVCF)
+                    .add(AssemblyRegionWalker.TRAVERSAL_SHARD_SIZE_LONG_NAME, 150)
+                    .add(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, false);
+            if ( output == singleThreadOutput ) {
+                args.add(StandardArgumentDefinitions.PREFETCH_SHARDS_LONG_NAME, 1);
+            } else {
+                args.add(AssemblyRegionWalker.TRAVERSAL_THREADS_LONG_NAME, threads)
+                        .add(AssemblyRegionWalker.TRAVERSAL_OUTPUT_BUFFER_BYTES_LONG_NAME, 0);
+            }
+            runCommandLine(args);
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(parallelOutput, singleThreadOutput);
+    }
+
+    /*
+     * Test how a parallel traversal compares with a serial one when reads are downsampled. The downsampler of each
+     * parallel shard has a random number generator of its own, seeded from the start of the shard, while a serial run
+     * draws from the global one, so the reads kept differ. The sites and genotypes called here are the same, but the
+     * annotations, qualities and likelihoods computed from the reads kept are not, whereas parallel runs with different
+     * numbers of threads produce identical output.
+     */
+    @Test
+    public void testParallelTraversalWithDownsamplingComparedToSerialTraversal() throws Exception {
+        final File serialOutput = createTempFile("testParallelTraversalWithDownsamplingComparedToSerial_serial", ".vcf");
+        final List<File> parallelOutputs = new ArrayList<>();
+        for ( final int threads : Arrays.asList(1, 2, 4) ) {
+            final File output = threads == 1 ? serialOutput : createTempFile("testParallelTraversalWithDownsamplingComparedToSerial_parallel", ".vcf");
+            Utils.resetRandomGenerator();
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addInput(NA12878_chr17_1k_BAM)
+                    .addReference(v37_chr17_1Mb_Reference)
+                    .addInterval("17:69000-71000")
+                    .addOutput(output)
+                    .add(AssemblyRegionArgumentCollection.MAX_STARTS_LONG_NAME, 1)
+                    .add(AssemblyRegionWalker.TRAVERSAL_THREADS_LONG_NAME, threads)
+                    .add(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, false);
+            runCommandLine(args);
+            if ( threads > 1 ) {
+                parallelOutputs.add(output);
+            }
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(parallelOutputs.get(1), parallelOutputs.get(0));
+
+        final Function<File, List<String>> sitesAndGenotypes = vcf -> VariantContextTestUtils.streamVcf(vcf)
+                .map(vc -> vc.getContig() + ":" + vc.getStart() + " " + vc.getAlleles() + " " + vc.getGenotype(0).getGenotypeString())
+                .collect(Collectors.toList());
+        final List<String> serialCalls = sitesAndGenotypes.apply(serialOutput);
+        Assert.assertFalse(serialCalls.isEmpty());
+        Assert.assertEquals(sitesAndGenotypes.apply(parallelOutputs.get(0)), serialCalls);
+    }
+
+    /*
+     * Test that prefetching shards that fit within a single traversal shard produces the same output as a run without
+     * prefetching. Downsampling is disabled, since the shards of a prefetching traversal are downsampled with random
+     * number generators of their own.
+     */
+    @Test
+    public void testPrefetchingMatchesNoPrefetching() throws Exception {
+        final File output = createTempFile("testPrefetchingMatchesNoPrefetching", ".g.vcf");
+        final File prefetchingOutput = createTempFile("testPrefetchingMatchesNoPrefetching_prefetching", ".g.vcf");
+
+        for ( final File out : Arrays.asList(output, prefetchingOutput) ) {
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addInput(NA12878_chr17_1k_BAM)
+                    .addReference(v37_chr17_1Mb_Reference)
+                    .addInterval("17:69000-69500")
+                    .addInterval("17:69600-71000")
+                    .addOutput(out)
+                    .add(AssemblyBasedCallerArgumentCollection.EMIT_REF_CONFIDENCE_LONG_NAME, ReferenceConfidenceMode.GVCF)
+                    .add(AssemblyRegionArgumentCollection.MAX_STARTS_LONG_NAME, 0)
+                    .add(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, false);
+            if ( out == prefetchingOutput ) {
+                args.add(StandardArgumentDefinitions.PREFETCH_SHARDS_LONG_NAME, 2);
+            }
+            runCommandLine(args);
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(prefetchingOutput, output);
+    }
+
+    @DataProvider(name = "likelihoodBatchRegions")
+    public Object[][] getLikelihoodBatchRegions() {
+        // a batch larger than the number of regions is only ever called when the traversal ends
+        return new Object[][] {
+                {ReferenceConfidenceMode.NONE, 3}, {ReferenceConfidenceMode.NONE, 1000},
+                {ReferenceConfidenceMode.GVCF, 3}, {ReferenceConfidenceMode.GVCF, 1000}
+        };
+    }
+
+    /*
+     * Test that computing the read likelihoods of several assembly regions in one batch produces the same output as
+     * computing those of each region on its own, including the regions of the last, partial batch
+     */
+    @Test(dataProvider = "likelihoodBatchRegions")
+    public void testLikelihoodBatchesMatchSingleRegions(final ReferenceConfidenceMode mode, final int batchRegions) throws Exception {
+        final String extension = mode == ReferenceConfidenceMode.GVCF ? ".g.vcf" : ".vcf";
+        final File singleRegionOutput = createTempFile("testLikelihoodBatchesMatchSingleRegions_single", extension);
+        final File batchOutput = createTempFile("testLikelihoodBatchesMatchSingleRegions_batch", extension);
+
+        for ( final File output : Arrays.asList(singleRegionOutput, batchOutput) ) {
+            final ArgumentsBuilder args = new ArgumentsBuilder()
+                    .addInput(NA12878_chr17_1k_BAM)
+                    .addReference(v37_chr17_1Mb_Reference)
+                    .addInterval("17:69000-69500")
+                    .addInterval("17:69600-71000")
+                    .addOutput(output)
+                    .add(AssemblyBasedCallerArgumentCollection.EMIT_REF_CONFIDENCE_LONG_NAME, mode)
+                    .add("pair-hmm-implementation", PairHMM.Implementation.LOGLESS_CACHING)
+                    .add(StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, false);
+            if ( output == batchOutput ) {
+                args.add("likelihood-batch-regions", batchRegions);
+                args.add("java-pair-hmm-threads", 2);
+            }
+            runCommandLine(args);
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(batchOutput, singleRegionOutput);
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testParallelTraversalRejectsBamout() {
+        final ArgumentsBuilder args = new ArgumentsBuilder()
+                .addInput(NA12878_20_21_WGS_bam)
+                .addReference(b37_reference_20_21)
+                .addInterval("20:10000000-10010000")
+                .addOutput(createTempFile("testParallelTraversalRejectsBamout", ".vcf"))
+                .add(AssemblyBasedCallerArgumentCollection.BAM_OUTPUT_LONG_NAME, createTempFile("testParallelTraversalRejectsBamout", ".bam").getAbsolutePath())
+                .add(AssemblyRegionWalker.TRAVERSAL_THREADS_LONG_NAME, 2);
+        runCommandLine(args);
+    }
+
     /*
      * Test that in JunctionTree mode we're consistent with past JunctionTree results (over non-complicated data)
      */
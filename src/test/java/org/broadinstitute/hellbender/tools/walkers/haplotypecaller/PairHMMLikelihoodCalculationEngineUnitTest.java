@@ -7,6 +7,7 @@ import htsjdk.variant.variantcontext.Allele;
 import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.genotyper.*;
 import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
@@ -198,4 +199,95 @@ public final class PairHMMLikelihoodCalculationEngineUnitTest extends GATKBaseTe
         Assert.assertTrue(v1 > v2, "matching haplotype should have a higher likelihood");
         lce.close();
     }
+
+    private static List<AssemblyResultSet> makeAssemblyResultSets(final Random random, final int regionCount) {
+        final List<AssemblyResultSet> result = new ArrayList<>();
+        for ( int r = 0; r < regionCount; r++ ) {
+            final byte[] refBases = new byte[100 + random.nextInt(100)];
+            for ( int i = 0; i < refBases.length; i++ ) {
+                refBases[i] = "ACGT".getBytes()[random.nextInt(4)];
+            }
+            final SimpleInterval location = new SimpleInterval("1", 1, refBases.length);
+            final AssemblyResultSet assemblyResultSet = new AssemblyResultSet();
+            final Haplotype refHaplotype = new Haplotype(refBases, true);
+            refHaplotype.setGenomeLocation(location);
+            assemblyResultSet.add(refHaplotype);
+            final int altHaplotypeCount = 1 + random.nextInt(3);
+            for ( int h = 0; h < altHaplotypeCount; h++ ) {
+                final byte[] bases = Arrays.copyOf(refBases, refBases.length - 1 - h);
+                bases[random.nextInt(bases.length)] = 'N';
+                final Haplotype haplotype = new Haplotype(bases, false);
+                haplotype.setGenomeLocation(location);
+                assemblyResultSet.add(haplotype);
+            }
+            result.add(assemblyResultSet);
+        }
+        return result;
+    }
+
+    private static Map<String, List<GATKRead>> makePerSampleReads(final Random random, final SampleList samples, final byte[] refBases) {
+        final Map<String, List<GATKRead>> result = new LinkedHashMap<>();
+        for ( final String sample : samples.asListOfSamples() ) {
+            final List<GATKRead> reads = new ArrayList<>();
+            final int readCount = random.nextInt(20);
+            for ( int i = 0; i < readCount; i++ ) {
+                final int length = 30 + random.nextInt(50);
+                final int start = random.nextInt(refBases.length - length);
+                final byte[] quals = new byte[length];
+                Arrays.fill(quals, (byte)30);
+                final GATKRead read = ArtificialReadUtils.createArtificialRead(Arrays.copyOfRange(refBases, start, start + length), quals, length + "M");
+                read.setName(sample + "_read" + i);
+                read.setMappingQuality(60);
+                reads.add(read);
+            }
+            result.put(sample, reads);
+        }
+        return result;
+    }
+
+    @DataProvider(name = "batchThreads")
+    public Object[][] batchThreads() {
+        return new Object[][] { {1}, {3} };
+    }
+
+    @Test(dataProvider = "batchThreads")
+    public void testComputeLikelihoodsInBatch(final int javaPairHMMThreads) {
+        final SampleList samples = new IndexedSampleList("sample1", "sample2");
+        final Random random = new Random(7);
+        final List<AssemblyResultSet> assemblyResultSets = makeAssemblyResultSets(random, 5);
+        final List<Map<String, List<GATKRead>>> perSampleReadLists = new ArrayList<>();
+        for ( final AssemblyResultSet assemblyResultSet : assemblyResultSets ) {
+            perSampleReadLists.add(makePerSampleReads(random, samples, assemblyResultSet.getReferenceHaplotype().getBases()));
+        }
+
+        final ReadLikelihoodCalculationEngine lce = new PairHMMLikelihoodCalculationEngine((byte)10, new PairHMMNativeArguments(),
+                PairHMM.Implementation.LOGLESS_CACHING, javaPairHMMThreads, -4.5, PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE,
+                PairHMM.BASE_QUALITY_SCORE_THRESHOLD);
+
+        final List<AlleleLikelihoods<GATKRead, Haplotype>> batch = lce.computeReadLikelihoods(assemblyResultSets, samples, perSampleReadLists);
+        Assert.assertEquals(batch.size(), assemblyResultSets.size());
+        for ( int r = 0; r < assemblyResultSets.size(); r++ ) {
+            final AlleleLikelihoods<GATKRead, Haplotype> expected = lce.computeReadLikelihoods(assemblyResultSets.get(r), samples, perSampleReadLists.get(r));
+            final AlleleLikelihoods<GATKRead, Haplotype> actual = batch.get(r);
+            Assert.assertEquals(actual.alleles(), expected.alleles());
+            for ( int s = 0; s < samples.numberOfSamples(); s++ ) {
+                final LikelihoodMatrix<GATKRead, Haplotype> expectedMatrix = expected.sampleMatrix(s);
+                final LikelihoodMatrix<GATKRead, Haplotype> actualMatrix = actual.sampleMatrix(s);
+                Assert.assertEquals(actualMatrix.evidence(), expectedMatrix.evidence());
+                for ( int a = 0; a < expectedMatrix.numberOfAlleles(); a++ ) {
+                    for ( int e = 0; e < expectedMatrix.evidenceCount(); e++ ) {
+                        Assert.assertEquals(actualMatrix.get(a, e), expectedMatrix.get(a, e));
+                    }
+                }
+            }
+        }
+        lce.close();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testComputeLikelihoodsInBatchRequiresReadsForEachRegion() {
+        final ReadLikelihoodCalculationEngine lce = new PairHMMLikelihoodCalculationEngine((byte)10, new PairHMMNativeArguments(),
+                PairHMM.Implementation.LOGLESS_CACHING, -4.5, PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE);
+        lce.computeReadLikelihoods(makeAssemblyResultSets(new Random(1), 2), new IndexedSampleList("sample1"), Collections.emptyList());
+    }
 }
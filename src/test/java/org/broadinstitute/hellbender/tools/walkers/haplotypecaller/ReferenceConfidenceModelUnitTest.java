@@ -584,6 +584,106 @@ public final class ReferenceConfidenceModelUnitTest extends GATKBaseTest {
         }
     }
 
+    @DataProvider(name = "SweptReadsData")
+    public Object[][] makeSweptReadsData() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final int ploidy : Arrays.asList(1, 2, 3) ) {
+            for ( final int nReads : Arrays.asList(1, 20, 100) ) {
+                tests.add(new Object[]{ploidy, nReads});
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    /**
+     * Sweeping the reads across the region must give exactly the same results as evaluating the pileup at each
+     * position, with mismatches, low base qualities, indels and soft clips in the reads
+     */
+    @Test(dataProvider = "SweptReadsData")
+    public void testSweptReadsMatchPileups(final int ploidy, final int nReads) {
+        final Random random = new Random(ploidy * 1000 + nReads);
+        final String ref = randomBases(random, 60);
+        final RefConfData data = new RefConfData(ref, 10);
+        final List<Haplotype> haplotypes = Arrays.asList(data.getRefHap());
+        final VariantContext call = GATKVariantContextUtils.makeFromAlleles("test", "1", data.getStart() + 30, Arrays.asList(ref.substring(30, 33), ref.substring(30, 31)));
+        final List<VariantContext> calls = Collections.singletonList(call);
+
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < nReads; i++ ) {
+            reads.add(makeRandomRead(random, data, "read " + i));
+        }
+        reads.sort(Comparator.comparingInt(GATKRead::getStart));
+        reads.forEach(data.getActiveRegion()::add);
+        final AlleleLikelihoods<GATKRead, Haplotype> likelihoods = createDummyStratifiedReadMap(data.getRefHap(), samples, data.getActiveRegion());
+        final PloidyModel ploidyModel = new HomogeneousPloidyModel(samples, ploidy);
+
+        final ReferenceConfidenceModel pileupModel = new ReferenceConfidenceModel(samples, header, 10, -1) {
+            @Override
+            protected boolean sweepsReadsForRefConfidence() {
+                return false;
+            }
+        };
+        final List<VariantContext> expected = pileupModel.calculateRefConfidence(data.getRefHap(), haplotypes, data.getPaddedRefLoc(), data.getActiveRegion(), likelihoods, ploidyModel, calls);
+        final List<VariantContext> actual = model.calculateRefConfidence(data.getRefHap(), haplotypes, data.getPaddedRefLoc(), data.getActiveRegion(), likelihoods, ploidyModel, calls);
+
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < expected.size(); i++ ) {
+            Assert.assertEquals(actual.get(i).getStart(), expected.get(i).getStart());
+            Assert.assertEquals(actual.get(i).getAlleles(), expected.get(i).getAlleles());
+            // the calls themselves are passed through, without genotypes of their own
+            Assert.assertEquals(actual.get(i).getGenotypes().toString(), expected.get(i).getGenotypes().toString());
+        }
+        for ( final GATKRead read : reads ) {
+            Assert.assertNull(read.getTransientAttribute(ReferenceConfidenceModel.INDEL_INFORMATIVE_BASES_CACHE_ATTRIBUTE_NAME));
+        }
+    }
+
+    private static String randomBases(final Random random, final int length) {
+        final StringBuilder bases = new StringBuilder(length);
+        for ( int i = 0; i < length; i++ ) {
+            bases.append("ACGT".charAt(random.nextInt(4)));
+        }
+        return bases.toString();
+    }
+
+    // a read within the reference of data, made of aligned blocks with some mismatches, possibly separated by an
+    // insertion or a deletion and surrounded by soft clips
+    private GATKRead makeRandomRead(final Random random, final RefConfData data, final String name) {
+        final String ref = new String(data.getRefBases());
+        final int leadingClip = random.nextBoolean() ? 0 : 1 + random.nextInt(5);
+        final int trailingClip = random.nextBoolean() ? 0 : 1 + random.nextInt(5);
+        final int firstBlock = 1 + random.nextInt(20);
+        final int secondBlock = 1 + random.nextInt(20);
+        final int indel = random.nextInt(3);
+        final int indelLength = 1 + random.nextInt(3);
+        final int refLength = firstBlock + secondBlock + (indel == 2 ? indelLength : 0);
+        final int start = random.nextInt(ref.length() - refLength + 1);
+
+        final StringBuilder bases = new StringBuilder(randomBases(random, leadingClip));
+        for ( int i = 0; i < firstBlock; i++ ) {
+            bases.append(random.nextInt(10) == 0 ? "ACGT".charAt(random.nextInt(4)) : ref.charAt(start + i));
+        }
+        if ( indel == 1 ) {
+            bases.append(randomBases(random, indelLength));
+        }
+        final int secondStart = start + firstBlock + (indel == 2 ? indelLength : 0);
+        for ( int i = 0; i < secondBlock; i++ ) {
+            bases.append(random.nextInt(10) == 0 ? "ACGT".charAt(random.nextInt(4)) : ref.charAt(secondStart + i));
+        }
+        bases.append(randomBases(random, trailingClip));
+
+        final String cigar = (leadingClip > 0 ? leadingClip + "S" : "") + firstBlock + "M"
+                + (indel == 1 ? indelLength + "I" : indel == 2 ? indelLength + "D" : "") + secondBlock + "M"
+                + (trailingClip > 0 ? trailingClip + "S" : "");
+        final byte[] quals = new byte[bases.length()];
+        for ( int i = 0; i < quals.length; i++ ) {
+            quals[i] = (byte) (2 + random.nextInt(39));
+        }
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(header, name, 0, data.getStart() + start, bases.toString().getBytes(), quals, cigar);
+        read.setReadGroup(rg.getId());
+        return read;
+    }
+
     /**
      * Create a context that maps each read to the reference haplotype with log10 L of 0
      * @param refHaplotype a non-null reference haplotype
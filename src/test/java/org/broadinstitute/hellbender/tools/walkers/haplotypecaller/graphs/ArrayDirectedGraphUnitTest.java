@@ -0,0 +1,178 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.jgrapht.DirectedGraph;
+import org.jgrapht.EdgeFactory;
+import org.jgrapht.graph.DefaultDirectedGraph;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public final class ArrayDirectedGraphUnitTest extends GATKBaseTest {
+
+    private static final EdgeFactory<SeqVertex, BaseEdge> EDGE_FACTORY = (source, target) -> new BaseEdge(false, 1);
+
+    @Test
+    public void testBasicOperations() {
+        final ArrayDirectedGraph<SeqVertex, BaseEdge> graph = new ArrayDirectedGraph<>(EDGE_FACTORY);
+        final SeqVertex a = new SeqVertex("A");
+        final SeqVertex b = new SeqVertex("C");
+        final SeqVertex c = new SeqVertex("G");
+        Assert.assertTrue(graph.addVertex(a));
+        Assert.assertFalse(graph.addVertex(a));
+        graph.addVertex(b);
+        graph.addVertex(c);
+        Assert.assertEquals(new ArrayList<>(graph.vertexSet()), Arrays.asList(a, b, c));
+
+        final BaseEdge ab = graph.addEdge(a, b);
+        Assert.assertNotNull(ab);
+        Assert.assertNull(graph.addEdge(a, b), "multiple edges between the same vertices are not allowed");
+        Assert.assertFalse(graph.addEdge(a, b, new BaseEdge(true, 1)));
+        final BaseEdge ac = new BaseEdge(true, 2);
+        Assert.assertTrue(graph.addEdge(a, c, ac));
+        Assert.assertFalse(graph.addEdge(b, c, ac), "an edge can only be in the graph once");
+        final BaseEdge cc = graph.addEdge(c, c);
+        Assert.assertNotNull(cc, "loops are allowed");
+
+        Assert.assertEquals(graph.getEdge(a, b), ab);
+        Assert.assertNull(graph.getEdge(b, a));
+        Assert.assertTrue(graph.containsEdge(a, c));
+        Assert.assertEquals(graph.getEdgeSource(ac), a);
+        Assert.assertEquals(graph.getEdgeTarget(ac), c);
+        Assert.assertEquals(new ArrayList<>(graph.outgoingEdgesOf(a)), Arrays.asList(ab, ac));
+        Assert.assertEquals(new ArrayList<>(graph.incomingEdgesOf(c)), Arrays.asList(ac, cc));
+        Assert.assertEquals(graph.outDegreeOf(a), 2);
+        Assert.assertEquals(graph.inDegreeOf(c), 2);
+        Assert.assertEquals(graph.edgesOf(c).size(), 2);
+        Assert.assertTrue(graph.outgoingEdgesOf(a).contains(ac));
+        Assert.assertFalse(graph.incomingEdgesOf(a).contains(ac));
+        Assert.assertEquals(graph.getAllEdges(a, c), Collections.singleton(ac));
+        Assert.assertNull(graph.getAllEdges(a, new SeqVertex("T")));
+
+        Assert.assertTrue(graph.removeVertex(c));
+        Assert.assertFalse(graph.containsEdge(ac));
+        Assert.assertFalse(graph.containsEdge(cc));
+        Assert.assertEquals(graph.edgeSet(), Collections.singleton(ab));
+        Assert.assertEquals(graph.removeEdge(a, b), ab);
+        Assert.assertTrue(graph.edgeSet().isEmpty());
+        Assert.assertEquals(graph.outDegreeOf(a), 0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAddEdgeToMissingVertex() {
+        final ArrayDirectedGraph<SeqVertex, BaseEdge> graph = new ArrayDirectedGraph<>(EDGE_FACTORY);
+        final SeqVertex a = new SeqVertex("A");
+        graph.addVertex(a);
+        graph.addEdge(a, new SeqVertex("C"));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testViewsAreUnmodifiable() {
+        final ArrayDirectedGraph<SeqVertex, BaseEdge> graph = new ArrayDirectedGraph<>(EDGE_FACTORY);
+        final SeqVertex a = new SeqVertex("A");
+        graph.addVertex(a);
+        graph.outgoingEdgesOf(a).add(new BaseEdge(false, 1));
+    }
+
+    @Test(expectedExceptions = ConcurrentModificationException.class)
+    public void testModificationDuringIteration() {
+        final ArrayDirectedGraph<SeqVertex, BaseEdge> graph = new ArrayDirectedGraph<>(EDGE_FACTORY);
+        final SeqVertex a = new SeqVertex("A");
+        final SeqVertex b = new SeqVertex("C");
+        final SeqVertex c = new SeqVertex("G");
+        final SeqVertex d = new SeqVertex("T");
+        Arrays.asList(a, b, c, d).forEach(graph::addVertex);
+        graph.addEdge(a, b);
+        graph.addEdge(a, c);
+        graph.addEdge(a, d);
+        for ( final BaseEdge e : graph.outgoingEdgesOf(a) ) {
+            graph.removeEdge(e);
+        }
+    }
+
+    @Test
+    public void testClone() {
+        final ArrayDirectedGraph<SeqVertex, BaseEdge> graph = new ArrayDirectedGraph<>(EDGE_FACTORY);
+        final SeqVertex a = new SeqVertex("A");
+        final SeqVertex b = new SeqVertex("C");
+        graph.addVertex(a);
+        graph.addVertex(b);
+        final BaseEdge ab = graph.addEdge(a, b);
+
+        final ArrayDirectedGraph<SeqVertex, BaseEdge> clone = graph.clone();
+        clone.removeVertex(b);
+        clone.addEdge(a, a);
+
+        Assert.assertEquals(new ArrayList<>(graph.vertexSet()), Arrays.asList(a, b));
+        Assert.assertEquals(graph.edgeSet(), Collections.singleton(ab));
+        Assert.assertEquals(graph.getEdge(a, b), ab);
+        Assert.assertEquals(new ArrayList<>(clone.vertexSet()), Collections.singletonList(a));
+        Assert.assertEquals(clone.getEdgeTarget(clone.getEdge(a, a)), a);
+    }
+
+    /**
+     * Apply the same random operations to an ArrayDirectedGraph and a jgrapht DefaultDirectedGraph, which must
+     * agree on everything including iteration orders, through many removals (so that ids are reclaimed)
+     */
+    @Test
+    public void testAgainstDefaultDirectedGraph() {
+        final Random random = new Random(42);
+        final ArrayDirectedGraph<SeqVertex, BaseEdge> graph = new ArrayDirectedGraph<>(EDGE_FACTORY);
+        final DirectedGraph<SeqVertex, BaseEdge> expected = new DefaultDirectedGraph<>(EDGE_FACTORY);
+        final List<SeqVertex> vertices = new ArrayList<>();
+        for ( int i = 0; i < 200; i++ ) {
+            vertices.add(new SeqVertex("ACGT"));
+        }
+
+        for ( int i = 0; i < 20000; i++ ) {
+            final SeqVertex v = vertices.get(random.nextInt(vertices.size()));
+            final SeqVertex w = vertices.get(random.nextInt(vertices.size()));
+            final int operation = random.nextInt(10);
+            if ( operation < 3 ) {
+                Assert.assertEquals(graph.addVertex(v), expected.addVertex(v));
+            } else if ( operation < 4 ) {
+                Assert.assertEquals(graph.removeVertex(v), expected.removeVertex(v));
+            } else if ( operation < 8 ) {
+                if ( expected.containsVertex(v) && expected.containsVertex(w) ) {
+                    final BaseEdge e = new BaseEdge(false, i);
+                    Assert.assertEquals(graph.addEdge(v, w, e), expected.addEdge(v, w, e));
+                }
+            } else if ( operation < 9 ) {
+                Assert.assertEquals(graph.removeEdge(v, w), expected.removeEdge(v, w));
+            } else if ( !expected.edgeSet().isEmpty() ) {
+                final BaseEdge e = new ArrayList<>(expected.edgeSet()).get(random.nextInt(expected.edgeSet().size()));
+                Assert.assertEquals(graph.removeEdge(e), expected.removeEdge(e));
+            }
+
+            if ( i % 100 == 0 ) {
+                assertSameGraph(graph, expected);
+            }
+        }
+        assertSameGraph(graph, expected);
+        assertSameGraph(graph.clone(), expected);
+    }
+
+    private static void assertSameGraph(final ArrayDirectedGraph<SeqVertex, BaseEdge> actual, final DirectedGraph<SeqVertex, BaseEdge> expected) {
+        Assert.assertEquals(new ArrayList<>(actual.vertexSet()), new ArrayList<>(expected.vertexSet()));
+        Assert.assertEquals(new ArrayList<>(actual.edgeSet()), new ArrayList<>(expected.edgeSet()));
+        for ( final SeqVertex v : expected.vertexSet() ) {
+            Assert.assertEquals(new ArrayList<>(actual.incomingEdgesOf(v)), new ArrayList<>(expected.incomingEdgesOf(v)));
+            Assert.assertEquals(new ArrayList<>(actual.outgoingEdgesOf(v)), new ArrayList<>(expected.outgoingEdgesOf(v)));
+            Assert.assertEquals(actual.edgesOf(v), new HashSet<>(expected.edgesOf(v)));
+            Assert.assertEquals(actual.inDegreeOf(v), expected.inDegreeOf(v));
+            Assert.assertEquals(actual.outDegreeOf(v), expected.outDegreeOf(v));
+        }
+        for ( final BaseEdge e : expected.edgeSet() ) {
+            Assert.assertSame(actual.getEdgeSource(e), expected.getEdgeSource(e));
+            Assert.assertSame(actual.getEdgeTarget(e), expected.getEdgeTarget(e));
+            Assert.assertSame(actual.getEdge(expected.getEdgeSource(e), expected.getEdgeTarget(e)), e);
+        }
+    }
+}
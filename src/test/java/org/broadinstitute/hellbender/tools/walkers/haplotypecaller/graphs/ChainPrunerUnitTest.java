@@ -13,6 +13,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -135,18 +136,7 @@ public final class ChainPrunerUnitTest extends GATKBaseTest {
      */
     @Test(dataProvider = "chainPrunerData")
     public void testAdaptivePruning(final int kmerSize, final byte[] ref, final byte[] alt, final double altFraction, final double errorRate, final int depthPerAlignmentStart, final double logOddsThreshold) {
-        final RandomGenerator rng = RandomGeneratorFactory.createRandomGenerator(new Random(kmerSize + ref.hashCode() + alt.hashCode()));
-        final ReadThreadingGraph graph = new ReadThreadingGraph(kmerSize);
-        graph.addSequence(ref, true);
-        final List<byte[]> reads = IntStream.range(0, ref.length)
-                .mapToObj(start -> IntStream.range(0, depthPerAlignmentStart).mapToObj(n -> generateReadWithErrors(rng.nextDouble() < altFraction ? alt : ref, start, errorRate, rng)))
-                .flatMap(s -> s).collect(Collectors.toList());
-
-        reads.forEach(read -> graph.addSequence(read, false));
-
-
-        // note: these are the steps in ReadThreadingAssembler::createGraph
-        graph.buildGraphIfNecessary();
+        final ReadThreadingGraph graph = makeGraphWithErrors(kmerSize, ref, alt, altFraction, errorRate, depthPerAlignmentStart);
 
         final ChainPruner<MultiDeBruijnVertex, MultiSampleEdge> pruner = new AdaptiveChainPruner<>(0.001, logOddsThreshold, 50);
         pruner.pruneLowWeightChains(graph);
@@ -175,6 +165,52 @@ public final class ChainPrunerUnitTest extends GATKBaseTest {
         Assert.assertTrue(bestPaths.size() < 15);
     }
 
+    /**
+     * The assembler prunes the graphs for different kmer sizes with the same pruner on several threads at once
+     */
+    @Test(dataProvider = "chainPrunerData")
+    public void testSharedPrunerGivesSameResultsOnSeveralThreads(final int kmerSize, final byte[] ref, final byte[] alt, final double altFraction, final double errorRate, final int depthPerAlignmentStart, final double logOddsThreshold) {
+        final ChainPruner<MultiDeBruijnVertex, MultiSampleEdge> pruner = new AdaptiveChainPruner<>(0.001, logOddsThreshold, 50);
+        final ReadThreadingGraph expected = makeGraphWithErrors(kmerSize, ref, alt, altFraction, errorRate, depthPerAlignmentStart);
+        pruner.pruneLowWeightChains(expected);
+
+        final List<ReadThreadingGraph> graphs = IntStream.range(0, 8)
+                .mapToObj(n -> makeGraphWithErrors(kmerSize, ref, alt, altFraction, errorRate, depthPerAlignmentStart))
+                .collect(Collectors.toList());
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            pool.submit(() -> graphs.parallelStream().forEach(pruner::pruneLowWeightChains)).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        for ( final ReadThreadingGraph graph : graphs ) {
+            Assert.assertEquals(edgeDescriptions(graph), edgeDescriptions(expected));
+        }
+    }
+
+    // the graph built by ReadThreadingAssembler::createGraph from the reference and reads with errors drawn from the reference and alt sequences
+    private static ReadThreadingGraph makeGraphWithErrors(final int kmerSize, final byte[] ref, final byte[] alt, final double altFraction, final double errorRate, final int depthPerAlignmentStart) {
+        final RandomGenerator rng = RandomGeneratorFactory.createRandomGenerator(new Random(kmerSize + ref.hashCode() + alt.hashCode()));
+        final ReadThreadingGraph graph = new ReadThreadingGraph(kmerSize);
+        graph.addSequence(ref, true);
+        final List<byte[]> reads = IntStream.range(0, ref.length)
+                .mapToObj(start -> IntStream.range(0, depthPerAlignmentStart).mapToObj(n -> generateReadWithErrors(rng.nextDouble() < altFraction ? alt : ref, start, errorRate, rng)))
+                .flatMap(s -> s).collect(Collectors.toList());
+
+        reads.forEach(read -> graph.addSequence(read, false));
+
+        // note: these are the steps in ReadThreadingAssembler::createGraph
+        graph.buildGraphIfNecessary();
+        return graph;
+    }
+
+    private static List<String> edgeDescriptions(final ReadThreadingGraph graph) {
+        return graph.edgeSet().stream()
+                .map(e -> graph.getEdgeSource(e).getSequenceString() + "->" + graph.getEdgeTarget(e).getSequenceString() + ":" + e.getMultiplicity())
+                .sorted().collect(Collectors.toList());
+    }
+
     @DataProvider(name = "chainPrunerData")
     public Object[][] getChainPrunerData() {
         final RandomGenerator rng = RandomGeneratorFactory.createRandomGenerator(new Random(9));
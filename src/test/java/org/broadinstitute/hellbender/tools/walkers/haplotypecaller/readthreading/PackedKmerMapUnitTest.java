@@ -0,0 +1,157 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public final class PackedKmerMapUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testPack() {
+        Assert.assertEquals(PackedKmerMap.pack("A".getBytes(), 0, 1), 0L);
+        Assert.assertEquals(PackedKmerMap.pack("T".getBytes(), 0, 1), 3L);
+        Assert.assertEquals(PackedKmerMap.pack("ACGT".getBytes(), 0, 4), 0b00011011L);
+        Assert.assertEquals(PackedKmerMap.pack("NNACGTNN".getBytes(), 2, 4), 0b00011011L);
+        Assert.assertEquals(PackedKmerMap.pack("ACNT".getBytes(), 0, 4), PackedKmerMap.NOT_PACKABLE);
+        Assert.assertEquals(PackedKmerMap.pack("acgt".getBytes(), 0, 4), PackedKmerMap.NOT_PACKABLE);
+
+        final byte[] longest = new byte[PackedKmerMap.MAX_PACKED_KMER_SIZE + 1];
+        Arrays.fill(longest, (byte)'T');
+        Assert.assertEquals(PackedKmerMap.pack(longest, 0, PackedKmerMap.MAX_PACKED_KMER_SIZE), (1L << 62) - 1);
+        Assert.assertEquals(PackedKmerMap.pack(longest, 0, longest.length), PackedKmerMap.NOT_PACKABLE);
+    }
+
+    @DataProvider(name = "kmers")
+    public Object[][] kmers() {
+        return new Object[][]{
+                {"ACGTA"},
+                {"ACNTA"},      // not packable because of the N
+                {"ACGTACGTACGTACGTACGTACGTACGTACGTACG"}     // not packable because it's too long
+        };
+    }
+
+    @Test(dataProvider = "kmers")
+    public void testGetPutRemove(final String kmer) {
+        final int k = kmer.length();
+        final PackedKmerMap<String> map = new PackedKmerMap<>(k);
+        final byte[] sequence = ("TT" + kmer + "GG").getBytes();
+
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(sequence, 2));
+        Assert.assertNull(map.put(sequence, 2, "first"));
+        Assert.assertEquals(map.size(), 1);
+
+        // the map must not depend on the array the kmer was added with
+        Arrays.fill(sequence, (byte)'C');
+        Assert.assertNull(map.get(sequence, 0));
+        Assert.assertEquals(map.get(new Kmer(kmer)), "first");
+        Assert.assertEquals(map.get(kmer.getBytes(), 0), "first");
+        Assert.assertTrue(map.containsKey(new Kmer(kmer)));
+
+        // kmers of the wrong size are never in the map
+        Assert.assertNull(map.get(new Kmer(kmer.substring(1))));
+        Assert.assertFalse(map.containsKey(new Kmer(kmer.substring(1))));
+
+        Assert.assertEquals(map.putIfAbsent(new Kmer(kmer), "second"), "first");
+        Assert.assertEquals(map.get(new Kmer(kmer)), "first");
+        Assert.assertEquals(map.put(new Kmer(kmer), "second"), "first");
+        Assert.assertEquals(map.get(new Kmer(kmer)), "second");
+        Assert.assertEquals(map.size(), 1);
+
+        Assert.assertEquals(map.remove(new Kmer(kmer)), "second");
+        Assert.assertNull(map.remove(new Kmer(kmer)));
+        Assert.assertNull(map.get(new Kmer(kmer)));
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertTrue(map.values().isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testPutKmerOfWrongSize() {
+        new PackedKmerMap<String>(4).put(new Kmer("ACGTA"), "value");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNullValue() {
+        new PackedKmerMap<String>(4).put(new Kmer("ACGT"), null);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadKmerSize() {
+        new PackedKmerMap<String>(0);
+    }
+
+    @Test
+    public void testValuesAreInInsertionOrder() {
+        final PackedKmerMap<String> map = new PackedKmerMap<>(3);
+        for ( final String kmer : Arrays.asList("TTT", "ACG", "NNN", "GCA", "AAA") ) {
+            map.put(new Kmer(kmer), kmer);
+        }
+        map.put(new Kmer("ACG"), "ACG2");
+        map.remove(new Kmer("GCA"));
+        map.putIfAbsent(new Kmer("GCA"), "GCA2");
+        Assert.assertEquals(new ArrayList<>(map.values()), Arrays.asList("TTT", "ACG2", "NNN", "AAA", "GCA2"));
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertNull(map.get(new Kmer("TTT")));
+        map.put(new Kmer("CCC"), "CCC");
+        Assert.assertEquals(new ArrayList<>(map.values()), Arrays.asList("CCC"));
+    }
+
+    @DataProvider(name = "randomOperations")
+    public Object[][] randomOperations() {
+        return new Object[][]{
+                {3, 0.0}, {7, 0.0}, {7, 0.05}, {15, 0.01}, {31, 0.0}, {32, 0.0}
+        };
+    }
+
+    /**
+     * Compare the map against a LinkedHashMap under a random mix of puts and removes, which exercises resizing,
+     * deletion from long probe sequences and compaction of the removed values
+     */
+    @Test(dataProvider = "randomOperations")
+    public void testAgainstLinkedHashMap(final int kmerSize, final double nRate) {
+        final Random random = new Random(kmerSize);
+        final byte[] bases = {'A', 'C', 'G', 'T'};
+        // few distinct kmers for small kmer sizes, so that kmers are often removed and then added back
+        final int distinctKmers = kmerSize == 3 ? 64 : 5000;
+        final List<String> kmers = new ArrayList<>(distinctKmers);
+        for ( int i = 0; i < distinctKmers; i++ ) {
+            final byte[] kmer = new byte[kmerSize];
+            for ( int j = 0; j < kmerSize; j++ ) {
+                kmer[j] = random.nextDouble() < nRate ? (byte)'N' : bases[random.nextInt(bases.length)];
+            }
+            kmers.add(new String(kmer));
+        }
+
+        final PackedKmerMap<Integer> map = new PackedKmerMap<>(kmerSize);
+        final Map<String, Integer> expected = new LinkedHashMap<>();
+        for ( int i = 0; i < 50000; i++ ) {
+            final String kmer = kmers.get(random.nextInt(kmers.size()));
+            final int operation = random.nextInt(3);
+            if ( operation == 0 ) {
+                Assert.assertEquals(map.put(kmer.getBytes(), 0, i), expected.put(kmer, i));
+            } else if ( operation == 1 ) {
+                Assert.assertEquals(map.putIfAbsent(new Kmer(kmer), i), expected.putIfAbsent(kmer, i));
+            } else {
+                Assert.assertEquals(map.remove(kmer.getBytes(), 0), expected.remove(kmer));
+            }
+            Assert.assertEquals(map.size(), expected.size());
+        }
+
+        for ( final String kmer : kmers ) {
+            Assert.assertEquals(map.get(new Kmer(kmer)), expected.get(kmer));
+            Assert.assertEquals(map.containsKey(kmer.getBytes(), 0), expected.containsKey(kmer));
+        }
+        Assert.assertEquals(new ArrayList<>(map.values()), new ArrayList<>(expected.values()));
+    }
+}
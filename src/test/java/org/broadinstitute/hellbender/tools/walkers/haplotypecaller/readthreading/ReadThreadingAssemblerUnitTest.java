@@ -241,6 +241,38 @@ public final class ReadThreadingAssemblerUnitTest extends GATKBaseTest {
         Assert.assertEquals(haplotypes.get(1), altHaplotype);
     }
 
+    @Test
+    public void testAssemblyThreadsDontChangeResults() {
+        final SimpleInterval loc = new SimpleInterval("1", 100000, 100200);
+        final byte[] refBases = seq.getSubsequenceAt(loc.getContig(), loc.getStart(), loc.getEnd()).getBases();
+        final byte[] altBases = refBases.clone();
+        altBases[100] = altBases[100] == 'A' ? (byte)'C' : (byte)'A';
+
+        final List<GATKRead> reads = new LinkedList<>();
+        for ( int i = 0; i < 20; i++ ) {
+            final byte[] bases = (i % 2 == 0 ? refBases : altBases).clone();
+            reads.add(ArtificialReadUtils.createArtificialRead(header, loc.getContig(), loc.getContig(), loc.getStart(), bases, Utils.dupBytes((byte) 30, bases.length), bases.length + "M"));
+        }
+
+        final List<Haplotype> expected = assemble(new ReadThreadingAssembler(), refBases, loc, reads);
+        final ReadThreadingAssembler threaded = new ReadThreadingAssembler();
+        threaded.setAssemblyThreads(3);
+        try {
+            // more than once, since the pool is reused across regions
+            for ( int i = 0; i < 3; i++ ) {
+                Assert.assertEquals(assemble(threaded, refBases, loc, reads), expected);
+            }
+        } finally {
+            threaded.shutdown();
+        }
+        Assert.assertEquals(assemble(threaded, refBases, loc, reads), expected, "graphs should be built on the calling thread after shutdown");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadAssemblyThreads() {
+        new ReadThreadingAssembler().setAssemblyThreads(0);
+    }
+
     private static class TestAssembler {
         final ReadThreadingAssembler assembler;
         private final SAMFileHeader header;
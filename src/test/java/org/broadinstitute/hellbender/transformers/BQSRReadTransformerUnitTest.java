@@ -1,13 +1,29 @@
 package org.broadinstitute.hellbender.transformers;
 
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.tools.ApplyBQSRArgumentCollection;
+import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.recalibration.EventType;
 import org.broadinstitute.hellbender.utils.recalibration.RecalDatum;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationReport;
+import org.broadinstitute.hellbender.utils.recalibration.RecalibrationTables;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.CovariateKeyCache;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 public final class BQSRReadTransformerUnitTest extends GATKBaseTest {
     @Test
@@ -36,6 +52,74 @@ public final class BQSRReadTransformerUnitTest extends GATKBaseTest {
         }
     }
 
+    @DataProvider(name = "applyArguments")
+    public Object[][] makeApplyArguments() {
+        final ApplyBQSRArgumentCollection defaults = new ApplyBQSRArgumentCollection();
+        final ApplyBQSRArgumentCollection withPrior = new ApplyBQSRArgumentCollection();
+        withPrior.globalQScorePrior = 30.0;
+        final ApplyBQSRArgumentCollection quantized = new ApplyBQSRArgumentCollection();
+        quantized.quantizationLevels = 6;
+        quantized.staticQuantizationQuals = new ArrayList<>(Arrays.asList(10, 20, 30));
+        quantized.PRESERVE_QSCORES_LESS_THAN = 15;
+        return new Object[][]{{defaults}, {withPrior}, {quantized}};
+    }
+
+    /**
+     * The qualities looked up by the transformer must be those of the hierarchical Bayesian estimate of every base
+     */
+    @Test(dataProvider = "applyArguments")
+    public void testRecalibratedQualitiesMatchEstimate(final ApplyBQSRArgumentCollection args) {
+        final RecalibrationReport report = new RecalibrationReport(new File(publicTestDir + "org/broadinstitute/hellbender/tools/BQSR/HiSeq.20mb.1RG.table.gz"));
+        final SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg1");
+        readGroup.setPlatform("ILLUMINA");
+        readGroup.setPlatformUnit("20GAVAAXX100126.8");
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithReadGroup(readGroup);
+        final BQSRReadTransformer transformer = new BQSRReadTransformer(header, report, args);
+
+        final RecalibrationTables tables = report.getRecalibrationTables();
+        final StandardCovariateList covariates = report.getCovariates();
+        final List<Byte> quantizedQuals = report.getQuantizationInfo().getQuantizedQuals();
+        final byte[] staticMapping = args.staticQuantizationQuals.isEmpty() ? null : BQSRReadTransformer.constructStaticQuantizedMapping(args.staticQuantizationQuals, args.roundDown);
+        final int substitution = EventType.BASE_SUBSTITUTION.ordinal();
+        final RecalDatum rgDatum = tables.getReadGroupTable().get2Keys(0, substitution);
+        final double epsilon = args.globalQScorePrior > 0.0 ? args.globalQScorePrior : rgDatum.getEstimatedQReported();
+
+        final Random random = new Random(3);
+        for ( int r = 0; r < 200; r++ ) {
+            final int length = 50 + random.nextInt(101);
+            final byte[] bases = new byte[length];
+            final byte[] quals = new byte[length];
+            for ( int i = 0; i < length; i++ ) {
+                bases[i] = "ACGTN".getBytes()[random.nextInt(5)];
+                quals[i] = (byte)(2 + random.nextInt(40));
+            }
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + r, 0, 1000, bases, quals, length + "M");
+            read.setReadGroup(readGroup.getId());
+            read.setIsReverseStrand(random.nextBoolean());
+
+            final int[][] keySets = RecalUtils.computeCovariates(read, header, covariates, false, new CovariateKeyCache()).getKeySet(EventType.BASE_SUBSTITUTION);
+            final byte[] expected = quals.clone();
+            for ( int i = 0; i < length; i++ ) {
+                if ( quals[i] < args.PRESERVE_QSCORES_LESS_THAN ) {
+                    continue;
+                }
+                final int[] keys = keySets[i];
+                final RecalDatum qsDatum = tables.getQualityScoreTable().get3Keys(keys[0], keys[1], substitution);
+                final RecalDatum[] covDatums = new RecalDatum[covariates.size() - covariates.numberOfSpecialCovariates()];
+                for ( int c = covariates.numberOfSpecialCovariates(); c < covariates.size(); c++ ) {
+                    if ( keys[c] >= 0 ) {
+                        covDatums[c - covariates.numberOfSpecialCovariates()] = tables.getTable(c).get4Keys(keys[0], keys[1], keys[c], substitution);
+                    }
+                }
+                final double estimate = BQSRReadTransformer.hierarchicalBayesianQualityEstimate(epsilon, rgDatum, qsDatum, covDatums);
+                final byte quantized = quantizedQuals.get(QualityUtils.boundQual(MathUtils.fastRound(estimate), RecalDatum.MAX_RECALIBRATED_Q_SCORE));
+                expected[i] = staticMapping == null ? quantized : staticMapping[quantized];
+            }
+
+            Assert.assertEquals(transformer.apply(read).getBaseQualities(), expected);
+        }
+    }
+
     private static  RecalDatum makeRecalDatum(final long count, final double qual){
         return new RecalDatum(count, count * 1.0 / (Math.pow(10.0, qual / 10.0)), (byte)qual);
     }
@@ -291,6 +291,57 @@ public final class AlleleLikelihoodsUnitTest {
         }
     }
 
+    @Test(dataProvider = "marginalizationDataSets")
+    public void testDenseStorage(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads, final Map<Allele,List<Allele>> newToOldAlleleMapping) {
+        final AlleleLikelihoods<GATKRead, Allele> expected = applyStorageTestOperations(samples, alleles, reads, newToOldAlleleMapping, LikelihoodStorage.ALLELE_ARRAYS);
+        for (final LikelihoodStorage storage : Arrays.asList(LikelihoodStorage.DENSE, LikelihoodStorage.DENSE_FLOAT)) {
+            final AlleleLikelihoods<GATKRead, Allele> actual = applyStorageTestOperations(samples, alleles, reads, newToOldAlleleMapping, storage);
+            Assert.assertEquals(actual.storage(), storage);
+            Assert.assertEquals(actual.alleles(), expected.alleles());
+            // float storage keeps about 7 significant digits of the likelihoods, which are around 1 here
+            final double tolerance = storage == LikelihoodStorage.DENSE_FLOAT ? 1e-5 : 0.0;
+            for (int s = 0; s < samples.length; s++) {
+                final LikelihoodMatrix<GATKRead, Allele> expectedMatrix = expected.sampleMatrix(s);
+                final LikelihoodMatrix<GATKRead, Allele> actualMatrix = actual.sampleMatrix(s);
+                Assert.assertEquals(actualMatrix.evidence(), expectedMatrix.evidence());
+                final double[] expectedValues = new double[expectedMatrix.evidenceCount()];
+                final double[] actualValues = new double[actualMatrix.evidenceCount()];
+                for (int a = 0; a < expected.numberOfAlleles(); a++) {
+                    expectedMatrix.copyAlleleLikelihoods(a, expectedValues, 0);
+                    actualMatrix.copyAlleleLikelihoods(a, actualValues, 0);
+                    for (int r = 0; r < expectedValues.length; r++) {
+                        Assert.assertEquals(actualMatrix.get(a, r), actualValues[r]);
+                        if (Double.isNaN(expectedValues[r]) || Double.isInfinite(expectedValues[r])) {
+                            Assert.assertEquals(actualValues[r], expectedValues[r]);
+                        } else {
+                            Assert.assertEquals(actualValues[r], expectedValues[r], tolerance);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // fills, adds and removes evidence, marginalizes and adds the non-ref allele, with the same random likelihoods for any storage
+    private AlleleLikelihoods<GATKRead, Allele> applyStorageTestOperations(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads,
+                                                                           final Map<Allele,List<Allele>> newToOldAlleleMapping, final LikelihoodStorage storage) {
+        final AlleleLikelihoods<GATKRead, Allele> likelihoods = new AlleleLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads, storage);
+        Utils.resetRandomGenerator();
+        fillWithRandomLikelihoods(samples, alleles, likelihoods);
+
+        final Map<String, List<GATKRead>> newReads = new LinkedHashMap<>();
+        for (final String sample : samples) {
+            newReads.put(sample, IntStream.range(0, 10).mapToObj(r -> ArtificialReadUtils.createArtificialRead(SAM_HEADER,
+                    "NEW" + sample + "00" + r, 0, EVEN_READ_START, "AAAAA".getBytes(), new byte[]{30, 30, 30, 30, 30}, "5M")).collect(Collectors.toList()));
+        }
+        likelihoods.addEvidence(newReads, -2.0);
+        likelihoods.retainEvidence(read -> !read.getName().endsWith("3"));
+
+        final AlleleLikelihoods<GATKRead, Allele> marginalized = likelihoods.marginalize(newToOldAlleleMapping);
+        marginalized.addNonReferenceAllele(Allele.NON_REF_ALLELE);
+        return marginalized;
+    }
+
     @Test(dataProvider = "dataSets")
     public void testNormalizeCapWorstLK(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
         final AlleleLikelihoods<GATKRead, Allele> original = new AlleleLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
@@ -0,0 +1,96 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+public class ParallelBlockCompressedInputStreamUnitTest extends GATKBaseTest {
+
+    private static byte[] makeTestData(final int length) {
+        final Random random = new Random(7);
+        final byte[] data = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            data[i] = (byte)"ACGT".charAt(random.nextInt(4));
+        }
+        return data;
+    }
+
+    private static byte[] compressWithHtsjdk(final byte[] data) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try ( final BlockCompressedOutputStream out = new BlockCompressedOutputStream(compressed, (File)null) ) {
+            out.write(data);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] decompress(final byte[] compressed, final int numThreads, final int maxBlocksInFlight) throws IOException {
+        final ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+        try ( final ParallelBlockCompressedInputStream in = new ParallelBlockCompressedInputStream(
+                new ByteArrayInputStream(compressed), "test", numThreads, maxBlocksInFlight) ) {
+            final byte[] buffer = new byte[1000];
+            int numRead;
+            while ( (numRead = in.read(buffer, 0, buffer.length)) >= 0 ) {
+                decompressed.write(buffer, 0, numRead);
+            }
+            Assert.assertEquals(in.read(), -1);
+        }
+        return decompressed.toByteArray();
+    }
+
+    @DataProvider(name = "threadsAndLengths")
+    public Object[][] threadsAndLengths() {
+        return new Object[][] {
+                {1, 1, 0}, {1, 1, 100}, {2, 2, 1_000_000}, {4, 16, 1_000_000}, {4, 4, 65_536 * 3}
+        };
+    }
+
+    @Test(dataProvider = "threadsAndLengths")
+    public void testReadHtsjdkOutput(final int numThreads, final int maxBlocksInFlight, final int length) throws IOException {
+        final byte[] data = makeTestData(length);
+        Assert.assertEquals(decompress(compressWithHtsjdk(data), numThreads, maxBlocksInFlight), data);
+    }
+
+    @Test(dataProvider = "threadsAndLengths")
+    public void testReadParallelOutput(final int numThreads, final int maxBlocksInFlight, final int length) throws IOException {
+        final byte[] data = makeTestData(length);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try ( final ParallelBlockCompressedOutputStream out = new ParallelBlockCompressedOutputStream(compressed, 5, numThreads) ) {
+            out.write(data);
+        }
+        Assert.assertEquals(decompress(compressed.toByteArray(), numThreads, maxBlocksInFlight), data);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testCorruptBlockIsDetected() throws IOException {
+        final byte[] compressed = compressWithHtsjdk(makeTestData(100_000));
+        // flip bits in the middle of the deflated data of the first block
+        compressed[100] ^= 0xff;
+        decompress(compressed, 2, 2);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testTruncatedInputIsDetected() throws IOException {
+        final byte[] compressed = compressWithHtsjdk(makeTestData(100_000));
+        decompress(Arrays.copyOf(compressed, compressed.length / 2), 2, 2);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testNonBGZFInputIsRejected() throws IOException {
+        decompress(makeTestData(1000), 1, 1);
+    }
+
+    @Test
+    public void testMaxBlocksInFlight() {
+        Assert.assertEquals(ParallelBlockCompressedInputStream.getMaxBlocksInFlight(16L * 1024 * 1024, 4), 128);
+        Assert.assertEquals(ParallelBlockCompressedInputStream.getMaxBlocksInFlight(0, 4), 4);
+    }
+}
@@ -0,0 +1,116 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class ParallelBlockCompressedOutputStreamUnitTest extends GATKBaseTest {
+
+    /**
+     * Half random (incompressible), half repetitive data, written in chunks of varying size
+     */
+    private static byte[] makeTestData(final int length) {
+        final Random random = new Random(42);
+        final byte[] data = new byte[length];
+        random.nextBytes(data);
+        for ( int i = 0; i < length; i += 2 ) {
+            data[i] = (byte)'A';
+        }
+        return data;
+    }
+
+    private static byte[] compress(final byte[] data, final int numThreads, final List<long[]> writtenBlocks) throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try ( final ParallelBlockCompressedOutputStream out = new ParallelBlockCompressedOutputStream(compressed, 5, numThreads,
+                (blockIndex, blockAddress, blockSize) -> writtenBlocks.add(new long[]{blockIndex, blockAddress, blockSize})) ) {
+            int offset = 0;
+            int chunkSize = 1;
+            while ( offset < data.length ) {
+                final int length = Math.min(chunkSize, data.length - offset);
+                if ( length == 1 ) {
+                    out.write(data[offset]);
+                } else {
+                    out.write(data, offset, length);
+                }
+                offset += length;
+                chunkSize = (chunkSize * 7) % 100_003 + 1;
+            }
+        }
+        return compressed.toByteArray();
+    }
+
+    @DataProvider(name = "threadsAndLengths")
+    public Object[][] threadsAndLengths() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final int numThreads : Arrays.asList(1, 2, 4) ) {
+            for ( final int length : Arrays.asList(0, 1, ParallelBlockCompressedOutputStream.UNCOMPRESSED_BLOCK_SIZE, 1_000_000) ) {
+                tests.add(new Object[]{numThreads, length});
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "threadsAndLengths")
+    public void testRoundTrip(final int numThreads, final int length) throws IOException {
+        final byte[] data = makeTestData(length);
+        final List<long[]> writtenBlocks = new ArrayList<>();
+        final byte[] compressed = compress(data, numThreads, writtenBlocks);
+
+        try ( final BlockCompressedInputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(compressed)) ) {
+            Assert.assertEquals(org.apache.commons.io.IOUtils.toByteArray(in), data);
+        }
+
+        // the output must end with the BGZF terminator block, and the block listener must account for everything before it
+        final int terminatorStart = compressed.length - BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK.length;
+        Assert.assertEquals(Arrays.copyOfRange(compressed, terminatorStart, compressed.length), BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+        Assert.assertEquals(writtenBlocks.size(), (length + ParallelBlockCompressedOutputStream.UNCOMPRESSED_BLOCK_SIZE - 1) / ParallelBlockCompressedOutputStream.UNCOMPRESSED_BLOCK_SIZE);
+        long expectedAddress = 0;
+        for ( int i = 0; i < writtenBlocks.size(); i++ ) {
+            Assert.assertEquals(writtenBlocks.get(i)[0], i);
+            Assert.assertEquals(writtenBlocks.get(i)[1], expectedAddress);
+            expectedAddress += writtenBlocks.get(i)[2];
+        }
+        Assert.assertEquals(expectedAddress, terminatorStart);
+    }
+
+    @Test
+    public void testOutputIsIndependentOfNumberOfThreads() throws IOException {
+        final byte[] data = makeTestData(1_000_000);
+        final byte[] singleThreaded = compress(data, 1, new ArrayList<>());
+        Assert.assertEquals(compress(data, 3, new ArrayList<>()), singleThreaded);
+        Assert.assertEquals(compress(data, 8, new ArrayList<>()), singleThreaded);
+    }
+
+    @Test
+    public void testFilePointers() throws IOException {
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try ( final ParallelBlockCompressedOutputStream out = new ParallelBlockCompressedOutputStream(compressed, 5, 2) ) {
+            Assert.assertEquals(out.getFilePointer(), 0L);
+            out.write(new byte[10]);
+            Assert.assertEquals(out.getFilePointer(), BlockCompressedFilePointerUtil.makeFilePointer(0, 10));
+            out.write(new byte[ParallelBlockCompressedOutputStream.UNCOMPRESSED_BLOCK_SIZE]);
+            Assert.assertEquals(out.getFilePointer(), BlockCompressedFilePointerUtil.makeFilePointer(1, 10));
+            out.flush();
+            Assert.assertEquals(out.getFilePointer(), BlockCompressedFilePointerUtil.makeFilePointer(2, 0));
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testWriteAfterClose() throws IOException {
+        final ParallelBlockCompressedOutputStream out = new ParallelBlockCompressedOutputStream(new ByteArrayOutputStream(), 5, 2);
+        out.close();
+        out.write(1);
+    }
+}
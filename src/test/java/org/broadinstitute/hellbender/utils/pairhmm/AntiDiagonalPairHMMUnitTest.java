@@ -0,0 +1,268 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import picard.util.BasicInputParser;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public final class AntiDiagonalPairHMMUnitTest extends GATKBaseTest {
+
+    private static final String pairHMMTestData = publicTestDir + "pairhmm-testdata.txt";
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    // in double precision the arithmetic is the same as in LoglessPairHMM
+    private static final double DOUBLE_PRECISION_TOLERANCE = 1e-9;
+    private static final double SINGLE_PRECISION_TOLERANCE = 1e-4;
+
+    @DataProvider(name = "precision")
+    public Object[][] precision() {
+        return new Object[][] {
+                {true, DOUBLE_PRECISION_TOLERANCE},
+                {false, SINGLE_PRECISION_TOLERANCE}
+        };
+    }
+
+    private static byte[] randomBases(final Random random, final int length, final double nRate) {
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = random.nextDouble() < nRate ? (byte)'N' : BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+
+    private static byte[] randomQuals(final Random random, final int length, final int min, final int max) {
+        final byte[] quals = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            quals[i] = (byte)(min + random.nextInt(max - min + 1));
+        }
+        return quals;
+    }
+
+    // a read sampled from the haplotype, with some substitutions
+    private static byte[] sampleRead(final Random random, final byte[] haplotype, final int length) {
+        final int start = random.nextInt(Math.max(1, haplotype.length - length + 1));
+        final byte[] read = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            read[i] = start + i < haplotype.length && random.nextDouble() > 0.05 ? haplotype[start + i] : BASES[random.nextInt(BASES.length)];
+        }
+        return read;
+    }
+
+    @Test(dataProvider = "precision")
+    public void testMatchesLoglessPairHMM(final boolean useDoublePrecision, final double tolerance) {
+        final Random random = new Random(13);
+        final LoglessPairHMM logless = new LoglessPairHMM();
+        final AntiDiagonalPairHMM antiDiagonal = new AntiDiagonalPairHMM(useDoublePrecision);
+        logless.initialize(200, 400);
+        antiDiagonal.initialize(200, 400);
+
+        for ( int test = 0; test < 500; test++ ) {
+            final byte[] haplotype = randomBases(random, 1 + random.nextInt(400), 0.01);
+            final int readLength = 1 + random.nextInt(200);
+            final byte[] read = random.nextBoolean() ? sampleRead(random, haplotype, readLength) : randomBases(random, readLength, 0.01);
+            final byte[] quals = randomQuals(random, readLength, 6, 40);
+            final byte[] insQuals = randomQuals(random, readLength, 10, 50);
+            final byte[] delQuals = randomQuals(random, readLength, 10, 50);
+            final byte[] gcp = Utils.dupBytes((byte)10, readLength);
+
+            final double expected = logless.computeReadLikelihoodGivenHaplotypeLog10(haplotype, read, quals, insQuals, delQuals, gcp, true, null);
+            final double actual = antiDiagonal.computeReadLikelihoodGivenHaplotypeLog10(haplotype, read, quals, insQuals, delQuals, gcp, true, null);
+            Assert.assertEquals(actual, expected, tolerance, String.format("haplotype: %s read: %s", new String(haplotype), new String(read)));
+        }
+    }
+
+    @Test(dataProvider = "precision")
+    public void testLikelihoodMatrixMatchesLoglessPairHMM(final boolean useDoublePrecision, final double tolerance) {
+        final Random random = new Random(17);
+        final byte[] refBases = randomBases(random, 150, 0.0);
+        final List<Haplotype> haplotypes = new ArrayList<>();
+        haplotypes.add(new Haplotype(refBases, true));
+        for ( int i = 0; i < 5; i++ ) {
+            // haplotypes of different lengths, with variation relative to the reference
+            final byte[] bases = refBases.clone();
+            bases[random.nextInt(bases.length)] = BASES[random.nextInt(BASES.length)];
+            haplotypes.add(new Haplotype(i % 2 == 0 ? bases : Arrays.copyOf(bases, bases.length - 1 - i), false));
+        }
+
+        final List<GATKRead> reads = new ArrayList<>();
+        final Map<GATKRead, byte[]> gcps = new LinkedHashMap<>();
+        for ( int i = 0; i < 30; i++ ) {
+            final int readLength = 20 + random.nextInt(80);
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(sampleRead(random, refBases, readLength),
+                    randomQuals(random, readLength, 6, 40), readLength + "M");
+            ReadUtils.setInsertionBaseQualities(read, randomQuals(random, readLength, 20, 45));
+            ReadUtils.setDeletionBaseQualities(read, randomQuals(random, readLength, 20, 45));
+            reads.add(read);
+            gcps.put(read, Utils.dupBytes((byte)10, readLength));
+        }
+
+        final PairHMM logless = new LoglessPairHMM();
+        logless.computeLog10Likelihoods(matrix(haplotypes), reads, gcps);
+        final double[] expected = logless.getLogLikelihoodArray();
+
+        final PairHMM antiDiagonal = new AntiDiagonalPairHMM(useDoublePrecision);
+        antiDiagonal.computeLog10Likelihoods(matrix(haplotypes), reads, gcps);
+        final double[] actual = antiDiagonal.getLogLikelihoodArray();
+
+        Assert.assertEquals(actual.length, expected.length);
+        for ( int i = 0; i < expected.length; i++ ) {
+            Assert.assertEquals(actual[i], expected[i], tolerance, "likelihood " + i);
+        }
+    }
+
+    @Test(dataProvider = "precision")
+    public void testLikelihoodsFromTestData(final boolean useDoublePrecision, final double tolerance) {
+        final PairHMM hmm = new AntiDiagonalPairHMM(useDoublePrecision);
+
+        BasicInputParser parser = null;
+        try {
+            parser = new BasicInputParser(true, new FileInputStream(pairHMMTestData));
+        } catch (final FileNotFoundException e) {
+            Assert.fail("PairHMM test data not found : " + pairHMMTestData);
+        }
+
+        while (parser.hasNext()) {
+            final String[] tokens = parser.next();
+
+            final Haplotype hap = new Haplotype(tokens[0].getBytes(), true);
+
+            final byte[] bases = tokens[1].getBytes();
+            final byte[] baseQuals = normalize(tokens[2].getBytes(), 6);
+            final byte[] insertionQuals = normalize(tokens[3].getBytes(), 0);
+            final byte[] deletionQuals = normalize(tokens[4].getBytes(), 0);
+            final byte[] gcp = normalize(tokens[5].getBytes(), 0);
+            final double expectedResult = Double.parseDouble(tokens[6]);
+
+            final int readLength = bases.length;
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, baseQuals, readLength + "M");
+            ReadUtils.setInsertionBaseQualities(read, insertionQuals);
+            ReadUtils.setDeletionBaseQualities(read, deletionQuals);
+
+            final Map<GATKRead, byte[]> gpcs = new LinkedHashMap<>(readLength);
+            gpcs.put(read, gcp);
+
+            hmm.computeLog10Likelihoods(matrix(Collections.singletonList(hap)), Collections.singletonList(read), gpcs);
+
+            // the expected values were computed by the native single-precision implementation, which sums in a different order
+            Assert.assertEquals(hmm.getLogLikelihoodArray()[0], expectedResult, Math.max(tolerance, 1e-4));
+        }
+        hmm.close();
+    }
+
+    @Test
+    public void testSinglePrecisionFallsBackToDoublePrecision() {
+        // a read mismatching the haplotype everywhere has a likelihood too small to compute in single precision
+        final byte[] haplotype = Utils.dupBytes((byte)'A', 200);
+        final byte[] read = Utils.dupBytes((byte)'C', 100);
+        final byte[] quals = Utils.dupBytes((byte)20, read.length);
+        final byte[] gapQuals = Utils.dupBytes((byte)40, read.length);
+        final byte[] gcp = Utils.dupBytes((byte)10, read.length);
+
+        final LoglessPairHMM logless = new LoglessPairHMM();
+        logless.initialize(read.length, haplotype.length);
+        final double expected = logless.computeReadLikelihoodGivenHaplotypeLog10(haplotype, read, quals, gapQuals, gapQuals, gcp, true, null);
+        Assert.assertTrue(expected < Math.log10(AntiDiagonalPairHMM.MIN_ACCEPTED_FLOAT) - AntiDiagonalPairHMM.INITIAL_CONDITION_FLOAT_LOG10);
+
+        final AntiDiagonalPairHMM antiDiagonal = new AntiDiagonalPairHMM(false);
+        antiDiagonal.initialize(read.length, haplotype.length);
+        final double actual = antiDiagonal.computeReadLikelihoodGivenHaplotypeLog10(haplotype, read, quals, gapQuals, gapQuals, gcp, true, null);
+        Assert.assertEquals(actual, expected, DOUBLE_PRECISION_TOLERANCE);
+    }
+
+    @Test
+    public void testImplementationRespectsPrecisionArgument() {
+        final PairHMMNativeArguments args = new PairHMMNativeArguments();
+        args.useDoublePrecision = true;
+        final PairHMM doublePrecision = PairHMM.Implementation.JAVA_ANTI_DIAGONAL.makeNewHMM(args);
+        Assert.assertTrue(doublePrecision instanceof AntiDiagonalPairHMM);
+        Assert.assertTrue(((AntiDiagonalPairHMM)doublePrecision).isUsingDoublePrecision());
+
+        args.useDoublePrecision = false;
+        Assert.assertFalse(((AntiDiagonalPairHMM)PairHMM.Implementation.JAVA_ANTI_DIAGONAL.makeNewHMM(args)).isUsingDoublePrecision());
+    }
+
+    private static byte[] normalize(final byte[] scores, final int min) {
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] -= 33;
+            scores[i] = scores[i] < min ? (byte)min : scores[i];
+        }
+        return scores;
+    }
+
+    private static LikelihoodMatrix<GATKRead, Haplotype> matrix(final List<Haplotype> haplotypes) {
+        return new LikelihoodMatrix<GATKRead, Haplotype>() {
+            @Override
+            public List<GATKRead> evidence() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public List<Haplotype> alleles() {
+                return haplotypes;
+            }
+
+            @Override
+            public void set(int alleleIndex, int evidenceIndex, double value) {
+            }
+
+            @Override
+            public double get(int alleleIndex, int evidenceIndex) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int indexOfAllele(Haplotype allele) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int indexOfEvidence(GATKRead evidence) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int numberOfAlleles() {
+                return haplotypes.size();
+            }
+
+            @Override
+            public int evidenceCount() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Haplotype getAllele(int alleleIndex) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public GATKRead getEvidence(int evidenceIndex) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void copyAlleleLikelihoods(int alleleIndex, double[] dest, int offset) {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,205 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.AlleleLikelihoods;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public final class ParallelPairHMMUnitTest extends GATKBaseTest {
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+    private static final String SAMPLE = "sample";
+
+    private static byte[] randomQuals(final Random random, final int length, final int min, final int max) {
+        final byte[] quals = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            quals[i] = (byte)(min + random.nextInt(max - min + 1));
+        }
+        return quals;
+    }
+
+    private static List<Haplotype> makeHaplotypes(final Random random) {
+        final byte[] refBases = new byte[200];
+        for ( int i = 0; i < refBases.length; i++ ) {
+            refBases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        final List<Haplotype> haplotypes = new ArrayList<>();
+        haplotypes.add(new Haplotype(refBases, true));
+        for ( int i = 0; i < 4; i++ ) {
+            final byte[] bases = Arrays.copyOf(refBases, refBases.length - 1 - i);
+            bases[random.nextInt(bases.length)] = BASES[random.nextInt(BASES.length)];
+            haplotypes.add(new Haplotype(bases, false));
+        }
+        return haplotypes;
+    }
+
+    private static List<GATKRead> makeReads(final Random random, final byte[] refBases, final int count) {
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < count; i++ ) {
+            final int length = 30 + random.nextInt(100);
+            final int start = random.nextInt(refBases.length - length);
+            final byte[] bases = Arrays.copyOfRange(refBases, start, start + length);
+            bases[random.nextInt(length)] = BASES[random.nextInt(BASES.length)];
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, randomQuals(random, length, 6, 40), length + "M");
+            read.setName("read" + i);
+            ReadUtils.setInsertionBaseQualities(read, randomQuals(random, length, 20, 45));
+            ReadUtils.setDeletionBaseQualities(read, randomQuals(random, length, 20, 45));
+            reads.add(read);
+        }
+        return reads;
+    }
+
+    private static double[][] computeLikelihoods(final PairHMM hmm, final List<Haplotype> haplotypes, final List<GATKRead> reads) {
+        final Map<GATKRead, byte[]> gcps = new LinkedHashMap<>();
+        reads.forEach(read -> gcps.put(read, Utils.dupBytes((byte)10, read.getLength())));
+
+        final AlleleLikelihoods<GATKRead, Haplotype> likelihoods = new AlleleLikelihoods<>(new IndexedSampleList(SAMPLE),
+                new IndexedAlleleList<>(haplotypes), Collections.singletonMap(SAMPLE, reads));
+        final LikelihoodMatrix<GATKRead, Haplotype> matrix = likelihoods.sampleMatrix(0);
+        hmm.computeLog10Likelihoods(matrix, reads, gcps);
+
+        final double[][] result = new double[haplotypes.size()][reads.size()];
+        for ( int a = 0; a < haplotypes.size(); a++ ) {
+            for ( int r = 0; r < reads.size(); r++ ) {
+                result[a][r] = matrix.get(a, r);
+            }
+        }
+        Assert.assertEquals(hmm.getLogLikelihoodArray().length, haplotypes.size() * reads.size());
+        return result;
+    }
+
+    @DataProvider(name = "parallelHMMs")
+    public Object[][] parallelHMMs() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final PairHMM.Implementation implementation : Arrays.asList(PairHMM.Implementation.LOGLESS_CACHING, PairHMM.Implementation.JAVA_ANTI_DIAGONAL) ) {
+            for ( final int threads : Arrays.asList(1, 2, 3, 8) ) {
+                for ( final int readCount : Arrays.asList(1, 5, 100) ) {
+                    tests.add(new Object[]{implementation, threads, readCount});
+                }
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "parallelHMMs")
+    public void testResultsDoNotDependOnThreads(final PairHMM.Implementation implementation, final int threads, final int readCount) {
+        final Random random = new Random(readCount);
+        final List<Haplotype> haplotypes = makeHaplotypes(random);
+        final List<GATKRead> reads = makeReads(random, haplotypes.get(0).getBases(), readCount);
+        final PairHMMNativeArguments args = new PairHMMNativeArguments();
+
+        final PairHMM serial = implementation.makeNewHMM(args);
+        final double[][] expected = computeLikelihoods(serial, haplotypes, reads);
+        serial.close();
+
+        try ( final PairHMM parallel = new ParallelPairHMM(implementation.makeNewHMM(args), () -> implementation.makeNewHMM(args), threads) ) {
+            // run twice, to make sure that reusing the per-thread PairHMMs doesn't change anything
+            for ( int i = 0; i < 2; i++ ) {
+                final double[][] actual = computeLikelihoods(parallel, haplotypes, reads);
+                for ( int a = 0; a < expected.length; a++ ) {
+                    Assert.assertEquals(actual[a], expected[a]);
+                }
+            }
+        }
+    }
+
+    @Test(dataProvider = "parallelHMMs")
+    public void testBatchMatchesSingleMatrices(final PairHMM.Implementation implementation, final int threads, final int readCount) {
+        final Random random = new Random(readCount + 1);
+        final PairHMMNativeArguments args = new PairHMMNativeArguments();
+        final List<List<Haplotype>> haplotypeSets = new ArrayList<>();
+        final List<List<GATKRead>> readSets = new ArrayList<>();
+        for ( int i = 0; i < 4; i++ ) {
+            haplotypeSets.add(makeHaplotypes(random));
+            readSets.add(makeReads(random, haplotypeSets.get(i).get(0).getBases(), i == 1 ? 0 : readCount));
+        }
+
+        final PairHMM serial = implementation.makeNewHMM(args);
+        final List<double[][]> expected = new ArrayList<>();
+        for ( int i = 0; i < haplotypeSets.size(); i++ ) {
+            expected.add(readSets.get(i).isEmpty() ? new double[haplotypeSets.get(i).size()][0] : computeLikelihoods(serial, haplotypeSets.get(i), readSets.get(i)));
+        }
+        serial.close();
+
+        final Map<GATKRead, byte[]> gcps = new LinkedHashMap<>();
+        final List<LikelihoodMatrix<GATKRead, Haplotype>> matrices = new ArrayList<>();
+        for ( int i = 0; i < haplotypeSets.size(); i++ ) {
+            readSets.get(i).forEach(read -> gcps.put(read, Utils.dupBytes((byte)10, read.getLength())));
+            matrices.add(new AlleleLikelihoods<>(new IndexedSampleList(SAMPLE), new IndexedAlleleList<>(haplotypeSets.get(i)),
+                    Collections.singletonMap(SAMPLE, readSets.get(i))).sampleMatrix(0));
+        }
+        try ( final PairHMM parallel = new ParallelPairHMM(implementation.makeNewHMM(args), () -> implementation.makeNewHMM(args), threads) ) {
+            parallel.computeBatchLog10Likelihoods(matrices, readSets, gcps);
+        }
+
+        for ( int i = 0; i < matrices.size(); i++ ) {
+            for ( int a = 0; a < expected.get(i).length; a++ ) {
+                for ( int r = 0; r < expected.get(i)[a].length; r++ ) {
+                    Assert.assertEquals(matrices.get(i).get(a, r), expected.get(i)[a][r]);
+                }
+            }
+        }
+    }
+
+    @Test(dataProvider = "parallelHMMs")
+    public void testSinglePairsMatchWrappedImplementation(final PairHMM.Implementation implementation, final int threads, final int readCount) {
+        final Random random = new Random(readCount + 2);
+        final List<Haplotype> haplotypes = makeHaplotypes(random);
+        final List<GATKRead> reads = makeReads(random, haplotypes.get(0).getBases(), readCount);
+        final PairHMMNativeArguments args = new PairHMMNativeArguments();
+        final int readMaxLength = reads.stream().mapToInt(GATKRead::getLength).max().getAsInt();
+        final int haplotypeMaxLength = haplotypes.stream().mapToInt(Haplotype::length).max().getAsInt();
+
+        try ( final PairHMM serial = implementation.makeNewHMM(args);
+              final PairHMM parallel = new ParallelPairHMM(implementation.makeNewHMM(args), () -> implementation.makeNewHMM(args), threads) ) {
+            serial.initialize(readMaxLength, haplotypeMaxLength);
+            parallel.initialize(readMaxLength, haplotypeMaxLength);
+            for ( final GATKRead read : reads ) {
+                final byte[] gcp = Utils.dupBytes((byte)10, read.getLength());
+                for ( int h = 0; h < haplotypes.size(); h++ ) {
+                    // only the first haplotype of each read recaches the read values, so cached values must carry over
+                    final byte[] nextHaplotypeBases = h == haplotypes.size() - 1 ? null : haplotypes.get(h + 1).getBases();
+                    final double expected = serial.computeReadLikelihoodGivenHaplotypeLog10(haplotypes.get(h).getBases(), read.getBases(), read.getBaseQualities(),
+                            ReadUtils.getBaseInsertionQualities(read), ReadUtils.getBaseDeletionQualities(read), gcp, h == 0, nextHaplotypeBases);
+                    final double actual = parallel.computeReadLikelihoodGivenHaplotypeLog10(haplotypes.get(h).getBases(), read.getBases(), read.getBaseQualities(),
+                            ReadUtils.getBaseInsertionQualities(read), ReadUtils.getBaseDeletionQualities(read), gcp, h == 0, nextHaplotypeBases);
+                    Assert.assertEquals(actual, expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMakeNewHMMWithThreads() {
+        final PairHMMNativeArguments args = new PairHMMNativeArguments();
+        Assert.assertTrue(PairHMM.Implementation.LOGLESS_CACHING.makeNewHMM(args, 1) instanceof LoglessPairHMM);
+
+        final PairHMM parallel = PairHMM.Implementation.LOGLESS_CACHING.makeNewHMM(args, 4);
+        Assert.assertTrue(parallel instanceof ParallelPairHMM);
+        Assert.assertEquals(((ParallelPairHMM)parallel).getNumberOfThreads(), 4);
+        parallel.close();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidThreads() {
+        PairHMM.Implementation.LOGLESS_CACHING.makeNewHMM(new PairHMMNativeArguments(), 0);
+    }
+}
@@ -0,0 +1,123 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFileWriter;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordIterator;
+import htsjdk.samtools.SamReader;
+import htsjdk.samtools.SamReaderFactory;
+import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.FileExtensions;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+public class ParallelBAMFileWriterUnitTest extends GATKBaseTest {
+
+    private static final int NUM_READS_PER_CONTIG = 10_000;
+    private static final int READ_LENGTH = 101;
+
+    private static SAMFileHeader makeHeader() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(2, 1, 1_000_000);
+        header.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        return header;
+    }
+
+    /**
+     * Enough coordinate-sorted reads with random bases to span many BGZF blocks
+     */
+    private static List<SAMRecord> makeReads(final SAMFileHeader header) {
+        final Random random = new Random(13);
+        final byte[] bases = new byte[READ_LENGTH];
+        final byte[] quals = new byte[READ_LENGTH];
+        final List<SAMRecord> reads = new ArrayList<>();
+        for ( int contig = 0; contig < header.getSequenceDictionary().size(); contig++ ) {
+            for ( int i = 0; i < NUM_READS_PER_CONTIG; i++ ) {
+                for ( int j = 0; j < READ_LENGTH; j++ ) {
+                    bases[j] = "ACGT".getBytes()[random.nextInt(4)];
+                    quals[j] = (byte)(10 + random.nextInt(30));
+                }
+                reads.add(ArtificialReadUtils.createArtificialSAMRecord(header, "read" + contig + "_" + i, contig, 1 + i * 50, bases, quals));
+            }
+        }
+        return reads;
+    }
+
+    private static File writeReads(final SAMFileHeader header, final List<SAMRecord> reads, final boolean createIndex, final int numThreads) {
+        final File output = new File(createTempDir("parallelBAMFileWriter"), "reads" + FileExtensions.BAM);
+        try ( final SAMFileWriter writer = new ParallelBAMFileWriter(output.toPath(), header, createIndex, true, 5, numThreads) ) {
+            reads.forEach(writer::addAlignment);
+        }
+        return output;
+    }
+
+    private static List<String> readNames(final SAMRecordIterator iterator) {
+        final List<String> names = new ArrayList<>();
+        iterator.forEachRemaining(read -> names.add(read.getReadName()));
+        iterator.close();
+        return names;
+    }
+
+    @DataProvider(name = "numThreads")
+    public Object[][] numThreads() {
+        return new Object[][] { {1}, {4} };
+    }
+
+    @Test(dataProvider = "numThreads")
+    public void testWriteAndQueryWithIndex(final int numThreads) throws IOException {
+        final SAMFileHeader header = makeHeader();
+        final List<SAMRecord> reads = makeReads(header);
+        final File output = writeReads(header, reads, true, numThreads);
+
+        Assert.assertTrue(BlockCompressedInputStream.checkTermination(output) == BlockCompressedInputStream.FileTermination.HAS_TERMINATOR_BLOCK);
+        Assert.assertTrue(new File(output.getParentFile(), "reads" + FileExtensions.BAI_INDEX).exists());
+        Assert.assertTrue(new File(output.getPath() + ".md5").exists());
+
+        try ( final SamReader reader = SamReaderFactory.makeDefault().validationStringency(ValidationStringency.SILENT).open(output) ) {
+            Assert.assertTrue(reader.hasIndex());
+            Assert.assertEquals(reader.getFileHeader().getSequenceDictionary(), header.getSequenceDictionary());
+            Assert.assertEquals(readNames(reader.iterator()), reads.stream().map(SAMRecord::getReadName).collect(Collectors.toList()));
+
+            // queries that start in the middle of the file exercise the virtual file pointers recorded in the index
+            for ( final String contig : new String[]{"1", "2"} ) {
+                final int start = 123_456;
+                final int end = 234_567;
+                final List<String> expected = reads.stream()
+                        .filter(read -> read.getContig().equals(contig) && read.getAlignmentEnd() >= start && read.getAlignmentStart() <= end)
+                        .map(SAMRecord::getReadName)
+                        .collect(Collectors.toList());
+                Assert.assertFalse(expected.isEmpty());
+                Assert.assertEquals(readNames(reader.queryOverlapping(contig, start, end)), expected);
+            }
+        }
+    }
+
+    @Test
+    public void testOutputIsIndependentOfNumberOfThreads() throws IOException {
+        final SAMFileHeader header = makeHeader();
+        final List<SAMRecord> reads = makeReads(header);
+        final File singleThreaded = writeReads(header, reads, false, 1);
+        final File multiThreaded = writeReads(header, reads, false, 6);
+        Assert.assertEquals(Files.readAllBytes(multiThreaded.toPath()), Files.readAllBytes(singleThreaded.toPath()));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testOutOfOrderReadsAreRejected() {
+        final SAMFileHeader header = makeHeader();
+        final File output = new File(createTempDir("parallelBAMFileWriter"), "unsorted" + FileExtensions.BAM);
+        try ( final SAMFileWriter writer = new ParallelBAMFileWriter(output.toPath(), header, false, false, 5, 2) ) {
+            writer.addAlignment(ArtificialReadUtils.createArtificialSAMRecord(header, "b", 0, 100, READ_LENGTH));
+            writer.addAlignment(ArtificialReadUtils.createArtificialSAMRecord(header, "a", 0, 10, READ_LENGTH));
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package org.broadinstitute.hellbender.utils.recalibration;
 
+import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.TextCigarCodec;
+import htsjdk.samtools.util.Locatable;
 import org.broadinstitute.hellbender.engine.ReferenceDataSource;
 import org.broadinstitute.hellbender.engine.ReferenceMemorySource;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
@@ -16,6 +19,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 public final class BaseRecalibrationEngineUnitTest {
 
@@ -146,4 +150,108 @@ public final class BaseRecalibrationEngineUnitTest {
         final int[] actual = (mode == EventType.BASE_INSERTION ? isInsertion : isDeletion);
         Assert.assertEquals(actual, expected, "calculateIsSNPOrIndel() failed with " + mode + " and cigar " + cigar + " Expected " + Arrays.toString(expected) + " but got " + Arrays.toString(actual));
     }
-}
\ No newline at end of file
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+    private static final int CONTIG_LENGTH = 5000;
+
+    @DataProvider(name = "numberOfEngines")
+    public Object[][] makeNumberOfEngines() {
+        return new Object[][]{{1}, {2}, {5}};
+    }
+
+    /**
+     * Splitting reads among several engines (as parallel traversal in BaseRecalibrator does) and combining their tables
+     * must give the same tables as processing all of the reads with a single engine
+     */
+    @Test(dataProvider = "numberOfEngines")
+    public void testCombinedEnginesMatchSingleEngine(final int numberOfEngines) {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithGroups(1, 1, CONTIG_LENGTH, 3);
+        final String contig = header.getSequence(0).getSequenceName();
+        final Random random = new Random(17);
+        final byte[] referenceBases = new byte[CONTIG_LENGTH];
+        for ( int i = 0; i < referenceBases.length; i++ ) {
+            referenceBases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        final ReferenceDataSource reference = new ReferenceMemorySource(new ReferenceBases(referenceBases, new SimpleInterval(contig, 1, CONTIG_LENGTH)), header.getSequenceDictionary());
+
+        final RecalibrationArgumentCollection recalArgs = new RecalibrationArgumentCollection();
+        recalArgs.enableBAQ = true;
+        recalArgs.computeIndelBQSRTables = true;
+
+        final List<GATKRead> reads = new ArrayList<>();
+        final List<List<Locatable>> knownSites = new ArrayList<>();
+        for ( int i = 0; i < 500; i++ ) {
+            reads.add(makeRead(random, header, contig, referenceBases, i));
+            final List<Locatable> sites = new ArrayList<>();
+            if ( random.nextInt(4) == 0 ) {
+                final int position = reads.get(i).getStart() + random.nextInt(40);
+                sites.add(new SimpleInterval(contig, position, position + random.nextInt(3)));
+            }
+            knownSites.add(sites);
+        }
+
+        final BaseRecalibrationEngine singleEngine = new BaseRecalibrationEngine(recalArgs, header.clone());
+        for ( int i = 0; i < reads.size(); i++ ) {
+            singleEngine.processRead(reads.get(i).copy(), reference, knownSites.get(i));
+        }
+        singleEngine.finalizeData();
+
+        final List<BaseRecalibrationEngine> engines = new ArrayList<>();
+        for ( int e = 0; e < numberOfEngines; e++ ) {
+            engines.add(new BaseRecalibrationEngine(recalArgs, header.clone()));
+        }
+        for ( int i = 0; i < reads.size(); i++ ) {
+            engines.get(i % numberOfEngines).processRead(reads.get(i).copy(), reference, knownSites.get(i));
+        }
+        final BaseRecalibrationEngine combinedEngine = new BaseRecalibrationEngine(recalArgs, header.clone());
+        engines.forEach(combinedEngine::combine);
+        combinedEngine.finalizeData();
+
+        Assert.assertEquals(combinedEngine.getNumReadsProcessed(), singleEngine.getNumReadsProcessed());
+        final RecalibrationTables expected = singleEngine.getFinalRecalibrationTables();
+        final RecalibrationTables actual = combinedEngine.getFinalRecalibrationTables();
+        Assert.assertEquals(actual.numTables(), expected.numTables());
+        for ( int t = 0; t < expected.numTables(); t++ ) {
+            Assert.assertEquals(tableContents(actual.getTable(t)), tableContents(expected.getTable(t)), "table " + t);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testCannotCombineFinalizedEngines() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithGroups(1, 1, CONTIG_LENGTH, 1);
+        final RecalibrationArgumentCollection recalArgs = new RecalibrationArgumentCollection();
+        final BaseRecalibrationEngine engine = new BaseRecalibrationEngine(recalArgs, header);
+        engine.finalizeData();
+        engine.combine(new BaseRecalibrationEngine(recalArgs, header));
+    }
+
+    // a read copied from the reference with some substitutions, and sometimes an insertion or a deletion
+    private static GATKRead makeRead(final Random random, final SAMFileHeader header, final String contig, final byte[] referenceBases, final int index) {
+        final int length = 50 + random.nextInt(50);
+        final int start = 200 + random.nextInt(CONTIG_LENGTH - 400 - length);
+        final byte[] bases = Arrays.copyOfRange(referenceBases, start - 1, start - 1 + length);
+        for ( int i = 0; i < length; i++ ) {
+            if ( random.nextInt(50) == 0 ) {
+                bases[i] = BASES[random.nextInt(BASES.length)];
+            }
+        }
+        final byte[] quals = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            quals[i] = (byte)(10 + random.nextInt(31));
+        }
+        final int event = random.nextInt(10);
+        final String cigar = event == 0 ? "20M2I" + (length - 22) + "M" : event == 1 ? "30M3D" + (length - 30) + "M" : length + "M";
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + index, contig, start, bases, quals, cigar);
+        read.setReadGroup(header.getReadGroups().get(random.nextInt(header.getReadGroups().size())).getId());
+        read.setIsReverseStrand(random.nextBoolean());
+        return read;
+    }
+
+    private static List<String> tableContents(final NestedIntegerArray<RecalDatum> table) {
+        final List<String> contents = new ArrayList<>();
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : table.getAllLeaves() ) {
+            contents.add(Arrays.toString(leaf.keys) + " " + leaf.value.stringForCSV());
+        }
+        return contents;
+    }
+}
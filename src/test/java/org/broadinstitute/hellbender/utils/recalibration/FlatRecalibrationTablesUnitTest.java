@@ -0,0 +1,117 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class FlatRecalibrationTablesUnitTest extends GATKBaseTest {
+    private static final int NUM_READ_GROUPS = 4;
+    private static final double[] ERRORS = {0.0, 0.0, 0.0, 1.0, 0.25, 1.0 / 3.0};
+
+    private static StandardCovariateList makeCovariates() {
+        final List<String> readGroups = IntStream.range(0, NUM_READ_GROUPS).mapToObj(i -> "readgroup" + i).collect(Collectors.toList());
+        return new StandardCovariateList(new RecalibrationArgumentCollection(), readGroups);
+    }
+
+    // counts random bases both in flat tables and by incrementing datums in recalibration tables
+    private static void countBases(final Random random, final int numBases, final FlatRecalibrationTables flat, final RecalibrationTables tables) {
+        for ( int i = 0; i < numBases; i++ ) {
+            final int rg = random.nextInt(NUM_READ_GROUPS);
+            final byte qual = (byte)(random.nextInt(4) * 10 + 2);
+            final int event = random.nextInt(EventType.values().length);
+            final double isError = ERRORS[random.nextInt(ERRORS.length)];
+            flat.incrementQualityScore(rg, qual, event, isError);
+            RecalUtils.incrementDatumOrPutIfNecessary3keys(tables.getQualityScoreTable(), qual, isError, rg, qual, event);
+            for ( int t = 0; t < tables.getAdditionalTables().size(); t++ ) {
+                final int key = random.nextInt(50);
+                flat.incrementCovariate(t, rg, qual, key, event, isError);
+                RecalUtils.incrementDatumOrPutIfNecessary4keys(tables.getAdditionalTables().get(t), qual, isError, rg, qual, key, event);
+            }
+        }
+    }
+
+    private static List<String> tableContents(final NestedIntegerArray<RecalDatum> table) {
+        final List<String> contents = new ArrayList<>();
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : table.getAllLeaves() ) {
+            final RecalDatum datum = leaf.value;
+            contents.add(Arrays.toString(leaf.keys) + " " + datum.getNumObservations() + " " + datum.getNumMismatches() + " " + datum.getEstimatedQReported());
+        }
+        return contents;
+    }
+
+    private static void assertTablesEqual(final RecalibrationTables actual, final RecalibrationTables expected) {
+        Assert.assertEquals(actual.numTables(), expected.numTables());
+        for ( int t = 0; t < expected.numTables(); t++ ) {
+            Assert.assertEquals(tableContents(actual.getTable(t)), tableContents(expected.getTable(t)), "table " + t);
+        }
+    }
+
+    @Test
+    public void testMatchesIncrementedDatums() {
+        final StandardCovariateList covariates = makeCovariates();
+        final FlatRecalibrationTables flat = new FlatRecalibrationTables(covariates, NUM_READ_GROUPS);
+        final RecalibrationTables expected = new RecalibrationTables(covariates, NUM_READ_GROUPS);
+        Assert.assertTrue(flat.isEmpty());
+
+        countBases(new Random(5), 20000, flat, expected);
+        Assert.assertFalse(flat.isEmpty());
+        final RecalibrationTables actual = flat.toRecalibrationTables();
+        Assert.assertTrue(tableContents(actual.getReadGroupTable()).isEmpty());
+        assertTablesEqual(actual, expected);
+
+        BaseRecalibrationEngine.finalizeRecalibrationTables(actual);
+        BaseRecalibrationEngine.finalizeRecalibrationTables(expected);
+        assertTablesEqual(actual, expected);
+    }
+
+    @Test
+    public void testCombine() {
+        final StandardCovariateList covariates = makeCovariates();
+        final Random random = new Random(9);
+        final FlatRecalibrationTables flat1 = new FlatRecalibrationTables(covariates, NUM_READ_GROUPS);
+        final FlatRecalibrationTables flat2 = new FlatRecalibrationTables(covariates, NUM_READ_GROUPS);
+        final FlatRecalibrationTables flatAll = new FlatRecalibrationTables(covariates, NUM_READ_GROUPS);
+        final RecalibrationTables tables1 = new RecalibrationTables(covariates, NUM_READ_GROUPS);
+        final RecalibrationTables tables2 = new RecalibrationTables(covariates, NUM_READ_GROUPS);
+        countBases(random, 5000, flat1, tables1);
+        countBases(random, 3000, flat2, tables2);
+
+        flatAll.combine(flat1).combine(flat2);
+        final RecalibrationTables combined = flatAll.toRecalibrationTables();
+        final RecalibrationTables expected = tables1.combine(tables2);
+        Assert.assertEquals(combined.numTables(), expected.numTables());
+        for ( int t = 0; t < expected.numTables(); t++ ) {
+            final List<NestedIntegerArray.Leaf<RecalDatum>> actualLeaves = combined.getTable(t).getAllLeaves();
+            final List<NestedIntegerArray.Leaf<RecalDatum>> expectedLeaves = expected.getTable(t).getAllLeaves();
+            Assert.assertEquals(actualLeaves.size(), expectedLeaves.size());
+            for ( int i = 0; i < expectedLeaves.size(); i++ ) {
+                Assert.assertEquals(actualLeaves.get(i).keys, expectedLeaves.get(i).keys);
+                Assert.assertEquals(actualLeaves.get(i).value.getNumObservations(), expectedLeaves.get(i).value.getNumObservations());
+                Assert.assertEquals(actualLeaves.get(i).value.getNumMismatches(), expectedLeaves.get(i).value.getNumMismatches(), 1e-6);
+                Assert.assertEquals(actualLeaves.get(i).value.getEstimatedQReported(), expectedLeaves.get(i).value.getEstimatedQReported(), 1e-6);
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testQualityScoreTooLarge() {
+        final StandardCovariateList covariates = makeCovariates();
+        final FlatRecalibrationTables flat = new FlatRecalibrationTables(covariates, NUM_READ_GROUPS);
+        flat.incrementQualityScore(0, covariates.getQualityScoreCovariate().maximumKeyValue() + 1, 0, 0.0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCombineDifferentSizes() {
+        final StandardCovariateList covariates = makeCovariates();
+        new FlatRecalibrationTables(covariates, NUM_READ_GROUPS).combine(new FlatRecalibrationTables(covariates, NUM_READ_GROUPS + 1));
+    }
+}
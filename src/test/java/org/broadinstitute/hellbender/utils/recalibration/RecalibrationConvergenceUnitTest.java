@@ -0,0 +1,74 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+public final class RecalibrationConvergenceUnitTest extends GATKBaseTest {
+    private static final StandardCovariateList COVARIATES = new StandardCovariateList(new RecalibrationArgumentCollection(), Collections.singletonList("readgroup"));
+
+    // tables from bases with reported quality 30 and the given error rate, with one cycle key per 100 bases
+    private static RecalibrationTables makeTables(final Random random, final int numBases, final double errorRate) {
+        final FlatRecalibrationTables flat = new FlatRecalibrationTables(COVARIATES, 1);
+        for ( int i = 0; i < numBases; i++ ) {
+            final double isError = random.nextDouble() < errorRate ? 1.0 : 0.0;
+            flat.incrementQualityScore(0, 30, 0, isError);
+            flat.incrementCovariate(0, 0, 30, 0, 0, isError);
+            flat.incrementCovariate(1, 0, 30, i % 100, 0, isError);
+        }
+        return flat.toRecalibrationTables();
+    }
+
+    @Test
+    public void testIdenticalTablesHaveNoChange() {
+        final RecalibrationTables tables = makeTables(new Random(3), 10000, 0.001);
+        Assert.assertEquals(RecalibrationConvergence.largestChange(tables, makeTables(new Random(3), 10000, 0.001)), 0.0);
+    }
+
+    @Test
+    public void testChangeOfNewDatumsIsFromReportedQuality() {
+        final RecalibrationTables empty = new FlatRecalibrationTables(COVARIATES, 1).toRecalibrationTables();
+        final RecalibrationTables tables = makeTables(new Random(3), 10000, 0.01);
+        final double empiricalQuality = tables.getQualityScoreTable().get(0, 30, 0).getEmpiricalQuality();
+        Assert.assertTrue(RecalibrationConvergence.largestChange(empty, tables) >= Math.abs(empiricalQuality - 30.0) - 1e-9);
+    }
+
+    @Test
+    public void testConvergesWhenTablesStabilize() {
+        final Random random = new Random(11);
+        final RecalibrationConvergence convergence = new RecalibrationConvergence(0.5, 1000);
+        Assert.assertFalse(convergence.isCheckDue(999));
+        Assert.assertTrue(convergence.isCheckDue(1000));
+
+        // the first check has nothing to compare with
+        Assert.assertFalse(convergence.check(makeTables(random, 100000, 0.001), 1000));
+        Assert.assertEquals(convergence.getLastChange(), Double.POSITIVE_INFINITY);
+        Assert.assertFalse(convergence.isCheckDue(1999));
+        Assert.assertTrue(convergence.isCheckDue(2000));
+
+        // a very different error rate doesn't converge
+        Assert.assertFalse(convergence.check(makeTables(random, 4000000, 0.1), 2000));
+        Assert.assertTrue(convergence.getLastChange() > 0.5);
+
+        // tables from twice as many bases at the same error rate do, once every cycle key has enough observations
+        // that its empirical quality no longer leans towards the reported quality
+        Assert.assertTrue(convergence.check(makeTables(random, 8000000, 0.1), 4000));
+        Assert.assertTrue(convergence.hasConverged());
+        Assert.assertTrue(convergence.getLastChange() <= 0.5);
+        Assert.assertTrue(convergence.isCheckDue(8000));
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testCheckBeforeDue() {
+        new RecalibrationConvergence(0.1, 100).check(makeTables(new Random(1), 100, 0.01), 50);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeTolerance() {
+        new RecalibrationConvergence(-1.0, 100);
+    }
+}
@@ -1,10 +1,83 @@
 package org.broadinstitute.hellbender.utils.smithwaterman;
 
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 public final class SmithWatermanJavaAlignerUnitTest extends SmithWatermanAlignerAbstractUnitTest {
 
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
     @Override
     protected SmithWatermanJavaAligner getAligner() {
         return SmithWatermanJavaAligner.getInstance();
     }
 
+    @DataProvider(name = "bandedAlignments")
+    public Object[][] makeBandedAlignments() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final SWParameters parameters : new SWParameters[]{SmithWatermanAligner.ORIGINAL_DEFAULT, SmithWatermanAligner.STANDARD_NGS,
+                new SWParameters(200, -50, -300, -22), new SWParameters(10, -15, -30, 0)} ) {
+            for ( final SWOverhangStrategy strategy : SWOverhangStrategy.values() ) {
+                tests.add(new Object[]{parameters, strategy});
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    /**
+     * Aligning on a band of the matrix must give the same alignments as on the whole matrix, whether the alternate is
+     * a lightly mutated copy of the reference, has long indels that take it far from the diagonal, or is unrelated to it
+     */
+    @Test(dataProvider = "bandedAlignments")
+    public void testBandedAlignmentMatchesWholeMatrix(final SWParameters parameters, final SWOverhangStrategy strategy) {
+        final Random random = new Random(13);
+        for ( int i = 0; i < 300; i++ ) {
+            final byte[] reference = randomBases(random, 1 + random.nextInt(300));
+            final byte[] alternate = random.nextInt(10) == 0 ? randomBases(random, 1 + random.nextInt(300))
+                    : mutate(random, reference, i % 3 == 0 ? 200 : 10);
+            if ( alternate.length == 0 ) {
+                continue;
+            }
+            final SmithWatermanAlignment banded = SmithWatermanJavaAligner.align(reference, alternate, parameters, strategy, true);
+            final SmithWatermanAlignment whole = SmithWatermanJavaAligner.align(reference, alternate, parameters, strategy, false);
+            Assert.assertEquals(banded.getCigar(), whole.getCigar(), new String(reference) + " " + new String(alternate));
+            Assert.assertEquals(banded.getAlignmentOffset(), whole.getAlignmentOffset(), new String(reference) + " " + new String(alternate));
+        }
+    }
+
+    private static byte[] randomBases(final Random random, final int length) {
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+
+    // copies bases with some substitutions, and insertions and deletions of up to maxIndelLength bases
+    private static byte[] mutate(final Random random, final byte[] bases, final int maxIndelLength) {
+        final ByteArrayOutputStream mutated = new ByteArrayOutputStream();
+        for ( int i = 0; i < bases.length; i++ ) {
+            final int event = random.nextInt(100);
+            if ( event < 3 ) {
+                mutated.write(BASES[random.nextInt(BASES.length)]);
+            } else if ( event < 4 ) {
+                final byte[] insertion = randomBases(random, 1 + random.nextInt(maxIndelLength));
+                mutated.write(insertion, 0, insertion.length);
+                mutated.write(bases[i]);
+            } else if ( event < 5 ) {
+                i += random.nextInt(maxIndelLength);
+            } else {
+                mutated.write(bases[i]);
+            }
+        }
+        return mutated.toByteArray();
+    }
 }
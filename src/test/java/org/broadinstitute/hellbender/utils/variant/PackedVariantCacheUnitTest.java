@@ -0,0 +1,211 @@
+package org.broadinstitute.hellbender.utils.variant;
+
+import htsjdk.tribble.CloseableTribbleIterator;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.testutils.VariantContextTestUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class PackedVariantCacheUnitTest extends GATKBaseTest {
+    private static final String TEST_DIRECTORY = publicTestDir + "org/broadinstitute/hellbender/engine/";
+    private static final Path QUERY_TEST_VCF = new File(TEST_DIRECTORY + "feature_data_source_test.vcf").toPath();
+    private static final Path GENOTYPES_TEST_VCF = new File(TEST_DIRECTORY + "vcf_with_genotypes.vcf").toPath();
+
+    private static final String INFO_TEST_VCF_TEXT =
+            "##fileformat=VCFv4.2\n" +
+            "##INFO=<ID=AC,Number=A,Type=Integer,Description=\"Allele count\">\n" +
+            "##INFO=<ID=DP,Number=1,Type=Integer,Description=\"Depth\">\n" +
+            "##INFO=<ID=DB,Number=0,Type=Flag,Description=\"dbSNP membership\">\n" +
+            "##INFO=<ID=AF,Number=A,Type=Float,Description=\"Allele frequency\">\n" +
+            "##FORMAT=<ID=GT,Number=1,Type=String,Description=\"Genotype\">\n" +
+            "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\tFORMAT\tS1\tS2\n" +
+            "1\t100\trs1\tA\tC\t50\tPASS\tAC=1;DP=20;DB;AF=0.25\tGT\t0/1\t0/0\n" +
+            "1\t200\trs2\tA\tG,T\t50\tPASS\tAC=2,0;AF=.,0\tGT\t1/1\t0/0\n" +
+            "2\t50\trs3\tAT\tA\t.\t.\t.\tGT\t0/0\t0/1\n";
+
+    private static Path createCache(final Path vcf) {
+        final Path cache = new File(createTempDir("packedVariantCache"), "test.vcf" + PackedVariantCache.CACHE_EXTENSION).toPath();
+        PackedVariantCache.create(vcf, cache);
+        return cache;
+    }
+
+    private static Path writeTempVcf(final String text) throws IOException {
+        final Path vcf = new File(createTempDir("packedVariantCache"), "test.vcf").toPath();
+        Files.write(vcf, text.getBytes(StandardCharsets.UTF_8));
+        return vcf;
+    }
+
+    private static List<String> toStrings(final Iterator<VariantContext> variants) {
+        final List<String> strings = new ArrayList<>();
+        variants.forEachRemaining(vc -> strings.add(vc.toStringDecodeGenotypes()));
+        return strings;
+    }
+
+    @DataProvider(name = "queries")
+    public Object[][] queries() {
+        return new Object[][] {
+                {new SimpleInterval("1", 1, 99)},
+                {new SimpleInterval("1", 100, 100)},
+                {new SimpleInterval("1", 200, 201)},
+                {new SimpleInterval("1", 201, 205)},
+                {new SimpleInterval("1", 205, 205)},
+                {new SimpleInterval("1", 1, 2000)},
+                {new SimpleInterval("1", 1001, 1075)},
+                {new SimpleInterval("2", 546, 700)},
+                {new SimpleInterval("3", 302, 302)},
+                {new SimpleInterval("4", 777, 300000000)},
+                {new SimpleInterval("5", 1, 1000)}
+        };
+    }
+
+    @Test(dataProvider = "queries")
+    public void testQueriesMatchVcf(final SimpleInterval interval) throws IOException {
+        try ( final PackedVariantCache cache = new PackedVariantCache(createCache(QUERY_TEST_VCF));
+              final FeatureDataSource<VariantContext> vcf = new FeatureDataSource<>(QUERY_TEST_VCF.toFile()) ) {
+            try ( final CloseableTribbleIterator<VariantContext> results = cache.query(interval.getContig(), interval.getStart(), interval.getEnd()) ) {
+                Assert.assertEquals(toStrings(results), toStrings(vcf.query(interval)));
+            }
+        }
+    }
+
+    @Test
+    public void testIterationMatchesVcf() {
+        for ( final Path vcfPath : Arrays.asList(QUERY_TEST_VCF, GENOTYPES_TEST_VCF) ) {
+            try ( final PackedVariantCache cache = new PackedVariantCache(createCache(vcfPath));
+                  final FeatureDataSource<VariantContext> vcf = new FeatureDataSource<>(vcfPath.toFile()) ) {
+                Assert.assertEquals(toStrings(cache.iterator()), toStrings(vcf.iterator()));
+                final VCFHeader cacheHeader = (VCFHeader)cache.getHeader();
+                final VCFHeader vcfHeader = (VCFHeader)vcf.getHeader();
+                Assert.assertEquals(new ArrayList<>(cacheHeader.getMetaDataInInputOrder()), new ArrayList<>(vcfHeader.getMetaDataInInputOrder()));
+                Assert.assertEquals(cacheHeader.getGenotypeSamples(), vcfHeader.getGenotypeSamples());
+                Assert.assertTrue(cache.isQueryable());
+            }
+        }
+        try ( final PackedVariantCache cache = new PackedVariantCache(createCache(QUERY_TEST_VCF)) ) {
+            Assert.assertEquals(cache.getSequenceNames(), Arrays.asList("1", "2", "3", "4"));
+        }
+    }
+
+    @Test
+    public void testInfoValuesAreTyped() throws IOException {
+        final Path vcf = writeTempVcf(INFO_TEST_VCF_TEXT);
+        try ( final PackedVariantCache cache = new PackedVariantCache(createCache(vcf));
+              final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(vcf.toFile()) ) {
+            final List<VariantContext> cached = new ArrayList<>();
+            cache.iterator().forEachRemaining(cached::add);
+            final List<VariantContext> expected = new ArrayList<>();
+            source.iterator().forEachRemaining(expected::add);
+            Assert.assertEquals(cached.size(), expected.size());
+            for ( int i = 0; i < cached.size(); i++ ) {
+                VariantContextTestUtils.assertVariantContextsAreEqual(cached.get(i), expected.get(i), Collections.emptyList(), Collections.emptyList());
+            }
+
+            Assert.assertEquals(cached.get(0).getAttribute("AC"), 1);
+            Assert.assertEquals(cached.get(0).getAttribute("DP"), 20);
+            Assert.assertEquals(cached.get(0).getAttribute("DB"), true);
+            Assert.assertEquals(cached.get(0).getAttribute("AF"), 0.25);
+            Assert.assertEquals(cached.get(1).getAttribute("AC"), Arrays.asList(2, 0));
+            // a missing value can't be stored as a Float, so the values are kept as text
+            Assert.assertEquals(cached.get(1).getAttribute("AF"), Arrays.asList(".", "0"));
+            Assert.assertTrue(cached.get(2).getAttributes().isEmpty());
+        }
+    }
+
+    @Test
+    public void testFeatureDataSourceDecodesRequestedFieldsOnly() throws IOException {
+        final Path vcf = writeTempVcf(INFO_TEST_VCF_TEXT);
+        PackedVariantCache.create(vcf, PackedVariantCache.getCachePath(vcf));
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(vcf.toFile()) ) {
+            Assert.assertTrue(source.setVariantFieldsToDecode(new HashSet<>(Arrays.asList("DP", "DB")), true));
+            Assert.assertEquals(((VCFHeader)source.getHeader()).getNGenotypeSamples(), 0);
+            final List<VariantContext> variants = new ArrayList<>();
+            source.iterator().forEachRemaining(variants::add);
+            Assert.assertEquals(variants.stream().map(VariantContext::getID).collect(Collectors.toList()), Arrays.asList("rs1", "rs2", "rs3"));
+            Assert.assertEquals(variants.get(0).getAttributes().keySet(), new HashSet<>(Arrays.asList("DP", "DB")));
+            Assert.assertEquals(variants.get(0).getAttributeAsInt("DP", 0), 20);
+            Assert.assertTrue(variants.get(1).getAttributes().isEmpty());
+            Assert.assertTrue(variants.get(2).getAttributes().isEmpty());
+            Assert.assertTrue(variants.stream().noneMatch(VariantContext::hasGenotypes));
+        }
+
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(vcf.toFile()) ) {
+            Assert.assertTrue(source.setVariantFieldsToDecode(Collections.singleton("AC"), false));
+            final VariantContext first = source.query(new SimpleInterval("1", 100, 100)).next();
+            Assert.assertEquals(first.getAttributes().keySet(), Collections.singleton("AC"));
+            Assert.assertEquals(first.getNSamples(), 2);
+            Assert.assertTrue(first.getGenotype("S1").isHet());
+        }
+
+        // other readers decode records in full
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(QUERY_TEST_VCF.toFile()) ) {
+            Assert.assertFalse(source.setVariantFieldsToDecode(Collections.emptySet(), true));
+        }
+    }
+
+    @Test
+    public void testIncompleteCacheIsNotUpToDate() throws IOException {
+        final Path vcf = writeTempVcf(INFO_TEST_VCF_TEXT);
+        final Path cachePath = PackedVariantCache.getCachePath(vcf);
+        PackedVariantCache.create(vcf, cachePath);
+        final byte[] bytes = Files.readAllBytes(cachePath);
+        Files.write(cachePath, Arrays.copyOf(bytes, bytes.length - 1));
+        Assert.assertFalse(PackedVariantCache.hasUpToDateCache(vcf));
+        Files.write(cachePath, Arrays.copyOf(bytes, 4));
+        Assert.assertFalse(PackedVariantCache.hasUpToDateCache(vcf));
+    }
+
+    @Test
+    public void testFeatureDataSourceUsesUpToDateCache() throws IOException {
+        // an unindexed VCF can only be queried through its cache
+        final Path vcf = writeTempVcf(INFO_TEST_VCF_TEXT);
+        Assert.assertFalse(PackedVariantCache.hasUpToDateCache(vcf));
+        PackedVariantCache.create(vcf, PackedVariantCache.getCachePath(vcf));
+        Assert.assertTrue(PackedVariantCache.hasUpToDateCache(vcf));
+        try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(vcf.toFile()) ) {
+            final List<VariantContext> variants = source.queryAndPrefetch(new SimpleInterval("1", 150, 250));
+            Assert.assertEquals(variants.size(), 1);
+            Assert.assertEquals(variants.get(0).getID(), "rs2");
+        }
+
+        Files.setLastModifiedTime(vcf, FileTime.fromMillis(Files.getLastModifiedTime(vcf).toMillis() - 10000));
+        Assert.assertFalse(PackedVariantCache.hasUpToDateCache(vcf));
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testUnsortedVcfIsRejected() throws IOException {
+        final Path vcf = writeTempVcf(INFO_TEST_VCF_TEXT + "1\t300\trs4\tA\tC\t50\tPASS\t.\tGT\t0/1\t0/0\n");
+        try {
+            PackedVariantCache.create(vcf, PackedVariantCache.getCachePath(vcf));
+        } finally {
+            Assert.assertFalse(Files.exists(PackedVariantCache.getCachePath(vcf)));
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testTruncatedCacheIsRejected() throws IOException {
+        final Path cachePath = createCache(QUERY_TEST_VCF);
+        final byte[] bytes = Files.readAllBytes(cachePath);
+        Files.write(cachePath, Arrays.copyOf(bytes, bytes.length - 1));
+        new PackedVariantCache(cachePath);
+    }
+}
@@ -0,0 +1,201 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import com.google.common.collect.ImmutableList;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.testutils.VariantContextTestUtils;
+import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.broadinstitute.hellbender.testutils.VariantContextTestUtils.makeHomRef;
+import static org.broadinstitute.hellbender.testutils.VariantContextTestUtils.makeNonRef;
+
+public class ShardOrderedVariantContextWriterUnitTest extends GATKBaseTest {
+
+    private static final String CHR1 = "1";
+    private static final String SAMPLE_NAME = "XXYYZZ";
+    private static final VCFHeader HEADER = new VCFHeader(VariantContextTestUtils.getCompleteHeader().getMetaDataInInputOrder(),
+            Collections.singletonList(SAMPLE_NAME));
+
+    private static List<Integer> starts(final List<VariantContext> vcs) {
+        return vcs.stream().map(VariantContext::getStart).collect(Collectors.toList());
+    }
+
+    private static void addShard(final ShardOrderedVariantContextWriter writer, final int shardIndex, final List<VariantContext> vcs) {
+        vcs.forEach(vc -> writer.add(shardIndex, vc));
+        writer.completeShard(shardIndex);
+    }
+
+    @Test
+    public void testNextShardIsWrittenAsItIsAdded() {
+        final GVCFWriterUnitTest.MockWriter mockWriter = new GVCFWriterUnitTest.MockWriter();
+        try (final ShardOrderedVariantContextWriter writer = new ShardOrderedVariantContextWriter(mockWriter, HEADER)) {
+            writer.add(0, makeNonRef(CHR1, 1));
+            Assert.assertEquals(starts(mockWriter.emitted), Collections.singletonList(1));
+            writer.add(0, makeNonRef(CHR1, 2));
+            writer.completeShard(0);
+            Assert.assertEquals(starts(mockWriter.emitted), Arrays.asList(1, 2));
+            addShard(writer, 1, Collections.singletonList(makeNonRef(CHR1, 3)));
+            Assert.assertEquals(starts(mockWriter.emitted), Arrays.asList(1, 2, 3));
+            Assert.assertEquals(writer.getNextShardIndex(), 2);
+            Assert.assertEquals(writer.getNumPendingShards(), 0);
+            Assert.assertEquals(writer.getNumBytesInRam(), 0);
+        }
+        Assert.assertFalse(mockWriter.closed);
+    }
+
+    @Test
+    public void testOutOfOrderShardsAreReordered() {
+        final GVCFWriterUnitTest.MockWriter mockWriter = new GVCFWriterUnitTest.MockWriter();
+        try (final ShardOrderedVariantContextWriter writer = new ShardOrderedVariantContextWriter(mockWriter, HEADER)) {
+            addShard(writer, 2, Collections.singletonList(makeNonRef(CHR1, 30)));
+            addShard(writer, 1, Collections.emptyList());
+            Assert.assertTrue(mockWriter.emitted.isEmpty());
+            Assert.assertEquals(writer.getNumPendingShards(), 2);
+            Assert.assertEquals(writer.getNumBytesInRam(), ShardOrderedVariantContextWriter.estimateSizeInBytes(makeNonRef(CHR1, 30)));
+
+            addShard(writer, 0, Arrays.asList(makeNonRef(CHR1, 10), makeNonRef(CHR1, 11)));
+            Assert.assertEquals(starts(mockWriter.emitted), Arrays.asList(10, 11, 30));
+            Assert.assertEquals(writer.getNumPendingShards(), 0);
+            Assert.assertEquals(writer.getNumBytesInRam(), 0);
+
+            addShard(writer, 4, Collections.singletonList(makeNonRef(CHR1, 50)));
+            addShard(writer, 3, Collections.singletonList(makeNonRef(CHR1, 40)));
+            Assert.assertEquals(starts(mockWriter.emitted), Arrays.asList(10, 11, 30, 40, 50));
+        }
+    }
+
+    @Test
+    public void testPendingShardInProgressIsStreamedOnceItIsNext() {
+        final GVCFWriterUnitTest.MockWriter mockWriter = new GVCFWriterUnitTest.MockWriter();
+        try (final ShardOrderedVariantContextWriter writer = new ShardOrderedVariantContextWriter(mockWriter, HEADER)) {
+            writer.add(1, makeNonRef(CHR1, 20));
+            addShard(writer, 2, Collections.singletonList(makeNonRef(CHR1, 30)));
+            addShard(writer, 0, Collections.singletonList(makeNonRef(CHR1, 10)));
+
+            // shard 1 is now next, but its later records and shard 2 must wait for it to complete
+            Assert.assertEquals(starts(mockWriter.emitted), Arrays.asList(10, 20));
+            Assert.assertEquals(writer.getNextShardIndex(), 1);
+            writer.add(1, makeNonRef(CHR1, 21));
+            Assert.assertEquals(starts(mockWriter.emitted), Arrays.asList(10, 20, 21));
+            writer.completeShard(1);
+            Assert.assertEquals(starts(mockWriter.emitted), Arrays.asList(10, 20, 21, 30));
+        }
+    }
+
+    @Test
+    public void testSpilledShardsAreRestored() {
+        final GVCFWriterUnitTest.MockWriter mockWriter = new GVCFWriterUnitTest.MockWriter();
+        try (final ShardOrderedVariantContextWriter writer = new ShardOrderedVariantContextWriter(mockWriter, HEADER, 1)) {
+            // shard 1 is spilled while still in progress, and its later records are appended to the spill file
+            writer.add(1, makeNonRef(CHR1, 20));
+            addShard(writer, 2, Collections.singletonList(makeNonRef(CHR1, 30)));
+            writer.add(1, makeNonRef(CHR1, 21));
+            writer.completeShard(1);
+            Assert.assertEquals(writer.getNumSpilledShards(), 2);
+            Assert.assertEquals(writer.getNumBytesInRam(), 0);
+
+            addShard(writer, 0, Collections.singletonList(makeNonRef(CHR1, 10)));
+            Assert.assertEquals(starts(mockWriter.emitted), Arrays.asList(10, 20, 21, 30));
+            for ( final VariantContext vc : mockWriter.emitted ) {
+                Assert.assertEquals(vc.getAlleles(), makeNonRef(CHR1, vc.getStart()).getAlleles());
+                Assert.assertEquals(vc.getGenotype(SAMPLE_NAME).getGQ(), 30);
+            }
+        }
+    }
+
+    @Test
+    public void testShardsFurthestFromBeingWrittenAreSpilledFirst() {
+        final VariantContext vc = makeNonRef(CHR1, 1);
+        final long maxBytes = 2 * ShardOrderedVariantContextWriter.estimateSizeInBytes(vc);
+        final GVCFWriterUnitTest.MockWriter mockWriter = new GVCFWriterUnitTest.MockWriter();
+        try (final ShardOrderedVariantContextWriter writer = new ShardOrderedVariantContextWriter(mockWriter, HEADER, maxBytes)) {
+            addShard(writer, 1, Collections.singletonList(makeNonRef(CHR1, 10)));
+            addShard(writer, 3, Collections.singletonList(makeNonRef(CHR1, 30)));
+            Assert.assertEquals(writer.getNumSpilledShards(), 0);
+
+            addShard(writer, 2, Collections.singletonList(makeNonRef(CHR1, 20)));
+            Assert.assertEquals(writer.getNumSpilledShards(), 1);
+            Assert.assertEquals(writer.getNumBytesInRam(), maxBytes);
+
+            addShard(writer, 0, Collections.emptyList());
+            Assert.assertEquals(starts(mockWriter.emitted), Arrays.asList(10, 20, 30));
+        }
+    }
+
+    @Test
+    public void testHomRefBlocksAreMergedAcrossShardBoundaries() {
+        final GVCFWriterUnitTest.MockWriter mockWriter = new GVCFWriterUnitTest.MockWriter();
+        final GVCFWriter gvcfWriter = new GVCFWriter(mockWriter, ImmutableList.of(1, 10, 20), HomoSapiensConstants.DEFAULT_PLOIDY);
+        try (final ShardOrderedVariantContextWriter writer = new ShardOrderedVariantContextWriter(gvcfWriter, HEADER, 0)) {
+            addShard(writer, 1, Arrays.asList(makeHomRef(3), makeHomRef(4)));
+            addShard(writer, 0, Arrays.asList(makeHomRef(1), makeHomRef(2)));
+        }
+        gvcfWriter.close();
+
+        Assert.assertEquals(mockWriter.emitted.size(), 1);
+        Assert.assertEquals(mockWriter.emitted.get(0).getStart(), 1);
+        Assert.assertEquals(mockWriter.emitted.get(0).getEnd(), 4);
+    }
+
+    @Test
+    public void testConcurrentProducersAreWrittenInShardOrder() throws Exception {
+        final int numShards = 50;
+        final int recordsPerShard = 20;
+        final GVCFWriterUnitTest.MockWriter mockWriter = new GVCFWriterUnitTest.MockWriter();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (final ShardOrderedVariantContextWriter writer = new ShardOrderedVariantContextWriter(mockWriter, HEADER,
+                10 * ShardOrderedVariantContextWriter.estimateSizeInBytes(makeNonRef(CHR1, 1)))) {
+            final List<Future<?>> results = new ArrayList<>();
+            for ( int i = numShards - 1; i >= 0; i-- ) {
+                final int shardIndex = i;
+                results.add(executor.submit(() -> addShard(writer, shardIndex, IntStream.range(0, recordsPerShard)
+                        .mapToObj(j -> makeNonRef(CHR1, shardIndex * recordsPerShard + j + 1)).collect(Collectors.toList()))));
+            }
+            for ( final Future<?> result : results ) {
+                result.get();
+            }
+            Assert.assertTrue(writer.getNumSpilledShards() > 0);
+        } finally {
+            executor.shutdown();
+        }
+
+        Assert.assertEquals(starts(mockWriter.emitted), IntStream.rangeClosed(1, numShards * recordsPerShard).boxed().collect(Collectors.toList()));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCompletedShardIsRejected() {
+        try (final ShardOrderedVariantContextWriter writer = new ShardOrderedVariantContextWriter(new GVCFWriterUnitTest.MockWriter(), HEADER)) {
+            addShard(writer, 1, Collections.emptyList());
+            writer.add(1, makeNonRef(CHR1, 1));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testWrittenShardIsRejected() {
+        try (final ShardOrderedVariantContextWriter writer = new ShardOrderedVariantContextWriter(new GVCFWriterUnitTest.MockWriter(), HEADER)) {
+            addShard(writer, 0, Collections.emptyList());
+            writer.completeShard(0);
+        }
+    }
+
+    @Test(expectedExceptions = GATKException.class)
+    public void testCloseWithMissingShardFails() {
+        final ShardOrderedVariantContextWriter writer = new ShardOrderedVariantContextWriter(new GVCFWriterUnitTest.MockWriter(), HEADER);
+        addShard(writer, 1, Collections.singletonList(makeNonRef(CHR1, 1)));
+        writer.close();
+    }
+}